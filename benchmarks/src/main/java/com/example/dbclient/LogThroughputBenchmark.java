@@ -0,0 +1,72 @@
+package com.example.dbclient;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Пропускная способность журнала: вызов {@code log()} из нескольких потоков выборки сразу.
+ * {@code logLine} повторяет формирование строки в {@code DbClientApp.log} (отметка времени и уровень),
+ * {@code enqueueOnly} — только постановку в очередь {@link AsyncFileLogger}. Запись на диск идёт
+ * в фоновом потоке логгера и дописывается в {@code tearDown}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class LogThroughputBenchmark {
+    private static final String LINE = "2026-01-01 12:00:00 - [Запрос 1] Получено строк: 500 (2400 строк/с)";
+
+    private Path logDir;
+    private AsyncFileLogger logger;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        logDir = Files.createTempDirectory("bench-log");
+        logger = new AsyncFileLogger(logDir, 2);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        logger.close();
+        try (Stream<Path> files = Files.walk(logDir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void enqueueOnly() {
+        logger.log("debug", LINE);
+    }
+
+    @Benchmark
+    public void logLine() {
+        String message = "[Запрос 1] Получено строк: 500 (2400 строк/с)";
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+        String lower = message.toLowerCase();
+        String level = lower.contains("ошибка") || lower.contains("[error]") ? "error" : "debug";
+        logger.log(level, timestamp + " - " + message);
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.dbclient;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Сохранение библиотеки запросов и подключений: полная перезапись JSON при каждой правке
+ * против записи в журнал {@link JournaledStore}, а также загрузка при запуске
+ * (снимок с журналом) и сворачивание журнала.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistenceBenchmark {
+    @Param({"1000", "10000", "50000"})
+    public int queryCount;
+
+    private final ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private Path dir;
+    private List<SavedQuery> queries;
+    private File rewriteFile;
+    private JournaledStore<SavedQuery> journal;
+    private JournaledStore<SavedQuery> loadedStore;
+    private JournaledStore<DbConnectionInfo> connections;
+    private int edit;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("bench-persist");
+        queries = new ArrayList<>(queryCount);
+        for (int i = 0; i < queryCount; i++) {
+            SavedQuery query = new SavedQuery("check_" + i,
+                    "select count(*) from audit_log where status = 'FAILED' and created_at > sysdate - " + i);
+            query.setQueryTimeoutSeconds(30);
+            queries.add(query);
+        }
+        rewriteFile = dir.resolve("rewrite.json").toFile();
+
+        File journalFile = dir.resolve("queries.json").toFile();
+        mapper.writeValue(journalFile, queries);
+        journal = new JournaledStore<>(mapper, journalFile, SavedQuery.class, "name", q -> q, Integer.MAX_VALUE);
+        journal.load();
+
+        // снимок и 400 записей журнала — типичное состояние между сворачиваниями
+        File loadFile = dir.resolve("load.json").toFile();
+        mapper.writeValue(loadFile, queries);
+        JournaledStore<SavedQuery> writer = new JournaledStore<>(mapper, loadFile, SavedQuery.class, "name",
+                q -> q, Integer.MAX_VALUE);
+        writer.load();
+        for (int i = 0; i < 400; i++) {
+            writer.put(queries.get(i % queryCount));
+        }
+        loadedStore = new JournaledStore<>(mapper, loadFile, SavedQuery.class, "name", q -> q, Integer.MAX_VALUE);
+
+        connections = new JournaledStore<>(mapper, dir.resolve("connections.json").toFile(),
+                DbConnectionInfo.class, "name", c -> c, Integer.MAX_VALUE);
+        connections.load();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        journal.close();
+        connections.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /** Прежний способ: правка одного запроса переписывает весь файл. */
+    @Benchmark
+    public void saveQueryByFullRewrite() throws IOException {
+        queries.get(edit++ % queryCount).setQueryTimeoutSeconds(edit % 60);
+        mapper.writeValue(rewriteFile, queries);
+    }
+
+    @Benchmark
+    public void saveQueryToJournal() throws IOException {
+        SavedQuery query = queries.get(edit++ % queryCount);
+        query.setQueryTimeoutSeconds(edit % 60);
+        journal.put(query);
+    }
+
+    @Benchmark
+    public void saveConnectionToJournal() throws IOException {
+        DbConnectionInfo info = new DbConnectionInfo("db" + (edit++ % 100), "PostgreSQL",
+                "jdbc:postgresql://localhost:5432/app", "app", "ENC:c2VjcmV0");
+        connections.put(info);
+    }
+
+    /** Загрузка при запуске: снимок плюс 400 записей журнала. */
+    @Benchmark
+    public List<SavedQuery> loadSnapshotAndJournal() throws IOException {
+        return loadedStore.load();
+    }
+
+    /** Прежняя загрузка: чтение всего снимка одним вызовом Jackson, без журнала. */
+    @Benchmark
+    public List<SavedQuery> loadByReadValue() throws IOException {
+        return mapper.readValue(dir.resolve("load.json").toFile(), new TypeReference<List<SavedQuery>>() {});
+    }
+
+    @Benchmark
+    public void compact() throws IOException {
+        journal.compact();
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.dbclient;
+
+import com.example.dbclient.fakejdbc.FakeResultSpec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Путь данных таблицы результата на миллионе строк — то, что делают ячейки {@link ResultGrid}
+ * при прокрутке: номер строки из {@link ResultRowList}, затем значение из хранилища и его текст.
+ * Сам TableView требует запущенного FX и здесь не участвует; {@code publish} — это пакетное
+ * добавление строк в виртуальный список, которое раньше было заполнением таблицы целиком.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ResultGridScrollBenchmark {
+    private static final int VISIBLE_ROWS = 40;
+    private static final int VISIBLE_COLUMNS = 12;
+
+    @Param({"1000000"})
+    public int rows;
+
+    @Param({"268435456", "0"})
+    public long heapBudgetBytes;
+
+    private SpillingResultStore store;
+    private ResultRowList rowList;
+    private Path spillDir;
+    private int scrollTop;
+    private final SplittableRandom random = new SplittableRandom(7);
+    private final CellFormatter formatter = new CellFormatter();
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException, IOException {
+        spillDir = Files.createTempDirectory("bench-scroll");
+        String url = FakeResultSpec.url(rows, "long,double,timestamp,varchar:24*6,enum:12,decimal:12:2*2", 20, 0);
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("select * from fake")) {
+            store = new SpillingResultStore(rs.getMetaData(), spillDir, heapBudgetBytes);
+            while (rs.next()) {
+                store.appendRow(rs);
+            }
+            store.flush();
+        }
+        rowList = new ResultRowList();
+        rowList.publish(store.getRowCount());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        store.close();
+        SpillingResultStore.deleteStaleSpillFiles(spillDir);
+        Files.deleteIfExists(spillDir);
+    }
+
+    /** Прокрутка колесом: окно сдвигается на три строки. */
+    @Benchmark
+    public void scrollByWheel(Blackhole blackhole) {
+        scrollTop = (scrollTop + 3) % (rows - VISIBLE_ROWS);
+        renderPage(scrollTop, blackhole);
+    }
+
+    /** Перетаскивание ползунка: окно в случайном месте результата. */
+    @Benchmark
+    public void jumpToRandomPage(Blackhole blackhole) {
+        renderPage(random.nextInt(rows - VISIBLE_ROWS), blackhole);
+    }
+
+    /** Публикация результата в таблицу порциями, как при пакетном обновлении во время выборки. */
+    @Benchmark
+    public int publishInBatches() {
+        ResultRowList list = new ResultRowList();
+        int step = Math.max(1, rows / 200);
+        for (int published = step; published < rows; published += step) {
+            list.publish(published);
+        }
+        list.publish(rows);
+        return list.size();
+    }
+
+    private void renderPage(int top, Blackhole blackhole) {
+        for (int index = top; index < top + VISIBLE_ROWS; index++) {
+            int row = rowList.rowAt(index);
+            for (int column = 0; column < VISIBLE_COLUMNS; column++) {
+                blackhole.consume(formatter.format(store.getValue(row, column)));
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.dbclient;
+
+import com.example.dbclient.fakejdbc.FakeResultSpec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Выборка результата так же, как в {@code executeQueryAsync}: {@link FetchControl} на каждой строке,
+ * {@link SpillingResultStore#appendRow} и отметка времени для пакетной публикации в таблицу.
+ * Бюджет кучи {@code 0} заставляет результат сразу уходить в файл подкачки.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResultMaterializationBenchmark {
+    @Param({"100000"})
+    public long rows;
+
+    @Param({"long,double,timestamp,varchar:20,enum:8", "decimal:12:2*4,number,varchar:60*5", "varchar:12*200"})
+    public String columns;
+
+    @Param({"0"})
+    public long fetchLatencyMicros;
+
+    @Param({"268435456", "0"})
+    public long heapBudgetBytes;
+
+    private Connection connection;
+    private Path spillDir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException, IOException {
+        connection = DriverManager.getConnection(FakeResultSpec.url(rows, columns, 20, fetchLatencyMicros));
+        spillDir = Files.createTempDirectory("bench-spill");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException, IOException {
+        connection.close();
+        SpillingResultStore.deleteStaleSpillFiles(spillDir);
+        Files.deleteIfExists(spillDir);
+    }
+
+    @Benchmark
+    public int materialize() throws SQLException, IOException, InterruptedException {
+        FetchControl control = new FetchControl(0);
+        try (Statement stmt = connection.createStatement()) {
+            stmt.setFetchSize(500);
+            try (ResultSet rs = stmt.executeQuery("select * from fake")) {
+                SpillingResultStore store = new SpillingResultStore(rs.getMetaData(), spillDir, heapBudgetBytes);
+                try {
+                    int fetched = 0;
+                    long lastFlushNanos = System.nanoTime();
+                    while (!control.isCancelled()) {
+                        control.isLimitReached(fetched);
+                        if (!control.awaitAllowance(fetched) || !rs.next()) {
+                            break;
+                        }
+                        store.appendRow(rs);
+                        fetched++;
+                        long now = System.nanoTime();
+                        if (now - lastFlushNanos >= 200_000_000L) {
+                            store.flush();
+                            lastFlushNanos = now;
+                        }
+                    }
+                    store.flush();
+                    return store.getRowCount();
+                } finally {
+                    store.close();
+                }
+            }
+        }
+    }
+}
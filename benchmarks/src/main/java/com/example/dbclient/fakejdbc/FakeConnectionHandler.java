@@ -0,0 +1,108 @@
+package com.example.dbclient.fakejdbc;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+
+/** Соединение: выдаёт выражения и хранит флаги, которые проверяет пул соединений. */
+final class FakeConnectionHandler extends FakeObjectHandler {
+    private final String url;
+    private final FakeResultSpec spec;
+    private boolean closed;
+    private boolean autoCommit = true;
+    private boolean readOnly;
+    private int isolation = Connection.TRANSACTION_READ_COMMITTED;
+
+    private FakeConnectionHandler(String url, FakeResultSpec spec) {
+        super(Connection.class);
+        this.url = url;
+        this.spec = spec;
+    }
+
+    static Connection create(String url, FakeResultSpec spec) {
+        return proxy(Connection.class, new FakeConnectionHandler(url, spec));
+    }
+
+    @Override
+    Object handle(Object proxy, String method, Object[] args) {
+        switch (method) {
+            case "createStatement":
+            case "prepareStatement":
+            case "prepareCall":
+                return FakeStatementHandler.create((Connection) proxy, spec);
+            case "isValid":
+                return !closed;
+            case "close":
+                closed = true;
+                return null;
+            case "isClosed":
+                return closed;
+            case "getAutoCommit":
+                return autoCommit;
+            case "setAutoCommit":
+                autoCommit = (Boolean) args[0];
+                return null;
+            case "isReadOnly":
+                return readOnly;
+            case "setReadOnly":
+                readOnly = (Boolean) args[0];
+                return null;
+            case "getTransactionIsolation":
+                return isolation;
+            case "setTransactionIsolation":
+                isolation = (Integer) args[0];
+                return null;
+            case "commit":
+            case "rollback":
+            case "clearWarnings":
+            case "setNetworkTimeout":
+            case "setClientInfo":
+                return null;
+            case "getWarnings":
+            case "getSchema":
+            case "getCatalog":
+                return null;
+            case "getMetaData":
+                return proxy(DatabaseMetaData.class, new MetaDataHandler((Connection) proxy));
+            default:
+                return UNHANDLED;
+        }
+    }
+
+    private final class MetaDataHandler extends FakeObjectHandler {
+        private final Connection connection;
+
+        MetaDataHandler(Connection connection) {
+            super(DatabaseMetaData.class);
+            this.connection = connection;
+        }
+
+        @Override
+        Object handle(Object proxy, String method, Object[] args) {
+            switch (method) {
+                case "getConnection":
+                    return connection;
+                case "getURL":
+                    return url;
+                case "getUserName":
+                    return "fake";
+                case "getDatabaseProductName":
+                    return "Fake";
+                case "getDatabaseProductVersion":
+                case "getDriverVersion":
+                    return "1.0";
+                case "getDriverName":
+                    return FakeDriver.class.getName();
+                case "getDatabaseMajorVersion":
+                case "getDriverMajorVersion":
+                case "getJDBCMajorVersion":
+                    return 1;
+                case "getDatabaseMinorVersion":
+                case "getDriverMinorVersion":
+                case "getJDBCMinorVersion":
+                    return 0;
+                default:
+                    return UNHANDLED;
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.dbclient.fakejdbc;
+
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+/**
+ * Драйвер JDBC, работающий в процессе без сервера: любой запрос возвращает результат, описанный
+ * адресом подключения ({@link FakeResultSpec}). Текст SQL и параметры игнорируются.
+ * Нужен для замеров выборки, таблицы результата и пула соединений без живой БД.
+ *
+ * <p>Регистрируется в {@link DriverManager} через {@code META-INF/services/java.sql.Driver};
+ * в приложении подключение с неизвестным типом открывается через DriverManager, так что
+ * {@code DbConnectionInfo} с типом {@code Fake} и адресом {@code jdbc:fake:…} тоже работает.
+ */
+public class FakeDriver implements Driver {
+    static {
+        try {
+            DriverManager.registerDriver(new FakeDriver());
+        } catch (SQLException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @Override
+    public Connection connect(String url, Properties info) throws SQLException {
+        if (!acceptsURL(url)) {
+            return null; // по контракту Driver: адрес другого драйвера
+        }
+        return FakeConnectionHandler.create(url, FakeResultSpec.parse(url));
+    }
+
+    @Override
+    public boolean acceptsURL(String url) {
+        return FakeResultSpec.accepts(url);
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+        return new DriverPropertyInfo[0];
+    }
+
+    @Override
+    public int getMajorVersion() {
+        return 1;
+    }
+
+    @Override
+    public int getMinorVersion() {
+        return 0;
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+        return false;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException("getParentLogger");
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.dbclient.fakejdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.SQLFeatureNotSupportedException;
+
+/**
+ * Основа обработчиков динамических прокси для объектов JDBC: методы {@link Object}, {@code unwrap},
+ * {@code isWrapperFor} и ответ «не поддерживается» на всё, что не реализовал наследник.
+ * Реализованы только методы, которые вызывают приложение и бенчмарки.
+ */
+abstract class FakeObjectHandler implements InvocationHandler {
+    /** Маркер «метод не обработан» для {@link #handle}. */
+    static final Object UNHANDLED = new Object();
+    private static final Object[] NO_ARGS = new Object[0];
+
+    private final Class<?> type;
+
+    FakeObjectHandler(Class<?> type) {
+        this.type = type;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T proxy(Class<T> type, FakeObjectHandler handler) {
+        return (T) Proxy.newProxyInstance(FakeObjectHandler.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    @Override
+    public final Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        switch (name) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "Fake" + type.getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+            case "unwrap":
+                if (((Class<?>) args[0]).isInstance(proxy)) {
+                    return proxy;
+                }
+                throw new SQLFeatureNotSupportedException("unwrap " + args[0]);
+            case "isWrapperFor":
+                return ((Class<?>) args[0]).isInstance(proxy);
+            default:
+                Object result = handle(proxy, name, args == null ? NO_ARGS : args);
+                if (result != UNHANDLED) {
+                    return result;
+                }
+                throw new SQLFeatureNotSupportedException(type.getSimpleName() + "." + name);
+        }
+    }
+
+    /** @return результат вызова или {@link #UNHANDLED} */
+    abstract Object handle(Object proxy, String method, Object[] args) throws Exception;
+}
@@ -0,0 +1,235 @@
+package com.example.dbclient.fakejdbc;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Однонаправленный результат, генерирующий строки по мере {@code next()}. Каждые {@code fetchSize}
+ * строк выдерживается задержка из {@link FakeResultSpec}, как при запросе очередной порции у сервера.
+ */
+final class FakeResultSetHandler extends FakeObjectHandler {
+    private final Statement statement;
+    private final FakeStatementHandler owner;
+    private final FakeResultSpec spec;
+    private final List<FakeResultSpec.Column> columns;
+    private final long rows;
+    private int fetchSize;
+    private long row = -1;
+    private boolean wasNull;
+    private boolean closed;
+
+    FakeResultSetHandler(Statement statement, FakeStatementHandler owner, FakeResultSpec spec, long rows, int fetchSize) {
+        super(ResultSet.class);
+        this.statement = statement;
+        this.owner = owner;
+        this.spec = spec;
+        this.columns = spec.getColumns();
+        this.rows = rows;
+        this.fetchSize = fetchSize;
+    }
+
+    void close() {
+        closed = true;
+    }
+
+    @Override
+    Object handle(Object proxy, String method, Object[] args) throws SQLException {
+        switch (method) {
+            case "next":
+                return next();
+            case "wasNull":
+                return wasNull;
+            case "getString":
+            case "getNString":
+                return value(args[0], Types.VARCHAR);
+            case "getLong":
+                return numberOrZero(value(args[0], Types.BIGINT)).longValue();
+            case "getInt":
+                return numberOrZero(value(args[0], Types.BIGINT)).intValue();
+            case "getDouble":
+                return numberOrZero(value(args[0], Types.DOUBLE)).doubleValue();
+            case "getFloat":
+                return numberOrZero(value(args[0], Types.DOUBLE)).floatValue();
+            case "getBigDecimal":
+                return value(args[0], Types.NUMERIC);
+            case "getTimestamp":
+                return value(args[0], Types.TIMESTAMP);
+            case "getDate":
+                Timestamp timestamp = (Timestamp) value(args[0], Types.TIMESTAMP);
+                return timestamp == null ? null : new java.sql.Date(timestamp.getTime());
+            case "getObject":
+                return value(args[0], Types.OTHER);
+            case "getBoolean":
+                return numberOrZero(value(args[0], Types.BIGINT)).longValue() % 2 != 0;
+            case "findColumn":
+                return findColumn((String) args[0]);
+            case "getMetaData":
+                return proxy(ResultSetMetaData.class, new MetaDataHandler());
+            case "getStatement":
+                return statement;
+            case "getRow":
+                return (int) (row + 1);
+            case "getFetchSize":
+                return fetchSize;
+            case "setFetchSize":
+                fetchSize = Math.max(1, (Integer) args[0]);
+                return null;
+            case "getType":
+                return ResultSet.TYPE_FORWARD_ONLY;
+            case "getConcurrency":
+                return ResultSet.CONCUR_READ_ONLY;
+            case "getWarnings":
+                return null;
+            case "clearWarnings":
+                return null;
+            case "close":
+                closed = true;
+                return null;
+            case "isClosed":
+                return closed;
+            default:
+                return UNHANDLED;
+        }
+    }
+
+    private boolean next() throws SQLException {
+        if (closed) {
+            throw new SQLException("Результат закрыт");
+        }
+        if (owner.isCancelled()) {
+            throw new SQLException("Запрос отменён");
+        }
+        if (row + 1 >= rows) {
+            row = rows;
+            return false;
+        }
+        row++;
+        long latency = spec.getFetchLatencyNanos();
+        if (latency > 0 && row % fetchSize == 0) {
+            LockSupport.parkNanos(latency);
+        }
+        return true;
+    }
+
+    /** Значение колонки в запрошенном виде: строка, число, дата или объект естественного типа. */
+    private Object value(Object columnRef, int as) throws SQLException {
+        if (row < 0 || row >= rows) {
+            throw new SQLException("Нет текущей строки");
+        }
+        int index = columnRef instanceof String ? findColumn((String) columnRef) : (Integer) columnRef;
+        if (index < 1 || index > columns.size()) {
+            throw new SQLException("Нет колонки " + index);
+        }
+        wasNull = spec.isNull(row, index);
+        if (wasNull) {
+            return null;
+        }
+        FakeResultSpec.Column column = columns.get(index - 1);
+        switch (as) {
+            case Types.VARCHAR:
+                Object natural = column.objectValue(row);
+                return natural instanceof String ? natural : natural.toString();
+            case Types.BIGINT:
+            case Types.DOUBLE:
+                return toNumber(column, row);
+            case Types.NUMERIC:
+                Number number = toNumber(column, row);
+                return number instanceof BigDecimal ? number : new BigDecimal(number.toString());
+            case Types.TIMESTAMP:
+                if (column.getSqlType() == Types.TIMESTAMP || column.getSqlType() == Types.DATE) {
+                    return column.timestampValue(row);
+                }
+                throw new SQLException("Колонка " + column.getName() + " не является датой");
+            default:
+                return column.objectValue(row);
+        }
+    }
+
+    private static Number toNumber(FakeResultSpec.Column column, long row) throws SQLException {
+        switch (column.getSqlType()) {
+            case Types.INTEGER:
+            case Types.BIGINT:
+                return column.longValue(row);
+            case Types.DOUBLE:
+                return column.doubleValue(row);
+            case Types.NUMERIC:
+                return column.decimalValue(row);
+            default:
+                throw new SQLException("Колонка " + column.getName() + " не является числом");
+        }
+    }
+
+    private static Number numberOrZero(Object value) {
+        return value == null ? 0 : (Number) value;
+    }
+
+    private int findColumn(String label) throws SQLException {
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).getName().equalsIgnoreCase(label)) {
+                return i + 1;
+            }
+        }
+        throw new SQLException("Нет колонки " + label);
+    }
+
+    private final class MetaDataHandler extends FakeObjectHandler {
+        MetaDataHandler() {
+            super(ResultSetMetaData.class);
+        }
+
+        @Override
+        Object handle(Object proxy, String method, Object[] args) {
+            if (method.equals("getColumnCount")) {
+                return columns.size();
+            }
+            if (args.length != 1 || !(args[0] instanceof Integer)) {
+                return UNHANDLED;
+            }
+            FakeResultSpec.Column column = columns.get((Integer) args[0] - 1);
+            switch (method) {
+                case "getColumnName":
+                case "getColumnLabel":
+                    return column.getName();
+                case "getColumnType":
+                    return column.getSqlType();
+                case "getColumnTypeName":
+                    return column.getTypeName();
+                case "getPrecision":
+                    return column.getPrecision();
+                case "getScale":
+                    return column.getScale();
+                case "getColumnDisplaySize":
+                    return Math.max(column.getPrecision(), 1);
+                case "getColumnClassName":
+                    return column.objectValue(0).getClass().getName();
+                case "isNullable":
+                    return ResultSetMetaData.columnNullable;
+                case "getTableName":
+                case "getSchemaName":
+                case "getCatalogName":
+                    return "";
+                case "isSigned":
+                    return column.getSqlType() != Types.VARCHAR;
+                case "isReadOnly":
+                    return true;
+                case "isAutoIncrement":
+                case "isCaseSensitive":
+                case "isCurrency":
+                case "isWritable":
+                case "isDefinitelyWritable":
+                    return false;
+                case "isSearchable":
+                    return true;
+                default:
+                    return UNHANDLED;
+            }
+        }
+    }
+}
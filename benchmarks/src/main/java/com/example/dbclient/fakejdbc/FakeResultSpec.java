@@ -0,0 +1,238 @@
+package com.example.dbclient.fakejdbc;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Описание генерируемого результата, разобранное из адреса подключения:
+ * <pre>jdbc:fake:rows=100000;columns=long,double,timestamp,varchar:40,decimal:12:2;nullEvery=50;fetchLatencyMicros=200</pre>
+ * <ul>
+ *     <li>{@code rows} — число строк;</li>
+ *     <li>{@code columns} — типы колонок через запятую: {@code int}, {@code long}, {@code double},
+ *     {@code decimal:точность:масштаб}, {@code number} (NUMERIC без точности, как в Oracle),
+ *     {@code date}, {@code timestamp}, {@code varchar:ширина}, {@code enum:число_значений};
+ *     суффикс {@code *n} повторяет колонку n раз ({@code varchar:20*50});</li>
+ *     <li>{@code nullEvery} — каждое n-е значение колонки — NULL (0 — без NULL);</li>
+ *     <li>{@code fetchLatencyMicros} — задержка на каждую порцию из {@code fetchSize} строк,
+ *     имитирующая сетевой обмен с сервером.</li>
+ * </ul>
+ * Значения детерминированы номером строки и колонки, поэтому прогоны сравнимы между собой.
+ */
+public final class FakeResultSpec {
+    private static final String PREFIX = "jdbc:fake:";
+    private static final long BASE_EPOCH_MILLIS = 1_700_000_000_000L;
+    private static final char[] TEXT = buildText(8192);
+
+    private final long rows;
+    private final List<Column> columns;
+    private final int nullEvery;
+    private final long fetchLatencyNanos;
+
+    private FakeResultSpec(long rows, List<Column> columns, int nullEvery, long fetchLatencyNanos) {
+        this.rows = rows;
+        this.columns = columns;
+        this.nullEvery = nullEvery;
+        this.fetchLatencyNanos = fetchLatencyNanos;
+    }
+
+    public static boolean accepts(String url) {
+        return url != null && url.startsWith(PREFIX);
+    }
+
+    /** Адрес подключения для заданных параметров. */
+    public static String url(long rows, String columns, int nullEvery, long fetchLatencyMicros) {
+        return PREFIX + "rows=" + rows + ";columns=" + columns + ";nullEvery=" + nullEvery
+                + ";fetchLatencyMicros=" + fetchLatencyMicros;
+    }
+
+    public static FakeResultSpec parse(String url) throws SQLException {
+        if (!accepts(url)) {
+            throw new SQLException("Ожидается адрес " + PREFIX + "…: " + url);
+        }
+        long rows = 1000;
+        String columnSpec = "long,varchar:20";
+        int nullEvery = 0;
+        long latencyMicros = 0;
+        for (String part : url.substring(PREFIX.length()).split(";")) {
+            if (part.isBlank()) {
+                continue;
+            }
+            int eq = part.indexOf('=');
+            if (eq < 0) {
+                throw new SQLException("Параметр без значения: " + part);
+            }
+            String key = part.substring(0, eq).trim();
+            String value = part.substring(eq + 1).trim();
+            try {
+                switch (key) {
+                    case "rows":
+                        rows = Long.parseLong(value);
+                        break;
+                    case "columns":
+                        columnSpec = value;
+                        break;
+                    case "nullEvery":
+                        nullEvery = Integer.parseInt(value);
+                        break;
+                    case "fetchLatencyMicros":
+                        latencyMicros = Long.parseLong(value);
+                        break;
+                    default:
+                        throw new SQLException("Неизвестный параметр: " + key);
+                }
+            } catch (NumberFormatException e) {
+                throw new SQLException("Неверное число в параметре " + key + ": " + value);
+            }
+        }
+        return new FakeResultSpec(rows, parseColumns(columnSpec), nullEvery, latencyMicros * 1000);
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public List<Column> getColumns() {
+        return columns;
+    }
+
+    long getFetchLatencyNanos() {
+        return fetchLatencyNanos;
+    }
+
+    boolean isNull(long row, int column) {
+        return nullEvery > 0 && (row + column) % nullEvery == nullEvery - 1;
+    }
+
+    private static List<Column> parseColumns(String spec) throws SQLException {
+        List<Column> result = new ArrayList<>();
+        for (String item : spec.split(",")) {
+            String text = item.trim().toLowerCase(Locale.ROOT);
+            int repeat = 1;
+            int star = text.indexOf('*');
+            if (star >= 0) {
+                repeat = Integer.parseInt(text.substring(star + 1));
+                text = text.substring(0, star);
+            }
+            String[] parts = text.split(":");
+            for (int i = 0; i < repeat; i++) {
+                result.add(column(parts, result.size() + 1));
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    private static Column column(String[] parts, int index) throws SQLException {
+        String name = "C" + index;
+        switch (parts[0]) {
+            case "int":
+                return new Column(name, Types.INTEGER, 10, 0, 0, "INTEGER");
+            case "long":
+                return new Column(name, Types.BIGINT, 19, 0, 0, "BIGINT");
+            case "double":
+                return new Column(name, Types.DOUBLE, 15, 0, 0, "DOUBLE");
+            case "decimal":
+                return new Column(name, Types.NUMERIC, intPart(parts, 1, 12), intPart(parts, 2, 2), 0, "NUMERIC");
+            case "number":
+                return new Column(name, Types.NUMERIC, 0, -127, 0, "NUMBER");
+            case "date":
+                return new Column(name, Types.DATE, 10, 0, 0, "DATE");
+            case "timestamp":
+                return new Column(name, Types.TIMESTAMP, 29, 6, 0, "TIMESTAMP");
+            case "varchar":
+                int width = intPart(parts, 1, 20);
+                return new Column(name, Types.VARCHAR, width, 0, width, "VARCHAR");
+            case "enum":
+                return new Column(name, Types.VARCHAR, 16, 0, -intPart(parts, 1, 10), "VARCHAR");
+            default:
+                throw new SQLException("Неизвестный тип колонки: " + parts[0]);
+        }
+    }
+
+    private static int intPart(String[] parts, int index, int defaultValue) {
+        return parts.length > index ? Integer.parseInt(parts[index]) : defaultValue;
+    }
+
+    private static char[] buildText(int length) {
+        char[] text = new char[length + 1024];
+        long seed = 42;
+        for (int i = 0; i < text.length; i++) {
+            seed = seed * 6364136223846793005L + 1442695040888963407L;
+            text[i] = (char) ('a' + (int) ((seed >>> 33) % 26));
+        }
+        return text;
+    }
+
+    /** Колонка генерируемого результата. */
+    public static final class Column {
+        private final String name;
+        private final int sqlType;
+        private final int precision;
+        private final int scale;
+        private final int width; // ширина строки; отрицательная — число различных значений enum
+        private final String typeName;
+
+        Column(String name, int sqlType, int precision, int scale, int width, String typeName) {
+            this.name = name;
+            this.sqlType = sqlType;
+            this.precision = precision;
+            this.scale = scale;
+            this.width = width;
+            this.typeName = typeName;
+        }
+
+        public String getName() { return name; }
+        public int getSqlType() { return sqlType; }
+        public int getPrecision() { return precision; }
+        public int getScale() { return scale; }
+        public String getTypeName() { return typeName; }
+
+        long longValue(long row) {
+            return row * 31 + name.length();
+        }
+
+        double doubleValue(long row) {
+            return row * 1.25 + 0.5;
+        }
+
+        BigDecimal decimalValue(long row) {
+            return BigDecimal.valueOf(row * 137 + 11, Math.max(0, scale));
+        }
+
+        Timestamp timestampValue(long row) {
+            return new Timestamp(BASE_EPOCH_MILLIS + row * 1000);
+        }
+
+        String stringValue(long row) {
+            if (width < 0) {
+                return "value_" + (row % -width);
+            }
+            // каждый вызов создаёт новую строку, как это делает настоящий драйвер
+            return new String(TEXT, (int) ((row * 7919) % (TEXT.length - width)), width);
+        }
+
+        Object objectValue(long row) {
+            switch (sqlType) {
+                case Types.INTEGER:
+                    return (int) longValue(row);
+                case Types.BIGINT:
+                    return longValue(row);
+                case Types.DOUBLE:
+                    return doubleValue(row);
+                case Types.NUMERIC:
+                    return decimalValue(row);
+                case Types.DATE:
+                    return new java.sql.Date(timestampValue(row).getTime());
+                case Types.TIMESTAMP:
+                    return timestampValue(row);
+                default:
+                    return stringValue(row);
+            }
+        }
+    }
+}
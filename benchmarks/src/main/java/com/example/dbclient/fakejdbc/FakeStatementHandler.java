@@ -0,0 +1,125 @@
+package com.example.dbclient.fakejdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Выражение (обычное и подготовленное): любой запрос возвращает результат по {@link FakeResultSpec}.
+ * Параметры принимаются и игнорируются, {@code cancel()} прерывает текущую выборку.
+ */
+final class FakeStatementHandler extends FakeObjectHandler {
+    private final Connection connection;
+    private final FakeResultSpec spec;
+    private FakeResultSetHandler current;
+    private ResultSet currentResultSet;
+    private boolean resultPending;
+    private boolean closed;
+    private volatile boolean cancelled;
+    private int fetchSize = 10;
+    private int maxRows;
+    private int queryTimeout;
+
+    private FakeStatementHandler(Connection connection, FakeResultSpec spec) {
+        super(PreparedStatement.class);
+        this.connection = connection;
+        this.spec = spec;
+    }
+
+    /** Один прокси реализует и Statement, и PreparedStatement. */
+    static PreparedStatement create(Connection connection, FakeResultSpec spec) {
+        return proxy(PreparedStatement.class, new FakeStatementHandler(connection, spec));
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    Object handle(Object proxy, String method, Object[] args) throws SQLException {
+        switch (method) {
+            case "executeQuery":
+                checkOpen();
+                return open(proxy);
+            case "execute":
+                checkOpen();
+                open(proxy);
+                resultPending = true;
+                return true;
+            case "getResultSet":
+                resultPending = false;
+                return currentResultSet;
+            case "getUpdateCount":
+                return resultPending ? 0 : -1;
+            case "getMoreResults":
+                resultPending = false;
+                return false;
+            case "executeUpdate":
+            case "executeLargeUpdate":
+                checkOpen();
+                return method.equals("executeUpdate") ? (Object) 0 : (Object) 0L;
+            case "executeBatch":
+                return new int[0];
+            case "addBatch":
+            case "clearBatch":
+            case "clearParameters":
+            case "clearWarnings":
+            case "setEscapeProcessing":
+            case "setPoolable":
+                return null;
+            case "cancel":
+                cancelled = true;
+                return null;
+            case "close":
+                closed = true;
+                if (current != null) {
+                    current.close();
+                }
+                return null;
+            case "isClosed":
+                return closed;
+            case "getConnection":
+                return connection;
+            case "getWarnings":
+                return null;
+            case "setFetchSize":
+                fetchSize = Math.max(1, (Integer) args[0]);
+                return null;
+            case "getFetchSize":
+                return fetchSize;
+            case "setMaxRows":
+                maxRows = (Integer) args[0];
+                return null;
+            case "getMaxRows":
+                return maxRows;
+            case "setQueryTimeout":
+                queryTimeout = (Integer) args[0];
+                return null;
+            case "getQueryTimeout":
+                return queryTimeout;
+            default:
+                if (method.startsWith("set") && args.length >= 2) {
+                    return null; // setString(1, …), setLong(…), setNull(…) и прочие параметры
+                }
+                return UNHANDLED;
+        }
+    }
+
+    private ResultSet open(Object proxy) {
+        if (current != null) {
+            current.close();
+        }
+        cancelled = false;
+        long rows = maxRows > 0 ? Math.min(maxRows, spec.getRows()) : spec.getRows();
+        current = new FakeResultSetHandler((java.sql.Statement) proxy, this, spec, rows, fetchSize);
+        currentResultSet = proxy(ResultSet.class, current);
+        return currentResultSet;
+    }
+
+    private void checkOpen() throws SQLException {
+        if (closed) {
+            throw new SQLException("Выражение закрыто");
+        }
+    }
+}
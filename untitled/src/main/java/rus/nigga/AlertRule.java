@@ -0,0 +1,89 @@
+package com.example.dbclient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Правило оповещения: какой сохранённый запрос, на каких подключениях, по какому расписанию
+ * выполнять и при каком условии оповещать.
+ */
+public class AlertRule {
+    public enum Condition {
+        ROW_COUNT_GREATER("Строк больше N"),
+        VALUE_THRESHOLD("Значение колонки в первой строке"),
+        RESULT_CHANGED("Результат изменился");
+
+        private final String title;
+
+        Condition(String title) {
+            this.title = title;
+        }
+
+        @Override
+        public String toString() {
+            return title;
+        }
+    }
+
+    private String id = UUID.randomUUID().toString();
+    private String name;
+    private String savedQueryName;
+    private List<String> connectionNames = new ArrayList<>();
+    private String schedule = "5m";
+    private Condition condition = Condition.ROW_COUNT_GREATER;
+    private String column;         // для VALUE_THRESHOLD; пусто — первая колонка
+    private String operator = ">"; // для VALUE_THRESHOLD: > >= < <= = !=
+    private double threshold;      // N для ROW_COUNT_GREATER или порог для VALUE_THRESHOLD
+    private boolean enabled = true;
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public String getSavedQueryName() { return savedQueryName; }
+    public void setSavedQueryName(String savedQueryName) { this.savedQueryName = savedQueryName; }
+
+    public List<String> getConnectionNames() { return connectionNames; }
+    public void setConnectionNames(List<String> connectionNames) {
+        this.connectionNames = connectionNames != null ? connectionNames : new ArrayList<>();
+    }
+
+    public String getSchedule() { return schedule; }
+    public void setSchedule(String schedule) { this.schedule = schedule; }
+
+    public Condition getCondition() { return condition; }
+    public void setCondition(Condition condition) { this.condition = condition; }
+
+    public String getColumn() { return column; }
+    public void setColumn(String column) { this.column = column; }
+
+    public String getOperator() { return operator; }
+    public void setOperator(String operator) { this.operator = operator; }
+
+    public double getThreshold() { return threshold; }
+    public void setThreshold(double threshold) { this.threshold = threshold; }
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof AlertRule)) return false;
+        return Objects.equals(id, ((AlertRule) o).id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+}
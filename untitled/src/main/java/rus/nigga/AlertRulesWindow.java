@@ -0,0 +1,276 @@
+package com.example.dbclient;
+
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
+import javafx.scene.control.SelectionMode;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.TextField;
+import javafx.scene.image.Image;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+import javafx.util.Duration;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Окно правил оповещений: список правил с редактированием и таблица состояния проверок,
+ * обновляемая раз в секунду.
+ */
+public class AlertRulesWindow {
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("dd.MM HH:mm:ss");
+
+    private final List<AlertRule> rules;
+    private final Supplier<List<SavedQuery>> queries;
+    private final Supplier<List<DbConnectionInfo>> connections;
+    private final AlertScheduler scheduler;
+    private final Runnable onRulesChanged;
+    private final Consumer<Scene> styler;
+    private final Image icon;
+
+    /**
+     * @param rules          изменяемый список правил приложения
+     * @param onRulesChanged сохраняет правила и перепланирует проверки
+     * @param styler         применяет текущую тему и шрифт к окну
+     */
+    public AlertRulesWindow(List<AlertRule> rules, Supplier<List<SavedQuery>> queries,
+                            Supplier<List<DbConnectionInfo>> connections, AlertScheduler scheduler,
+                            Runnable onRulesChanged, Consumer<Scene> styler, Image icon) {
+        this.rules = rules;
+        this.queries = queries;
+        this.connections = connections;
+        this.scheduler = scheduler;
+        this.onRulesChanged = onRulesChanged;
+        this.styler = styler;
+        this.icon = icon;
+    }
+
+    public void show(Window owner) {
+        Stage window = new Stage();
+        window.initOwner(owner);
+        window.setTitle("Оповещения");
+        window.getIcons().add(icon);
+
+        ListView<AlertRule> ruleList = new ListView<>();
+        ruleList.getItems().setAll(rules);
+        ruleList.setPrefWidth(250);
+
+        Button addButton = new Button("Добавить");
+        addButton.setOnAction(e -> {
+            AlertRule rule = new AlertRule();
+            if (editRule(window, rule)) {
+                rules.add(rule);
+                ruleList.getItems().setAll(rules);
+                onRulesChanged.run();
+            }
+        });
+        Button editButton = new Button("Изменить");
+        editButton.setOnAction(e -> {
+            AlertRule rule = ruleList.getSelectionModel().getSelectedItem();
+            if (rule != null && editRule(window, rule)) {
+                ruleList.getItems().setAll(rules);
+                onRulesChanged.run();
+            }
+        });
+        Button deleteButton = new Button("Удалить");
+        deleteButton.setOnAction(e -> {
+            AlertRule rule = ruleList.getSelectionModel().getSelectedItem();
+            if (rule != null) {
+                rules.remove(rule);
+                ruleList.getItems().setAll(rules);
+                onRulesChanged.run();
+            }
+        });
+        Button runNowButton = new Button("Запустить сейчас");
+        runNowButton.setOnAction(e -> {
+            AlertRule rule = ruleList.getSelectionModel().getSelectedItem();
+            if (rule != null) {
+                scheduler.runNow(rule.getId());
+            }
+        });
+        HBox ruleButtons = new HBox(10, addButton, editButton, deleteButton, runNowButton);
+
+        TableView<AlertScheduler.CheckStatus> statusTable = new TableView<>();
+        statusTable.getColumns().add(column("Правило", 150, AlertScheduler.CheckStatus::getRuleName));
+        statusTable.getColumns().add(column("Подключение", 130, AlertScheduler.CheckStatus::getConnectionName));
+        statusTable.getColumns().add(column("Следующий", 110, s -> formatTime(s.getNextRun())));
+        statusTable.getColumns().add(column("Последний", 110,
+                s -> s.isRunning() ? "выполняется" : formatTime(s.getLastRun())));
+        statusTable.getColumns().add(column("Длит., мс", 80, s -> String.valueOf(s.getLastDurationMillis())));
+        statusTable.getColumns().add(column("Запусков", 75, s -> String.valueOf(s.getRuns())));
+        statusTable.getColumns().add(column("Пропущено", 80, s -> String.valueOf(s.getSkipped())));
+        statusTable.getColumns().add(column("Ошибок", 65, s -> String.valueOf(s.getFailures())));
+        statusTable.getColumns().add(column("Результат", 260, AlertScheduler.CheckStatus::getLastMessage));
+        VBox.setVgrow(statusTable, Priority.ALWAYS);
+
+        Timeline refresh = new Timeline(new KeyFrame(Duration.seconds(1), e -> {
+            statusTable.getItems().setAll(scheduler.getStatuses());
+            statusTable.refresh();
+        }));
+        refresh.setCycleCount(Animation.INDEFINITE);
+        refresh.play();
+        statusTable.getItems().setAll(scheduler.getStatuses());
+
+        VBox rulesBox = new VBox(10, new Label("Правила:"), ruleList, ruleButtons);
+        VBox.setVgrow(ruleList, Priority.ALWAYS);
+        VBox statusBox = new VBox(10, new Label("Состояние проверок:"), statusTable);
+        HBox.setHgrow(statusBox, Priority.ALWAYS);
+        HBox content = new HBox(15, rulesBox, statusBox);
+        content.setPadding(new Insets(10));
+
+        Scene windowScene = new Scene(content, 1300, 500);
+        styler.accept(windowScene);
+        window.setScene(windowScene);
+        window.setOnHidden(e -> refresh.stop());
+        window.show();
+    }
+
+    /** @return {@code true}, если правило изменено и сохранено пользователем */
+    private boolean editRule(Window owner, AlertRule rule) {
+        Stage dialog = new Stage();
+        dialog.initModality(Modality.APPLICATION_MODAL);
+        dialog.initOwner(owner);
+        dialog.setTitle("Правило оповещения");
+        dialog.getIcons().add(icon);
+
+        TextField nameField = new TextField(rule.getName());
+        ComboBox<String> queryBox = new ComboBox<>();
+        for (SavedQuery query : queries.get()) {
+            queryBox.getItems().add(query.getName());
+        }
+        queryBox.setValue(rule.getSavedQueryName());
+        queryBox.setPrefWidth(300);
+
+        ListView<String> connectionList = new ListView<>();
+        connectionList.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        for (DbConnectionInfo connection : connections.get()) {
+            connectionList.getItems().add(connection.getName());
+            if (rule.getConnectionNames().contains(connection.getName())) {
+                connectionList.getSelectionModel().select(connection.getName());
+            }
+        }
+        connectionList.setPrefHeight(120);
+
+        TextField scheduleField = new TextField(rule.getSchedule());
+        scheduleField.setPromptText("5m, 1h или cron: */15 8-18 * * 1-5");
+
+        ComboBox<AlertRule.Condition> conditionBox = new ComboBox<>();
+        conditionBox.getItems().addAll(AlertRule.Condition.values());
+        conditionBox.setValue(rule.getCondition());
+
+        TextField columnField = new TextField(rule.getColumn());
+        columnField.setPromptText("пусто — первая колонка");
+        ComboBox<String> operatorBox = new ComboBox<>();
+        operatorBox.getItems().addAll(">", ">=", "<", "<=", "=", "!=");
+        operatorBox.setValue(rule.getOperator());
+        TextField thresholdField = new TextField(String.valueOf(rule.getThreshold()));
+
+        CheckBox enabledBox = new CheckBox("Включено");
+        enabledBox.setSelected(rule.isEnabled());
+
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(10);
+        int row = 0;
+        grid.addRow(row++, new Label("Название:"), nameField);
+        grid.addRow(row++, new Label("Запрос:"), queryBox);
+        grid.addRow(row++, new Label("Подключения:"), connectionList);
+        grid.addRow(row++, new Label("Расписание:"), scheduleField);
+        grid.addRow(row++, new Label("Условие:"), conditionBox);
+        grid.addRow(row++, new Label("Колонка:"), columnField);
+        grid.addRow(row++, new Label("Сравнение:"), operatorBox);
+        grid.addRow(row++, new Label("Порог / N:"), thresholdField);
+        grid.addRow(row, enabledBox);
+
+        boolean[] saved = {false};
+        Button okButton = new Button("OK");
+        okButton.setDefaultButton(true);
+        okButton.setOnAction(e -> {
+            String error = null;
+            double threshold = 0;
+            try {
+                CronSchedule.parse(scheduleField.getText());
+            } catch (IllegalArgumentException ex) {
+                error = ex.getMessage();
+            }
+            try {
+                threshold = Double.parseDouble(thresholdField.getText().trim().replace(',', '.'));
+            } catch (NumberFormatException ex) {
+                error = "Порог должен быть числом";
+            }
+            if (nameField.getText() == null || nameField.getText().isBlank()) {
+                error = "Не указано название";
+            } else if (queryBox.getValue() == null) {
+                error = "Не выбран запрос";
+            } else if (connectionList.getSelectionModel().getSelectedItems().isEmpty()) {
+                error = "Не выбрано ни одного подключения";
+            }
+            if (error != null) {
+                Alert alert = new Alert(Alert.AlertType.WARNING, error);
+                alert.initOwner(dialog);
+                alert.setHeaderText("Правило не сохранено");
+                styler.accept(alert.getDialogPane().getScene());
+                alert.showAndWait();
+                return;
+            }
+            rule.setName(nameField.getText().trim());
+            rule.setSavedQueryName(queryBox.getValue());
+            rule.setConnectionNames(new ArrayList<>(connectionList.getSelectionModel().getSelectedItems()));
+            rule.setSchedule(scheduleField.getText().trim());
+            rule.setCondition(conditionBox.getValue());
+            rule.setColumn(columnField.getText());
+            rule.setOperator(operatorBox.getValue());
+            rule.setThreshold(threshold);
+            rule.setEnabled(enabledBox.isSelected());
+            saved[0] = true;
+            dialog.close();
+        });
+        Button cancelButton = new Button("Отмена");
+        cancelButton.setCancelButton(true);
+        cancelButton.setOnAction(e -> dialog.close());
+        HBox buttons = new HBox(10, okButton, cancelButton);
+        buttons.setAlignment(Pos.CENTER_RIGHT);
+
+        VBox vbox = new VBox(15, grid, buttons);
+        vbox.setPadding(new Insets(15));
+        Scene dialogScene = new Scene(vbox, 480, 560);
+        styler.accept(dialogScene);
+        dialog.setScene(dialogScene);
+        dialog.showAndWait();
+        return saved[0];
+    }
+
+    private static TableColumn<AlertScheduler.CheckStatus, String> column(
+            String title, double width, Function<AlertScheduler.CheckStatus, String> value) {
+        TableColumn<AlertScheduler.CheckStatus, String> column = new TableColumn<>(title);
+        column.setCellValueFactory(param -> new SimpleStringProperty(value.apply(param.getValue())));
+        column.setPrefWidth(width);
+        return column;
+    }
+
+    private static String formatTime(LocalDateTime time) {
+        return time == null ? "—" : time.format(TIME_FORMAT);
+    }
+}
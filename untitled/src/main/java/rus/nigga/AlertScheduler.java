@@ -0,0 +1,553 @@
+package com.example.dbclient;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Выполняет сохранённые запросы по расписанию {@link AlertRule} и проверяет условия оповещений.
+ * <p>
+ * Каждая пара «правило — подключение» планируется отдельно одним потоком-таймером, а выполняется
+ * на ограниченном пуле рабочих потоков. К моменту запуска добавляется случайный сдвиг (до 10% периода,
+ * не больше {@link #MAX_JITTER_MILLIS}), чтобы проверки одной базы не срабатывали одновременно.
+ * Если предыдущий запуск проверки ещё не завершён или очередь пула заполнена, запуск пропускается
+ * и учитывается в счётчике пропусков; следующий планируется по расписанию как обычно.
+ * <p>
+ * Проверки берут сессии из тех же пулов, что и запросы пользователя, но одновременно не больше
+ * {@code maxSize - 1} на пул, чтобы для ручного запроса оставалась свободная сессия. Условие «строк больше N»
+ * проверяется запросом {@code SELECT COUNT(*)} поверх сохранённого, а не чтением строк; результат
+ * «изменился ли» читается целиком, и проверка завершается ошибкой, если он длиннее {@link #MAX_ROWS} строк.
+ * Строки читаются порциями (в PostgreSQL — вне режима autocommit, иначе драйвер загружает весь результат сразу),
+ * а их число ограничено на стороне драйвера: для порога — одной, для «изменился ли» — {@link #MAX_ROWS} + 1.
+ * Настройки выражения (таймаут, размер выборки, предел строк) и режим autocommit после проверки возвращаются
+ * прежними: сессия и выражение из её кэша потом достаются запросам пользователя.
+ */
+public class AlertScheduler {
+    private static final long MAX_JITTER_MILLIS = 30_000;
+    private static final long MAX_INITIAL_SPREAD_MILLIS = 60_000;
+    private static final long BORROW_TIMEOUT_MILLIS = 30_000;
+    private static final int MAX_ROWS = 100_000;
+    private static final int FETCH_SIZE = 500;
+
+    /** Получатель оповещений и сообщений журнала; вызывается из рабочих потоков. */
+    public interface Listener {
+        void alert(String message);
+
+        void log(String message);
+    }
+
+    private final ConnectionPoolManager poolManager;
+    private final Listener listener;
+    private final ScheduledExecutorService timer;
+    private final ThreadPoolExecutor workers;
+    private final Map<String, CheckStatus> checks = new LinkedHashMap<>();
+    private final Map<ConnectionPool, Semaphore> borrowLimits = new WeakHashMap<>(); // под своей блокировкой
+    private volatile int defaultTimeoutSeconds;
+
+    public AlertScheduler(ConnectionPoolManager poolManager, Listener listener, int workerCount, int queueSize) {
+        this.poolManager = poolManager;
+        this.listener = listener;
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "alert-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger threadNumber = new AtomicInteger();
+        workers = new ThreadPoolExecutor(workerCount, workerCount, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), r -> {
+            Thread thread = new Thread(r, "alert-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        workers.allowCoreThreadTimeOut(true);
+    }
+
+    public void setDefaultTimeoutSeconds(int defaultTimeoutSeconds) {
+        this.defaultTimeoutSeconds = defaultTimeoutSeconds;
+    }
+
+    /**
+     * Приводит проверки в соответствие с актуальными правилами, запросами и подключениями.
+     * Перепланируются только проверки, у которых изменились правило, запрос, его параметры или подключение;
+     * остальные остаются в своём расписании. Счётчики и последний результат сохраняются для проверок,
+     * оставшихся в списке.
+     */
+    public synchronized void reschedule(List<AlertRule> rules, List<SavedQuery> queries,
+                                        List<DbConnectionInfo> connections) {
+        Map<String, SavedQuery> queriesByName = new HashMap<>();
+        for (SavedQuery query : queries) {
+            queriesByName.put(query.getName(), query);
+        }
+        Map<String, DbConnectionInfo> connectionsByName = new HashMap<>();
+        for (DbConnectionInfo connection : connections) {
+            connectionsByName.put(connection.getName(), connection);
+        }
+
+        Map<String, CheckStatus> previous = new HashMap<>(checks);
+        checks.clear();
+        for (AlertRule rule : rules) {
+            for (String connectionName : rule.getConnectionNames()) {
+                String key = rule.getId() + '\u0000' + connectionName;
+                CheckStatus status = previous.remove(key);
+                if (status == null) {
+                    status = new CheckStatus(rule.getName(), connectionName);
+                }
+                checks.put(key, status);
+                status.ruleName = rule.getName();
+                CheckDefinition definition = null;
+                String error = null;
+                if (rule.isEnabled()) {
+                    try {
+                        definition = new CheckDefinition(rule, queriesByName.get(rule.getSavedQueryName()),
+                                connectionsByName.get(connectionName));
+                    } catch (IllegalArgumentException e) {
+                        error = "Ошибка: " + e.getMessage();
+                    }
+                }
+                if (definition != null && status.definition != null && status.nextRun != null
+                        && definition.sameAs(status.definition)) {
+                    status.definition = definition; // то же описание — запуск остаётся по прежнему расписанию
+                    continue;
+                }
+                stop(status);
+                if (!rule.isEnabled()) {
+                    status.lastMessage = "Выключено";
+                } else if (definition == null) {
+                    status.lastMessage = error;
+                    listener.log("Оповещение «" + rule.getName() + "» (" + connectionName + "): " + error);
+                } else {
+                    status.definition = definition;
+                    scheduleFirst(status);
+                }
+            }
+        }
+        for (CheckStatus removed : previous.values()) {
+            stop(removed);
+        }
+    }
+
+    /** Отменяет запланированный запуск; уже поставленный в очередь запуск увидит новое поколение и не выполнится. */
+    private void stop(CheckStatus status) {
+        status.cancelFuture();
+        status.generation++;
+        status.definition = null;
+        status.nextRun = null;
+    }
+
+    /** Запускает все проверки правила вне расписания. */
+    public synchronized void runNow(String ruleId) {
+        for (Map.Entry<String, CheckStatus> entry : checks.entrySet()) {
+            if (entry.getKey().startsWith(ruleId + '\u0000') && entry.getValue().definition != null) {
+                submit(entry.getValue(), entry.getValue().definition);
+            }
+        }
+    }
+
+    public synchronized List<CheckStatus> getStatuses() {
+        return new ArrayList<>(checks.values());
+    }
+
+    public void shutdown() {
+        timer.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    private void scheduleFirst(CheckStatus status) {
+        CheckDefinition definition = status.definition;
+        if (definition.schedule.isInterval()) {
+            // Интервальные проверки после запуска приложения разносим по времени, а не стартуем разом
+            long spread = Math.min(definition.schedule.getInterval().toMillis(), MAX_INITIAL_SPREAD_MILLIS);
+            scheduleAt(status, status.generation, LocalDateTime.now(), ThreadLocalRandom.current().nextLong(spread + 1));
+        } else {
+            scheduleNext(status, status.generation);
+        }
+    }
+
+    private void scheduleNext(CheckStatus status, int generation) {
+        CheckDefinition definition = status.definition;
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime next = definition.schedule.nextAfter(now);
+        if (next == null) {
+            status.lastMessage = "Расписание не содержит ближайших запусков";
+            return;
+        }
+        LocalDateTime following = definition.schedule.nextAfter(next);
+        long period = following != null ? Duration.between(next, following).toMillis() : MAX_JITTER_MILLIS * 10;
+        long jitter = ThreadLocalRandom.current().nextLong(Math.min(MAX_JITTER_MILLIS, period / 10) + 1);
+        scheduleAt(status, generation, now, Duration.between(now, next).toMillis() + jitter);
+    }
+
+    private void scheduleAt(CheckStatus status, int generation, LocalDateTime now, long delayMillis) {
+        status.nextRun = now.plus(Duration.ofMillis(delayMillis));
+        try {
+            status.future = timer.schedule(() -> dispatch(status, generation), delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ignored) {
+            // Планировщик остановлен при закрытии приложения
+        }
+    }
+
+    private synchronized void dispatch(CheckStatus status, int generation) {
+        if (status.generation != generation || status.definition == null) {
+            return; // правило изменено после планирования
+        }
+        scheduleNext(status, generation);
+        submit(status, status.definition);
+    }
+
+    private void submit(CheckStatus status, CheckDefinition definition) {
+        if (!status.inFlight.compareAndSet(false, true)) {
+            status.skipped.incrementAndGet();
+            listener.log("Оповещение «" + status.ruleName + "» (" + status.connectionName
+                    + "): запуск пропущен, предыдущий ещё выполняется");
+            return;
+        }
+        try {
+            workers.execute(() -> run(status, definition));
+        } catch (RejectedExecutionException e) {
+            status.inFlight.set(false);
+            status.skipped.incrementAndGet();
+            listener.log("Оповещение «" + status.ruleName + "» (" + status.connectionName
+                    + "): запуск пропущен, очередь проверок заполнена");
+        }
+    }
+
+    private void run(CheckStatus status, CheckDefinition definition) {
+        long startNanos = System.nanoTime();
+        status.lastRun = LocalDateTime.now();
+        status.runs.incrementAndGet();
+        try {
+            ConnectionPool pool = poolManager.getPool(definition.connection);
+            Semaphore limit = borrowLimit(pool);
+            if (!limit.tryAcquire(BORROW_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("заняты все сессии, доступные проверкам (" + Math.max(1, pool.getMaxSize() - 1)
+                        + " из " + pool.getMaxSize() + ")");
+            }
+            Summary summary;
+            try (Connection conn = pool.borrow(BORROW_TIMEOUT_MILLIS)) {
+                summary = query(conn, definition);
+            } finally {
+                limit.release();
+            }
+            evaluate(status, definition, summary);
+        } catch (Exception e) {
+            status.failures.incrementAndGet();
+            status.lastMessage = "Ошибка: " + e.getMessage();
+            listener.log("Ошибка проверки «" + status.ruleName + "» (" + status.connectionName + "): " + e.getMessage());
+        } finally {
+            status.lastDurationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            status.inFlight.set(false);
+        }
+    }
+
+    private Semaphore borrowLimit(ConnectionPool pool) {
+        synchronized (borrowLimits) {
+            return borrowLimits.computeIfAbsent(pool, key -> new Semaphore(Math.max(1, key.getMaxSize() - 1)));
+        }
+    }
+
+    private Summary query(Connection conn, CheckDefinition definition) throws SQLException {
+        boolean restoreAutoCommit = false;
+        try (Statement stmt = definition.sql.hasParameters()
+                ? conn.prepareStatement(definition.sql.getJdbcSql())
+                : conn.createStatement()) {
+            int previousTimeout = stmt.getQueryTimeout();
+            int previousFetchSize = stmt.getFetchSize();
+            int previousMaxRows = stmt.getMaxRows();
+            try {
+                int timeout = definition.timeoutSeconds != null ? definition.timeoutSeconds : defaultTimeoutSeconds;
+                if (timeout > 0) {
+                    stmt.setQueryTimeout(timeout);
+                }
+                if (definition.condition == AlertRule.Condition.VALUE_THRESHOLD) {
+                    stmt.setMaxRows(1);
+                } else if (definition.condition == AlertRule.Condition.RESULT_CHANGED) {
+                    stmt.setMaxRows(MAX_ROWS + 1); // лишняя строка — признак превышения предела
+                }
+                if ("PostgreSQL".equals(definition.connection.getType()) && conn.getAutoCommit()) {
+                    // PostgreSQL отдаёт строки порциями через курсор только вне режима autocommit
+                    conn.setAutoCommit(false);
+                    restoreAutoCommit = true;
+                }
+                stmt.setFetchSize(FETCH_SIZE);
+
+                boolean result;
+                if (stmt instanceof PreparedStatement) {
+                    definition.sql.bind((PreparedStatement) stmt, definition.parameters);
+                    result = ((PreparedStatement) stmt).execute();
+                } else {
+                    result = stmt.execute(definition.executedSql);
+                }
+                if (!result) {
+                    return new Summary(0, 0, null);
+                }
+                try (ResultSet rs = stmt.getResultSet()) {
+                    if (definition.condition == AlertRule.Condition.ROW_COUNT_GREATER) {
+                        return new Summary(rs.next() ? rs.getLong(1) : 0, 0, null);
+                    }
+                    return summarize(rs, definition);
+                }
+            } finally {
+                stmt.setQueryTimeout(previousTimeout);
+                stmt.setFetchSize(previousFetchSize);
+                stmt.setMaxRows(previousMaxRows);
+            }
+        } finally {
+            if (restoreAutoCommit) {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Для порога — значение проверяемой колонки первой строки, для «результат изменился» — число строк
+     * и хэш всего результата.
+     *
+     * @throws SQLException если результат длиннее {@link #MAX_ROWS} строк: изменения за пределом не видны
+     */
+    private static Summary summarize(ResultSet rs, CheckDefinition definition) throws SQLException {
+        ResultSetMetaData meta = rs.getMetaData();
+        int columnCount = meta.getColumnCount();
+        boolean firstRowOnly = definition.condition == AlertRule.Condition.VALUE_THRESHOLD;
+        int valueColumn = 1;
+        if (firstRowOnly && definition.column != null && !definition.column.isBlank()) {
+            valueColumn = -1;
+            for (int i = 1; i <= columnCount; i++) {
+                if (meta.getColumnLabel(i).equalsIgnoreCase(definition.column.trim())) {
+                    valueColumn = i;
+                    break;
+                }
+            }
+            if (valueColumn < 0) {
+                throw new SQLException("колонка " + definition.column + " не найдена в результате");
+            }
+        }
+
+        if (firstRowOnly) {
+            return rs.next() ? new Summary(1, 0, rs.getString(valueColumn)) : new Summary(0, 0, null);
+        }
+        long rows = 0;
+        long hash = 1125899906842597L;
+        while (rs.next()) {
+            if (rows == MAX_ROWS) {
+                throw new SQLException("результат длиннее " + MAX_ROWS + " строк, изменения в нём не отслеживаются;"
+                        + " сузьте запрос или сравнивайте агрегат");
+            }
+            for (int i = 1; i <= columnCount; i++) {
+                String value = rs.getString(i);
+                hash = 31 * hash + (value == null ? 0 : value.hashCode());
+                hash = 31 * hash + i;
+            }
+            rows++;
+        }
+        return new Summary(rows, hash, null);
+    }
+
+    private void evaluate(CheckStatus status, CheckDefinition definition, Summary summary) {
+        boolean triggered;
+        String message;
+        switch (definition.condition) {
+            case ROW_COUNT_GREATER:
+                triggered = summary.rows > definition.threshold;
+                message = "строк: " + summary.rows;
+                break;
+            case VALUE_THRESHOLD:
+                Double value = parseNumber(summary.firstValue);
+                triggered = value != null && compare(value, definition.operator, definition.threshold);
+                message = summary.rows == 0 ? "нет строк"
+                        : value == null ? "значение не число: " + summary.firstValue
+                        : "значение: " + summary.firstValue;
+                break;
+            default:
+                Long previousHash = status.lastHash;
+                triggered = previousHash != null && previousHash != summary.hash;
+                message = previousHash == null ? "запомнен исходный результат (строк: " + summary.rows + ")"
+                        : triggered ? "результат изменился (строк: " + summary.rows + ")"
+                        : "без изменений (строк: " + summary.rows + ")";
+                status.lastHash = summary.hash;
+        }
+
+        // Оповещаем при переходе в сработавшее состояние, чтобы не повторять одно и то же на каждом запуске;
+        // изменение результата — событие само по себе и оповещается каждый раз
+        boolean notify = triggered && (!status.triggered || definition.condition == AlertRule.Condition.RESULT_CHANGED);
+        status.triggered = triggered;
+        status.lastMessage = (triggered ? "Сработало: " : "") + message;
+        if (notify) {
+            listener.alert("🔔 " + status.ruleName + " (" + status.connectionName + "): " + message);
+        }
+    }
+
+    private static Double parseNumber(String text) {
+        if (text == null) {
+            return null;
+        }
+        try {
+            return Double.parseDouble(text.trim().replace(',', '.'));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static boolean compare(double value, String operator, double threshold) {
+        switch (operator) {
+            case ">=":
+                return value >= threshold;
+            case "<":
+                return value < threshold;
+            case "<=":
+                return value <= threshold;
+            case "=":
+                return value == threshold;
+            case "!=":
+                return value != threshold;
+            default:
+                return value > threshold;
+        }
+    }
+
+    /**
+     * Разрешённое на момент планирования описание проверки; не меняется после создания.
+     * Значения правила, запроса и подключения копируются, поэтому их последующая правка не влияет
+     * на уже запланированную проверку, а {@link #sameAs} показывает, нужно ли её перепланировать.
+     */
+    private static final class CheckDefinition {
+        final DbConnectionInfo connection;
+        final AlertRule.Condition condition;
+        final String column;
+        final String operator;
+        final double threshold;
+        final String scheduleText;
+        final String executedSql;
+        final NamedSql sql;
+        final Map<String, String> parameters;
+        final Integer timeoutSeconds;
+        final CronSchedule schedule;
+        private final List<Object> connectionSettings;
+
+        CheckDefinition(AlertRule rule, SavedQuery query, DbConnectionInfo connection) {
+            if (query == null) {
+                throw new IllegalArgumentException("сохранённый запрос «" + rule.getSavedQueryName() + "» не найден");
+            }
+            if (connection == null) {
+                throw new IllegalArgumentException("подключение не найдено");
+            }
+            this.connection = connection;
+            this.condition = rule.getCondition();
+            this.column = rule.getColumn();
+            this.operator = rule.getOperator();
+            this.threshold = rule.getThreshold();
+            this.scheduleText = rule.getSchedule();
+            this.executedSql = condition == AlertRule.Condition.ROW_COUNT_GREATER
+                    ? countQuery(query.getSql())
+                    : query.getSql();
+            this.sql = NamedSql.parse(executedSql);
+            this.parameters = new HashMap<>(query.getParameterValues());
+            this.timeoutSeconds = query.getQueryTimeoutSeconds() != null
+                    ? query.getQueryTimeoutSeconds()
+                    : connection.getQueryTimeoutSeconds();
+            this.schedule = CronSchedule.parse(rule.getSchedule());
+            this.connectionSettings = Arrays.asList(connection.getName(), connection.getType(),
+                    connection.getUrl(), connection.getUsername(), connection.getPassword());
+        }
+
+        /** Число строк запроса без их передачи; перевод строки закрывает возможный комментарий в конце. */
+        private static String countQuery(String sql) {
+            int end = sql.length();
+            while (end > 0 && (sql.charAt(end - 1) == ';' || Character.isWhitespace(sql.charAt(end - 1)))) {
+                end--;
+            }
+            return "SELECT COUNT(*) FROM (\n" + sql.substring(0, end) + "\n) q";
+        }
+
+        boolean sameAs(CheckDefinition other) {
+            return condition == other.condition
+                    && Objects.equals(column, other.column)
+                    && Objects.equals(operator, other.operator)
+                    && threshold == other.threshold
+                    && Objects.equals(scheduleText, other.scheduleText)
+                    && executedSql.equals(other.executedSql)
+                    && parameters.equals(other.parameters)
+                    && Objects.equals(timeoutSeconds, other.timeoutSeconds)
+                    && connectionSettings.equals(other.connectionSettings);
+        }
+    }
+
+    private static final class Summary {
+        final long rows;
+        final long hash;
+        final String firstValue;
+
+        Summary(long rows, long hash, String firstValue) {
+            this.rows = rows;
+            this.hash = hash;
+            this.firstValue = firstValue;
+        }
+    }
+
+    /** Состояние одной проверки (правило на одном подключении) для окна оповещений. */
+    public static final class CheckStatus {
+        private final String connectionName;
+        private final AtomicBoolean inFlight = new AtomicBoolean();
+        private final AtomicLong runs = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private volatile String ruleName;
+        private volatile CheckDefinition definition;
+        private volatile int generation;
+        private volatile ScheduledFuture<?> future;
+        private volatile LocalDateTime nextRun;
+        private volatile LocalDateTime lastRun;
+        private volatile long lastDurationMillis;
+        private volatile String lastMessage = "";
+        private volatile boolean triggered;
+        private volatile Long lastHash;
+
+        CheckStatus(String ruleName, String connectionName) {
+            this.ruleName = ruleName;
+            this.connectionName = connectionName;
+        }
+
+        void cancelFuture() {
+            ScheduledFuture<?> scheduled = future;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+        }
+
+        public String getRuleName() { return ruleName; }
+        public String getConnectionName() { return connectionName; }
+        public boolean isRunning() { return inFlight.get(); }
+        public LocalDateTime getNextRun() { return nextRun; }
+        public LocalDateTime getLastRun() { return lastRun; }
+        public long getLastDurationMillis() { return lastDurationMillis; }
+        public long getRuns() { return runs.get(); }
+        public long getSkipped() { return skipped.get(); }
+        public long getFailures() { return failures.get(); }
+        public String getLastMessage() { return lastMessage; }
+        public boolean isTriggered() { return triggered; }
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.dbclient;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Запись журнала в файлы {@code <уровень>-<дата>.log} без блокировки вызывающего потока.
+ * <p>
+ * Строки складываются в неблокирующую очередь; единственный фоновый поток забирает их пачками
+ * и пишет в открытые буферизованные каналы (по одному на уровень и день). Удаление старых
+ * журналов выполняется раз в сутки, а не при каждой записи. {@link #close()} дописывает очередь до конца.
+ */
+public class AsyncFileLogger implements AutoCloseable {
+    private static final long FLUSH_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final Pattern LOG_FILE_PATTERN = Pattern.compile("(debug|error|metrics)-\\d{4}-\\d{2}-\\d{2}\\.log");
+
+    private final Path logDir;
+    private final int retentionDays;
+    private final Queue<LogRecord> queue = new ConcurrentLinkedQueue<>();
+    private final Map<String, Writer> writers = new HashMap<>();
+    private final Thread writerThread;
+    private final ScheduledExecutorService retention;
+    private volatile boolean running = true;
+    private LocalDate writersDate;
+
+    public AsyncFileLogger(Path logDir, int retentionDays) {
+        this.logDir = logDir;
+        this.retentionDays = retentionDays;
+
+        writerThread = new Thread(this::writeLoop, "log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+
+        retention = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "log-retention");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Первая очистка сразу, затем ежедневно после полуночи
+        long untilMidnight = Duration.between(LocalDateTime.now(), LocalDate.now().plusDays(1).atStartOfDay()).toMinutes() + 1;
+        retention.execute(this::cleanupOldLogs);
+        retention.scheduleAtFixedRate(this::cleanupOldLogs, untilMidnight, TimeUnit.DAYS.toMinutes(1), TimeUnit.MINUTES);
+    }
+
+    /** Ставит строку в очередь на запись; не выполняет ввода-вывода. */
+    public void log(String level, String line) {
+        if (!running) {
+            return;
+        }
+        queue.add(new LogRecord(level, LocalDate.now(), line));
+    }
+
+    /** Дописывает всё из очереди и закрывает файлы. */
+    @Override
+    public void close() {
+        running = false;
+        retention.shutdownNow();
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        while (running || !queue.isEmpty()) {
+            if (queue.isEmpty()) {
+                LockSupport.parkNanos(FLUSH_INTERVAL_NANOS);
+                continue;
+            }
+            writeBatch();
+        }
+        closeWriters();
+    }
+
+    private void writeBatch() {
+        LogRecord record;
+        while ((record = queue.poll()) != null) {
+            if (!record.date.equals(writersDate)) {
+                // Наступил новый день — файлы прошлого дня больше не понадобятся
+                closeWriters();
+                writersDate = record.date;
+            }
+            try {
+                Writer writer = writerFor(record.level, record.date);
+                writer.write(record.line);
+                writer.write('\n');
+            } catch (IOException e) {
+                System.err.println("Не удалось записать журнал: " + e.getMessage());
+            }
+        }
+        for (Writer writer : writers.values()) {
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                System.err.println("Не удалось сбросить журнал: " + e.getMessage());
+            }
+        }
+    }
+
+    private Writer writerFor(String level, LocalDate date) throws IOException {
+        Writer writer = writers.get(level);
+        if (writer == null) {
+            Files.createDirectories(logDir);
+            Path file = logDir.resolve(level + "-" + date.format(DATE_FORMAT) + ".log");
+            FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8), 1 << 16);
+            writers.put(level, writer);
+        }
+        return writer;
+    }
+
+    private void closeWriters() {
+        for (Iterator<Writer> it = writers.values().iterator(); it.hasNext(); ) {
+            try {
+                it.next().close();
+            } catch (IOException e) {
+                System.err.println("Не удалось закрыть журнал: " + e.getMessage());
+            }
+            it.remove();
+        }
+    }
+
+    private void cleanupOldLogs() {
+        LocalDate threshold = LocalDate.now().minusDays(retentionDays);
+
+        try (Stream<Path> files = Files.list(logDir)) {
+            files.filter(Files::isRegularFile)
+                    .filter(path -> LOG_FILE_PATTERN.matcher(path.getFileName().toString()).matches())
+                    .filter(path -> {
+                        String name = path.getFileName().toString();
+                        String datePart = name.substring(name.indexOf('-') + 1, name.lastIndexOf('.'));
+                        try {
+                            return LocalDate.parse(datePart, DATE_FORMAT).isBefore(threshold);
+                        } catch (DateTimeParseException e) {
+                            return false;
+                        }
+                    })
+                    .forEach(path -> {
+                        try {
+                            Files.delete(path);
+                        } catch (IOException e) {
+                            System.err.println("Не удалось удалить старый лог: " + path);
+                        }
+                    });
+        } catch (IOException e) {
+            System.err.println("Не удалось очистить старые логи: " + e.getMessage());
+        }
+    }
+
+    private static final class LogRecord {
+        final String level;
+        final LocalDate date;
+        final String line;
+
+        LogRecord(String level, LocalDate date, String line) {
+            this.level = level;
+            this.date = date;
+            this.line = line;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.dbclient;
+
+import java.math.BigDecimal;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.chrono.IsoChronology;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DecimalStyle;
+import java.time.format.FormatStyle;
+import java.time.temporal.ChronoField;
+import java.util.Locale;
+
+/**
+ * Текст ячейки таблицы результата по региональным настройкам: десятичный разделитель,
+ * формат даты и времени. Применяется только к видимым ячейкам при отрисовке.
+ * Не потокобезопасен — используется из FX-потока.
+ */
+final class CellFormatter {
+    private static final int MAX_BIG_DECIMAL_SCALE = 340; // предел DecimalFormat
+
+    private final DecimalFormat decimalFormat;
+    private final DateTimeFormatter dateFormat;
+    private final DateTimeFormatter timeFormat;
+    private final DateTimeFormatter dateTimeFormat;
+
+    CellFormatter() {
+        this(Locale.getDefault(Locale.Category.FORMAT));
+    }
+
+    CellFormatter(Locale locale) {
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+        decimalFormat = new DecimalFormat("0", symbols);
+        // без разделителя групп: идентификаторы и коды не должны разбиваться на разряды
+        decimalFormat.setGroupingUsed(false);
+        dateFormat = DateTimeFormatter.ofLocalizedDate(FormatStyle.SHORT).withLocale(locale);
+        timeFormat = withFraction(null, locale, symbols.getDecimalSeparator());
+        dateTimeFormat = withFraction(FormatStyle.SHORT, locale, symbols.getDecimalSeparator());
+    }
+
+    /** @param value значение из {@link ResultStore#getValue} */
+    String format(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof String) {
+            return (String) value;
+        }
+        if (value instanceof Long) {
+            return value.toString();
+        }
+        if (value instanceof BigDecimal) {
+            return formatDecimal((BigDecimal) value);
+        }
+        if (value instanceof Double) {
+            return formatDouble((Double) value);
+        }
+        if (value instanceof LocalDateTime) {
+            return dateTimeFormat.format((LocalDateTime) value);
+        }
+        if (value instanceof LocalDate) {
+            return dateFormat.format((LocalDate) value);
+        }
+        if (value instanceof LocalTime) {
+            return timeFormat.format((LocalTime) value);
+        }
+        if (value instanceof byte[]) {
+            return ResultColumn.BytesColumn.toHex((byte[]) value);
+        }
+        return value.toString();
+    }
+
+    /**
+     * Локальный формат времени MEDIUM (с датой {@code dateStyle}, если она задана) с дробной частью секунды
+     * сразу после секунд — до AM/PM и прочего, что идёт за ними: локальные форматы её не выводят.
+     * Дробная часть пишется без завершающих нулей и только если она не нулевая.
+     */
+    private static DateTimeFormatter withFraction(FormatStyle dateStyle, Locale locale, char decimalSeparator) {
+        String pattern = DateTimeFormatterBuilder.getLocalizedDateTimePattern(
+                dateStyle, FormatStyle.MEDIUM, IsoChronology.INSTANCE, locale);
+        int split = secondsEnd(pattern);
+        DateTimeFormatterBuilder builder = new DateTimeFormatterBuilder().appendPattern(pattern.substring(0, split));
+        if (split > 0) {
+            builder.appendFraction(ChronoField.NANO_OF_SECOND, 0, 9, true);
+        }
+        return builder.appendPattern(pattern.substring(split))
+                .toFormatter(locale)
+                .withChronology(IsoChronology.INSTANCE)
+                .withDecimalStyle(DecimalStyle.STANDARD.withDecimalSeparator(decimalSeparator));
+    }
+
+    /** Позиция сразу после последнего поля секунд {@code s} вне кавычек; 0 — если секунд в шаблоне нет. */
+    private static int secondsEnd(String pattern) {
+        int end = 0;
+        boolean quoted = false;
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (!quoted && c == 's') {
+                end = i + 1;
+            }
+        }
+        return end;
+    }
+
+    private String formatDecimal(BigDecimal value) {
+        int scale = Math.max(0, Math.min(value.scale(), MAX_BIG_DECIMAL_SCALE));
+        if (scale == 0 && value.scale() <= 0) {
+            return value.toPlainString(); // целое — разделитель не нужен
+        }
+        // сохраняем масштаб значения: 12.50 остаётся 12,50
+        decimalFormat.setMinimumFractionDigits(scale);
+        decimalFormat.setMaximumFractionDigits(scale);
+        return decimalFormat.format(value);
+    }
+
+    private String formatDouble(double value) {
+        double magnitude = Math.abs(value);
+        if (Double.isNaN(value) || Double.isInfinite(value)
+                || (magnitude != 0 && (magnitude >= 1e15 || magnitude < 1e-6))) {
+            return Double.toString(value); // экспоненциальная запись
+        }
+        // кратчайшее десятичное представление, как у Double.toString, но с местным разделителем
+        return formatDecimal(BigDecimal.valueOf(value).stripTrailingZeros());
+    }
+}
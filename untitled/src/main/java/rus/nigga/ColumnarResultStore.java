@@ -0,0 +1,105 @@
+package com.example.dbclient;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * Результат запроса в колоночном виде: каждая колонка хранит значения в массиве своего типа,
+ * текст ячейки формируется только при отрисовке.
+ * Строки добавляет один поток выборки, читать можно из любого потока строки до {@link #getRowCount()}.
+ */
+public class ColumnarResultStore implements ResultStore {
+    private final ResultColumn[] columns;
+    private volatile int rowCount;
+
+    public ColumnarResultStore(ResultSetMetaData metaData) throws SQLException {
+        int columnCount = metaData.getColumnCount();
+        columns = new ResultColumn[columnCount];
+        for (int i = 1; i <= columnCount; i++) {
+            columns[i - 1] = ResultColumn.forType(
+                    metaData.getColumnName(i),
+                    metaData.getColumnType(i),
+                    metaData.getPrecision(i),
+                    metaData.getScale(i)
+            );
+        }
+    }
+
+    /** Добавляет текущую строку ResultSet. */
+    public void appendRow(ResultSet rs) throws SQLException {
+        int row = rowCount;
+        for (int i = 0; i < columns.length; i++) {
+            columns[i].read(rs, i + 1, row);
+        }
+        rowCount = row + 1;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columns[column].getName();
+    }
+
+    @Override
+    public boolean isNull(int row, int column) {
+        return columns[column].isNull(row);
+    }
+
+    @Override
+    public Object getValue(int row, int column) {
+        return columns[column].getValue(row);
+    }
+
+    @Override
+    public String getText(int row, int column) {
+        return columns[column].format(row);
+    }
+
+    @Override
+    public boolean isLongColumn(int column) {
+        return columns[column] instanceof ResultColumn.LongColumn;
+    }
+
+    @Override
+    public long getLong(int row, int column) {
+        return ((ResultColumn.LongColumn) columns[column]).getLong(row);
+    }
+
+    @Override
+    public boolean isDoubleColumn(int column) {
+        return columns[column] instanceof ResultColumn.DoubleColumn;
+    }
+
+    @Override
+    public double getDouble(int row, int column) {
+        return ((ResultColumn.DoubleColumn) columns[column]).getDouble(row);
+    }
+
+    @Override
+    public long estimateMemoryBytes() {
+        long bytes = 0;
+        for (ResultColumn column : columns) {
+            bytes += column.estimateBytes();
+        }
+        return bytes;
+    }
+
+    ResultColumn getColumn(int column) {
+        return columns[column];
+    }
+
+    @Override
+    public void close() {
+        // Данные только в куче — освобождать нечего
+    }
+}
@@ -0,0 +1,373 @@
+package com.example.dbclient;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Пул соединений для одного {@link DbConnectionInfo}.
+ * <p>
+ * Выданное соединение — обёртка, чей {@code close()} возвращает физическое соединение в пул.
+ * Простаивающие соединения выдаются в порядке LIFO, чтобы чаще использовались «тёплые» сессии;
+ * при выдаче соединение проверяется через {@link Connection#isValid(int)}, а соединения старше
+ * максимального времени жизни закрываются. Простаивающие сверх минимума закрываются
+ * периодической очисткой ({@link #evict()}).
+ * <p>
+ * У каждой физической сессии свой {@link StatementCache}: {@code prepareStatement(sql)} выданного
+ * соединения возвращает подготовленное выражение из кэша этой сессии.
+ */
+public class ConnectionPool {
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final DbConnectionInfo info;
+    private final int minSize;
+    private final int maxSize;
+    private final long idleTimeoutMillis;
+    private final long maxLifetimeMillis;
+    private final int statementCacheSize;
+
+    private final Object lock = new Object();
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private int total;
+    private int active;
+    private boolean closed;
+
+    private long borrowCount;
+    private long waitCount;
+    private long totalWaitNanos;
+    private long maxWaitNanos;
+    private final AtomicLong statementCacheHits = new AtomicLong();
+    private final AtomicLong statementCacheMisses = new AtomicLong();
+
+    public ConnectionPool(DbConnectionInfo info, int minSize, int maxSize, long idleTimeoutMillis, long maxLifetimeMillis,
+                          int statementCacheSize) {
+        this.info = info;
+        this.minSize = Math.max(0, minSize);
+        this.maxSize = Math.max(1, maxSize);
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxLifetimeMillis = maxLifetimeMillis;
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    public DbConnectionInfo getInfo() {
+        return info;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Выдаёт соединение из пула, при необходимости открывая новое или ожидая освобождения.
+     *
+     * @throws SQLTimeoutException если свободное соединение не появилось за {@code timeoutMillis}
+     */
+    public Connection borrow(long timeoutMillis) throws SQLException, InterruptedException {
+        long startNanos = System.nanoTime();
+        long deadline = startNanos + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        boolean waited = false;
+
+        while (true) {
+            PooledConnection candidate = null;
+            boolean create = false;
+            synchronized (lock) {
+                while (!closed && idle.isEmpty() && total >= maxSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        throw new SQLTimeoutException("Нет свободного соединения в пуле " + info.getName()
+                                + " (занято " + active + " из " + maxSize + ")");
+                    }
+                    waited = true;
+                    TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+                }
+                if (closed) {
+                    throw new SQLException("Пул соединений " + info.getName() + " закрыт");
+                }
+                if (!idle.isEmpty()) {
+                    candidate = idle.pollFirst();
+                } else {
+                    total++;
+                    create = true;
+                }
+                active++;
+            }
+
+            if (create) {
+                try {
+                    candidate = new PooledConnection(openPhysical());
+                } catch (SQLException e) {
+                    synchronized (lock) {
+                        active--;
+                        total--;
+                        lock.notifyAll();
+                    }
+                    throw e;
+                }
+            } else if (isExpired(candidate, System.currentTimeMillis()) || !isValid(candidate)) {
+                // Сессия устарела или оборвалась (например, после разрыва VPN) — пробуем следующую
+                discard(candidate);
+                continue;
+            }
+
+            recordBorrow(waited ? System.nanoTime() - startNanos : 0, waited);
+            return wrap(candidate);
+        }
+    }
+
+    /** Открывает соединения до минимального размера пула. */
+    public void prewarm() throws SQLException {
+        while (true) {
+            synchronized (lock) {
+                if (closed || total >= minSize) {
+                    return;
+                }
+                total++;
+            }
+            PooledConnection connection;
+            try {
+                connection = new PooledConnection(openPhysical());
+            } catch (SQLException e) {
+                synchronized (lock) {
+                    total--;
+                }
+                throw e;
+            }
+            synchronized (lock) {
+                if (!closed) {
+                    idle.addLast(connection);
+                    lock.notifyAll();
+                    continue;
+                }
+                total--;
+            }
+            closePhysical(connection);
+            return;
+        }
+    }
+
+    /** Закрывает простаивающие сверх минимума и соединения, превысившие время жизни. */
+    public void evict() {
+        long now = System.currentTimeMillis();
+        Deque<PooledConnection> toClose = new ArrayDeque<>();
+        synchronized (lock) {
+            // Старые соединения — в конце очереди, начинаем с них
+            Iterator<PooledConnection> it = idle.descendingIterator();
+            while (it.hasNext()) {
+                PooledConnection connection = it.next();
+                boolean idleTooLong = now - connection.lastUsedAt > idleTimeoutMillis && total > minSize;
+                if (idleTooLong || isExpired(connection, now)) {
+                    it.remove();
+                    total--;
+                    toClose.add(connection);
+                }
+            }
+            if (!toClose.isEmpty()) {
+                lock.notifyAll();
+            }
+        }
+        for (PooledConnection connection : toClose) {
+            closePhysical(connection);
+        }
+    }
+
+    public PoolStats getStats() {
+        synchronized (lock) {
+            return new PoolStats(active, idle.size(), maxSize, borrowCount, waitCount,
+                    waitCount == 0 ? 0 : totalWaitNanos / waitCount, maxWaitNanos,
+                    statementCacheHits.get(), statementCacheMisses.get());
+        }
+    }
+
+    /** Закрывает простаивающие соединения; выданные закроются при возврате. */
+    public void close() {
+        Deque<PooledConnection> toClose;
+        synchronized (lock) {
+            closed = true;
+            toClose = new ArrayDeque<>(idle);
+            total -= idle.size();
+            idle.clear();
+            lock.notifyAll();
+        }
+        for (PooledConnection connection : toClose) {
+            closePhysical(connection);
+        }
+    }
+
+    private Connection openPhysical() throws SQLException {
+        return JdbcDrivers.connect(info);
+    }
+
+    private static boolean isValid(PooledConnection connection) {
+        try {
+            return connection.physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private boolean isExpired(PooledConnection connection, long now) {
+        return maxLifetimeMillis > 0 && now - connection.createdAt > maxLifetimeMillis;
+    }
+
+    private void recordBorrow(long waitNanos, boolean waited) {
+        synchronized (lock) {
+            borrowCount++;
+            if (waited) {
+                waitCount++;
+                totalWaitNanos += waitNanos;
+                maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+            }
+        }
+    }
+
+    private void release(PooledConnection connection) {
+        boolean keep;
+        try {
+            // Возвращаем сессию в исходное состояние, чтобы следующий запрос не унаследовал транзакцию
+            if (!connection.physical.getAutoCommit()) {
+                connection.physical.rollback();
+                connection.physical.setAutoCommit(true);
+            }
+            keep = !connection.physical.isClosed();
+        } catch (SQLException e) {
+            keep = false;
+        }
+
+        connection.lastUsedAt = System.currentTimeMillis();
+        synchronized (lock) {
+            active--;
+            if (keep && !closed && !isExpired(connection, connection.lastUsedAt)) {
+                idle.addFirst(connection);
+                lock.notifyAll();
+                return;
+            }
+            total--;
+            lock.notifyAll();
+        }
+        closePhysical(connection);
+    }
+
+    private void discard(PooledConnection connection) {
+        synchronized (lock) {
+            active--;
+            total--;
+            lock.notifyAll();
+        }
+        closePhysical(connection);
+    }
+
+    private Connection wrap(PooledConnection pooled) {
+        boolean[] returned = {false};
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            synchronized (returned) {
+                                if (!returned[0]) {
+                                    returned[0] = true;
+                                    release(pooled);
+                                }
+                            }
+                            return null;
+                        case "isClosed":
+                            synchronized (returned) {
+                                if (returned[0]) {
+                                    return true;
+                                }
+                            }
+                            break;
+                        case "prepareStatement":
+                            if (args.length == 1) {
+                                synchronized (returned) {
+                                    if (returned[0]) {
+                                        throw new SQLException("Соединение уже возвращено в пул");
+                                    }
+                                }
+                                return pooled.statements.prepare((String) args[0]);
+                            }
+                            break;
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        default:
+                            synchronized (returned) {
+                                if (returned[0]) {
+                                    throw new SQLException("Соединение уже возвращено в пул");
+                                }
+                            }
+                    }
+                    try {
+                        return method.invoke(pooled.physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    /** Закрывает сессию; её подготовленные выражения закрываются драйвером вместе с ней. */
+    private static void closePhysical(PooledConnection connection) {
+        try {
+            connection.physical.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    private final class PooledConnection {
+        final Connection physical;
+        final StatementCache statements;
+        final long createdAt;
+        volatile long lastUsedAt;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.statements = new StatementCache(physical, statementCacheSize, statementCacheHits, statementCacheMisses);
+            this.createdAt = System.currentTimeMillis();
+            this.lastUsedAt = createdAt;
+        }
+    }
+
+    /** Снимок состояния пула для отображения в интерфейсе. */
+    public static final class PoolStats {
+        public final int active;
+        public final int idle;
+        public final int maxSize;
+        public final long borrowCount;
+        public final long waitCount;
+        public final long averageWaitNanos;
+        public final long maxWaitNanos;
+        public final long statementCacheHits;
+        public final long statementCacheMisses;
+
+        PoolStats(int active, int idle, int maxSize, long borrowCount, long waitCount,
+                  long averageWaitNanos, long maxWaitNanos, long statementCacheHits, long statementCacheMisses) {
+            this.active = active;
+            this.idle = idle;
+            this.maxSize = maxSize;
+            this.borrowCount = borrowCount;
+            this.waitCount = waitCount;
+            this.averageWaitNanos = averageWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+            this.statementCacheHits = statementCacheHits;
+            this.statementCacheMisses = statementCacheMisses;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Пул: активных %d, свободных %d, максимум %d; ожиданий %d (среднее %d мс, макс. %d мс); "
+                            + "кэш выражений: попаданий %d, промахов %d",
+                    active, idle, maxSize, waitCount,
+                    TimeUnit.NANOSECONDS.toMillis(averageWaitNanos), TimeUnit.NANOSECONDS.toMillis(maxWaitNanos),
+                    statementCacheHits, statementCacheMisses);
+        }
+    }
+}
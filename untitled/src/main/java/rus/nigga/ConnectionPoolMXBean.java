@@ -0,0 +1,25 @@
+package com.example.dbclient;
+
+/**
+ * Состояние пула соединений для консоли JMX
+ * ({@code com.example.dbclient:type=ConnectionPool,name="<подключение>"}).
+ */
+public interface ConnectionPoolMXBean {
+    int getActive();
+
+    int getIdle();
+
+    int getMaxSize();
+
+    long getBorrowCount();
+
+    long getWaitCount();
+
+    long getAverageWaitMillis();
+
+    long getMaxWaitMillis();
+
+    long getStatementCacheHits();
+
+    long getStatementCacheMisses();
+}
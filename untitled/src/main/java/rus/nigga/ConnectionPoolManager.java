@@ -0,0 +1,103 @@
+package com.example.dbclient;
+
+import javax.management.ObjectName;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пулы соединений по одному на каждый {@link DbConnectionInfo} и общая фоновая очистка простаивающих соединений.
+ * Состояние каждого пула публикуется в JMX как {@link ConnectionPoolMXBean}.
+ */
+public class ConnectionPoolManager {
+    private static final long EVICTION_INTERVAL_SECONDS = 30;
+
+    private final Map<DbConnectionInfo, ConnectionPool> pools = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "connection-pool-evictor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile int minSize;
+    private volatile int maxSize;
+    private volatile long idleTimeoutMillis;
+    private volatile long maxLifetimeMillis;
+    private volatile int statementCacheSize;
+
+    public ConnectionPoolManager(int minSize, int maxSize, long idleTimeoutMillis, long maxLifetimeMillis,
+                                 int statementCacheSize) {
+        configure(minSize, maxSize, idleTimeoutMillis, maxLifetimeMillis, statementCacheSize);
+        evictor.scheduleWithFixedDelay(this::evictAll, EVICTION_INTERVAL_SECONDS, EVICTION_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /** Новые параметры применяются к пулам, созданным после вызова. */
+    public void configure(int minSize, int maxSize, long idleTimeoutMillis, long maxLifetimeMillis,
+                          int statementCacheSize) {
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxLifetimeMillis = maxLifetimeMillis;
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    public ConnectionPool getPool(DbConnectionInfo info) {
+        return pools.computeIfAbsent(info, key -> {
+            ConnectionPool pool = new ConnectionPool(key, minSize, maxSize, idleTimeoutMillis, maxLifetimeMillis,
+                    statementCacheSize);
+            Jmx.register(objectName(key), new PoolBean(pool));
+            return pool;
+        });
+    }
+
+    /** Закрывает пул удалённого подключения. */
+    public void closePool(DbConnectionInfo info) {
+        ConnectionPool pool = pools.remove(info);
+        if (pool != null) {
+            Jmx.unregister(objectName(info));
+            pool.close();
+        }
+    }
+
+    public void closeAll() {
+        evictor.shutdownNow();
+        List<Map.Entry<DbConnectionInfo, ConnectionPool>> all = new ArrayList<>(pools.entrySet());
+        pools.clear();
+        for (Map.Entry<DbConnectionInfo, ConnectionPool> entry : all) {
+            Jmx.unregister(objectName(entry.getKey()));
+            entry.getValue().close();
+        }
+    }
+
+    private void evictAll() {
+        for (ConnectionPool pool : pools.values()) {
+            pool.evict();
+        }
+    }
+
+    private static String objectName(DbConnectionInfo info) {
+        return "com.example.dbclient:type=ConnectionPool,name=" + ObjectName.quote(String.valueOf(info.getName()));
+    }
+
+    private static final class PoolBean implements ConnectionPoolMXBean {
+        private final ConnectionPool pool;
+
+        PoolBean(ConnectionPool pool) {
+            this.pool = pool;
+        }
+
+        @Override public int getActive() { return pool.getStats().active; }
+        @Override public int getIdle() { return pool.getStats().idle; }
+        @Override public int getMaxSize() { return pool.getStats().maxSize; }
+        @Override public long getBorrowCount() { return pool.getStats().borrowCount; }
+        @Override public long getWaitCount() { return pool.getStats().waitCount; }
+        @Override public long getAverageWaitMillis() { return TimeUnit.NANOSECONDS.toMillis(pool.getStats().averageWaitNanos); }
+        @Override public long getMaxWaitMillis() { return TimeUnit.NANOSECONDS.toMillis(pool.getStats().maxWaitNanos); }
+        @Override public long getStatementCacheHits() { return pool.getStats().statementCacheHits; }
+        @Override public long getStatementCacheMisses() { return pool.getStats().statementCacheMisses; }
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.dbclient;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.BitSet;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Расписание проверки: интервал ({@code 30s}, {@code 5m}, {@code 1h}, можно с префиксом {@code @every})
+ * или cron из пяти полей — минута, час, день месяца, месяц, день недели (1 — понедельник, 0 и 7 — воскресенье).
+ * В полях cron допускаются {@code *}, списки через запятую, диапазоны {@code a-b} и шаг {@code /n}.
+ */
+public class CronSchedule {
+    private static final Pattern INTERVAL = Pattern.compile("(?:@every\\s+)?(\\d+)\\s*([smhd])");
+    private static final int MAX_SEARCH_DAYS = 366 * 5;
+
+    private final String expression;
+    private final Duration interval;
+    private final BitSet minutes;
+    private final BitSet hours;
+    private final BitSet daysOfMonth;
+    private final BitSet months;
+    private final BitSet daysOfWeek;
+    private final boolean anyDayOfMonth;
+    private final boolean anyDayOfWeek;
+
+    private CronSchedule(String expression, Duration interval) {
+        this.expression = expression;
+        this.interval = interval;
+        this.minutes = this.hours = this.daysOfMonth = this.months = this.daysOfWeek = null;
+        this.anyDayOfMonth = this.anyDayOfWeek = true;
+    }
+
+    private CronSchedule(String expression, String[] fields) {
+        this.expression = expression;
+        this.interval = null;
+        this.minutes = parseField(fields[0], 0, 59);
+        this.hours = parseField(fields[1], 0, 23);
+        this.daysOfMonth = parseField(fields[2], 1, 31);
+        this.months = parseField(fields[3], 1, 12);
+        BitSet dow = parseField(fields[4], 0, 7);
+        if (dow.get(0)) {
+            dow.set(7);
+        }
+        this.daysOfWeek = dow;
+        this.anyDayOfMonth = fields[2].equals("*");
+        this.anyDayOfWeek = fields[4].equals("*");
+    }
+
+    /** @throws IllegalArgumentException если выражение не распознано */
+    public static CronSchedule parse(String expression) {
+        String text = expression == null ? "" : expression.trim().toLowerCase(Locale.ROOT);
+        Matcher matcher = INTERVAL.matcher(text);
+        if (matcher.matches()) {
+            long amount = Long.parseLong(matcher.group(1));
+            if (amount <= 0) {
+                throw new IllegalArgumentException("Интервал должен быть больше нуля: " + expression);
+            }
+            ChronoUnit unit;
+            switch (matcher.group(2)) {
+                case "s":
+                    unit = ChronoUnit.SECONDS;
+                    break;
+                case "m":
+                    unit = ChronoUnit.MINUTES;
+                    break;
+                case "h":
+                    unit = ChronoUnit.HOURS;
+                    break;
+                default:
+                    unit = ChronoUnit.DAYS;
+            }
+            return new CronSchedule(expression.trim(), Duration.of(amount, unit));
+        }
+        String[] fields = text.split("\\s+");
+        if (fields.length != 5) {
+            throw new IllegalArgumentException("Ожидается интервал (5m) или cron из пяти полей: " + expression);
+        }
+        return new CronSchedule(expression.trim(), fields);
+    }
+
+    public boolean isInterval() {
+        return interval != null;
+    }
+
+    /** Шаг расписания для интервала; для cron — {@code null}. */
+    public Duration getInterval() {
+        return interval;
+    }
+
+    /** Ближайший момент запуска строго после {@code after}; {@code null}, если в ближайшие годы его нет. */
+    public LocalDateTime nextAfter(LocalDateTime after) {
+        if (interval != null) {
+            return after.plus(interval);
+        }
+        LocalDateTime time = after.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+        LocalDateTime limit = after.plusDays(MAX_SEARCH_DAYS);
+        while (time.isBefore(limit)) {
+            if (!months.get(time.getMonthValue())) {
+                time = time.withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS).plusMonths(1);
+            } else if (!dayMatches(time)) {
+                time = time.truncatedTo(ChronoUnit.DAYS).plusDays(1);
+            } else if (!hours.get(time.getHour())) {
+                time = time.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+            } else if (!minutes.get(time.getMinute())) {
+                time = time.plusMinutes(1);
+            } else {
+                return time;
+            }
+        }
+        return null;
+    }
+
+    /** Как в cron: если ограничены и день месяца, и день недели, достаточно совпадения любого. */
+    private boolean dayMatches(LocalDateTime time) {
+        boolean dom = daysOfMonth.get(time.getDayOfMonth());
+        boolean dow = daysOfWeek.get(time.getDayOfWeek().getValue());
+        if (anyDayOfMonth) {
+            return dow;
+        }
+        if (anyDayOfWeek) {
+            return dom;
+        }
+        return dom || dow;
+    }
+
+    private static BitSet parseField(String field, int min, int max) {
+        BitSet bits = new BitSet(max + 1);
+        for (String part : field.split(",")) {
+            int step = 1;
+            int slash = part.indexOf('/');
+            if (slash >= 0) {
+                step = parseNumber(part.substring(slash + 1), 1, max);
+                part = part.substring(0, slash);
+            }
+            int from;
+            int to;
+            if (part.equals("*")) {
+                from = min;
+                to = max;
+            } else if (part.contains("-")) {
+                String[] range = part.split("-", 2);
+                from = parseNumber(range[0], min, max);
+                to = parseNumber(range[1], min, max);
+            } else {
+                from = parseNumber(part, min, max);
+                to = slash >= 0 ? max : from;
+            }
+            if (from > to) {
+                throw new IllegalArgumentException("Неверный диапазон в расписании: " + part);
+            }
+            for (int value = from; value <= to; value += step) {
+                bits.set(value);
+            }
+        }
+        return bits;
+    }
+
+    private static int parseNumber(String text, int min, int max) {
+        try {
+            int value = Integer.parseInt(text);
+            if (value < min || value > max) {
+                throw new IllegalArgumentException("Значение " + value + " вне диапазона " + min + "–" + max);
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Неверное число в расписании: " + text);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
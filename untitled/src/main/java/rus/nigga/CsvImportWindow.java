@@ -0,0 +1,212 @@
+package com.example.dbclient;
+
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.control.TextField;
+import javafx.scene.image.Image;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+import javafx.util.Duration;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.function.Consumer;
+
+/**
+ * Диалог параметров импорта CSV и окно хода загрузки.
+ * Счётчики импортёра опрашиваются дважды в секунду; скорость считается по строкам, переданным в БД.
+ */
+public class CsvImportWindow {
+    private static final String[] CHARSETS = {"UTF-8", "windows-1251", "KOI8-R", "ISO-8859-1"};
+
+    private final Consumer<Scene> styler;
+    private final Image icon;
+    private final ProgressBar progressBar = new ProgressBar(0);
+    private final Label progressLabel = new Label();
+    private final Label summaryLabel = new Label();
+    private final Button cancelButton = new Button("Отменить");
+    private Timeline refresh;
+    private CsvImporter importer;
+    private long startNanos;
+
+    public CsvImportWindow(Consumer<Scene> styler, Image icon) {
+        this.styler = styler;
+        this.icon = icon;
+    }
+
+    /**
+     * @param defaults значения полей по умолчанию; файл и таблица могут быть {@code null}
+     * @return параметры, выбранные пользователем, или {@code null}, если импорт отменён
+     */
+    public CsvImporter.Options askOptions(Window owner, String connectionName, CsvImporter.Options defaults) {
+        Stage dialog = new Stage();
+        dialog.initModality(Modality.APPLICATION_MODAL);
+        dialog.initOwner(owner);
+        dialog.setTitle("Импорт CSV");
+        dialog.getIcons().add(icon);
+
+        Label info = new Label("Подключение: " + connectionName);
+
+        TextField fileField = new TextField(defaults.getFile() != null ? defaults.getFile().toString() : "");
+        fileField.setPrefWidth(300);
+        Button browseButton = new Button("Обзор…");
+        browseButton.setOnAction(e -> {
+            FileChooser chooser = new FileChooser();
+            chooser.setTitle("Файл CSV");
+            chooser.getExtensionFilters().addAll(
+                    new FileChooser.ExtensionFilter("CSV", "*.csv", "*.txt"),
+                    new FileChooser.ExtensionFilter("Все файлы", "*.*"));
+            File current = new File(fileField.getText().trim());
+            if (current.getParentFile() != null && current.getParentFile().isDirectory()) {
+                chooser.setInitialDirectory(current.getParentFile());
+            }
+            File file = chooser.showOpenDialog(dialog);
+            if (file != null) {
+                fileField.setText(file.getAbsolutePath());
+            }
+        });
+        ComboBox<String> charsetBox = new ComboBox<>();
+        charsetBox.getItems().addAll(CHARSETS);
+        charsetBox.setEditable(true);
+        charsetBox.setValue(defaults.getCharset().name());
+        TextField delimiterField = new TextField(defaults.getDelimiter() == '\t' ? "\\t" : String.valueOf(defaults.getDelimiter()));
+        delimiterField.setPrefColumnCount(3);
+        CheckBox headerBox = new CheckBox("Первая строка — имена колонок");
+        headerBox.setSelected(defaults.isHeader());
+        TextField tableField = new TextField(defaults.getTable() != null ? defaults.getTable() : "");
+        TextField batchField = new TextField(String.valueOf(defaults.getBatchSize()));
+        TextField commitField = new TextField(String.valueOf(defaults.getCommitEvery()));
+        commitField.setPromptText("0 — в конце загрузки");
+        TextField sessionsField = new TextField(String.valueOf(defaults.getSessions()));
+
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(10);
+        grid.addRow(0, new Label("Файл:"), new HBox(10, fileField, browseButton));
+        grid.addRow(1, new Label("Кодировка:"), charsetBox);
+        grid.addRow(2, new Label("Разделитель:"), delimiterField);
+        grid.addRow(3, new Label(""), headerBox);
+        grid.addRow(4, new Label("Таблица:"), tableField);
+        grid.addRow(5, new Label("Строк в пакете:"), batchField);
+        grid.addRow(6, new Label("Фиксировать каждые N строк:"), commitField);
+        grid.addRow(7, new Label("Параллельных сессий:"), sessionsField);
+
+        CsvImporter.Options[] result = {null};
+        Button okButton = new Button("Загрузить");
+        okButton.setDefaultButton(true);
+        okButton.setOnAction(e -> {
+            Path file = Paths.get(fileField.getText().trim());
+            if (!Files.isRegularFile(file)) {
+                info.setText("Файл не найден");
+                return;
+            }
+            if (tableField.getText().isBlank()) {
+                info.setText("Укажите таблицу");
+                return;
+            }
+            String delimiter = delimiterField.getText().equals("\\t") ? "\t" : delimiterField.getText();
+            if (delimiter.length() != 1 || delimiter.charAt(0) == '"') {
+                info.setText("Разделитель — один символ, кроме кавычки");
+                return;
+            }
+            Charset charset;
+            try {
+                charset = Charset.forName(charsetBox.getValue().trim());
+            } catch (IllegalArgumentException ex) {
+                info.setText("Неизвестная кодировка");
+                return;
+            }
+            try {
+                result[0] = new CsvImporter.Options(file, charset, delimiter.charAt(0), headerBox.isSelected(),
+                        tableField.getText().trim(),
+                        Integer.parseInt(batchField.getText().trim()),
+                        Integer.parseInt(commitField.getText().trim().isEmpty() ? "0" : commitField.getText().trim()),
+                        Integer.parseInt(sessionsField.getText().trim()));
+                dialog.close();
+            } catch (NumberFormatException ex) {
+                info.setText("Размер пакета, интервал фиксации и число сессий должны быть целыми числами");
+            }
+        });
+        Button cancelDialogButton = new Button("Отмена");
+        cancelDialogButton.setCancelButton(true);
+        cancelDialogButton.setOnAction(e -> dialog.close());
+        HBox buttons = new HBox(10, okButton, cancelDialogButton);
+        buttons.setAlignment(Pos.CENTER_RIGHT);
+
+        VBox vbox = new VBox(15, info, grid, buttons);
+        vbox.setPadding(new Insets(15));
+        Scene dialogScene = new Scene(vbox, 560, 430);
+        styler.accept(dialogScene);
+        dialog.setScene(dialogScene);
+        dialog.showAndWait();
+        return result[0];
+    }
+
+    /**
+     * @param onCancel прерывает загрузку
+     */
+    public void show(Window owner, String title, CsvImporter importer, Runnable onCancel) {
+        this.importer = importer;
+        this.startNanos = System.nanoTime();
+        Stage window = new Stage();
+        window.initOwner(owner);
+        window.setTitle(title);
+        window.getIcons().add(icon);
+
+        progressBar.setMaxWidth(Double.MAX_VALUE);
+        cancelButton.setOnAction(e -> {
+            cancelButton.setDisable(true);
+            onCancel.run();
+        });
+
+        refresh = new Timeline(new KeyFrame(Duration.millis(500), e -> updateProgress()));
+        refresh.setCycleCount(Animation.INDEFINITE);
+        refresh.play();
+        updateProgress();
+
+        VBox vbox = new VBox(10, progressBar, progressLabel, summaryLabel, cancelButton);
+        vbox.setPadding(new Insets(15));
+        Scene windowScene = new Scene(vbox, 480, 170);
+        styler.accept(windowScene);
+        window.setScene(windowScene);
+        window.show();
+    }
+
+    /** Показывает итог загрузки; вызывается из FX-потока. */
+    public void finish(String summary) {
+        if (refresh != null) {
+            refresh.stop();
+        }
+        updateProgress();
+        cancelButton.setDisable(true);
+        summaryLabel.setText(summary);
+    }
+
+    private void updateProgress() {
+        if (importer == null) {
+            return;
+        }
+        long elapsedMillis = Math.max(1, (System.nanoTime() - startNanos) / 1_000_000);
+        long sent = importer.getRowsSent();
+        progressBar.setProgress(importer.getProgress());
+        progressLabel.setText(String.format("Передано строк: %d, зафиксировано: %d, %d строк/с, прошло %d с",
+                sent, importer.getRowsCommitted(), sent * 1000 / elapsedMillis, elapsedMillis / 1000));
+    }
+}
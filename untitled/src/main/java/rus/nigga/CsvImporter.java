@@ -0,0 +1,542 @@
+package com.example.dbclient;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoField;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Загрузка CSV-файла в таблицу несколькими параллельными сессиями.
+ * <p>
+ * Файл читает один поток и раздаёт порции по {@code batchSize} записей через ограниченную очередь;
+ * каждая сессия держит своё соединение (не из пула запросов, чтобы долгая загрузка не занимала его) и:
+ * <ul>
+ *     <li>в PostgreSQL — передаёт исходный текст записей в {@code COPY ... FROM STDIN (FORMAT csv)}
+ *     через {@link org.postgresql.copy.CopyManager}, одна команда COPY на каждый интервал фиксации;</li>
+ *     <li>в Oracle и прочих — выполняет {@code INSERT} пакетом {@code addBatch}/{@code executeBatch}
+ *     (драйвер Oracle передаёт пакет массивом значений за один обмен); значения приводятся к типам
+ *     колонок таблицы: числа — {@code BigDecimal}, даты — {@code Timestamp}, пустое поле — NULL.</li>
+ * </ul>
+ * Каждая сессия фиксирует изменения каждые {@code commitEvery} строк. При ошибке или отмене
+ * незафиксированные изменения всех сессий откатываются; зафиксированные ранее остаются в таблице.
+ */
+public class CsvImporter {
+    private static final int QUEUE_CHUNKS_PER_SESSION = 2;
+    private static final DateTimeFormatter ISO_DATE_TIME = new DateTimeFormatterBuilder()
+            .appendPattern("yyyy-MM-dd")
+            .optionalStart().appendLiteral(' ').optionalEnd()
+            .optionalStart().appendLiteral('T').optionalEnd()
+            .optionalStart().appendPattern("HH:mm")
+            .optionalStart().appendPattern(":ss").optionalEnd()
+            .optionalStart().appendFraction(ChronoField.NANO_OF_SECOND, 0, 9, true).optionalEnd()
+            .optionalEnd()
+            .parseDefaulting(ChronoField.HOUR_OF_DAY, 0)
+            .parseDefaulting(ChronoField.MINUTE_OF_HOUR, 0)
+            .parseDefaulting(ChronoField.SECOND_OF_MINUTE, 0)
+            .parseDefaulting(ChronoField.NANO_OF_SECOND, 0)
+            .toFormatter();
+    private static final DateTimeFormatter RU_DATE_TIME = new DateTimeFormatterBuilder()
+            .appendPattern("dd.MM.yyyy")
+            .optionalStart().appendPattern(" HH:mm").optionalStart().appendPattern(":ss").optionalEnd().optionalEnd()
+            .parseDefaulting(ChronoField.HOUR_OF_DAY, 0)
+            .parseDefaulting(ChronoField.MINUTE_OF_HOUR, 0)
+            .parseDefaulting(ChronoField.SECOND_OF_MINUTE, 0)
+            .toFormatter();
+
+    /** Параметры загрузки. */
+    public static final class Options {
+        private final Path file;
+        private final Charset charset;
+        private final char delimiter;
+        private final boolean header;
+        private final String table;
+        private final int batchSize;
+        private final int commitEvery;
+        private final int sessions;
+
+        /**
+         * @param header      первая запись — имена колонок таблицы; иначе колонки берутся из таблицы по порядку
+         * @param commitEvery строк между фиксациями в каждой сессии; 0 — фиксация в конце загрузки
+         */
+        public Options(Path file, Charset charset, char delimiter, boolean header, String table,
+                       int batchSize, int commitEvery, int sessions) {
+            this.file = file;
+            this.charset = charset;
+            this.delimiter = delimiter;
+            this.header = header;
+            this.table = table;
+            this.batchSize = Math.max(1, batchSize);
+            this.commitEvery = Math.max(0, commitEvery);
+            this.sessions = Math.max(1, sessions);
+        }
+
+        public Path getFile() { return file; }
+        public Charset getCharset() { return charset; }
+        public char getDelimiter() { return delimiter; }
+        public boolean isHeader() { return header; }
+        public String getTable() { return table; }
+        public int getBatchSize() { return batchSize; }
+        public int getCommitEvery() { return commitEvery; }
+        public int getSessions() { return sessions; }
+    }
+
+    private static final Chunk END = new Chunk(0, List.of(), "");
+
+    private final DbConnectionInfo connection;
+    private final Options options;
+    private final boolean postgres;
+
+    private final AtomicLong rowsSent = new AtomicLong();
+    private final AtomicLong rowsCommitted = new AtomicLong();
+    private final AtomicReference<Exception> failure = new AtomicReference<>();
+    private volatile FileChannel channel;
+    private volatile long fileSize;
+    private volatile boolean cancelled;
+
+    public CsvImporter(DbConnectionInfo connection, Options options) {
+        this.connection = connection;
+        this.options = options;
+        this.postgres = "PostgreSQL".equals(connection.getType());
+    }
+
+    /** Строк, переданных в БД (в том числе ещё не зафиксированных). */
+    public long getRowsSent() {
+        return rowsSent.get();
+    }
+
+    public long getRowsCommitted() {
+        return rowsCommitted.get();
+    }
+
+    /** Доля прочитанного файла, от 0 до 1. */
+    public double getProgress() {
+        FileChannel ch = channel;
+        long size = fileSize;
+        if (ch == null || size == 0) {
+            return 0;
+        }
+        try {
+            return Math.min(1.0, (double) ch.position() / size);
+        } catch (IOException e) {
+            return 1.0; // файл уже закрыт
+        }
+    }
+
+    /** Прерывает загрузку; незафиксированные строки откатываются. */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Загружает файл; возвращает число зафиксированных строк.
+     *
+     * @throws Exception первая ошибка чтения файла или сессии загрузки
+     */
+    public long run() throws Exception {
+        try (FileChannel ch = FileChannel.open(options.file, StandardOpenOption.READ);
+             CsvReader reader = new CsvReader(new InputStreamReader(Channels.newInputStream(ch), options.charset),
+                     options.delimiter, postgres)) {
+            channel = ch;
+            fileSize = ch.size();
+
+            List<String> header = null;
+            if (options.header) {
+                if (!reader.next()) {
+                    return 0;
+                }
+                header = new ArrayList<>();
+                for (String name : reader.getFields()) {
+                    header.add(name == null ? "" : name.trim());
+                }
+            }
+            TargetTable target = describeTable(header);
+
+            BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(options.sessions * QUEUE_CHUNKS_PER_SESSION);
+            AtomicInteger sessionNumber = new AtomicInteger();
+            ExecutorService loaders = Executors.newFixedThreadPool(options.sessions, r -> {
+                Thread thread = new Thread(r, "csv-import-" + sessionNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            List<Future<?>> sessions = new ArrayList<>();
+            try {
+                for (int i = 0; i < options.sessions; i++) {
+                    sessions.add(loaders.submit(() -> {
+                        try {
+                            runSession(queue, target);
+                        } catch (Exception e) {
+                            failure.compareAndSet(null, e);
+                        }
+                    }));
+                }
+                readChunks(reader, queue, target.columns.size());
+            } catch (Exception e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                if (Thread.interrupted()) {
+                    cancelled = true; // задача отменена: сессии откатывают незафиксированное
+                }
+                // после ошибки сессии могли уже завершиться: недогруженные порции не нужны
+                for (int i = 0; i < options.sessions; i++) {
+                    while (!queue.offer(END, 200, TimeUnit.MILLISECONDS)) {
+                        if (stopped()) {
+                            queue.clear();
+                        }
+                    }
+                }
+                for (Future<?> session : sessions) {
+                    session.get();
+                }
+                loaders.shutdown();
+            }
+        }
+        Exception error = failure.get();
+        if (error != null) {
+            throw error;
+        }
+        return rowsCommitted.get();
+    }
+
+    private void readChunks(CsvReader reader, BlockingQueue<Chunk> queue, int columnCount)
+            throws IOException, InterruptedException {
+        List<String[]> rows = new ArrayList<>(options.batchSize);
+        StringBuilder text = new StringBuilder();
+        long firstRecord = reader.getRecordNumber() + 1;
+        while (!stopped() && reader.next()) {
+            String[] fields = reader.getFields();
+            if (fields.length != columnCount) {
+                throw new IOException("Запись " + reader.getRecordNumber() + ": полей " + fields.length
+                        + ", а колонок " + columnCount);
+            }
+            if (postgres) {
+                text.append(reader.getRaw()).append('\n');
+            }
+            rows.add(postgres ? null : fields);
+            if (rows.size() >= options.batchSize) {
+                offer(queue, new Chunk(firstRecord, rows, text.toString()));
+                rows = new ArrayList<>(options.batchSize);
+                text.setLength(0);
+                firstRecord = reader.getRecordNumber() + 1;
+            }
+        }
+        if (!rows.isEmpty() && !stopped()) {
+            offer(queue, new Chunk(firstRecord, rows, text.toString()));
+        }
+    }
+
+    /** Кладёт порцию в очередь, не зависая, если все сессии остановились с ошибкой. */
+    private void offer(BlockingQueue<Chunk> queue, Chunk chunk) throws InterruptedException {
+        while (!queue.offer(chunk, 200, TimeUnit.MILLISECONDS)) {
+            if (stopped()) {
+                return;
+            }
+        }
+    }
+
+    private boolean stopped() {
+        return cancelled || failure.get() != null || Thread.currentThread().isInterrupted();
+    }
+
+    private void runSession(BlockingQueue<Chunk> queue, TargetTable target) throws Exception {
+        try (Connection conn = JdbcDrivers.connect(connection)) {
+            conn.setAutoCommit(false);
+            SessionLoader loader = postgres ? new CopyLoader(conn, target) : new BatchLoader(conn, target);
+            long uncommitted = 0;
+            try {
+                Chunk chunk;
+                while ((chunk = queue.take()) != END) {
+                    if (stopped()) {
+                        continue; // дочитываем очередь до END, чтобы читатель не ждал
+                    }
+                    loader.load(chunk);
+                    rowsSent.addAndGet(chunk.size());
+                    uncommitted += chunk.size();
+                    if (options.commitEvery > 0 && uncommitted >= options.commitEvery) {
+                        loader.finish();
+                        conn.commit();
+                        rowsCommitted.addAndGet(uncommitted);
+                        uncommitted = 0;
+                    }
+                }
+                if (stopped()) {
+                    loader.abort();
+                    conn.rollback();
+                    return;
+                }
+                loader.finish();
+                conn.commit();
+                rowsCommitted.addAndGet(uncommitted);
+            } catch (Exception e) {
+                failure.compareAndSet(null, e);
+                loader.abort();
+                try {
+                    conn.rollback(); // Oracle при закрытии соединения фиксирует изменения
+                } catch (SQLException ignored) {
+                    // исходная ошибка важнее
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Колонки таблицы в порядке полей файла и их типы JDBC. Имена из заголовка файла сверяются
+     * с колонками таблицы без учёта регистра, в SQL попадают настоящие имена колонок в кавычках
+     * идентификатора базы, поэтому заголовок не может изменить текст команды.
+     *
+     * @throws SQLException если имя из заголовка повторяется или не найдено среди колонок таблицы
+     */
+    private TargetTable describeTable(List<String> header) throws SQLException {
+        try (Connection conn = JdbcDrivers.connect(connection);
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT * FROM " + options.table + " WHERE 1 = 0")) {
+            String quote = conn.getMetaData().getIdentifierQuoteString();
+            quote = quote == null || quote.isBlank() ? "" : quote.trim();
+            ResultSetMetaData meta = rs.getMetaData();
+            List<String> tableColumns = new ArrayList<>();
+            for (int i = 1; i <= meta.getColumnCount(); i++) {
+                tableColumns.add(meta.getColumnName(i));
+            }
+
+            List<Integer> indexes = new ArrayList<>();
+            if (header == null) {
+                for (int i = 1; i <= tableColumns.size(); i++) {
+                    indexes.add(i);
+                }
+            } else {
+                for (String name : header) {
+                    int index = findColumn(tableColumns, name);
+                    if (index < 0) {
+                        throw new SQLException("Колонка «" + name + "» из заголовка файла не найдена в таблице "
+                                + options.table);
+                    }
+                    if (indexes.contains(index)) {
+                        throw new SQLException("Колонка «" + name + "» повторяется в заголовке файла");
+                    }
+                    indexes.add(index);
+                }
+            }
+
+            List<String> columns = new ArrayList<>();
+            int[] types = new int[indexes.size()];
+            for (int i = 0; i < indexes.size(); i++) {
+                String name = tableColumns.get(indexes.get(i) - 1);
+                columns.add(quote.isEmpty() ? name : quote + name.replace(quote, quote + quote) + quote);
+                types[i] = meta.getColumnType(indexes.get(i));
+            }
+            return new TargetTable(columns, types);
+        }
+    }
+
+    /** Номер колонки (с 1) с точно таким именем, иначе — совпадающей без учёта регистра; -1, если нет. */
+    private static int findColumn(List<String> tableColumns, String name) {
+        int match = -1;
+        for (int i = 0; i < tableColumns.size(); i++) {
+            if (tableColumns.get(i).equals(name)) {
+                return i + 1;
+            }
+            if (match < 0 && tableColumns.get(i).equalsIgnoreCase(name)) {
+                match = i + 1;
+            }
+        }
+        return match;
+    }
+
+    private String columnList(TargetTable target) {
+        return options.table + " (" + String.join(", ", target.columns) + ")";
+    }
+
+    private interface SessionLoader {
+        void load(Chunk chunk) throws SQLException;
+
+        /** Завершает отправку перед фиксацией. */
+        void finish() throws SQLException;
+
+        /** Прерывает незавершённую отправку перед откатом. */
+        void abort();
+    }
+
+    /** PostgreSQL: текст записей в COPY FROM STDIN. */
+    private final class CopyLoader implements SessionLoader {
+        private final PGConnection pg;
+        private final String sql;
+        private CopyIn copy;
+
+        CopyLoader(Connection conn, TargetTable target) throws SQLException {
+            this.pg = conn.unwrap(PGConnection.class);
+            String delimiter = options.delimiter == '\'' ? "''''" : "'" + options.delimiter + "'";
+            this.sql = "COPY " + columnList(target) + " FROM STDIN WITH (FORMAT csv, DELIMITER " + delimiter + ")";
+        }
+
+        @Override
+        public void load(Chunk chunk) throws SQLException {
+            if (copy == null) {
+                copy = pg.getCopyAPI().copyIn(sql);
+            }
+            byte[] bytes = chunk.text.getBytes(StandardCharsets.UTF_8); // client_encoding драйвера — UTF8
+            copy.writeToCopy(bytes, 0, bytes.length);
+        }
+
+        @Override
+        public void finish() throws SQLException {
+            if (copy != null) {
+                copy.endCopy();
+                copy = null;
+            }
+        }
+
+        @Override
+        public void abort() {
+            if (copy != null && copy.isActive()) {
+                try {
+                    copy.cancelCopy();
+                } catch (SQLException ignored) {
+                    // соединение будет откатено и закрыто
+                }
+            }
+            copy = null;
+        }
+    }
+
+    /** Oracle и прочие: пакетный INSERT с типизированной привязкой значений. */
+    private final class BatchLoader implements SessionLoader {
+        private final PreparedStatement insert;
+        private final int[] types;
+
+        BatchLoader(Connection conn, TargetTable target) throws SQLException {
+            StringBuilder sql = new StringBuilder("INSERT INTO ").append(columnList(target)).append(" VALUES (");
+            for (int i = 0; i < target.columns.size(); i++) {
+                sql.append(i == 0 ? "?" : ", ?");
+            }
+            this.insert = conn.prepareStatement(sql.append(')').toString());
+            this.types = target.types;
+        }
+
+        @Override
+        public void load(Chunk chunk) throws SQLException {
+            long record = chunk.firstRecord;
+            for (String[] row : chunk.rows) {
+                for (int i = 0; i < row.length; i++) {
+                    bind(i + 1, types[i], row[i], record);
+                }
+                insert.addBatch();
+                record++;
+            }
+            insert.executeBatch();
+        }
+
+        private void bind(int index, int type, String value, long record) throws SQLException {
+            if (value == null || value.isEmpty()) {
+                insert.setNull(index, type);
+                return;
+            }
+            try {
+                switch (type) {
+                    case Types.TINYINT:
+                    case Types.SMALLINT:
+                    case Types.INTEGER:
+                    case Types.BIGINT:
+                    case Types.NUMERIC:
+                    case Types.DECIMAL:
+                    case Types.REAL:
+                    case Types.FLOAT:
+                    case Types.DOUBLE:
+                        insert.setBigDecimal(index, new BigDecimal(value.trim().replace(',', '.')));
+                        break;
+                    case Types.DATE:
+                    case Types.TIMESTAMP:
+                    case Types.TIMESTAMP_WITH_TIMEZONE:
+                        insert.setTimestamp(index, Timestamp.valueOf(parseDateTime(value.trim())));
+                        break;
+                    default:
+                        insert.setString(index, value);
+                }
+            } catch (NumberFormatException | DateTimeParseException e) {
+                throw new SQLException("Запись " + record + ", колонка " + index + ": неверное значение «" + value + "»");
+            }
+        }
+
+        @Override
+        public void finish() {
+            // пакеты уже выполнены в load
+        }
+
+        @Override
+        public void abort() {
+            try {
+                insert.clearBatch();
+            } catch (SQLException ignored) {
+                // соединение будет откатено и закрыто
+            }
+        }
+    }
+
+    /** Дата и время в виде {@code yyyy-MM-dd[ HH:mm[:ss[.f]]]} или {@code dd.MM.yyyy[ HH:mm[:ss]]}. */
+    static LocalDateTime parseDateTime(String text) {
+        DateTimeFormatter formatter = text.indexOf('.') == 2 ? RU_DATE_TIME : ISO_DATE_TIME;
+        return LocalDateTime.parse(text, formatter);
+    }
+
+    private static final class TargetTable {
+        final List<String> columns;
+        final int[] types;
+
+        TargetTable(List<String> columns, int[] types) {
+            this.columns = columns;
+            this.types = types;
+        }
+    }
+
+    /** Порция записей: поля (для INSERT) или исходный текст (для COPY). */
+    private static final class Chunk {
+        final long firstRecord;
+        final List<String[]> rows;
+        final String text;
+
+        Chunk(long firstRecord, List<String[]> rows, String text) {
+            this.firstRecord = firstRecord;
+            this.rows = rows;
+            this.text = text;
+        }
+
+        int size() {
+            return rows.size();
+        }
+    }
+}
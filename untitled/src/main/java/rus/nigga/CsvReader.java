@@ -0,0 +1,166 @@
+package com.example.dbclient;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Потоковое чтение CSV по RFC 4180: поля в двойных кавычках могут содержать разделитель,
+ * перевод строки и удвоенную кавычку. Пустое поле без кавычек читается как {@code null},
+ * {@code ""} — как пустая строка. Пустые строки файла пропускаются, как и метка порядка байтов
+ * (U+FEFF) в начале файла — её пишет выгрузка в CSV ({@link ResultExporter}).
+ * <p>
+ * Если нужен исходный текст записи ({@code captureRaw}), он доступен через {@link #getRaw()}
+ * без завершающего перевода строки — например, для передачи в {@code COPY ... FORMAT csv}.
+ */
+final class CsvReader implements Closeable {
+    private final Reader in;
+    private final char delimiter;
+    private final boolean captureRaw;
+    private final char[] buffer = new char[1 << 16];
+    private int position;
+    private int limit;
+    private boolean started;
+
+    private final List<String> fields = new ArrayList<>();
+    private final StringBuilder field = new StringBuilder();
+    private final StringBuilder raw = new StringBuilder();
+    private long recordNumber;
+
+    CsvReader(Reader in, char delimiter, boolean captureRaw) {
+        this.in = in;
+        this.delimiter = delimiter;
+        this.captureRaw = captureRaw;
+    }
+
+    /** Читает следующую запись; {@code false} в конце файла. */
+    boolean next() throws IOException {
+        while (true) {
+            fields.clear();
+            field.setLength(0);
+            raw.setLength(0);
+            int c = read();
+            if (c < 0) {
+                return false;
+            }
+            if (c == '\n' || c == '\r') {
+                skipLineFeed(c);
+                continue; // пустая строка
+            }
+            readRecord(c);
+            recordNumber++;
+            return true;
+        }
+    }
+
+    /** Поля текущей записи; массив новый для каждой записи. */
+    String[] getFields() {
+        return fields.toArray(new String[0]);
+    }
+
+    String getRaw() {
+        return raw.toString();
+    }
+
+    /** Номер текущей записи, с 1, без учёта пустых строк. */
+    long getRecordNumber() {
+        return recordNumber;
+    }
+
+    private void readRecord(int c) throws IOException {
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        while (true) {
+            if (quoted) {
+                if (c < 0) {
+                    throw new IOException("Незакрытая кавычка в записи " + (recordNumber + 1));
+                }
+                if (c == '"') {
+                    int next = read();
+                    if (next == '"') {
+                        field.append('"');
+                        c = read();
+                        continue;
+                    }
+                    quoted = false;
+                    c = next;
+                    continue;
+                }
+                field.append((char) c);
+                c = read();
+                continue;
+            }
+            if (c < 0 || c == '\n' || c == '\r') {
+                endField(wasQuoted);
+                if (c >= 0) {
+                    if (captureRaw) {
+                        raw.setLength(raw.length() - 1); // перевод строки не входит в запись
+                    }
+                    skipLineFeed(c);
+                }
+                return;
+            }
+            if (c == delimiter) {
+                endField(wasQuoted);
+                wasQuoted = false;
+            } else if (c == '"' && field.length() == 0 && !wasQuoted) {
+                quoted = true;
+                wasQuoted = true;
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    private void endField(boolean wasQuoted) {
+        fields.add(field.length() == 0 && !wasQuoted ? null : field.toString());
+        field.setLength(0);
+    }
+
+    /** После {@code \r} пропускает {@code \n} пары {@code \r\n}. */
+    private void skipLineFeed(int c) throws IOException {
+        if (c == '\r') {
+            if (position >= limit && !fill()) {
+                return;
+            }
+            if (buffer[position] == '\n') {
+                position++;
+            }
+        }
+    }
+
+    private int read() throws IOException {
+        if (position >= limit && !fill()) {
+            return -1;
+        }
+        char c = buffer[position++];
+        if (captureRaw) {
+            raw.append(c);
+        }
+        return c;
+    }
+
+    private boolean fill() throws IOException {
+        int n = in.read(buffer, 0, buffer.length);
+        if (n <= 0) {
+            return false;
+        }
+        position = 0;
+        limit = n;
+        if (!started) {
+            started = true;
+            if (buffer[0] == '\uFEFF') {
+                position = 1; // метка порядка байтов не входит ни в поля, ни в исходный текст записи
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -3,6 +3,9 @@ package com.example.dbclient;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
@@ -26,9 +29,11 @@ import javafx.scene.paint.Color;
 import javafx.scene.shape.Circle;
 import javafx.scene.text.Font;
 import javafx.scene.text.Text;
+import javafx.stage.FileChooser;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 import javafx.stage.Window;
+import javafx.util.Duration;
 import com.example.dbclient.SavedQuery;
 import com.example.dbclient.DbConnectionInfo;
 import com.example.dbclient.Updater;
@@ -38,38 +43,50 @@ import javafx.scene.image.Image;
 import java.awt.*;
 import java.io.File;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.sql.*;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.prefs.Preferences;
-import java.util.stream.Stream;
+import java.util.stream.Collectors;
 
 public class DbClientApp extends Application {
 
     private List<DbConnectionInfo> connections = new ArrayList<>();
     private ComboBox<DbConnectionInfo> connectionSelector;
     private List<SavedQuery> savedQueries = new ArrayList<>();
-    private ComboBox<SavedQuery> querySelector;
-    private Connection currentConnection;
+    private QueryPicker querySelector;
+    private volatile ConnectionPool currentPool;
+    // Последние введённые значения параметров; в сохранённый запрос попадают только при его сохранении
+    private final Map<String, String> lastParameterValues = new HashMap<>();
     private VBox centerArea;
-    private TextArea queryArea;
-    private TableView<List<String>> resultTable;
-    private TextArea logArea;
+    private TabPane workspaceTabs;
+    private final List<QueryWorkspace> workspaces = new ArrayList<>();
+    private int workspaceCounter;
+    private Image loadingGif;
+    private LogConsole logConsole;
     private Scene scene;
-    private ImageView loadingGifView;
     private BorderPane root;
 
     private BorderPane topBar;
@@ -77,28 +94,91 @@ public class DbClientApp extends Application {
 
     private String currentTheme = "light";
     private double currentFontSize = 12;
+    private int fetchSize = 500;
+    private int rowLimit = 10000;
+    private int resultHeapBudgetMb = 256;
+    private int resultCacheMb = 64;
+
+    private Label poolStatsLabel;
+    private Button cancelQueryButton;
+    private int defaultQueryTimeoutSeconds = 0;
 
     private final ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
     private static final Path CONFIG_DIR = Paths.get(System.getenv("APPDATA"), "MyApp");
+    private static final Path SPILL_DIR = CONFIG_DIR.resolve("spill");
+    private static final Path DIFF_DIR = CONFIG_DIR.resolve("diff");
+    private static final long POOL_BORROW_TIMEOUT_MS = 30_000;
+    private static final int CONNECTION_TEST_TIMEOUT_SECONDS = 5;
+    private static final long FETCH_UI_FLUSH_NANOS = 200_000_000L; // не чаще 5 обновлений таблицы в секунду
+    private static final int LOG_RETENTION_DAYS = 2;
+    private static final int LOG_CONSOLE_CAPACITY = 5000;
+    private static final long EXPORT_LOG_INTERVAL_NANOS = 5_000_000_000L;
+    private static final int JOURNAL_COMPACT_THRESHOLD = 500;
+    private static final int STARTUP_LOADER_THREADS = 4;
+    private static final String METRICS_LOG = "metrics"; // metrics-<дата>.log, по записи JSON на запрос
+
+    // Метаданные схемы для автодополнения, по файлу кэша на подключение
+    private final SchemaCatalog schemaCatalog = new SchemaCatalog(CONFIG_DIR.resolve("schema"), mapper,
+            message -> Platform.runLater(() -> log(message)));
 
     private final File connectionsFile = getConfigFile("connections.json");
     private final File queriesFile = getConfigFile("queries.json");
+    private final File alertsFile = getConfigFile("alerts.json");
+
+    // Правки пишутся в журнал рядом с файлом, файл целиком переписывается только при сворачивании журнала
+    private final JournaledStore<DbConnectionInfo> connectionStore = new JournaledStore<>(
+            mapper, connectionsFile, DbConnectionInfo.class, "name",
+            DbClientApp::withEncodedPassword, JOURNAL_COMPACT_THRESHOLD);
+    private final JournaledStore<SavedQuery> queryStore = new JournaledStore<>(
+            mapper, queriesFile, SavedQuery.class, "name",
+            query -> query, JOURNAL_COMPACT_THRESHOLD);
 
     private final Preferences preferences = Preferences.userRoot().node(this.getClass().getName());
+    private final AsyncFileLogger fileLogger = new AsyncFileLogger(CONFIG_DIR, LOG_RETENTION_DAYS);
+
+    private final ConnectionPoolManager poolManager = new ConnectionPoolManager(
+            preferences.getInt("poolMinSize", 1),
+            preferences.getInt("poolMaxSize", 4),
+            TimeUnit.MINUTES.toMillis(preferences.getInt("poolIdleTimeoutMinutes", 10)),
+            TimeUnit.MINUTES.toMillis(preferences.getInt("poolMaxLifetimeMinutes", 30)),
+            preferences.getInt("statementCacheSize", 32)
+    );
+
+    private final ResultCache resultCache = new ResultCache(0); // размер задаётся в loadSettings
+    private final QueryStats queryStats = new QueryStats();
+
+    private final QueryExecutionService queryService = new QueryExecutionService(
+            preferences.getInt("maxConcurrentQueries", 4),
+            preferences.getInt("maxQueuedQueries", 16)
+    );
+
+    private List<AlertRule> alertRules = new ArrayList<>();
+    private final AlertScheduler alertScheduler = new AlertScheduler(
+            poolManager,
+            new AlertScheduler.Listener() {
+                @Override
+                public void alert(String message) {
+                    log(message);
+                    notifyUser(message);
+                }
+
+                @Override
+                public void log(String message) {
+                    DbClientApp.this.log(message);
+                }
+            },
+            preferences.getInt("alertWorkers", 4),
+            preferences.getInt("alertQueueSize", 64)
+    );
 
     @Override
     public void start(Stage primaryStage) {
-        try {
-            Class.forName("org.postgresql.Driver");
-            Class.forName("oracle.jdbc.OracleDriver");
-        } catch (ClassNotFoundException e) {
-            e.printStackTrace();
-            log("Не удалось загрузить драйвер: " + e.getMessage());
-        }
-        relocateVersionFilesIfNeeded();
+        // Драйверы JDBC загружаются при первом подключении (JdbcDrivers), файлы читаются в фоне после показа окна
+        StartupTimer startup = new StartupTimer();
+        Jmx.register(QueryStats.OBJECT_NAME, queryStats);
 
         primaryStage.setTitle("DB AlertSnap");
-        primaryStage.getIcons().add(new Image(getClass().getResourceAsStream("/icon.png")));
+        primaryStage.getIcons().add(ImageCache.get("/icon.png"));
 
         root = new BorderPane();
 
@@ -125,29 +205,68 @@ public class DbClientApp extends Application {
         connectionBox.setPadding(new Insets(10));
 
         // --- QUERY BLOCK ---
-        querySelector = new ComboBox<>();
-        querySelector.setPromptText("Выберите запрос");
-        querySelector.setOnAction(e -> loadSelectedQuery());
-        querySelector.setPrefWidth(400);
+        querySelector = new QueryPicker();
+        querySelector.setOnSelected(this::loadSelectedQuery);
 
         Button saveQueryButton = new Button("Сохранить запрос");
         saveQueryButton.setOnAction(e -> saveCurrentQuery());
 
         Button executeQueryButton = new Button("Выполнить запрос");
-        executeQueryButton.setOnAction(e -> executeQueryAsync());
+        executeQueryButton.setOnAction(e -> executeQueryAsync(false));
+
+        Button refreshQueryButton = new Button("Обновить");
+        refreshQueryButton.setTooltip(new Tooltip("Выполнить запрос в БД, не используя кэш результатов"));
+        refreshQueryButton.setOnAction(e -> executeQueryAsync(true));
+
+        Button exportQueryButton = new Button("Экспорт…");
+        exportQueryButton.setTooltip(new Tooltip("Выполнить запрос и выгрузить результат в файл (CSV, JSON Lines, колоночный)"));
+        exportQueryButton.setOnAction(e -> exportQueryAsync(primaryStage));
+
+        Button fanOutButton = new Button("На нескольких БД…");
+        fanOutButton.setTooltip(new Tooltip("Выполнить запрос вкладки параллельно на выбранных подключениях"));
+        fanOutButton.setOnAction(e -> fanOutQueryAsync(primaryStage));
+
+        Button importCsvButton = new Button("Импорт CSV…");
+        importCsvButton.setTooltip(new Tooltip("Загрузить CSV-файл в таблицу выбранного подключения"));
+        importCsvButton.setOnAction(e -> importCsvAsync(primaryStage));
+
+        Button scriptButton = new Button("Выполнить скрипт");
+        scriptButton.setTooltip(new Tooltip("Выполнить текст вкладки как скрипт из нескольких выражений"));
+        scriptButton.setOnAction(e -> executeScriptAsync(primaryStage));
 
         Button deleteQueryButton = new Button("Удалить запрос");
         deleteQueryButton.setOnAction(e -> deleteSelectedQuery());
 
+        cancelQueryButton = new Button("Отменить запрос");
+        cancelQueryButton.setDisable(true);
+        cancelQueryButton.setOnAction(e -> currentWorkspace().cancelActiveQuery());
+
+        Button newTabButton = new Button("Новая вкладка");
+        newTabButton.setOnAction(e -> addWorkspace());
+
+        Button runningQueriesButton = new Button("Выполняемые запросы");
+        runningQueriesButton.setOnAction(e -> openRunningQueriesWindow(primaryStage));
+
+        Button alertsButton = new Button("Оповещения");
+        alertsButton.setOnAction(e -> new AlertRulesWindow(alertRules, () -> savedQueries, () -> connections,
+                alertScheduler, () -> {
+                    saveAlertRules();
+                    rescheduleAlerts();
+                }, this::applySettings, ImageCache.get("/icon.png"))
+                .show(primaryStage));
+
         saveQueryButton.setPrefWidth(150);
         executeQueryButton.setPrefWidth(150);
         deleteQueryButton.setPrefWidth(150);
+        cancelQueryButton.setPrefWidth(150);
+        runningQueriesButton.setPrefWidth(170);
 
-        HBox queryBox = new HBox(10, querySelector, saveQueryButton, executeQueryButton, deleteQueryButton);
+        HBox queryBox = new HBox(10, querySelector.getNode(), saveQueryButton, executeQueryButton, refreshQueryButton, fanOutButton, scriptButton, exportQueryButton, importCsvButton, deleteQueryButton,
+                cancelQueryButton, runningQueriesButton, alertsButton, newTabButton);
         queryBox.setPadding(new Insets(10));
 
         // --- SETTINGS BUTTON ---
-        Image settingsIcon = new Image(getClass().getResourceAsStream("/settings_icon.png"));
+        Image settingsIcon = ImageCache.get("/settings_icon.png");
         ImageView settingsIconView = new ImageView(settingsIcon);
         settingsButton = new Button("", settingsIconView);
         settingsButton.setStyle("-fx-background-color: transparent;");
@@ -160,42 +279,43 @@ public class DbClientApp extends Application {
         topBar.setRight(settingsButton);
         BorderPane.setMargin(settingsButton, new Insets(10));
 
-        // --- CENTER ---
-        queryArea = new TextArea();
-        queryArea.setPrefHeight(150);
-        queryArea.setWrapText(true);
-
-        resultTable = new TableView<>();
-        resultTable.setPrefHeight(400);
-
-        loadingGifView = new ImageView(new Image(getClass().getResourceAsStream("/loading.gif")));
-        loadingGifView.setPreserveRatio(true);
-        loadingGifView.setFitHeight(64);
-        loadingGifView.setVisible(false);
-        loadingGifView.setManaged(false);
+        // --- CENTER: вкладки с запросами ---
+        loadingGif = ImageCache.get("/loading.gif");
+        workspaceTabs = new TabPane();
+        workspaceTabs.getSelectionModel().selectedItemProperty().addListener((obs, oldTab, newTab) -> {
+            // Кнопка отмены относится к запросу выбранной вкладки
+            QueryWorkspace workspace = currentWorkspace();
+            cancelQueryButton.disableProperty().unbind();
+            if (workspace != null) {
+                cancelQueryButton.disableProperty().bind(workspace.runningProperty().not());
+            }
+        });
+        addWorkspace();
 
-        StackPane resultStack = new StackPane(resultTable, loadingGifView);
-        StackPane.setAlignment(loadingGifView, Pos.CENTER);
-        resultStack.setPrefHeight(400);
+        // --- СОСТОЯНИЕ ПУЛА СОЕДИНЕНИЙ ---
+        poolStatsLabel = new Label();
+        Timeline poolStatsRefresh = new Timeline(new KeyFrame(Duration.seconds(1), e -> refreshPoolStats()));
+        poolStatsRefresh.setCycleCount(Animation.INDEFINITE);
+        poolStatsRefresh.play();
 
-        centerArea = new VBox(10, queryArea, resultStack);
+        VBox.setVgrow(workspaceTabs, Priority.ALWAYS);
+        centerArea = new VBox(10, workspaceTabs, poolStatsLabel);
         centerArea.setPadding(new Insets(10));
 
-        logArea = new TextArea();
-        logArea.setEditable(false);
-        logArea.setPrefHeight(150);
+        logConsole = new LogConsole(LOG_CONSOLE_CAPACITY);
 
         root.setTop(topBar);
         root.setCenter(centerArea);
-        root.setBottom(logArea);
+        root.setBottom(logConsole.getNode());
 
         scene = new Scene(root, 1200, 850);
         primaryStage.setScene(scene);
+        startup.mark("интерфейс");
+        loadSettings(); // тема и шрифт до первого кадра; Preferences уже прочитаны при создании пула
         primaryStage.show();
+        startup.windowShown();
 
-        loadConnections();
-        loadQueries();
-        loadSettings();
+        loadInBackground(startup);
 
         // === Показываем changelog после обновления, если есть флаг ===
         Platform.runLater(() -> {
@@ -217,6 +337,34 @@ public class DbClientApp extends Application {
         }).start();
     }
 
+    private void addWorkspace() {
+        QueryWorkspace workspace = new QueryWorkspace("Запрос " + (++workspaceCounter), loadingGif);
+        workspace.getTab().setOnCloseRequest(e -> {
+            if (workspaces.size() == 1) {
+                e.consume(); // последняя вкладка остаётся
+            }
+        });
+        workspace.getTab().setOnClosed(e -> {
+            workspaces.remove(workspace);
+            workspace.dispose();
+        });
+        new SqlAutocomplete(workspace.getQueryArea(),
+                () -> schemaCatalog.getIndex(currentPool != null ? currentPool.getInfo() : null));
+        workspaces.add(workspace);
+        workspaceTabs.getTabs().add(workspace.getTab());
+        workspaceTabs.getSelectionModel().select(workspace.getTab());
+    }
+
+    private QueryWorkspace currentWorkspace() {
+        Tab selected = workspaceTabs.getSelectionModel().getSelectedItem();
+        for (QueryWorkspace workspace : workspaces) {
+            if (workspace.getTab() == selected) {
+                return workspace;
+            }
+        }
+        return null;
+    }
+
     private File getConfigFile(String filename) {
         try {
             Files.createDirectories(CONFIG_DIR);
@@ -255,7 +403,7 @@ public class DbClientApp extends Application {
     }
 
     private Button createSettingsButton(Stage stage) {
-        Image settingsIcon = new Image(getClass().getResourceAsStream("/settings_icon.png"));
+        Image settingsIcon = ImageCache.get("/settings_icon.png");
         ImageView iconView = new ImageView(settingsIcon);
         Button btn = new Button("", iconView);
         btn.setStyle("-fx-background-color: transparent;");
@@ -269,7 +417,7 @@ public class DbClientApp extends Application {
         dialog.initModality(Modality.APPLICATION_MODAL);
         dialog.initOwner(owner);
         dialog.setTitle("Настройки");
-        dialog.getIcons().add(new Image(getClass().getResourceAsStream("/icon.png")));
+        dialog.getIcons().add(ImageCache.get("/icon.png"));
 
         // Разрешаем масштабирование и задаем минимальные размеры
         dialog.setResizable(true);
@@ -295,13 +443,48 @@ public class DbClientApp extends Application {
             lightTheme.setSelected(true);
         }
 
+        TextField rowLimitField = new TextField(String.valueOf(rowLimit));
+        rowLimitField.setPromptText("0 — без ограничения");
+
+        TextField heapBudgetField = new TextField(String.valueOf(resultHeapBudgetMb));
+        heapBudgetField.setPromptText("МБ, сверх — подкачка на диск");
+
+        TextField resultCacheField = new TextField(String.valueOf(resultCacheMb));
+        resultCacheField.setPromptText("МБ, 0 — кэш выключен");
+
+        TextField queryTimeoutField = new TextField(String.valueOf(defaultQueryTimeoutSeconds));
+        queryTimeoutField.setPromptText("0 — без ограничения");
+
         Button applyButton = new Button("Применить");
         applyButton.setOnAction(e -> {
             currentFontSize = fontSizeSlider.getValue();
             currentTheme = darkTheme.isSelected() ? "dark" : "light";
+            try {
+                rowLimit = Math.max(0, Integer.parseInt(rowLimitField.getText().trim()));
+            } catch (NumberFormatException ex) {
+                log("Некорректный лимит строк: " + rowLimitField.getText());
+            }
+            try {
+                resultHeapBudgetMb = Math.max(1, Integer.parseInt(heapBudgetField.getText().trim()));
+            } catch (NumberFormatException ex) {
+                log("Некорректный бюджет памяти результата: " + heapBudgetField.getText());
+            }
+            try {
+                resultCacheMb = Math.max(0, Integer.parseInt(resultCacheField.getText().trim()));
+                resultCache.setMaxBytes(resultCacheMb * 1024L * 1024L);
+            } catch (NumberFormatException ex) {
+                log("Некорректный размер кэша результатов: " + resultCacheField.getText());
+            }
+            Integer timeout = parseTimeout(queryTimeoutField.getText());
+            defaultQueryTimeoutSeconds = timeout != null ? timeout : 0;
+            alertScheduler.setDefaultTimeoutSeconds(defaultQueryTimeoutSeconds);
 
             preferences.putDouble("fontSize", currentFontSize);
             preferences.put("theme", currentTheme);
+            preferences.putInt("rowLimit", rowLimit);
+            preferences.putInt("resultHeapBudgetMb", resultHeapBudgetMb);
+            preferences.putInt("resultCacheMb", resultCacheMb);
+            preferences.putInt("queryTimeoutSeconds", defaultQueryTimeoutSeconds);
 
             applySettings(scene);
             applySettings(dialog.getScene());
@@ -316,12 +499,20 @@ public class DbClientApp extends Application {
                 new Label("Тема:"),
                 lightTheme,
                 darkTheme,
+                new Label("Лимит строк до паузы выборки:"),
+                rowLimitField,
+                new Label("Память под результат (МБ):"),
+                heapBudgetField,
+                new Label("Кэш результатов сохранённых запросов (МБ):"),
+                resultCacheField,
+                new Label("Таймаут запроса по умолчанию (с):"),
+                queryTimeoutField,
                 applyButton
         );
         vbox.setPadding(new Insets(15));
 
         // Устанавливаем начальный размер сцены (ширина 400, высота 300)
-        Scene dialogScene = new Scene(vbox, 400, 300);
+        Scene dialogScene = new Scene(vbox, 400, 610);
         applySettings(dialogScene);
         dialog.setScene(dialogScene);
 
@@ -333,6 +524,13 @@ public class DbClientApp extends Application {
     private void loadSettings() {
         currentFontSize = preferences.getDouble("fontSize", 12);
         currentTheme = preferences.get("theme", "light");
+        fetchSize = preferences.getInt("fetchSize", 500);
+        rowLimit = preferences.getInt("rowLimit", 10000);
+        resultHeapBudgetMb = preferences.getInt("resultHeapBudgetMb", 256);
+        resultCacheMb = preferences.getInt("resultCacheMb", 64);
+        resultCache.setMaxBytes(resultCacheMb * 1024L * 1024L);
+        defaultQueryTimeoutSeconds = preferences.getInt("queryTimeoutSeconds", 0);
+        alertScheduler.setDefaultTimeoutSeconds(defaultQueryTimeoutSeconds);
 
         applySettings(scene);
     }
@@ -353,7 +551,7 @@ public class DbClientApp extends Application {
         Stage dialog = new Stage();
         dialog.initModality(Modality.APPLICATION_MODAL);
         dialog.setTitle("Список изменений");
-        dialog.getIcons().add(new Image(getClass().getResourceAsStream("/icon.png")));
+        dialog.getIcons().add(ImageCache.get("/icon.png"));
 
         TextArea changelogArea = new TextArea(changelogContent);
         changelogArea.setWrapText(true);
@@ -375,7 +573,13 @@ public class DbClientApp extends Application {
         if (selected != null) {
             connections.remove(selected);
             connectionSelector.getItems().remove(selected);
-            saveConnections();
+            poolManager.closePool(selected);
+            resultCache.invalidate(selected);
+            ConnectionPool pool = currentPool;
+            if (pool != null && pool.getInfo().equals(selected)) {
+                currentPool = null;
+            }
+            removeStoredConnection(selected);
             log("Удалено подключение: " + selected.getName());
         }
     }
@@ -384,8 +588,8 @@ public class DbClientApp extends Application {
         SavedQuery selected = querySelector.getValue();
         if (selected != null) {
             savedQueries.remove(selected);
-            querySelector.getItems().remove(selected);
-            saveQueries();
+            querySelector.remove(selected);
+            removeStoredQuery(selected);
             log("Удалён запрос: " + selected.getName());
         }
     }
@@ -395,7 +599,7 @@ public class DbClientApp extends Application {
         dialog.initModality(Modality.APPLICATION_MODAL);
         dialog.initOwner(owner);
         dialog.setTitle("Создать подключение");
-        dialog.getIcons().add(new Image(getClass().getResourceAsStream("/icon.png")));
+        dialog.getIcons().add(ImageCache.get("/icon.png"));
 
         // Разрешаем масштабирование окна
         dialog.setResizable(true);
@@ -424,6 +628,9 @@ public class DbClientApp extends Application {
         TextField usernameField = new TextField();
         PasswordField passwordField = new PasswordField();
 
+        TextField timeoutField = new TextField();
+        timeoutField.setPromptText("Таймаут запроса, с (пусто — из настроек)");
+
         typeField.valueProperty().addListener((obs, oldVal, newVal) -> {
             if ("Oracle".equals(newVal)) {
                 serviceField.setVisible(true);
@@ -456,9 +663,15 @@ public class DbClientApp extends Application {
                     usernameField.getText(),
                     passwordField.getText()
             );
+            info.setQueryTimeoutSeconds(parseTimeout(timeoutField.getText()));
+            boolean nameTaken = connections.stream().anyMatch(existing -> existing.getName().equals(info.getName()));
+            if (nameTaken && !confirmReplace(dialog, "Подключение", info.getName())) {
+                return;
+            }
+            replaceConnectionNamed(info.getName());
             connections.add(info);
             connectionSelector.getItems().add(info);
-            saveConnections();
+            storeConnection(info);
             dialog.close();
         });
 
@@ -471,11 +684,12 @@ public class DbClientApp extends Application {
                 databaseField,
                 new Label("Логин:"), usernameField,
                 new Label("Пароль:"), passwordField,
+                timeoutField,
                 saveButton
         );
         vbox.setPadding(new Insets(10));
 
-        Scene dialogScene = new Scene(vbox, 450, 500); // Увеличиваем ширину сцены (например, 450 вместо 300)
+        Scene dialogScene = new Scene(vbox, 450, 540); // Увеличиваем ширину сцены (например, 450 вместо 300)
         applySettings(dialogScene);
         dialog.setScene(dialogScene);
         dialog.showAndWait();
@@ -488,17 +702,20 @@ public class DbClientApp extends Application {
             return;
         }
 
-        try {
-            if (currentConnection != null && !currentConnection.isClosed()) {
-                currentConnection.close();
+        // Сессии берутся из пула при выполнении запроса; здесь только прогреваем пул в фоне
+        ConnectionPool pool = poolManager.getPool(selected);
+        currentPool = pool;
+        schemaCatalog.refresh(selected);
+        Thread warmUp = new Thread(() -> {
+            try {
+                pool.prewarm();
+                Platform.runLater(() -> log("Подключено к " + selected.getName()));
+            } catch (SQLException e) {
+                Platform.runLater(() -> log("Ошибка подключения: " + e.getMessage()));
             }
-            currentConnection = DriverManager.getConnection(
-                    selected.getUrl(), selected.getUsername(), selected.getPassword()
-            );
-            log("Подключено к " + selected.getName());
-        } catch (SQLException e) {
-            log("Ошибка подключения: " + e.getMessage());
-        }
+        });
+        warmUp.setDaemon(true);
+        warmUp.start();
     }
 
     private void testConnection() {
@@ -508,14 +725,32 @@ public class DbClientApp extends Application {
             return;
         }
 
-        try (Connection conn = DriverManager.getConnection(selected.getUrl(), selected.getUsername(), selected.getPassword())) {
-            log("Тест подключения успешен к " + selected.getName());
-        } catch (SQLException e) {
-            log("Ошибка теста подключения: " + e.getMessage());
-        }
+        ConnectionPool pool = poolManager.getPool(selected);
+        Thread test = new Thread(() -> {
+            // Сессия из пула: свежая проверяется здесь, простаивавшая уже проверена при выдаче
+            try (Connection conn = pool.borrow(POOL_BORROW_TIMEOUT_MS)) {
+                boolean valid = conn.isValid(CONNECTION_TEST_TIMEOUT_SECONDS);
+                Platform.runLater(() -> log(valid
+                        ? "Тест подключения успешен к " + selected.getName()
+                        : "Ошибка теста подключения: " + selected.getName() + " не отвечает"));
+            } catch (SQLException e) {
+                Platform.runLater(() -> log("Ошибка теста подключения: " + e.getMessage()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        test.setDaemon(true);
+        test.start();
+    }
+
+    private void refreshPoolStats() {
+        ConnectionPool pool = currentPool;
+        poolStatsLabel.setText(pool == null ? "" : pool.getInfo().getName() + " — " + pool.getStats() + "; " + resultCache
+                + "; " + schemaCatalog.get(pool.getInfo()).getStatus());
     }
 
     private void saveCurrentQuery() {
+        TextArea queryArea = currentWorkspace().getQueryArea();
         if (queryArea.getText() == null || queryArea.getText().isEmpty()) {
             log("Пустой запрос не может быть сохранён");
             return;
@@ -525,7 +760,7 @@ public class DbClientApp extends Application {
         dialog.initModality(Modality.APPLICATION_MODAL);
         dialog.initOwner(scene.getWindow());
         dialog.setTitle("Сохранение запроса");
-        dialog.getIcons().add(new Image(getClass().getResourceAsStream("/icon.png")));
+        dialog.getIcons().add(ImageCache.get("/icon.png"));
 
         // Настройки размера и масштабирования
         dialog.setResizable(true);
@@ -536,15 +771,62 @@ public class DbClientApp extends Application {
         TextField nameField = new TextField();
         nameField.setPrefWidth(350);
 
+        TextField timeoutField = new TextField();
+        timeoutField.setPromptText("Таймаут, с (пусто — из подключения)");
+        timeoutField.setPrefWidth(350);
+
+        TextField cacheTtlField = new TextField();
+        cacheTtlField.setPromptText("Хранить результат в кэше, с (пусто — не кэшировать)");
+        cacheTtlField.setPrefWidth(350);
+
+        CheckBox compareBox = new CheckBox("Сравнивать с предыдущим выполнением");
+        TextField diffKeyField = new TextField();
+        diffKeyField.setPromptText("Ключевые колонки через запятую (пусто — вся строка)");
+        diffKeyField.setPrefWidth(350);
+        diffKeyField.disableProperty().bind(compareBox.selectedProperty().not());
+
         Button okButton = new Button("OK");
         okButton.setPrefWidth(100);
 
         okButton.setOnAction(e -> {
             if (!nameField.getText().isEmpty()) {
+                boolean nameTaken = savedQueries.stream().anyMatch(existing -> existing.getName().equals(nameField.getText()));
+                if (nameTaken && !confirmReplace(dialog, "Запрос", nameField.getText())) {
+                    return;
+                }
                 SavedQuery newQuery = new SavedQuery(nameField.getText(), queryArea.getText());
+                newQuery.setQueryTimeoutSeconds(parseTimeout(timeoutField.getText()));
+                newQuery.setResultCacheTtlSeconds(parseTimeout(cacheTtlField.getText()));
+                newQuery.setCompareWithPrevious(compareBox.isSelected());
+                List<String> keyColumns = new ArrayList<>();
+                for (String column : diffKeyField.getText().split(",")) {
+                    if (!column.isBlank()) {
+                        keyColumns.add(column.trim());
+                    }
+                }
+                newQuery.setDiffKeyColumns(keyColumns);
+                // Значения параметров для проверок по расписанию — последние введённые при ручном запуске,
+                // иначе прежние значения запроса с этим именем
+                Map<String, String> previousValues = savedQueries.stream()
+                        .filter(existing -> existing.getName().equals(newQuery.getName()))
+                        .findFirst().map(SavedQuery::getParameterValues).orElse(Collections.emptyMap());
+                Map<String, String> parameterValues = new LinkedHashMap<>();
+                for (String parameter : NamedSql.parse(newQuery.getSql()).getParameterNames()) {
+                    String value = lastParameterValues.getOrDefault(parameter, previousValues.get(parameter));
+                    if (value != null) {
+                        parameterValues.put(parameter, value);
+                    }
+                }
+                newQuery.setParameterValues(parameterValues);
+                for (SavedQuery existing : new ArrayList<>(savedQueries)) {
+                    if (existing.getName().equals(newQuery.getName())) { // имя — ключ в журнале
+                        savedQueries.remove(existing);
+                        querySelector.remove(existing);
+                    }
+                }
                 savedQueries.add(newQuery);
-                querySelector.getItems().add(newQuery);
-                saveQueries();
+                querySelector.add(newQuery);
+                storeQuery(newQuery);
                 dialog.close();
             } else {
                 // Создаём кастомный Alert с применением текущих настроек
@@ -555,18 +837,18 @@ public class DbClientApp extends Application {
 
                 // Применяем текущие настройки темы к Alert
                 Stage alertStage = (Stage) alert.getDialogPane().getScene().getWindow();
-                alertStage.getIcons().add(new Image(getClass().getResourceAsStream("/icon.png")));
+                alertStage.getIcons().add(ImageCache.get("/icon.png"));
                 applySettings(alert.getDialogPane().getScene()); // Применяем настройки темы
 
                 alert.showAndWait();
             }
         });
 
-        VBox vbox = new VBox(15, label, nameField, okButton);
+        VBox vbox = new VBox(15, label, nameField, timeoutField, cacheTtlField, compareBox, diffKeyField, okButton);
         vbox.setPadding(new Insets(15));
         vbox.setAlignment(Pos.CENTER);
 
-        Scene dialogScene = new Scene(vbox, 400, 150);
+        Scene dialogScene = new Scene(vbox, 400, 340);
         applySettings(dialogScene); // Применяем настройки к основному диалогу
         dialog.setScene(dialogScene);
         dialog.centerOnScreen();
@@ -576,137 +858,945 @@ public class DbClientApp extends Application {
     private void loadSelectedQuery() {
         SavedQuery selected = querySelector.getValue();
         if (selected != null) {
-            queryArea.setText(selected.getSql());
+            currentWorkspace().getQueryArea().setText(selected.getSql());
         }
     }
 
-    private void executeQueryAsync() {
-        if (currentConnection == null) {
+    /**
+     * @param bypassCache выполнить запрос в БД, даже если в кэше есть свежий результат;
+     *                    полученный результат всё равно попадёт в кэш
+     */
+    private void executeQueryAsync(boolean bypassCache) {
+        ConnectionPool pool = currentPool;
+        if (pool == null) {
             log("Нет активного подключения к БД");
             return;
         }
-        if (queryArea == null || queryArea.getText().isEmpty()) {
+        QueryWorkspace workspace = currentWorkspace();
+        TextArea queryArea = workspace.getQueryArea();
+        if (queryArea.getText() == null || queryArea.getText().isEmpty()) {
             log("Запрос пустой или не создан");
             return;
         }
 
         String sql = queryArea.getText();
+        String logPrefix = workspace.getTitle() + ": ";
+        ResultGrid resultGrid = workspace.getResultGrid();
+        DbConnectionInfo selected = connectionSelector.getValue();
+        String dbType = selected != null ? selected.getType() : "";
+        int statementFetchSize = fetchSize;
 
-        Task<Void> task = new Task<>() {
-            private List<String> columnNames;
-            private List<List<String>> rows;
+        int timeoutSeconds = effectiveQueryTimeout(selected, sql);
 
-            @Override
-            protected Void call() throws Exception {
-                try (Statement stmt = currentConnection.createStatement()) {
-                    boolean result = stmt.execute(sql);
+        SavedQuery savedQuery = matchingSavedQuery(sql);
+        NamedSql namedSql = NamedSql.parse(sql);
+        Map<String, String> bindValues = resolveParameters(namedSql, savedQuery, logPrefix);
+        if (bindValues == null) {
+            return;
+        }
 
-                    if (result) {
-                        try (ResultSet rs = stmt.getResultSet()) {
-                            ResultSetMetaData metaData = rs.getMetaData();
-                            int columnCount = metaData.getColumnCount();
+        // Кэшируются только сохранённые запросы с заданным временем хранения результата
+        Integer cacheTtlSeconds = savedQuery != null ? savedQuery.getResultCacheTtlSeconds() : null;
+        ResultCache.Key cacheKey = selected != null && cacheTtlSeconds != null && cacheTtlSeconds > 0
+                ? new ResultCache.Key(selected, sql, bindValues)
+                : null;
+        // Сравнению с прошлым выполнением нужен свежий и полный результат: без кэша и без постраничной выборки
+        Path diffSnapshot = selected != null && savedQuery != null && savedQuery.isCompareWithPrevious()
+                ? DIFF_DIR.resolve(diffSnapshotName(selected, savedQuery, bindValues))
+                : null;
+        if (cacheKey != null && !bypassCache && diffSnapshot == null) {
+            ResultCache.CachedResult cached = resultCache.get(cacheKey);
+            if (cached != null) {
+                long ageSeconds = TimeUnit.MILLISECONDS.toSeconds(cached.ageMillis);
+                workspace.showCachedResult(cached.store, "Из кэша: " + cached.store.getRowCount()
+                        + " строк, получено " + ageSeconds + " с назад — «Обновить» для выполнения в БД");
+                log(logPrefix + "Результат взят из кэша (строк: " + cached.store.getRowCount()
+                        + ", возраст " + ageSeconds + " с)");
+                return;
+            }
+        }
 
-                            columnNames = new ArrayList<>();
-                            for (int i = 1; i <= columnCount; i++) {
-                                columnNames.add(metaData.getColumnName(i));
-                            }
+        FetchControl control = new FetchControl(diffSnapshot != null ? 0 : rowLimit);
+        long heapBudgetBytes = resultHeapBudgetMb * 1024L * 1024L;
+        RunningQuery running = new RunningQuery(selected != null ? selected.getName() : "", sql, control);
+        QueryMetrics metrics = new QueryMetrics(workspace.getTitle(), running.getConnectionName(), sql);
 
-                            rows = new ArrayList<>();
-                            while (rs.next()) {
-                                List<String> row = new ArrayList<>();
-                                for (int i = 1; i <= columnCount; i++) {
-                                    row.add(rs.getString(i));
-                                }
-                                rows.add(row);
-                            }
-                        }
+        Task<Integer> task = new Task<>() {
+            private boolean notified;
+            private ResultDiff diff;
+            private int hashedRows;
+
+            @Override
+            protected Integer call() throws Exception {
+                running.markStarted();
+                metrics.markStarted();
+                try (Connection conn = pool.borrow(POOL_BORROW_TIMEOUT_MS)) {
+                    metrics.markAcquired();
+                    return execute(conn);
+                }
+            }
+
+            private Integer execute(Connection conn) throws SQLException, InterruptedException, IOException {
+                boolean restoreAutoCommit = false;
+                // Запрос с параметрами выполняется через PreparedStatement из кэша сессии пула
+                try (Statement stmt = namedSql.hasParameters()
+                        ? conn.prepareStatement(namedSql.getJdbcSql())
+                        : conn.createStatement()) {
+                    running.attachStatement(stmt);
+                    if (timeoutSeconds > 0) {
+                        // Драйвер прервёт выполнение сам; общий таймаут с выборкой отслеживает QueryExecutionService
+                        stmt.setQueryTimeout(timeoutSeconds);
+                    }
+                    if ("PostgreSQL".equals(dbType) && conn.getAutoCommit()) {
+                        // PostgreSQL отдаёт строки порциями через курсор только вне режима autocommit
+                        conn.setAutoCommit(false);
+                        restoreAutoCommit = true;
+                    }
+                    // Для Oracle fetch size задаёт размер row prefetch
+                    stmt.setFetchSize(statementFetchSize);
+
+                    boolean result;
+                    if (stmt instanceof PreparedStatement) {
+                        namedSql.bind((PreparedStatement) stmt, bindValues);
+                        result = ((PreparedStatement) stmt).execute();
                     } else {
+                        result = stmt.execute(sql);
+                    }
+                    metrics.markExecuted();
+                    if (!result) {
                         int updateCount = stmt.getUpdateCount();
+                        metrics.markFetched(updateCount, 0);
                         Platform.runLater(() -> {
-                            resultTable.getItems().clear();
-                            resultTable.getColumns().clear();
-                            log("Запрос выполнен успешно (обновлено строк: " + updateCount + ")");
+                            if (workspace.isCurrentFetch(control)) {
+                                resultGrid.clear();
+                                workspace.setFetchStatus("", false);
+                                workspace.showResultTable();
+                            }
                         });
+                        return updateCount;
+                    }
+
+                    try (ResultSet rs = stmt.getResultSet()) {
+                        return streamRows(rs);
+                    }
+                } finally {
+                    if (restoreAutoCommit) {
+                        conn.setAutoCommit(true);
+                    }
+                }
+            }
+
+            private int streamRows(ResultSet rs) throws SQLException, InterruptedException, IOException {
+                SpillingResultStore store = new SpillingResultStore(rs.getMetaData(), SPILL_DIR, heapBudgetBytes);
+                Platform.runLater(() -> {
+                    if (workspace.isCurrentFetch(control)) {
+                        resultGrid.show(store);
+                        workspace.showResultTable();
+                    } else {
+                        store.close();
+                    }
+                });
+                if (diffSnapshot != null) {
+                    try {
+                        diff = new ResultDiff(diffSnapshot, SPILL_DIR, store, savedQuery.getDiffKeyColumns());
+                    } catch (IllegalArgumentException e) {
+                        Platform.runLater(() -> log(logPrefix + "Сравнение с предыдущим выполнением отключено: " + e.getMessage()));
+                    }
+                }
+                try {
+                    return fetchRows(rs, store);
+                } finally {
+                    if (diff != null) {
+                        diff.close();
                     }
                 }
-                return null;
+            }
+
+            private int fetchRows(ResultSet rs, SpillingResultStore store)
+                    throws SQLException, InterruptedException, IOException {
+                int fetched = 0;
+                boolean exhausted = false;
+                long startNanos = System.nanoTime();
+                long lastFlushNanos = startNanos;
+
+                while (!control.isCancelled()) {
+                    boolean limitReached = control.isLimitReached(fetched);
+                    long pauseStartNanos = 0;
+                    if (limitReached) {
+                        publishBatch(store, fetched, startNanos, true);
+                        if (!notified) {
+                            notified = true;
+                            notifyUser("✅ " + logPrefix + "запрос выполнен (получено строк: " + fetched + ")");
+                        }
+                        pauseStartNanos = System.nanoTime();
+                    }
+                    boolean allowed = control.awaitAllowance(fetched);
+                    if (limitReached) {
+                        metrics.addPausedNanos(System.nanoTime() - pauseStartNanos);
+                    }
+                    if (!allowed) {
+                        break;
+                    }
+                    boolean hasRow = rs.next();
+                    if (fetched == 0) {
+                        metrics.markFirstRow();
+                    }
+                    if (!hasRow) {
+                        exhausted = true;
+                        break;
+                    }
+
+                    store.appendRow(rs);
+                    fetched++;
+
+                    long now = System.nanoTime();
+                    if (now - lastFlushNanos >= FETCH_UI_FLUSH_NANOS) {
+                        publishBatch(store, fetched, startNanos, false);
+                        lastFlushNanos = now;
+                    }
+                }
+                publishBatch(store, fetched, startNanos, false);
+                metrics.markFetched(fetched, store.estimateMemoryBytes() + store.getSpilledBytes());
+                String memoryReport = logPrefix + String.format("Результат: %d строк × %d колонок, ~%.1f МБ в памяти",
+                        store.getRowCount(), store.getColumnCount(), store.estimateMemoryBytes() / (1024.0 * 1024.0))
+                        + (store.isSpilled()
+                        ? String.format(", ~%.1f МБ в файле подкачки", store.getSpilledBytes() / (1024.0 * 1024.0))
+                        : "");
+                Platform.runLater(() -> log(memoryReport));
+
+                ColumnarResultStore complete = store.getMemoryStore();
+                if (cacheKey != null && exhausted && !control.isCancelled() && complete != null) {
+                    resultCache.put(cacheKey, complete, TimeUnit.SECONDS.toMillis(cacheTtlSeconds));
+                }
+                if (diff != null && exhausted && !control.isCancelled()) {
+                    ResultDiff.Result result = diff.finish();
+                    Platform.runLater(() -> reportDiff(workspace, control, result, logPrefix));
+                }
+                return fetched;
+            }
+
+            private void publishBatch(SpillingResultStore store, int fetched, long startNanos, boolean paused)
+                    throws IOException {
+                // Строки из буфера записи файла подкачки становятся видны таблице только после сброса
+                store.flush();
+                int visibleRows = store.getRowCount();
+                if (diff != null) {
+                    diff.addRows(store, hashedRows, visibleRows);
+                    hashedRows = visibleRows;
+                }
+                double seconds = Math.max((System.nanoTime() - startNanos) / 1_000_000_000.0, 0.001);
+                long rowsPerSecond = Math.round(fetched / seconds);
+                Platform.runLater(() -> {
+                    if (!workspace.isCurrentFetch(control)) {
+                        return;
+                    }
+                    resultGrid.publishRows(visibleRows);
+                    workspace.setFetchStatus("Получено строк: " + fetched + " (" + rowsPerSecond + " стр/с)"
+                            + (paused ? " — пауза, прокрутите вниз или нажмите «Загрузить ещё»" : ""), paused);
+                });
             }
 
             @Override
             protected void succeeded() {
-                if (rows != null && columnNames != null) {
-                    Platform.runLater(() -> {
-                        displayResultSetFromData(columnNames, rows);
-                        loadingGifView.setVisible(false);
-                        loadingGifView.setManaged(false);
-                        resultTable.setVisible(true);
-                        resultTable.setManaged(true);
-                        log("Запрос выполнен успешно (ResultSet)");
-                    });
+                workspace.queryFinished(running);
+                if (control.isCancelled()) {
+                    log(logPrefix + "Выборка прервана (получено строк: " + getValue() + ")");
+                    reportMetrics(workspace, control, metrics, QueryMetrics.Outcome.CANCELLED);
+                    return;
+                }
+                Platform.runLater(() -> {
+                    // выполняется после порций строк, поставленных в очередь FX выборкой
+                    workspace.showResultTable();
+                    metrics.markRendered();
+                    reportMetrics(workspace, control, metrics, QueryMetrics.Outcome.SUCCESS);
+                    log(logPrefix + "Запрос выполнен успешно: " + metrics.toStatusText());
+                });
+                if (!notified) {
+                    notifyUser("✅ " + logPrefix + "запрос выполнен");
                 }
-                notifyUser("✅ Запрос выполнен");
+            }
+
+            @Override
+            protected void cancelled() {
+                reportMetrics(workspace, control, metrics,
+                        running.isTimedOut() ? QueryMetrics.Outcome.TIMEOUT : QueryMetrics.Outcome.CANCELLED);
+                if (running.isTimedOut()) {
+                    log(logPrefix + "Ошибка: запрос прерван по таймауту (" + timeoutSeconds + " с)");
+                    notifyUser("⏱ " + logPrefix + "превышено время выполнения запроса");
+                } else {
+                    log(logPrefix + "Запрос отменён");
+                }
+                if (workspace.isCurrentFetch(control)) {
+                    workspace.showResultTable();
+                    workspace.setFetchStatus("", false);
+                }
+                workspace.queryFinished(running);
             }
 
             @Override
             protected void failed() {
+                workspace.queryFinished(running);
+                if (control.isCancelled()) {
+                    // Результат прерванной выборки уже закрыт таблицей — ошибка записи ожидаема
+                    log(logPrefix + "Выборка прервана");
+                    reportMetrics(workspace, control, metrics, QueryMetrics.Outcome.CANCELLED);
+                    return;
+                }
+                reportMetrics(workspace, control, metrics, QueryMetrics.Outcome.FAILED);
                 Throwable ex = getException();
-                log("Ошибка выполнения запроса: " + (ex != null ? ex.getMessage() : "неизвестная ошибка"));
-                notifyUser("❌ Ошибка выполнения запроса");
+                log(logPrefix + "Ошибка выполнения запроса: " + (ex != null ? ex.getMessage() : "неизвестная ошибка"));
+                notifyUser("❌ " + logPrefix + "ошибка выполнения запроса");
 
                 Platform.runLater(() -> {
-                    loadingGifView.setVisible(false);
-                    loadingGifView.setManaged(false);
-                    resultTable.setVisible(true);
-                    resultTable.setManaged(true);
+                    if (workspace.isCurrentFetch(control)) {
+                        workspace.showResultTable();
+                        workspace.setFetchStatus("", false);
+                    }
                 });
             }
         };
 
-        Platform.runLater(() -> {
-            loadingGifView.setVisible(true);
-            loadingGifView.setManaged(true);
-            resultTable.setVisible(false);
-            resultTable.setManaged(false);
+        // Результат выводится в таблицу вкладки, поэтому предыдущий запрос вкладки прерывается
+        workspace.startQuery(running, control);
+        workspace.showLoading();
+
+        try {
+            queryService.submit(running, task, timeoutSeconds);
+        } catch (RejectedExecutionException e) {
+            log("Ошибка: слишком много запросов в очереди, повторите позже");
+            workspace.queryFinished(running);
+            workspace.showResultTable();
+        }
+    }
+
+    /**
+     * Завершает замеры выполнения: строка состояния вкладки (если результат её), журнал метрик и сводка JMX.
+     * Вызывается из потока FX.
+     */
+    private void reportMetrics(QueryWorkspace workspace, FetchControl control, QueryMetrics metrics,
+                               QueryMetrics.Outcome outcome) {
+        metrics.finish(outcome);
+        if (workspace.isCurrentFetch(control)) {
+            workspace.setMetrics(metrics.toStatusText());
+        }
+        fileLogger.log(METRICS_LOG, metrics.toJson(mapper));
+        queryStats.record(metrics);
+    }
+
+    private void reportDiff(QueryWorkspace workspace, FetchControl control, ResultDiff.Result result, String logPrefix) {
+        if (workspace.isCurrentFetch(control)) {
+            workspace.getResultGrid().showDiff(result);
+        }
+        log(logPrefix + "Сравнение с предыдущим выполнением: " + result);
+        if (result.hasPrevious() && result.getAddedCount() + result.getChangedCount() + result.getRemovedCount() > 0) {
+            notifyUser("🔄 " + logPrefix + "результат изменился: " + result.getAddedCount() + " добавлено, "
+                    + result.getChangedCount() + " изменено, " + result.getRemovedCount() + " удалено");
+        }
+    }
+
+    /** Файл снимка для сравнения: свой для подключения, сохранённого запроса и значений его параметров. */
+    private static String diffSnapshotName(DbConnectionInfo connection, SavedQuery query, Map<String, String> parameters) {
+        String identity = connection.getName() + '\n' + connection.getUrl() + '\n' + query.getName() + '\n'
+                + new TreeMap<>(parameters);
+        return UUID.nameUUIDFromBytes(identity.getBytes(StandardCharsets.UTF_8)) + ".diff";
+    }
+
+    /** Сохранённый запрос, выбранный в списке, если в редакторе именно его текст. */
+    private SavedQuery matchingSavedQuery(String sql) {
+        SavedQuery savedQuery = querySelector.getValue();
+        return savedQuery != null && sql.equals(savedQuery.getSql()) ? savedQuery : null;
+    }
+
+    /**
+     * Значения именованных параметров запроса. По умолчанию подставляются последние введённые значения,
+     * а если параметр ещё не вводился — значения сохранённого запроса. Сам сохранённый запрос не меняется:
+     * разовый запуск с другими значениями не должен менять параметры его проверок по расписанию.
+     *
+     * @return значения (пустые, если параметров нет) или {@code null}, если выполнение отменено
+     */
+    private Map<String, String> resolveParameters(NamedSql namedSql, SavedQuery savedQuery, String logPrefix) {
+        if (!namedSql.hasParameters()) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> defaults = new HashMap<>();
+        if (savedQuery != null) {
+            defaults.putAll(savedQuery.getParameterValues());
+        }
+        defaults.putAll(lastParameterValues);
+        Map<String, String> entered = promptParameters(namedSql.getParameterNames(), defaults);
+        if (entered == null) {
+            log(logPrefix + "Выполнение отменено: не заданы параметры");
+            return null;
+        }
+        lastParameterValues.putAll(entered);
+        log(logPrefix + "Параметры: " + entered);
+        return entered;
+    }
+
+    /**
+     * Выполняет запрос текущей вкладки и выгружает результат в файл, не загружая его в таблицу.
+     * Строки пишутся прямо из ResultSet, поэтому объём выгрузки не ограничен памятью.
+     */
+    private void exportQueryAsync(Window owner) {
+        ConnectionPool pool = currentPool;
+        if (pool == null) {
+            log("Нет активного подключения к БД");
+            return;
+        }
+        QueryWorkspace workspace = currentWorkspace();
+        String sql = workspace.getQueryArea().getText();
+        if (sql == null || sql.isEmpty()) {
+            log("Запрос пустой или не создан");
+            return;
+        }
+
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Экспорт результата");
+        chooser.setInitialFileName("export");
+        for (ResultExporter.Format format : ResultExporter.Format.values()) {
+            chooser.getExtensionFilters().add(
+                    new FileChooser.ExtensionFilter(format.getDescription(), format.getExtension()));
+        }
+        File file = chooser.showSaveDialog(owner);
+        if (file == null) {
+            return;
+        }
+        ResultExporter.Format format = ResultExporter.Format.values()[
+                Math.max(0, chooser.getExtensionFilters().indexOf(chooser.getSelectedExtensionFilter()))];
+        String extension = format.getExtension().substring(1);
+        Path target = file.getName().endsWith(extension) ? file.toPath() : file.toPath().resolveSibling(file.getName() + extension);
+
+        String logPrefix = workspace.getTitle() + ": ";
+        DbConnectionInfo selected = connectionSelector.getValue();
+        String dbType = selected != null ? selected.getType() : "";
+        int statementFetchSize = fetchSize;
+        int timeoutSeconds = effectiveQueryTimeout(selected, sql);
+        NamedSql namedSql = NamedSql.parse(sql);
+        Map<String, String> bindValues = resolveParameters(namedSql, matchingSavedQuery(sql), logPrefix);
+        if (bindValues == null) {
+            return;
+        }
+
+        FetchControl control = new FetchControl(0);
+        RunningQuery running = new RunningQuery(selected != null ? selected.getName() : "", "Экспорт: " + sql, control);
+        long[] lastLogNanos = {System.nanoTime()};
+        ResultExporter exporter = new ResultExporter(format, target, (rows, bytes, rowsPerSecond) -> {
+            long now = System.nanoTime();
+            if (now - lastLogNanos[0] >= EXPORT_LOG_INTERVAL_NANOS) {
+                lastLogNanos[0] = now;
+                log(logPrefix + String.format("Экспорт: %d строк, %.1f МБ (%d стр/с)",
+                        rows, bytes / (1024.0 * 1024.0), rowsPerSecond));
+            }
         });
 
-        new Thread(task).start();
+        Task<Long> task = new Task<>() {
+            private long startNanos;
+
+            @Override
+            protected Long call() throws Exception {
+                running.markStarted();
+                startNanos = System.nanoTime();
+                try (Connection conn = pool.borrow(POOL_BORROW_TIMEOUT_MS)) {
+                    boolean restoreAutoCommit = false;
+                    try (Statement stmt = namedSql.hasParameters()
+                            ? conn.prepareStatement(namedSql.getJdbcSql())
+                            : conn.createStatement()) {
+                        running.attachStatement(stmt);
+                        if (timeoutSeconds > 0) {
+                            stmt.setQueryTimeout(timeoutSeconds);
+                        }
+                        if ("PostgreSQL".equals(dbType) && conn.getAutoCommit()) {
+                            // Без курсора PostgreSQL отдал бы весь результат разом
+                            conn.setAutoCommit(false);
+                            restoreAutoCommit = true;
+                        }
+                        stmt.setFetchSize(statementFetchSize);
+
+                        boolean result;
+                        if (stmt instanceof PreparedStatement) {
+                            namedSql.bind((PreparedStatement) stmt, bindValues);
+                            result = ((PreparedStatement) stmt).execute();
+                        } else {
+                            result = stmt.execute(sql);
+                        }
+                        if (!result) {
+                            throw new SQLException("запрос не вернул строк для выгрузки");
+                        }
+                        try (ResultSet rs = stmt.getResultSet()) {
+                            return exporter.export(rs, control::isCancelled);
+                        }
+                    } finally {
+                        if (restoreAutoCommit) {
+                            conn.setAutoCommit(true);
+                        }
+                    }
+                }
+            }
+
+            @Override
+            protected void succeeded() {
+                if (control.isCancelled()) {
+                    log(logPrefix + "Экспорт прерван, файл не создан");
+                    return;
+                }
+                double seconds = Math.max((System.nanoTime() - startNanos) / 1_000_000_000.0, 0.001);
+                log(logPrefix + String.format("Экспорт завершён: %d строк, %.1f МБ за %.1f с (%d стр/с) → %s",
+                        getValue(), exporter.getBytesWritten() / (1024.0 * 1024.0), seconds,
+                        Math.round(getValue() / seconds), target));
+                notifyUser("✅ " + logPrefix + "экспорт завершён (" + getValue() + " строк)");
+            }
+
+            @Override
+            protected void cancelled() {
+                log(logPrefix + "Экспорт отменён, файл не создан");
+            }
+
+            @Override
+            protected void failed() {
+                Throwable ex = getException();
+                log(logPrefix + "Ошибка экспорта: " + (ex != null ? ex.getMessage() : "неизвестная ошибка"));
+                notifyUser("❌ " + logPrefix + "ошибка экспорта");
+            }
+        };
+
+        log(logPrefix + "Экспорт в " + target + " (" + format.getDescription() + ")");
+        try {
+            // Выгрузка большой таблицы может идти долго: общий таймаут не задаём, таймаут выполнения — у выражения
+            queryService.submit(running, task, 0);
+        } catch (RejectedExecutionException e) {
+            log("Ошибка: слишком много запросов в очереди, повторите позже");
+        }
+    }
+
+    /**
+     * Выполняет текст вкладки как скрипт: выражения по очереди на одном соединении,
+     * подряд идущие DML — пакетами; отчёт по каждому выражению — в отдельном окне.
+     */
+    private void executeScriptAsync(Window owner) {
+        ConnectionPool pool = currentPool;
+        if (pool == null) {
+            log("Нет активного подключения к БД");
+            return;
+        }
+        QueryWorkspace workspace = currentWorkspace();
+        String text = workspace.getQueryArea().getText();
+        if (text == null || text.isBlank()) {
+            log("Запрос пустой или не создан");
+            return;
+        }
+        DbConnectionInfo selected = connectionSelector.getValue();
+        String dbType = selected != null ? selected.getType() : "";
+        List<SqlScript.ScriptStatement> statements = SqlScript.split(text, "Oracle".equals(dbType));
+        if (statements.isEmpty()) {
+            log("В скрипте нет выражений");
+            return;
+        }
+
+        ScriptRunWindow window = new ScriptRunWindow(this::applySettings, ImageCache.get("/icon.png"));
+        ScriptRunner.Options defaults = new ScriptRunner.Options(
+                preferences.getInt("scriptBatchSize", 100),
+                preferences.getInt("scriptCommitEvery", 0),
+                preferences.getBoolean("scriptContinueOnError", false), 0, 0);
+        ScriptRunner.Options options = window.askOptions(owner, statements, defaults,
+                effectiveQueryTimeout(selected, text), fetchSize);
+        if (options == null) {
+            return;
+        }
+        preferences.putInt("scriptBatchSize", options.getBatchSize());
+        preferences.putInt("scriptCommitEvery", options.getCommitEvery());
+        preferences.putBoolean("scriptContinueOnError", options.isContinueOnError());
+
+        String logPrefix = workspace.getTitle() + ": ";
+        RunningQuery running = new RunningQuery(selected != null ? selected.getName() : "",
+                "Скрипт (" + statements.size() + " выр.): " + text, new FetchControl(0));
+
+        Task<ScriptRunner.Summary> task = new Task<>() {
+            @Override
+            protected ScriptRunner.Summary call() throws Exception {
+                running.markStarted();
+                try (Connection conn = pool.borrow(POOL_BORROW_TIMEOUT_MS)) {
+                    return new ScriptRunner(conn, "PostgreSQL".equals(dbType), options, running, window::add)
+                            .run(statements);
+                }
+            }
+
+            @Override
+            protected void succeeded() {
+                ScriptRunner.Summary summary = getValue();
+                window.finish("Итог: " + summary);
+                log(logPrefix + "Скрипт: " + summary);
+                notifyUser((summary.failed > 0 || summary.cancelled ? "❌ " : "✅ ") + logPrefix + "скрипт выполнен");
+            }
+
+            @Override
+            protected void cancelled() {
+                window.finish("Выполнение скрипта прервано");
+                log(logPrefix + "Выполнение скрипта прервано");
+            }
+
+            @Override
+            protected void failed() {
+                Throwable ex = getException();
+                String message = ex != null ? ex.getMessage() : "неизвестная ошибка";
+                window.finish("Ошибка: " + message);
+                log(logPrefix + "Ошибка выполнения скрипта: " + message);
+                notifyUser("❌ " + logPrefix + "ошибка выполнения скрипта");
+            }
+        };
+
+        try {
+            // Общий таймаут не задаём: ограничено каждое выражение
+            queryService.submit(running, task, 0);
+        } catch (RejectedExecutionException e) {
+            log("Ошибка: слишком много запросов в очереди, повторите позже");
+            return;
+        }
+        window.show(owner, "Скрипт — " + workspace.getTitle(), statements.size(), running::cancel);
+        log(logPrefix + "Выполнение скрипта: " + statements.size() + " выражений");
+    }
+
+    /**
+     * Выполняет запрос вкладки параллельно на нескольких подключениях. Строки всех БД выводятся в таблицу вкладки
+     * с колонкой источника по мере получения, время и ошибки по каждой БД — в отдельном окне.
+     */
+    private void fanOutQueryAsync(Window owner) {
+        QueryWorkspace workspace = currentWorkspace();
+        String sql = workspace.getQueryArea().getText();
+        if (sql == null || sql.isBlank()) {
+            log("Запрос пустой или не создан");
+            return;
+        }
+        if (connections.isEmpty()) {
+            log("Нет сохранённых подключений");
+            return;
+        }
+        String logPrefix = workspace.getTitle() + ": ";
+        NamedSql namedSql = NamedSql.parse(sql);
+        Map<String, String> bindValues = resolveParameters(namedSql, matchingSavedQuery(sql), logPrefix);
+        if (bindValues == null) {
+            return;
+        }
+
+        FanOutWindow window = new FanOutWindow(this::applySettings, ImageCache.get("/icon.png"));
+        Set<String> remembered = Set.of(preferences.get("fanOutConnections", "").split("\n"));
+        FanOutRunner.Options defaults = new FanOutRunner.Options(List.of(),
+                preferences.getInt("fanOutParallelism", 8),
+                preferences.getInt("fanOutTimeoutSeconds", defaultQueryTimeoutSeconds), 0, 0);
+        FanOutRunner.Options options = window.askOptions(owner, connections, remembered, defaults, fetchSize, rowLimit);
+        if (options == null) {
+            return;
+        }
+        preferences.put("fanOutConnections", options.getTargets().stream()
+                .map(DbConnectionInfo::getName).collect(Collectors.joining("\n")));
+        preferences.putInt("fanOutParallelism", options.getParallelism());
+        preferences.putInt("fanOutTimeoutSeconds", options.getTimeoutSeconds());
+
+        int targetCount = options.getTargets().size();
+        MergedResultStore merged = new MergedResultStore();
+        // Общий бюджет памяти результата делится между БД, остальное уходит в файлы подкачки
+        long heapBudgetPerSource = Math.max(8L << 20, resultHeapBudgetMb * 1024L * 1024L / targetCount);
+        FanOutRunner runner = new FanOutRunner(namedSql, bindValues, options, merged, SPILL_DIR,
+                heapBudgetPerSource, window::add);
+        FetchControl control = new FetchControl(0);
+        RunningQuery running = new RunningQuery("Несколько БД (" + targetCount + ")", sql, control);
+        ResultGrid resultGrid = workspace.getResultGrid();
+        boolean[] shown = {false};
+
+        // Таблица строится по колонкам первой ответившей БД, до этого вкладка показывает индикатор загрузки
+        Runnable refreshGrid = () -> {
+            if (!workspace.isCurrentFetch(control)) {
+                return;
+            }
+            if (!shown[0] && merged.getColumnCount() > 1) {
+                shown[0] = true;
+                resultGrid.show(merged);
+                workspace.showResultTable();
+            }
+            if (shown[0]) {
+                resultGrid.publishRows(merged.getRowCount());
+                workspace.setFetchStatus("Получено строк: " + merged.getRowCount() + " с " + targetCount + " БД", false);
+            }
+        };
+        Runnable release = () -> {
+            if (!shown[0]) {
+                merged.close(); // таблица результат не приняла — закрываем сами
+            }
+            if (workspace.isCurrentFetch(control)) {
+                workspace.showResultTable();
+            }
+            workspace.queryFinished(running);
+        };
+
+        Task<FanOutRunner.Summary> task = new Task<>() {
+            @Override
+            protected FanOutRunner.Summary call() throws Exception {
+                running.markStarted();
+                return runner.run();
+            }
+
+            @Override
+            protected void succeeded() {
+                FanOutRunner.Summary summary = getValue();
+                window.finish("Итог: " + summary);
+                release.run();
+                log(logPrefix + "Запрос на " + targetCount + " БД: " + summary);
+                notifyUser((summary.failed + summary.timedOut > 0 || summary.cancelled > 0 ? "❌ " : "✅ ")
+                        + logPrefix + "запрос на " + targetCount + " БД выполнен");
+            }
+
+            @Override
+            protected void cancelled() {
+                runner.cancel();
+                window.finish("Выполнение прервано");
+                release.run();
+                log(logPrefix + "Запрос на " + targetCount + " БД прерван");
+            }
+
+            @Override
+            protected void failed() {
+                Throwable ex = getException();
+                String message = ex != null ? ex.getMessage() : "неизвестная ошибка";
+                window.finish("Ошибка: " + message);
+                release.run();
+                log(logPrefix + "Ошибка запроса на нескольких БД: " + message);
+                notifyUser("❌ " + logPrefix + "ошибка запроса на нескольких БД");
+            }
+        };
+
+        // Результат выводится в таблицу вкладки, поэтому предыдущий запрос вкладки прерывается
+        workspace.startQuery(running, control);
+        workspace.showLoading();
+        try {
+            // Общий таймаут не задаём: ограничено время на каждой БД
+            queryService.submit(running, task, 0);
+        } catch (RejectedExecutionException e) {
+            log("Ошибка: слишком много запросов в очереди, повторите позже");
+            merged.close();
+            workspace.queryFinished(running);
+            workspace.showResultTable();
+            return;
+        }
+        window.show(owner, "Запрос на нескольких БД — " + workspace.getTitle(), runner, running::cancel, refreshGrid);
+        log(logPrefix + "Запрос на " + targetCount + " БД, одновременно до " + options.getParallelism());
     }
 
-    private void displayResultSetFromData(List<String> columnNames, List<List<String>> data) {
-        resultTable.getItems().clear();
-        resultTable.getColumns().clear();
+    /**
+     * Загружает CSV-файл в таблицу выбранного подключения: в PostgreSQL — через COPY,
+     * в Oracle — пакетными INSERT; несколько сессий на отдельных соединениях, ход загрузки — в отдельном окне.
+     */
+    private void importCsvAsync(Window owner) {
+        DbConnectionInfo selected = connectionSelector.getValue();
+        if (selected == null || currentPool == null) {
+            log("Нет активного подключения к БД");
+            return;
+        }
+        CsvImportWindow window = new CsvImportWindow(this::applySettings, ImageCache.get("/icon.png"));
+        String lastFile = preferences.get("csvImportFile", "");
+        String delimiter = preferences.get("csvImportDelimiter", ",");
+        Charset charset;
+        try {
+            charset = Charset.forName(preferences.get("csvImportCharset", "UTF-8"));
+        } catch (IllegalArgumentException e) {
+            charset = StandardCharsets.UTF_8;
+        }
+        CsvImporter.Options defaults = new CsvImporter.Options(
+                lastFile.isEmpty() ? null : Paths.get(lastFile), charset,
+                delimiter.isEmpty() ? ',' : delimiter.charAt(0),
+                preferences.getBoolean("csvImportHeader", true), null,
+                preferences.getInt("csvImportBatchSize", 5000),
+                preferences.getInt("csvImportCommitEvery", 100_000),
+                preferences.getInt("csvImportSessions", 2));
+        CsvImporter.Options options = window.askOptions(owner, selected.getName(), defaults);
+        if (options == null) {
+            return;
+        }
+        preferences.put("csvImportFile", options.getFile().toString());
+        preferences.put("csvImportCharset", options.getCharset().name());
+        preferences.put("csvImportDelimiter", String.valueOf(options.getDelimiter()));
+        preferences.putBoolean("csvImportHeader", options.isHeader());
+        preferences.putInt("csvImportBatchSize", options.getBatchSize());
+        preferences.putInt("csvImportCommitEvery", options.getCommitEvery());
+        preferences.putInt("csvImportSessions", options.getSessions());
+
+        String description = options.getFile().getFileName() + " → " + options.getTable();
+        CsvImporter importer = new CsvImporter(selected, options);
+        RunningQuery running = new RunningQuery(selected.getName(), "Импорт CSV: " + description, new FetchControl(0));
+
+        Task<Long> task = new Task<>() {
+            @Override
+            protected Long call() throws Exception {
+                running.markStarted();
+                return importer.run();
+            }
+
+            @Override
+            protected void succeeded() {
+                String summary = importer.isCancelled()
+                        ? "Импорт прерван, зафиксировано строк: " + getValue()
+                        : "Загружено строк: " + getValue();
+                window.finish(summary);
+                log("Импорт CSV " + description + ": " + summary);
+                notifyUser((importer.isCancelled() ? "❌ " : "✅ ") + "Импорт CSV " + description);
+            }
+
+            @Override
+            protected void cancelled() {
+                String summary = "Импорт прерван, зафиксировано строк: " + importer.getRowsCommitted();
+                window.finish(summary);
+                log("Импорт CSV " + description + ": " + summary);
+            }
 
-        // Колонка с номерами строк (нумерация)
-        TableColumn<List<String>, String> indexColumn = new TableColumn<>("#");
-        indexColumn.setCellValueFactory(param -> {
-            int rowIndex = resultTable.getItems().indexOf(param.getValue()) + 1;
-            return new SimpleStringProperty(String.valueOf(rowIndex));
+            @Override
+            protected void failed() {
+                Throwable ex = getException();
+                String message = ex != null ? ex.getMessage() : "неизвестная ошибка";
+                window.finish("Ошибка: " + message + "; зафиксировано строк: " + importer.getRowsCommitted());
+                log("Ошибка импорта CSV " + description + ": " + message);
+                notifyUser("❌ Ошибка импорта CSV " + description);
+            }
+        };
+
+        try {
+            // Загрузка может идти долго: таймаут не задаём, прервать можно из окна хода загрузки
+            queryService.submit(running, task, 0);
+        } catch (RejectedExecutionException e) {
+            log("Ошибка: слишком много запросов в очереди, повторите позже");
+            return;
+        }
+        window.show(owner, "Импорт CSV — " + description, importer, importer::cancel);
+        log("Импорт CSV " + description + ": " + options.getSessions() + " сесс., пакет " + options.getBatchSize());
+    }
+
+    /**
+     * Запрашивает значения именованных параметров запроса.
+     *
+     * @return введённые значения или {@code null}, если пользователь отменил выполнение
+     */
+    private Map<String, String> promptParameters(List<String> names, Map<String, String> defaults) {
+        Stage dialog = new Stage();
+        dialog.initModality(Modality.APPLICATION_MODAL);
+        dialog.initOwner(scene.getWindow());
+        dialog.setTitle("Параметры запроса");
+        dialog.getIcons().add(ImageCache.get("/icon.png"));
+
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(10);
+        Map<String, TextField> fields = new LinkedHashMap<>();
+        int row = 0;
+        for (String name : names) {
+            TextField field = new TextField(defaults.getOrDefault(name, ""));
+            field.setPrefWidth(250);
+            grid.addRow(row++, new Label(":" + name), field);
+            fields.put(name, field);
+        }
+
+        Label hint = new Label("Числа и даты (yyyy-MM-dd [HH:mm:ss]) передаются с типом, "
+                + "текст в 'кавычках' — всегда строкой, пустое значение — NULL");
+        hint.setWrapText(true);
+
+        Map<String, String> result = new LinkedHashMap<>();
+        boolean[] confirmed = {false};
+        Button okButton = new Button("Выполнить");
+        okButton.setDefaultButton(true);
+        okButton.setOnAction(e -> {
+            fields.forEach((name, field) -> result.put(name, field.getText()));
+            confirmed[0] = true;
+            dialog.close();
         });
-        indexColumn.setPrefWidth(50);
-        indexColumn.setResizable(false);
-        indexColumn.setSortable(false);
-        indexColumn.setStyle("-fx-alignment: CENTER;");
-        resultTable.getColumns().add(indexColumn);
-
-        // Основные колонки с данными
-        for (int i = 0; i < columnNames.size(); i++) {
-            final int colIndex = i;
-            TableColumn<List<String>, String> column = new TableColumn<>(columnNames.get(i));
-            column.setCellValueFactory(cellData -> {
-                List<String> row = cellData.getValue();
-                return new SimpleStringProperty(row.get(colIndex));
-            });
-            column.setPrefWidth(150); // фиксированная ширина колонок
-            column.setResizable(false);
-            column.setStyle("-fx-alignment: CENTER-LEFT;");
-            resultTable.getColumns().add(column);
+        Button cancelButton = new Button("Отмена");
+        cancelButton.setCancelButton(true);
+        cancelButton.setOnAction(e -> dialog.close());
+        HBox buttons = new HBox(10, okButton, cancelButton);
+        buttons.setAlignment(Pos.CENTER_RIGHT);
+
+        VBox vbox = new VBox(15, grid, hint, buttons);
+        vbox.setPadding(new Insets(15));
+
+        Scene dialogScene = new Scene(vbox, 420, 150 + names.size() * 40);
+        applySettings(dialogScene);
+        dialog.setScene(dialogScene);
+        dialog.centerOnScreen();
+        dialog.showAndWait();
+        return confirmed[0] ? result : null;
+    }
+
+    /** Таймаут сохранённого запроса, если выполняется именно он, иначе подключения, иначе из настроек. */
+    private int effectiveQueryTimeout(DbConnectionInfo connection, String sql) {
+        SavedQuery savedQuery = querySelector.getValue();
+        if (savedQuery != null && savedQuery.getQueryTimeoutSeconds() != null && sql.equals(savedQuery.getSql())) {
+            return savedQuery.getQueryTimeoutSeconds();
+        }
+        if (connection != null && connection.getQueryTimeoutSeconds() != null) {
+            return connection.getQueryTimeoutSeconds();
+        }
+        return defaultQueryTimeoutSeconds;
+    }
+
+    private Integer parseTimeout(String text) {
+        if (text == null || text.isBlank()) {
+            return null;
         }
+        try {
+            return Math.max(0, Integer.parseInt(text.trim()));
+        } catch (NumberFormatException e) {
+            log("Некорректный таймаут: " + text);
+            return null;
+        }
+    }
 
-        // Устанавливаем фиксированную высоту строк
-        resultTable.setFixedCellSize(30);
-        resultTable.setStyle("-fx-fixed-cell-size: 30px;");
+    private void openRunningQueriesWindow(Window owner) {
+        Stage window = new Stage();
+        window.initOwner(owner);
+        window.setTitle("Выполняемые запросы");
+        window.getIcons().add(ImageCache.get("/icon.png"));
+
+        TableView<RunningQuery> table = new TableView<>();
+        TableColumn<RunningQuery, String> connectionColumn = new TableColumn<>("Подключение");
+        connectionColumn.setCellValueFactory(param -> new SimpleStringProperty(param.getValue().getConnectionName()));
+        connectionColumn.setPrefWidth(150);
+        TableColumn<RunningQuery, String> sqlColumn = new TableColumn<>("Запрос");
+        sqlColumn.setCellValueFactory(param -> new SimpleStringProperty(param.getValue().getSql().replaceAll("\\s+", " ")));
+        sqlColumn.setPrefWidth(350);
+        TableColumn<RunningQuery, String> stateColumn = new TableColumn<>("Состояние");
+        stateColumn.setCellValueFactory(param -> new SimpleStringProperty(param.getValue().getState()));
+        stateColumn.setPrefWidth(130);
+        TableColumn<RunningQuery, String> elapsedColumn = new TableColumn<>("Время");
+        elapsedColumn.setCellValueFactory(param -> new SimpleStringProperty(
+                String.format("%.1f с", param.getValue().getElapsedMillis() / 1000.0)));
+        elapsedColumn.setPrefWidth(80);
+        table.getColumns().addAll(List.of(connectionColumn, sqlColumn, stateColumn, elapsedColumn));
+
+        // Список небольшой, поэтому просто перестраиваем его раз в полсекунды
+        Timeline refresh = new Timeline(new KeyFrame(Duration.millis(500), e -> {
+            RunningQuery selectedQuery = table.getSelectionModel().getSelectedItem();
+            table.getItems().setAll(queryService.getRunningQueries());
+            table.refresh();
+            if (selectedQuery != null && table.getItems().contains(selectedQuery)) {
+                table.getSelectionModel().select(selectedQuery);
+            }
+        }));
+        refresh.setCycleCount(Animation.INDEFINITE);
+        refresh.play();
+        table.getItems().setAll(queryService.getRunningQueries());
+
+        Button cancelButton = new Button("Отменить выбранный");
+        cancelButton.setOnAction(e -> {
+            RunningQuery selectedQuery = table.getSelectionModel().getSelectedItem();
+            if (selectedQuery != null) {
+                log("Отмена запроса на " + selectedQuery.getConnectionName());
+                selectedQuery.cancel();
+            }
+        });
 
-        resultTable.getItems().addAll(data);
+        VBox vbox = new VBox(10, table, cancelButton);
+        vbox.setPadding(new Insets(10));
+
+        Scene windowScene = new Scene(vbox, 750, 350);
+        applySettings(windowScene);
+        window.setScene(windowScene);
+        window.setOnHidden(e -> refresh.stop());
+        window.show();
     }
 
     private void notifyUser(String message) {
@@ -751,66 +1841,154 @@ public class DbClientApp extends Application {
         });
     }
 
-    private void saveConnections() {
-        List<DbConnectionInfo> connectionsToSave = new ArrayList<>();
-        for (DbConnectionInfo conn : connections) {
-            DbConnectionInfo encryptedConn = new DbConnectionInfo(
-                    conn.getName(),
-                    conn.getType(),
-                    conn.getUrl(),
-                    conn.getUsername(),
-                    "ENC:" + Base64.getEncoder().encodeToString(
-                            conn.getPassword().getBytes(StandardCharsets.UTF_8)
-                    )
-            );
-            connectionsToSave.add(encryptedConn);
+    /**
+     * Спрашивает, заменить ли сохранённый объект с тем же именем: имя — ключ записи в журнале,
+     * поэтому два объекта с одним именем храниться не могут.
+     */
+    private boolean confirmReplace(Window owner, String what, String name) {
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
+        alert.initOwner(owner);
+        alert.setTitle("Имя занято");
+        alert.setHeaderText(what + " «" + name + "» уже существует");
+        alert.setContentText("Заменить его? Чтобы сохранить оба, отмените и укажите другое название.");
+        Stage alertStage = (Stage) alert.getDialogPane().getScene().getWindow();
+        alertStage.getIcons().add(ImageCache.get("/icon.png"));
+        applySettings(alert.getDialogPane().getScene());
+        return alert.showAndWait().filter(ButtonType.OK::equals).isPresent();
+    }
+
+    /** Подключение с тем же именем заменяется новым: имя — ключ записи в журнале. */
+    private void replaceConnectionNamed(String name) {
+        for (DbConnectionInfo existing : new ArrayList<>(connections)) {
+            if (existing.getName().equals(name)) {
+                connections.remove(existing);
+                connectionSelector.getItems().remove(existing);
+                poolManager.closePool(existing);
+                resultCache.invalidate(existing);
+            }
         }
+    }
+
+    private static DbConnectionInfo withEncodedPassword(DbConnectionInfo conn) {
+        DbConnectionInfo encryptedConn = new DbConnectionInfo(
+                conn.getName(),
+                conn.getType(),
+                conn.getUrl(),
+                conn.getUsername(),
+                "ENC:" + Base64.getEncoder().encodeToString(
+                        conn.getPassword().getBytes(StandardCharsets.UTF_8)
+                )
+        );
+        encryptedConn.setQueryTimeoutSeconds(conn.getQueryTimeoutSeconds());
+        return encryptedConn;
+    }
 
+    private void storeConnection(DbConnectionInfo conn) {
         try {
-            mapper.writeValue(connectionsFile, connectionsToSave);
+            connectionStore.put(conn);
         } catch (IOException e) {
             log("Ошибка сохранения подключений: " + e.getMessage());
         }
+        rescheduleAlerts();
     }
 
-    private void saveQueries() {
+    private void removeStoredConnection(DbConnectionInfo conn) {
         try {
-            mapper.writeValue(queriesFile, savedQueries);
+            connectionStore.remove(conn.getName());
+        } catch (IOException e) {
+            log("Ошибка сохранения подключений: " + e.getMessage());
+        }
+        rescheduleAlerts();
+    }
+
+    private void storeQuery(SavedQuery query) {
+        try {
+            queryStore.put(query);
         } catch (IOException e) {
             log("Ошибка сохранения запросов: " + e.getMessage());
         }
+        rescheduleAlerts();
     }
 
-    private void loadConnections() {
-        File fileToLoad = this.connectionsFile;
-        ObjectMapper jsonMapper = this.mapper;
+    private void removeStoredQuery(SavedQuery query) {
+        try {
+            queryStore.remove(query.getName());
+        } catch (IOException e) {
+            log("Ошибка сохранения запросов: " + e.getMessage());
+        }
+        rescheduleAlerts();
+    }
 
-        new Thread(() -> {
-            try {
-                if (!fileToLoad.exists()) {
-                    Platform.runLater(() -> connections = new ArrayList<>());
-                    return;
-                }
+    private void saveAlertRules() {
+        try {
+            mapper.writeValue(alertsFile, alertRules);
+        } catch (IOException e) {
+            log("Ошибка сохранения правил оповещений: " + e.getMessage());
+        }
+    }
 
-                List<DbConnectionInfo> loadedConnections = jsonMapper.readValue(
-                        fileToLoad,
-                        new TypeReference<List<DbConnectionInfo>>() {}
-                );
+    /** Выполняется в фоновом потоке запуска; проверки планируются, когда загружено всё остальное. */
+    private void loadAlertRules() {
+        if (!alertsFile.exists()) {
+            return;
+        }
+        try {
+            List<AlertRule> loadedRules = mapper.readValue(alertsFile, new TypeReference<List<AlertRule>>() {});
+            Platform.runLater(() -> {
+                alertRules = loadedRules;
+                log("Загружено правил оповещений: " + alertRules.size());
+            });
+        } catch (IOException e) {
+            log("Ошибка загрузки правил оповещений: " + e.getMessage());
+        }
+    }
 
-                decryptPasswords(loadedConnections);
+    /** Перестраивает расписание проверок после изменения правил, запросов или подключений. */
+    private void rescheduleAlerts() {
+        alertScheduler.reschedule(alertRules, savedQueries, connections);
+    }
 
-                Platform.runLater(() -> {
-                    this.connections = loadedConnections != null ? loadedConnections : new ArrayList<>();
-                    connectionSelector.getItems().setAll(this.connections);
-                });
+    /**
+     * Параллельно читает подключения, запросы и правила оповещений и выполняет служебные действия с файлами.
+     * Результаты применяются в потоке FX; когда всё загружено, планируются оповещения и пишется отчёт о запуске.
+     */
+    private void loadInBackground(StartupTimer startup) {
+        ExecutorService loader = Executors.newFixedThreadPool(STARTUP_LOADER_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "startup-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        CompletableFuture<?>[] tasks = {
+                CompletableFuture.runAsync(startup.timed("подключения", this::loadConnections), loader),
+                CompletableFuture.runAsync(startup.timed("запросы", this::loadQueries), loader),
+                CompletableFuture.runAsync(startup.timed("правила оповещений", this::loadAlertRules), loader),
+                CompletableFuture.runAsync(startup.timed("служебные файлы", () -> {
+                    relocateVersionFilesIfNeeded();
+                    SpillingResultStore.deleteStaleSpillFiles(SPILL_DIR);
+                }), loader)
+        };
+        CompletableFuture.allOf(tasks).whenComplete((ignored, error) -> {
+            loader.shutdown();
+            Platform.runLater(() -> {
+                rescheduleAlerts();
+                log(startup.report());
+            });
+        });
+    }
 
-            } catch (IOException e) {
-                Platform.runLater(() -> {
-                    log("Ошибка загрузки подключений: " + e.getMessage());
-                    connections = new ArrayList<>();
-                });
-            }
-        }).start();
+    /** Выполняется в фоновом потоке запуска. */
+    private void loadConnections() {
+        try {
+            List<DbConnectionInfo> loadedConnections = connectionStore.load();
+            logJournalReplay("подключений", connectionStore);
+            decryptPasswords(loadedConnections);
+            Platform.runLater(() -> {
+                this.connections = loadedConnections;
+                connectionSelector.getItems().setAll(this.connections);
+            });
+        } catch (IOException e) {
+            log("Ошибка загрузки подключений: " + e.getMessage());
+        }
     }
 
     private void decryptPasswords(List<DbConnectionInfo> connections) {
@@ -834,71 +2012,43 @@ public class DbClientApp extends Application {
         }
     }
 
+    /** Выполняется в фоновом потоке запуска. */
     private void loadQueries() {
-        if (queriesFile.exists()) {
-            try {
-                savedQueries = mapper.readValue(queriesFile, new TypeReference<List<SavedQuery>>() {});
-                querySelector.getItems().clear();
-                querySelector.getItems().addAll(savedQueries);
+        try {
+            List<SavedQuery> loadedQueries = queryStore.load();
+            logJournalReplay("запросов", queryStore);
+            Platform.runLater(() -> {
+                savedQueries = loadedQueries;
+                querySelector.setAll(savedQueries);
                 log("Загружено запросов: " + savedQueries.size());
-            } catch (IOException e) {
-                log("Ошибка загрузки запросов: " + e.getMessage());
-            }
-        } else {
-            log("Файл queries.json не найден");
+            });
+        } catch (IOException e) {
+            log("Ошибка загрузки запросов: " + e.getMessage());
         }
     }
 
-    private void log(String message) {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-        String fullMessage = timestamp + " - " + message;
-        logArea.appendText(fullMessage + "\n");
-
-        try {
-            Files.createDirectories(CONFIG_DIR);
-
-            String lower = message.toLowerCase();
-            String logType = (lower.contains("ошибка") || lower.contains("[error]") || lower.contains("(error)"))
-                    ? "error"
-                    : "debug";
-
-            String date = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd"));
-            File logFile = CONFIG_DIR.resolve(logType + "-" + date + ".log").toFile();
-
-            try (FileWriter fw = new FileWriter(logFile, true)) {
-                fw.write(fullMessage + "\n");
-            }
-
-            cleanupOldLogs();
-        } catch (IOException e) {
-            e.printStackTrace();
+    private void logJournalReplay(String what, JournaledStore<?> store) {
+        if (store.getReplayedRecords() > 0 || store.getSkippedRecords() > 0) {
+            log("Журнал " + what + ": применено изменений " + store.getReplayedRecords()
+                    + (store.getSkippedRecords() > 0
+                    ? ", пропущено повреждённых записей " + store.getSkippedRecords() : ""));
+        }
+        if (store.getRenamedEntries() > 0) {
+            log("Список " + what + ": повторяющихся имён переименовано " + store.getRenamedEntries()
+                    + " (к имени добавлен номер)");
         }
     }
 
-    private void cleanupOldLogs() throws IOException {
-        LocalDate twoDaysAgo = LocalDate.now().minusDays(2);
+    private void log(String message) {
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+        String fullMessage = timestamp + " - " + message;
 
-        try (Stream<Path> files = Files.list(CONFIG_DIR)) {
-            files.filter(Files::isRegularFile)
-                    .filter(path -> path.getFileName().toString().matches("(debug|error)-\\d{4}-\\d{2}-\\d{2}\\.log"))
-                    .filter(path -> {
-                        String name = path.getFileName().toString();
-                        String datePart = name.substring(name.indexOf('-') + 1, name.lastIndexOf('.'));
-                        try {
-                            LocalDate fileDate = LocalDate.parse(datePart, DateTimeFormatter.ofPattern("yyyy-MM-dd"));
-                            return fileDate.isBefore(twoDaysAgo);
-                        } catch (DateTimeParseException e) {
-                            return false;
-                        }
-                    })
-                    .forEach(path -> {
-                        try {
-                            Files.delete(path);
-                        } catch (IOException e) {
-                            System.err.println("Не удалось удалить старый лог: " + path);
-                        }
-                    });
-        }
+        String lower = message.toLowerCase();
+        String logType = (lower.contains("ошибка") || lower.contains("[error]") || lower.contains("(error)"))
+                ? LogConsole.LEVEL_ERROR
+                : LogConsole.LEVEL_DEBUG;
+        fileLogger.log(logType, fullMessage);
+        logConsole.append(logType, fullMessage);
     }
 
     private void showChangelogDialog() {
@@ -919,7 +2069,7 @@ public class DbClientApp extends Application {
 
         // Применяем текущие настройки темы
         Stage alertStage = (Stage) alert.getDialogPane().getScene().getWindow();
-        alertStage.getIcons().add(new Image(getClass().getResourceAsStream("/icon.png")));
+        alertStage.getIcons().add(ImageCache.get("/icon.png"));
         applySettings(alert.getDialogPane().getScene());
 
         // Опционально: делаем окно масштабируемым
@@ -930,13 +2080,28 @@ public class DbClientApp extends Application {
         alert.showAndWait();
     }
 
+    private void closeStore(JournaledStore<?> store, String what) {
+        try {
+            store.close(); // сворачивает журнал в снимок
+        } catch (IOException e) {
+            log("Ошибка сохранения " + what + ": " + e.getMessage());
+        }
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
 
     @Override
     public void stop() {
-        saveConnections();
-        saveQueries();
+        alertScheduler.shutdown();
+        queryService.shutdown();
+        for (QueryWorkspace workspace : workspaces) {
+            workspace.getResultGrid().clear(); // удаляет файлы подкачки результатов
+        }
+        poolManager.closeAll();
+        closeStore(connectionStore, "подключений");
+        closeStore(queryStore, "запросов");
+        fileLogger.close(); // дописывает журнал до конца
     }
 }
\ No newline at end of file
@@ -8,6 +8,7 @@ public class DbConnectionInfo {
     private String url;
     private String username;
     private String password;
+    private Integer queryTimeoutSeconds; // null — использовать таймаут по умолчанию из настроек
 
     // Обязательный пустой конструктор для сериализации/десериализации
     public DbConnectionInfo() {
@@ -36,6 +37,9 @@ public class DbConnectionInfo {
     public String getPassword() { return password; }
     public void setPassword(String password) { this.password = password; }
 
+    public Integer getQueryTimeoutSeconds() { return queryTimeoutSeconds; }
+    public void setQueryTimeoutSeconds(Integer queryTimeoutSeconds) { this.queryTimeoutSeconds = queryTimeoutSeconds; }
+
     @Override
     public String toString() {
         return name + " (" + type + ")";
@@ -0,0 +1,399 @@
+package com.example.dbclient;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Выполнение одного запроса на нескольких БД параллельно.
+ * <ul>
+ *     <li>одновременно запрос выполняется не более чем на {@code parallelism} БД, каждая — на отдельном соединении,
+ *     без пулов приложения, чтобы не держать открытыми сессии ко всем БД списка;</li>
+ *     <li>таймаут свой у каждой БД и включает подключение, выполнение и выборку строк;</li>
+ *     <li>строки всех БД выводятся в один {@link MergedResultStore} по мере получения;</li>
+ *     <li>задержки и ошибки по каждой БД передаются {@link Listener} из потока выполнения,
+ *     по окончании — сводка с распределением времени выполнения.</li>
+ * </ul>
+ */
+public class FanOutRunner {
+    private static final long PUBLISH_INTERVAL_NANOS = 200_000_000L;
+
+    public interface Listener {
+        void sourceFinished(SourceResult result);
+    }
+
+    public enum Status {
+        OK("выполнено"), FAILED("ошибка"), TIMEOUT("таймаут"), CANCELLED("отменено");
+
+        private final String title;
+
+        Status(String title) {
+            this.title = title;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+    }
+
+    /** Параметры выполнения. */
+    public static final class Options {
+        private final List<DbConnectionInfo> targets;
+        private final int parallelism;
+        private final int timeoutSeconds;
+        private final int fetchSize;
+        private final int rowLimit;
+
+        /**
+         * @param parallelism    число БД, на которых запрос выполняется одновременно
+         * @param timeoutSeconds предельное время запроса на одной БД; 0 — без ограничения
+         * @param rowLimit       наибольшее число строк с одной БД; 0 — без ограничения
+         */
+        public Options(List<DbConnectionInfo> targets, int parallelism, int timeoutSeconds, int fetchSize, int rowLimit) {
+            this.targets = List.copyOf(targets);
+            this.parallelism = Math.max(1, parallelism);
+            this.timeoutSeconds = Math.max(0, timeoutSeconds);
+            this.fetchSize = fetchSize;
+            this.rowLimit = Math.max(0, rowLimit);
+        }
+
+        public List<DbConnectionInfo> getTargets() { return targets; }
+        public int getParallelism() { return parallelism; }
+        public int getTimeoutSeconds() { return timeoutSeconds; }
+    }
+
+    /** Итог выполнения на одной БД; времена отсчитываются от начала работы с ней, -1 — этап не пройден. */
+    public static final class SourceResult {
+        private final String connectionName;
+        private final Status status;
+        private final long rows;
+        private final boolean truncated;
+        private final long connectMillis;
+        private final long firstRowMillis;
+        private final long totalMillis;
+        private final String error;
+
+        SourceResult(String connectionName, Status status, long rows, boolean truncated, long connectMillis,
+                     long firstRowMillis, long totalMillis, String error) {
+            this.connectionName = connectionName;
+            this.status = status;
+            this.rows = rows;
+            this.truncated = truncated;
+            this.connectMillis = connectMillis;
+            this.firstRowMillis = firstRowMillis;
+            this.totalMillis = totalMillis;
+            this.error = error;
+        }
+
+        public String getConnectionName() { return connectionName; }
+        public Status getStatus() { return status; }
+        /** Получено строк, для запроса без результата — изменено строк. */
+        public long getRows() { return rows; }
+        /** Выборка остановлена на лимите строк. */
+        public boolean isTruncated() { return truncated; }
+        public long getConnectMillis() { return connectMillis; }
+        public long getFirstRowMillis() { return firstRowMillis; }
+        public long getTotalMillis() { return totalMillis; }
+        public String getError() { return error; }
+    }
+
+    /** Итог выполнения на всех БД. */
+    public static final class Summary {
+        public final int succeeded;
+        public final int failed;
+        public final int timedOut;
+        public final int cancelled;
+        public final long rows;
+        public final long millis;
+        /** Время выполнения на успешных БД: медиана, 95-й перцентиль и наибольшее. */
+        public final long medianMillis;
+        public final long p95Millis;
+        public final long maxMillis;
+        public final String slowest;
+
+        Summary(List<SourceResult> results, long millis) {
+            int ok = 0;
+            int errors = 0;
+            int timeouts = 0;
+            int stopped = 0;
+            long total = 0;
+            List<SourceResult> succeededResults = new ArrayList<>();
+            for (SourceResult result : results) {
+                total += result.getRows();
+                switch (result.getStatus()) {
+                    case OK: ok++; succeededResults.add(result); break;
+                    case FAILED: errors++; break;
+                    case TIMEOUT: timeouts++; break;
+                    default: stopped++; break;
+                }
+            }
+            succeededResults.sort(Comparator.comparingLong(SourceResult::getTotalMillis));
+            int n = succeededResults.size();
+            this.succeeded = ok;
+            this.failed = errors;
+            this.timedOut = timeouts;
+            this.cancelled = stopped;
+            this.rows = total;
+            this.millis = millis;
+            this.medianMillis = n == 0 ? 0 : succeededResults.get((n - 1) / 2).getTotalMillis();
+            this.p95Millis = n == 0 ? 0 : succeededResults.get((int) Math.ceil(n * 0.95) - 1).getTotalMillis();
+            this.maxMillis = n == 0 ? 0 : succeededResults.get(n - 1).getTotalMillis();
+            this.slowest = n == 0 ? null : succeededResults.get(n - 1).getConnectionName();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("успешно %d, ошибок %d, таймаутов %d%s; строк %d за %.1f с", succeeded, failed, timedOut,
+                    cancelled > 0 ? ", не выполнено " + cancelled : "", rows, millis / 1000.0)
+                    + (slowest != null ? String.format("; время на БД: медиана %d мс, p95 %d мс, максимум %d мс (%s)",
+                    medianMillis, p95Millis, maxMillis, slowest) : "");
+        }
+    }
+
+    /** Выполнение на одной БД: Statement для отмены и признак таймаута. */
+    private static final class Source {
+        private volatile Statement statement;
+        private volatile boolean timedOut;
+
+        void attach(Statement stmt) {
+            statement = stmt;
+            if (timedOut) {
+                cancelStatement(stmt);
+            }
+        }
+
+        void timeout() {
+            timedOut = true;
+            cancelStatement(statement);
+        }
+
+        private static void cancelStatement(Statement stmt) {
+            if (stmt == null) {
+                return;
+            }
+            try {
+                stmt.cancel();
+            } catch (SQLException ignored) {
+                // Statement уже закрыт — выборку остановит проверка признака
+            }
+        }
+    }
+
+    private final NamedSql sql;
+    private final Map<String, String> bindValues;
+    private final Options options;
+    private final MergedResultStore merged;
+    private final Path spillDir;
+    private final long heapBudgetPerSource;
+    private final Listener listener;
+
+    private final Set<Source> active = ConcurrentHashMap.newKeySet();
+    private final AtomicLong fetchedRows = new AtomicLong();
+    private volatile boolean cancelled;
+
+    /**
+     * @param heapBudgetPerSource бюджет памяти результата одной БД, сверх него строки уходят в файл подкачки
+     */
+    public FanOutRunner(NamedSql sql, Map<String, String> bindValues, Options options, MergedResultStore merged,
+                        Path spillDir, long heapBudgetPerSource, Listener listener) {
+        this.sql = sql;
+        this.bindValues = bindValues;
+        this.options = options;
+        this.merged = merged;
+        this.spillDir = spillDir;
+        this.heapBudgetPerSource = heapBudgetPerSource;
+        this.listener = listener;
+    }
+
+    /** Выполняет запрос на всех БД и ждёт окончания; при прерывании потока выполнение отменяется. */
+    public Summary run() throws InterruptedException {
+        long startNanos = System.nanoTime();
+        List<DbConnectionInfo> targets = options.getTargets();
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(Math.min(options.parallelism, Math.max(1, targets.size())), r -> {
+            Thread thread = new Thread(r, "fan-out-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "fan-out-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<SourceResult>> futures = new ArrayList<>();
+            for (DbConnectionInfo target : targets) {
+                futures.add(workers.submit(() -> runSource(target, watchdog)));
+            }
+            List<SourceResult> results = new ArrayList<>();
+            for (Future<SourceResult> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    // runSource перехватывает ошибки сам; сюда попадают только ошибки среды (нехватка памяти и т.п.)
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+            return new Summary(results, (System.nanoTime() - startNanos) / 1_000_000);
+        } catch (InterruptedException e) {
+            cancel();
+            throw e;
+        } finally {
+            workers.shutdownNow();
+            watchdog.shutdownNow();
+        }
+    }
+
+    /** Прерывает выполнение на всех БД; ещё не начатые не выполняются. */
+    public void cancel() {
+        cancelled = true;
+        for (Source source : active) {
+            Source.cancelStatement(source.statement);
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public int getTargetCount() {
+        return options.getTargets().size();
+    }
+
+    public int getActiveCount() {
+        return active.size();
+    }
+
+    /** Строк получено со всех БД на текущий момент. */
+    public long getFetchedRows() {
+        return fetchedRows.get();
+    }
+
+    private SourceResult runSource(DbConnectionInfo target, ScheduledExecutorService watchdog) {
+        long startNanos = System.nanoTime();
+        Source source = new Source();
+        long connectMillis = -1;
+        long firstRowMillis = -1;
+        long rows = 0;
+        boolean truncated = false;
+        Status status;
+        String error = null;
+        ScheduledFuture<?> timer = null;
+        if (!cancelled) {
+            active.add(source);
+            if (options.timeoutSeconds > 0) {
+                timer = watchdog.schedule(source::timeout, options.timeoutSeconds, TimeUnit.SECONDS);
+            }
+        }
+        try {
+            if (cancelled) {
+                status = Status.CANCELLED;
+            } else {
+                try (Connection conn = JdbcDrivers.connect(target, options.timeoutSeconds)) {
+                    connectMillis = elapsedMillis(startNanos);
+                    boolean restoreAutoCommit = false;
+                    try (Statement stmt = sql.hasParameters()
+                            ? conn.prepareStatement(sql.getJdbcSql())
+                            : conn.createStatement()) {
+                        source.attach(stmt);
+                        if (cancelled) {
+                            Source.cancelStatement(stmt);
+                        }
+                        if (options.timeoutSeconds > 0) {
+                            stmt.setQueryTimeout(options.timeoutSeconds);
+                        }
+                        if ("PostgreSQL".equals(target.getType()) && conn.getAutoCommit()) {
+                            // PostgreSQL отдаёт строки порциями через курсор только вне режима autocommit
+                            conn.setAutoCommit(false);
+                            restoreAutoCommit = true;
+                        }
+                        stmt.setFetchSize(options.fetchSize);
+
+                        boolean result;
+                        if (stmt instanceof PreparedStatement) {
+                            sql.bind((PreparedStatement) stmt, bindValues);
+                            result = ((PreparedStatement) stmt).execute();
+                        } else {
+                            result = stmt.execute(sql.getJdbcSql());
+                        }
+                        if (!result) {
+                            rows = Math.max(0, stmt.getUpdateCount());
+                        } else {
+                            try (ResultSet rs = stmt.getResultSet()) {
+                                SpillingResultStore store = new SpillingResultStore(rs.getMetaData(), spillDir, heapBudgetPerSource);
+                                int part = merged.addPart(target.getName(), store);
+                                long lastPublishNanos = System.nanoTime();
+                                while (!cancelled && !source.timedOut) {
+                                    if (options.rowLimit > 0 && rows >= options.rowLimit) {
+                                        truncated = true;
+                                        break;
+                                    }
+                                    boolean hasRow = rs.next();
+                                    if (firstRowMillis < 0) {
+                                        firstRowMillis = elapsedMillis(startNanos);
+                                    }
+                                    if (!hasRow) {
+                                        break;
+                                    }
+                                    store.appendRow(rs);
+                                    rows++;
+                                    fetchedRows.incrementAndGet();
+                                    long now = System.nanoTime();
+                                    if (now - lastPublishNanos >= PUBLISH_INTERVAL_NANOS) {
+                                        merged.publish(part);
+                                        lastPublishNanos = now;
+                                    }
+                                }
+                                merged.publish(part);
+                            }
+                        }
+                    } finally {
+                        if (restoreAutoCommit) {
+                            conn.setAutoCommit(true);
+                        }
+                    }
+                }
+                status = source.timedOut ? Status.TIMEOUT : cancelled ? Status.CANCELLED : Status.OK;
+            }
+        } catch (Exception e) {
+            status = source.timedOut ? Status.TIMEOUT : cancelled ? Status.CANCELLED : Status.FAILED;
+            if (status == Status.FAILED) {
+                error = e.getMessage() != null ? e.getMessage() : e.toString();
+            }
+        } finally {
+            if (timer != null) {
+                timer.cancel(false);
+            }
+            active.remove(source);
+        }
+        if (status == Status.TIMEOUT) {
+            error = "превышено время выполнения (" + options.timeoutSeconds + " с)";
+        }
+        SourceResult result = new SourceResult(target.getName(), status, rows, truncated, connectMillis,
+                firstRowMillis, elapsedMillis(startNanos), error);
+        listener.sourceFinished(result);
+        return result;
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
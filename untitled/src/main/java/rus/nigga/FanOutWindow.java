@@ -0,0 +1,235 @@
+package com.example.dbclient;
+
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.collections.FXCollections;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.TextField;
+import javafx.scene.control.cell.CheckBoxListCell;
+import javafx.scene.image.Image;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+import javafx.util.Duration;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Диалог выбора подключений для выполнения запроса на нескольких БД и окно отчёта по каждой БД.
+ * Итоги приходят из потоков выполнения через {@link #add} и переносятся в таблицу порциями;
+ * тот же таймер вызывает {@code onRefresh}, которым таблица результата подхватывает новые строки.
+ */
+public class FanOutWindow {
+    private final Consumer<Scene> styler;
+    private final Image icon;
+    private final Queue<FanOutRunner.SourceResult> pending = new ConcurrentLinkedQueue<>();
+    private final TableView<FanOutRunner.SourceResult> table = new TableView<>();
+    private final Label summaryLabel = new Label();
+    private final Button stopButton = new Button("Остановить");
+    private FanOutRunner runner;
+    private Runnable onRefresh;
+    private Timeline refresh;
+    private int failed;
+
+    public FanOutWindow(Consumer<Scene> styler, Image icon) {
+        this.styler = styler;
+        this.icon = icon;
+    }
+
+    /**
+     * @param preselected имена подключений, отмеченных при прошлом выполнении
+     * @return параметры с выбранными подключениями или {@code null}, если выполнение отменено
+     */
+    public FanOutRunner.Options askOptions(Window owner, List<DbConnectionInfo> connections, Set<String> preselected,
+                                           FanOutRunner.Options defaults, int fetchSize, int rowLimit) {
+        Stage dialog = new Stage();
+        dialog.initModality(Modality.APPLICATION_MODAL);
+        dialog.initOwner(owner);
+        dialog.setTitle("Запрос на нескольких БД");
+        dialog.getIcons().add(icon);
+
+        Map<DbConnectionInfo, BooleanProperty> checked = new LinkedHashMap<>();
+        for (DbConnectionInfo connection : connections) {
+            checked.put(connection, new SimpleBooleanProperty(preselected.contains(connection.getName())));
+        }
+        Label info = new Label();
+        Runnable updateInfo = () -> info.setText("Выбрано подключений: "
+                + checked.values().stream().filter(BooleanProperty::get).count() + " из " + connections.size());
+        checked.values().forEach(property -> property.addListener((obs, oldVal, newVal) -> updateInfo.run()));
+        updateInfo.run();
+
+        ListView<DbConnectionInfo> list = new ListView<>(FXCollections.observableArrayList(connections));
+        list.setCellFactory(CheckBoxListCell.forListView(checked::get));
+        list.setPrefHeight(260);
+        Button allButton = new Button("Выбрать все");
+        allButton.setOnAction(e -> checked.values().forEach(property -> property.set(true)));
+        Button noneButton = new Button("Снять все");
+        noneButton.setOnAction(e -> checked.values().forEach(property -> property.set(false)));
+        HBox selectionButtons = new HBox(10, allButton, noneButton);
+
+        TextField parallelismField = new TextField(String.valueOf(defaults.getParallelism()));
+        TextField timeoutField = new TextField(String.valueOf(defaults.getTimeoutSeconds()));
+        timeoutField.setPromptText("0 — без ограничения");
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(10);
+        grid.addRow(0, new Label("Одновременно БД:"), parallelismField);
+        grid.addRow(1, new Label("Таймаут на одну БД, с:"), timeoutField);
+
+        FanOutRunner.Options[] result = {null};
+        Button okButton = new Button("Выполнить");
+        okButton.setDefaultButton(true);
+        okButton.setOnAction(e -> {
+            List<DbConnectionInfo> targets = new ArrayList<>();
+            checked.forEach((connection, property) -> {
+                if (property.get()) {
+                    targets.add(connection);
+                }
+            });
+            if (targets.isEmpty()) {
+                info.setText("Не выбрано ни одного подключения");
+                return;
+            }
+            try {
+                result[0] = new FanOutRunner.Options(targets,
+                        Integer.parseInt(parallelismField.getText().trim()),
+                        Integer.parseInt(timeoutField.getText().trim().isEmpty() ? "0" : timeoutField.getText().trim()),
+                        fetchSize, rowLimit);
+                dialog.close();
+            } catch (NumberFormatException ex) {
+                info.setText("Число БД и таймаут должны быть целыми числами");
+            }
+        });
+        Button cancelButton = new Button("Отмена");
+        cancelButton.setCancelButton(true);
+        cancelButton.setOnAction(e -> dialog.close());
+        HBox buttons = new HBox(10, okButton, cancelButton);
+        buttons.setAlignment(Pos.CENTER_RIGHT);
+
+        VBox vbox = new VBox(10, info, list, selectionButtons, grid, buttons);
+        vbox.setPadding(new Insets(15));
+        Scene dialogScene = new Scene(vbox, 460, 520);
+        styler.accept(dialogScene);
+        dialog.setScene(dialogScene);
+        dialog.showAndWait();
+        return result[0];
+    }
+
+    /**
+     * @param onStop    прерывает выполнение на всех БД
+     * @param onRefresh вызывается из FX-потока несколько раз в секунду, пока идёт выполнение, и один раз в конце
+     */
+    public void show(Window owner, String title, FanOutRunner runner, Runnable onStop, Runnable onRefresh) {
+        this.runner = runner;
+        this.onRefresh = onRefresh;
+        Stage window = new Stage();
+        window.initOwner(owner);
+        window.setTitle(title);
+        window.getIcons().add(icon);
+
+        table.getColumns().add(column("Подключение", 200, FanOutRunner.SourceResult::getConnectionName));
+        table.getColumns().add(column("Состояние", 95, r -> r.getStatus().getTitle()));
+        table.getColumns().add(column("Строк", 90, r -> r.getRows() + (r.isTruncated() ? "+" : "")));
+        table.getColumns().add(column("Подключение, мс", 115, r -> formatMillis(r.getConnectMillis())));
+        table.getColumns().add(column("Первая строка, мс", 125, r -> formatMillis(r.getFirstRowMillis())));
+        table.getColumns().add(column("Всего, мс", 80, r -> formatMillis(r.getTotalMillis())));
+        table.getColumns().add(column("Ошибка", 450, r -> r.getError() != null ? r.getError() : ""));
+        VBox.setVgrow(table, Priority.ALWAYS);
+
+        stopButton.setOnAction(e -> {
+            stopButton.setDisable(true);
+            onStop.run();
+        });
+        HBox bottom = new HBox(10, stopButton, summaryLabel);
+        bottom.setAlignment(Pos.CENTER_LEFT);
+
+        refresh = new Timeline(new KeyFrame(Duration.millis(250), e -> drain()));
+        refresh.setCycleCount(Animation.INDEFINITE);
+        refresh.play();
+        updateProgress();
+
+        VBox vbox = new VBox(10, table, bottom);
+        vbox.setPadding(new Insets(10));
+        Scene windowScene = new Scene(vbox, 1200, 500);
+        styler.accept(windowScene);
+        window.setScene(windowScene);
+        window.show();
+    }
+
+    /** Добавляет итог по одной БД; можно вызывать из любого потока. */
+    public void add(FanOutRunner.SourceResult result) {
+        pending.add(result);
+    }
+
+    /** Показывает итог выполнения; вызывается из FX-потока. */
+    public void finish(String summary) {
+        if (refresh != null) {
+            refresh.stop();
+        }
+        drain();
+        stopButton.setDisable(true);
+        summaryLabel.setText(summary);
+    }
+
+    private void drain() {
+        List<FanOutRunner.SourceResult> batch = new ArrayList<>();
+        FanOutRunner.SourceResult result;
+        while ((result = pending.poll()) != null) {
+            batch.add(result);
+            if (result.getStatus() != FanOutRunner.Status.OK) {
+                failed++;
+            }
+        }
+        if (!batch.isEmpty()) {
+            table.getItems().addAll(batch);
+        }
+        if (onRefresh != null) {
+            onRefresh.run();
+        }
+        updateProgress();
+    }
+
+    private void updateProgress() {
+        if (runner == null) {
+            return;
+        }
+        summaryLabel.setText("Готово " + table.getItems().size() + " из " + runner.getTargetCount()
+                + ", выполняется: " + runner.getActiveCount() + ", строк: " + runner.getFetchedRows()
+                + (failed > 0 ? ", с ошибками: " + failed : ""));
+    }
+
+    private static String formatMillis(long millis) {
+        return millis < 0 ? "" : String.valueOf(millis);
+    }
+
+    private static TableColumn<FanOutRunner.SourceResult, String> column(
+            String title, double width, Function<FanOutRunner.SourceResult, String> value) {
+        TableColumn<FanOutRunner.SourceResult, String> column = new TableColumn<>(title);
+        column.setCellValueFactory(param -> new SimpleStringProperty(value.apply(param.getValue())));
+        column.setPrefWidth(width);
+        return column;
+    }
+}
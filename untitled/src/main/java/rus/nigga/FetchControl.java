@@ -0,0 +1,86 @@
+package com.example.dbclient;
+
+/**
+ * Управление потоковой выборкой: после достижения лимита строк поток выборки
+ * засыпает, пока пользователь не прокрутит таблицу вниз или не запросит ещё строки.
+ */
+public class FetchControl {
+    private final Object lock = new Object();
+    private final long batchLimit;
+    private long allowedRows;
+    private boolean paused;
+    private long pauseStartNanos;
+    private long pausedNanos;
+    private volatile boolean cancelled;
+
+    public FetchControl(long rowLimit) {
+        this.batchLimit = rowLimit;
+        this.allowedRows = rowLimit <= 0 ? Long.MAX_VALUE : rowLimit;
+    }
+
+    /** Исчерпан ли лимит: следующий вызов {@link #awaitAllowance(long)} уйдёт в ожидание. */
+    public boolean isLimitReached(long fetched) {
+        synchronized (lock) {
+            return fetched >= allowedRows;
+        }
+    }
+
+    /**
+     * Блокирует поток выборки, если уже получено {@code fetched} строк и лимит исчерпан.
+     *
+     * @return false, если выборка отменена
+     */
+    public boolean awaitAllowance(long fetched) throws InterruptedException {
+        synchronized (lock) {
+            try {
+                while (!cancelled && fetched >= allowedRows) {
+                    if (!paused) {
+                        paused = true;
+                        pauseStartNanos = System.nanoTime();
+                    }
+                    lock.wait();
+                }
+            } finally {
+                if (paused) {
+                    paused = false;
+                    pausedNanos += System.nanoTime() - pauseStartNanos;
+                }
+            }
+            return !cancelled;
+        }
+    }
+
+    /** Разрешает получить ещё одну порцию строк размером с лимит. */
+    public void requestMore() {
+        synchronized (lock) {
+            if (paused && allowedRows != Long.MAX_VALUE) {
+                allowedRows += batchLimit;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    public void cancel() {
+        synchronized (lock) {
+            cancelled = true;
+            lock.notifyAll();
+        }
+    }
+
+    public boolean isPaused() {
+        synchronized (lock) {
+            return paused;
+        }
+    }
+
+    /** Сколько выборка простояла на паузе, включая текущую паузу. */
+    public long getPausedNanos() {
+        synchronized (lock) {
+            return pausedNanos + (paused ? System.nanoTime() - pauseStartNanos : 0);
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.dbclient;
+
+import javafx.scene.image.Image;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Изображения из ресурсов приложения: каждое декодируется один раз и переиспользуется всеми окнами. */
+public final class ImageCache {
+    private static final Map<String, Image> IMAGES = new ConcurrentHashMap<>();
+
+    private ImageCache() {
+    }
+
+    /** @param resource путь к ресурсу, например {@code /icon.png} */
+    public static Image get(String resource) {
+        return IMAGES.computeIfAbsent(resource, name -> new Image(ImageCache.class.getResourceAsStream(name)));
+    }
+}
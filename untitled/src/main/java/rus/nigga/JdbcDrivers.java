@@ -0,0 +1,73 @@
+package com.example.dbclient;
+
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Драйверы JDBC, загружаемые при первом подключении к БД своего типа, а не при запуске приложения.
+ * Соединение открывается напрямую через драйвер, без {@link DriverManager}, который при первом
+ * обращении загружает все драйверы из classpath.
+ */
+final class JdbcDrivers {
+    private static final Map<String, String> DRIVER_CLASSES = Map.of(
+            "Oracle", "oracle.jdbc.OracleDriver",
+            "PostgreSQL", "org.postgresql.Driver"
+    );
+    private static final Map<String, Driver> LOADED = new ConcurrentHashMap<>();
+
+    private JdbcDrivers() {
+    }
+
+    static Connection connect(DbConnectionInfo info) throws SQLException {
+        return connect(info, 0);
+    }
+
+    /**
+     * @param loginTimeoutSeconds предельное время установки соединения для Oracle и PostgreSQL; 0 — по умолчанию драйвера
+     */
+    static Connection connect(DbConnectionInfo info, int loginTimeoutSeconds) throws SQLException {
+        String className = DRIVER_CLASSES.get(info.getType());
+        if (className == null) {
+            // неизвестный тип — драйвер, зарегистрированный в DriverManager
+            return DriverManager.getConnection(info.getUrl(), info.getUsername(), info.getPassword());
+        }
+        Driver driver = LOADED.get(className);
+        if (driver == null) {
+            driver = load(className);
+        }
+        Properties properties = new Properties();
+        if (info.getUsername() != null) {
+            properties.setProperty("user", info.getUsername());
+        }
+        if (info.getPassword() != null) {
+            properties.setProperty("password", info.getPassword());
+        }
+        if (loginTimeoutSeconds > 0) {
+            if ("Oracle".equals(info.getType())) {
+                properties.setProperty("oracle.net.CONNECT_TIMEOUT", String.valueOf(loginTimeoutSeconds * 1000L));
+            } else {
+                properties.setProperty("loginTimeout", String.valueOf(loginTimeoutSeconds));
+            }
+        }
+        Connection connection = driver.connect(info.getUrl(), properties);
+        if (connection == null) {
+            throw new SQLException("Адрес не подходит драйверу " + info.getType() + ": " + info.getUrl());
+        }
+        return connection;
+    }
+
+    private static Driver load(String className) throws SQLException {
+        try {
+            Driver driver = (Driver) Class.forName(className).getDeclaredConstructor().newInstance();
+            Driver existing = LOADED.putIfAbsent(className, driver);
+            return existing != null ? existing : driver;
+        } catch (ReflectiveOperationException e) {
+            throw new SQLException("Не удалось загрузить драйвер " + className + ": " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.dbclient;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Регистрация MBean-ов приложения в платформенном сервере JMX. Ошибки регистрации не мешают
+ * работе приложения и только выводятся в stderr.
+ */
+final class Jmx {
+    private Jmx() {
+    }
+
+    /** Регистрирует объект, заменяя ранее зарегистрированный под тем же именем. */
+    static void register(String name, Object bean) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = new ObjectName(name);
+            try {
+                server.registerMBean(bean, objectName);
+            } catch (InstanceAlreadyExistsException e) {
+                server.unregisterMBean(objectName);
+                server.registerMBean(bean, objectName);
+            }
+        } catch (JMException e) {
+            System.err.println("Не удалось зарегистрировать MBean " + name + ": " + e.getMessage());
+        }
+    }
+
+    static void unregister(String name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(name));
+        } catch (InstanceNotFoundException e) {
+            // уже снят
+        } catch (JMException e) {
+            System.err.println("Не удалось снять MBean " + name + ": " + e.getMessage());
+        }
+    }
+}
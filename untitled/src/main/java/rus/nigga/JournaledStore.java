@@ -0,0 +1,286 @@
+package com.example.dbclient;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * Хранилище списка объектов в JSON-файле со снимком и журналом изменений.
+ *
+ * <p>Снимок ({@code queries.json}) остаётся обычным JSON-массивом. Каждое изменение дописывается
+ * одной строкой в журнал рядом со снимком ({@code queries.json.journal}) и сбрасывается на диск,
+ * поэтому правка не переписывает весь файл. Когда в журнале накапливается {@code compactThreshold}
+ * записей, а также при закрытии, журнал сворачивается в новый снимок: он пишется во временный файл
+ * и атомарно переименовывается поверх старого, после чего журнал обнуляется.
+ *
+ * <p>При загрузке журнал применяется поверх снимка. Недописанная при сбое последняя строка
+ * пропускается. Записи идемпотентны, поэтому сбой между переименованием снимка и обнулением
+ * журнала лишь повторно применяет уже учтённые изменения.
+ *
+ * <p>Объекты различаются по значению свойства-ключа ({@code keyProperty}, например {@code name}); внутри хранятся их JSON-деревья в том виде,
+ * в каком они попадают на диск ({@code toStored}), поэтому изменения объектов приложения после
+ * {@link #put} не влияют на хранилище до следующего {@code put}. Снимок, записанный до появления журнала,
+ * мог содержать объекты с одинаковым ключом; при загрузке повторы получают ключ с номером ({@code имя (2)})
+ * и сразу сохраняются в новый снимок, а не теряются.
+ */
+public class JournaledStore<T> implements Closeable {
+    private static final String OP_PUT = "put";
+    private static final String OP_REMOVE = "remove";
+
+    private final ObjectMapper mapper;
+    private final Path snapshotFile;
+    private final Path journalFile;
+    private final Class<T> type;
+    private final String keyProperty;
+    private final UnaryOperator<T> toStored;
+    private final int compactThreshold;
+
+    private final Map<String, JsonNode> entries = new LinkedHashMap<>();
+    private FileChannel journal;
+    private int journalRecords;
+    private int replayedRecords;
+    private int skippedRecords;
+    private int renamedEntries;
+
+    /**
+     * @param toStored         преобразование перед записью на диск (например, кодирование пароля)
+     * @param compactThreshold число записей журнала, после которого он сворачивается в снимок
+     */
+    public JournaledStore(ObjectMapper mapper, File snapshotFile, Class<T> type, String keyProperty,
+                          UnaryOperator<T> toStored, int compactThreshold) {
+        this.mapper = mapper;
+        this.snapshotFile = snapshotFile.toPath();
+        this.journalFile = this.snapshotFile.resolveSibling(snapshotFile.getName() + ".journal");
+        this.type = type;
+        this.keyProperty = keyProperty;
+        this.toStored = toStored;
+        this.compactThreshold = compactThreshold;
+    }
+
+    /** Читает снимок, применяет журнал и возвращает объекты в порядке добавления. */
+    public synchronized List<T> load() throws IOException {
+        entries.clear();
+        replayedRecords = 0;
+        skippedRecords = 0;
+        renamedEntries = 0;
+        if (Files.exists(snapshotFile)) {
+            readSnapshot();
+        }
+        boolean tornTail = false;
+        if (Files.exists(journalFile)) {
+            replayJournal();
+            tornTail = endsWithoutNewline();
+        }
+        journalRecords = replayedRecords + skippedRecords;
+        // после сбоя журнал сразу сворачиваем, иначе новая запись склеится с недописанной строкой
+        if (journalRecords >= compactThreshold || skippedRecords > 0 || tornTail || renamedEntries > 0) {
+            compact();
+        }
+
+        List<T> result = new ArrayList<>(entries.size());
+        for (JsonNode node : entries.values()) {
+            result.add(mapper.treeToValue(node, type));
+        }
+        return result;
+    }
+
+    /** Добавляет объект или заменяет объект с тем же ключом. */
+    public synchronized void put(T value) throws IOException {
+        JsonNode node = mapper.valueToTree(toStored.apply(value));
+        String key = node.path(keyProperty).asText();
+        entries.put(key, node);
+
+        ObjectNode record = mapper.createObjectNode();
+        record.put("op", OP_PUT);
+        record.put("key", key);
+        record.set("value", node);
+        append(record);
+    }
+
+    public synchronized void remove(String key) throws IOException {
+        if (entries.remove(key) == null) {
+            return;
+        }
+        ObjectNode record = mapper.createObjectNode();
+        record.put("op", OP_REMOVE);
+        record.put("key", key);
+        append(record);
+    }
+
+    /** Записывает текущее состояние в новый снимок и обнуляет журнал. */
+    public synchronized void compact() throws IOException {
+        Path temp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp.toFile())) {
+            try (JsonGenerator generator = mapper.getFactory().createGenerator(out)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                generator.writeStartArray();
+                for (JsonNode node : entries.values()) {
+                    generator.writeTree(node);
+                }
+                generator.writeEndArray();
+            }
+            out.getFD().sync();
+        }
+        try {
+            Files.move(temp, snapshotFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        if (journal != null) {
+            journal.truncate(0);
+            journal.force(true);
+        } else {
+            Files.deleteIfExists(journalFile);
+        }
+        journalRecords = 0;
+    }
+
+    /** Число записей журнала, применённых при последней загрузке. */
+    public synchronized int getReplayedRecords() {
+        return replayedRecords;
+    }
+
+    /** Число повреждённых записей журнала, пропущенных при последней загрузке. */
+    public synchronized int getSkippedRecords() {
+        return skippedRecords;
+    }
+
+    /** Число объектов снимка с повторяющимся ключом, переименованных при последней загрузке. */
+    public synchronized int getRenamedEntries() {
+        return renamedEntries;
+    }
+
+    /** Сворачивает журнал, если в нём есть записи, и закрывает его. */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            if (journalRecords > 0) {
+                compact();
+            }
+        } finally {
+            if (journal != null) {
+                journal.close();
+                journal = null;
+            }
+        }
+    }
+
+    private void readSnapshot() throws IOException {
+        try (JsonParser parser = mapper.getFactory().createParser(snapshotFile.toFile())) {
+            JsonToken first = parser.nextToken();
+            if (first == null) {
+                return; // пустой файл
+            }
+            if (first != JsonToken.START_ARRAY) {
+                throw new IOException("Ожидается JSON-массив в " + snapshotFile.getFileName());
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                JsonNode node = mapper.readTree(parser);
+                String key = node.path(keyProperty).asText();
+                if (entries.containsKey(key) && node instanceof ObjectNode) {
+                    key = uniqueKey(key);
+                    ((ObjectNode) node).put(keyProperty, key);
+                    renamedEntries++;
+                }
+                entries.put(key, node);
+            }
+        }
+    }
+
+    private String uniqueKey(String key) {
+        for (int number = 2; ; number++) {
+            String candidate = key + " (" + number + ")";
+            if (!entries.containsKey(candidate)) {
+                return candidate;
+            }
+        }
+    }
+
+    private void replayJournal() throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                Files.newInputStream(journalFile), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    apply(mapper.readTree(line));
+                    replayedRecords++;
+                } catch (JsonProcessingException | IllegalArgumentException e) {
+                    skippedRecords++; // строка, недописанная при сбое
+                }
+            }
+        }
+    }
+
+    private boolean endsWithoutNewline() throws IOException {
+        try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                return false;
+            }
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.read(last, size - 1);
+            return last.get(0) != '\n';
+        }
+    }
+
+    private void apply(JsonNode record) {
+        String op = record.path("op").asText();
+        String key = record.path("key").asText(null);
+        if (key == null) {
+            throw new IllegalArgumentException("Запись журнала без ключа");
+        }
+        if (OP_PUT.equals(op) && record.hasNonNull("value")) {
+            entries.put(key, record.get("value"));
+        } else if (OP_REMOVE.equals(op)) {
+            entries.remove(key);
+        } else {
+            throw new IllegalArgumentException("Неизвестная запись журнала: " + op);
+        }
+    }
+
+    private void append(ObjectNode record) throws IOException {
+        if (journal == null) {
+            journal = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        }
+        byte[] json = mapper.writeValueAsBytes(record);
+        ByteBuffer buffer = ByteBuffer.allocate(json.length + 1);
+        buffer.put(json).put((byte) '\n').flip();
+        while (buffer.hasRemaining()) {
+            journal.write(buffer);
+        }
+        journal.force(false);
+
+        if (++journalRecords >= compactThreshold) {
+            compact();
+        }
+    }
+}
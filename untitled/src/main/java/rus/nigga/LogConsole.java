@@ -0,0 +1,280 @@
+package com.example.dbclient;
+
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.collections.ObservableListBase;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.SelectionMode;
+import javafx.scene.input.Clipboard;
+import javafx.scene.input.ClipboardContent;
+import javafx.scene.input.KeyCode;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.util.Duration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+
+/**
+ * Консоль журнала внизу окна.
+ * <p>
+ * Хранит только последние {@code capacity} сообщений в кольцевом буфере и показывает их
+ * через виртуализированный {@link ListView}, так что размер консоли не растёт со временем.
+ * {@link #append} можно вызывать из любого потока: сообщения копятся в очереди и переносятся
+ * в список не чаще {@link #FLUSH_INTERVAL_MILLIS} мс, одним изменением на пачку.
+ */
+public class LogConsole {
+    public static final String LEVEL_ERROR = "error";
+    public static final String LEVEL_DEBUG = "debug";
+
+    private static final long FLUSH_INTERVAL_MILLIS = 250;
+    private static final String FILTER_ALL = "Все";
+    private static final String FILTER_ERRORS = "Ошибки";
+    private static final String FILTER_DEBUG = "Отладка";
+
+    private final Queue<LogEntry> pending = new ConcurrentLinkedQueue<>();
+    private final Ring all;
+    private final VisibleEntries visible;
+    private final ListView<LogEntry> listView;
+    private final ComboBox<String> filterBox = new ComboBox<>();
+    private final CheckBox autoScrollBox = new CheckBox("Автопрокрутка");
+    private final VBox node;
+    private String levelFilter;
+
+    public LogConsole(int capacity) {
+        all = new Ring(capacity);
+        visible = new VisibleEntries(capacity);
+
+        listView = new ListView<>(visible);
+        listView.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        listView.setCellFactory(view -> new ListCell<>() {
+            @Override
+            protected void updateItem(LogEntry entry, boolean empty) {
+                super.updateItem(entry, empty);
+                if (empty || entry == null) {
+                    setText(null);
+                    setStyle("");
+                } else {
+                    setText(entry.text);
+                    setStyle(LEVEL_ERROR.equals(entry.level) ? "-fx-text-fill: #d03030;" : "");
+                }
+            }
+        });
+        listView.setOnKeyPressed(e -> {
+            if (e.isShortcutDown() && e.getCode() == KeyCode.C) {
+                copySelection();
+            }
+        });
+        VBox.setVgrow(listView, Priority.ALWAYS);
+
+        filterBox.getItems().addAll(FILTER_ALL, FILTER_ERRORS, FILTER_DEBUG);
+        filterBox.setValue(FILTER_ALL);
+        filterBox.setOnAction(e -> applyFilter());
+        autoScrollBox.setSelected(true);
+        Button clearButton = new Button("Очистить");
+        clearButton.setOnAction(e -> clear());
+
+        HBox toolbar = new HBox(10, new Label("Журнал:"), filterBox, autoScrollBox, clearButton);
+        toolbar.setAlignment(Pos.CENTER_LEFT);
+        toolbar.setPadding(new Insets(0, 10, 0, 10));
+
+        node = new VBox(5, toolbar, listView);
+        node.setPrefHeight(180);
+
+        Timeline flushTimeline = new Timeline(new KeyFrame(Duration.millis(FLUSH_INTERVAL_MILLIS), e -> flush()));
+        flushTimeline.setCycleCount(Animation.INDEFINITE);
+        flushTimeline.play();
+    }
+
+    public Node getNode() {
+        return node;
+    }
+
+    /** Ставит сообщение в очередь консоли; безопасно вызывать из любого потока. */
+    public void append(String level, String text) {
+        pending.add(new LogEntry(level, text));
+    }
+
+    /** Переносит накопившиеся сообщения в кольцевой буфер и список (FX-поток). */
+    private void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        int oldSize = visible.size();
+        List<LogEntry> removed = new ArrayList<>();
+        int removedVisible = 0;
+        LogEntry entry;
+        while ((entry = pending.poll()) != null) {
+            LogEntry evicted = all.add(entry);
+            if (evicted != null && matches(evicted)) {
+                visible.entries.removeFirst();
+                // Вытесненные сообщения, добавленные в этой же пачке, в списке ещё не отображались
+                if (removedVisible++ < oldSize) {
+                    removed.add(evicted);
+                }
+            }
+            if (matches(entry)) {
+                visible.entries.add(entry);
+            }
+        }
+        visible.fireBatch(removed, oldSize - removed.size());
+
+        if (autoScrollBox.isSelected() && !visible.isEmpty()) {
+            listView.scrollTo(visible.size() - 1);
+        }
+    }
+
+    private void applyFilter() {
+        String value = filterBox.getValue();
+        levelFilter = FILTER_ERRORS.equals(value) ? LEVEL_ERROR
+                : FILTER_DEBUG.equals(value) ? LEVEL_DEBUG
+                : null;
+        List<LogEntry> removed = visible.snapshot();
+        visible.entries.clear();
+        for (int i = 0; i < all.size(); i++) {
+            if (matches(all.get(i))) {
+                visible.entries.add(all.get(i));
+            }
+        }
+        visible.fireBatch(removed, 0);
+        if (autoScrollBox.isSelected() && !visible.isEmpty()) {
+            listView.scrollTo(visible.size() - 1);
+        }
+    }
+
+    private void clear() {
+        pending.clear();
+        all.clear();
+        List<LogEntry> removed = visible.snapshot();
+        visible.entries.clear();
+        visible.fireBatch(removed, 0);
+    }
+
+    private void copySelection() {
+        String text = listView.getSelectionModel().getSelectedItems().stream()
+                .map(entry -> entry.text)
+                .collect(Collectors.joining("\n"));
+        if (!text.isEmpty()) {
+            ClipboardContent content = new ClipboardContent();
+            content.putString(text);
+            Clipboard.getSystemClipboard().setContent(content);
+        }
+    }
+
+    private boolean matches(LogEntry entry) {
+        return levelFilter == null || levelFilter.equals(entry.level);
+    }
+
+    private static final class LogEntry {
+        final String level;
+        final String text;
+
+        LogEntry(String level, String text) {
+            this.level = level;
+            this.text = text;
+        }
+    }
+
+    /** Кольцевой буфер фиксированной ёмкости; при переполнении вытесняет самое старое сообщение. */
+    private static final class Ring {
+        private final LogEntry[] items;
+        private int head;
+        private int size;
+
+        Ring(int capacity) {
+            items = new LogEntry[Math.max(1, capacity)];
+        }
+
+        /** @return вытесненное сообщение или {@code null} */
+        LogEntry add(LogEntry entry) {
+            LogEntry evicted = null;
+            if (size == items.length) {
+                evicted = items[head];
+                head = (head + 1) % items.length;
+                size--;
+            }
+            items[(head + size) % items.length] = entry;
+            size++;
+            return evicted;
+        }
+
+        void removeFirst() {
+            items[head] = null;
+            head = (head + 1) % items.length;
+            size--;
+        }
+
+        LogEntry get(int index) {
+            return items[(head + index) % items.length];
+        }
+
+        int size() {
+            return size;
+        }
+
+        void clear() {
+            Arrays.fill(items, null);
+            head = 0;
+            size = 0;
+        }
+    }
+
+    /** Отфильтрованные сообщения в виде списка для {@link ListView}; изменения сообщаются пачкой. */
+    private static final class VisibleEntries extends ObservableListBase<LogEntry> {
+        final Ring entries;
+
+        VisibleEntries(int capacity) {
+            entries = new Ring(capacity);
+        }
+
+        @Override
+        public LogEntry get(int index) {
+            return entries.get(index);
+        }
+
+        @Override
+        public int size() {
+            return entries.size();
+        }
+
+        List<LogEntry> snapshot() {
+            List<LogEntry> copy = new ArrayList<>(entries.size());
+            for (int i = 0; i < entries.size(); i++) {
+                copy.add(entries.get(i));
+            }
+            return copy;
+        }
+
+        /**
+         * Сообщает об удалении {@code removed} из начала списка и добавлении
+         * всего, что стоит после {@code keptOld} сохранившихся старых элементов.
+         */
+        void fireBatch(List<LogEntry> removed, int keptOld) {
+            if (removed.isEmpty() && keptOld == size()) {
+                return;
+            }
+            beginChange();
+            if (!removed.isEmpty()) {
+                nextRemove(0, removed);
+            }
+            if (size() > keptOld) {
+                nextAdd(keptOld, size());
+            }
+            endChange();
+        }
+    }
+}
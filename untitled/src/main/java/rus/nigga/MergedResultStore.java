@@ -0,0 +1,204 @@
+package com.example.dbclient;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Общий результат запроса, выполненного на нескольких БД ({@link FanOutRunner}): первая колонка — имя
+ * подключения, остальные — колонки запроса.
+ * <p>
+ * Строки каждой БД лежат в своём {@link SpillingResultStore}, который пишет только её поток выборки;
+ * здесь хранится лишь список отрезков «строки общего результата с {@code start} — это строки части
+ * {@code part} начиная с {@code offset}», без копирования значений. Порции разных БД идут в порядке поступления;
+ * порция той же части, что и последний отрезок, просто удлиняет его.
+ * Набор колонок задаёт первая ответившая БД, результат с другими колонками не принимается.
+ */
+public class MergedResultStore implements ResultStore {
+    public static final String SOURCE_COLUMN = "Источник";
+
+    private static final class Part {
+        final String source;
+        final SpillingResultStore store;
+        int published; // под блокировкой хранилища
+
+        Part(String source, SpillingResultStore store) {
+            this.source = source;
+            this.store = store;
+        }
+    }
+
+    private final List<Part> parts = new ArrayList<>();
+    private volatile String[] columnNames;
+    private volatile Part[] partArray = new Part[0];
+    private boolean closed;
+
+    // Отрезки дописываются за видимой границей segmentCount, затем граница сдвигается
+    private volatile int[] segmentStarts = new int[64];
+    private volatile int[] segmentParts = new int[64];
+    private volatile int[] segmentOffsets = new int[64];
+    private volatile int segmentCount;
+    private volatile int rowCount;
+
+    /**
+     * Регистрирует результат одной БД. Вызывается потоком её выборки.
+     *
+     * @return номер части для {@link #publish(int)}
+     * @throws IllegalArgumentException если колонки отличаются от колонок первой ответившей БД
+     * @throws IOException              если общий результат уже закрыт
+     */
+    public synchronized int addPart(String source, SpillingResultStore store) throws IOException {
+        if (closed) {
+            store.close();
+            throw new IOException("Результат закрыт");
+        }
+        String[] names = new String[store.getColumnCount()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = store.getColumnName(i);
+        }
+        if (columnNames == null) {
+            columnNames = names;
+        } else if (!sameColumns(columnNames, names)) {
+            store.close();
+            throw new IllegalArgumentException("колонки результата отличаются от первой ответившей БД: "
+                    + String.join(", ", names) + " вместо " + String.join(", ", columnNames));
+        }
+        parts.add(new Part(source, store));
+        partArray = parts.toArray(new Part[0]);
+        return parts.size() - 1;
+    }
+
+    /** Делает видимыми все добавленные в часть строки. Вызывается потоком выборки этой части. */
+    public void publish(int part) throws IOException {
+        Part p = partArray[part];
+        p.store.flush();
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            int available = p.store.getRowCount();
+            int added = available - p.published;
+            if (added <= 0) {
+                return;
+            }
+            int count = segmentCount;
+            int total = rowCount;
+            boolean extendsLast = count > 0 && segmentParts[count - 1] == part
+                    && segmentOffsets[count - 1] + (total - segmentStarts[count - 1]) == p.published;
+            if (!extendsLast) {
+                if (count == segmentStarts.length) {
+                    int capacity = count * 2;
+                    segmentStarts = Arrays.copyOf(segmentStarts, capacity);
+                    segmentParts = Arrays.copyOf(segmentParts, capacity);
+                    segmentOffsets = Arrays.copyOf(segmentOffsets, capacity);
+                }
+                segmentStarts[count] = total;
+                segmentParts[count] = part;
+                segmentOffsets[count] = p.published;
+                segmentCount = count + 1;
+            }
+            p.published = available;
+            rowCount = total + added;
+        }
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        String[] names = columnNames;
+        return names == null ? 1 : names.length + 1;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return column == 0 ? SOURCE_COLUMN : columnNames[column - 1];
+    }
+
+    @Override
+    public boolean isNull(int row, int column) {
+        return getValue(row, column) == null;
+    }
+
+    @Override
+    public Object getValue(int row, int column) {
+        int segment = segmentOf(row);
+        Part part = partArray[segmentParts[segment]];
+        if (column == 0) {
+            return part.source;
+        }
+        return part.store.getValue(segmentOffsets[segment] + row - segmentStarts[segment], column - 1);
+    }
+
+    @Override
+    public String getText(int row, int column) {
+        int segment = segmentOf(row);
+        Part part = partArray[segmentParts[segment]];
+        if (column == 0) {
+            return part.source;
+        }
+        return part.store.getText(segmentOffsets[segment] + row - segmentStarts[segment], column - 1);
+    }
+
+    @Override
+    public long estimateMemoryBytes() {
+        long bytes = segmentStarts.length * 12L;
+        for (Part part : partArray) {
+            bytes += part.store.estimateMemoryBytes();
+        }
+        return bytes;
+    }
+
+    /** Объём файлов подкачки всех частей. */
+    public long getSpilledBytes() {
+        long bytes = 0;
+        for (Part part : partArray) {
+            bytes += part.store.getSpilledBytes();
+        }
+        return bytes;
+    }
+
+    /** Последний отрезок, начинающийся не позже {@code row}. */
+    private int segmentOf(int row) {
+        int count = segmentCount;
+        int[] starts = segmentStarts;
+        int low = 0;
+        int high = count - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (starts[middle] <= row) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    private static boolean sameColumns(String[] expected, String[] actual) {
+        if (expected.length != actual.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (!expected[i].equalsIgnoreCase(actual[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Part part : parts) {
+            part.store.close();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.dbclient;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * SQL с именованными параметрами вида {@code :date_from}.
+ * <p>
+ * Параметры заменяются на {@code ?} для {@link PreparedStatement}; двоеточия внутри строковых литералов,
+ * идентификаторов в кавычках, комментариев и блоков {@code $$...$$}, а также {@code ::} (приведение типа
+ * в PostgreSQL), {@code :=} (присваивание в PL/SQL) и {@code :new.}/{@code :old.} в триггерах не считаются параметрами.
+ * Один и тот же параметр может встречаться несколько раз.
+ */
+public class NamedSql {
+    private static final Pattern INTEGER = Pattern.compile("[-+]?\\d{1,18}");
+    private static final Pattern DECIMAL = Pattern.compile("[-+]?\\d*\\.\\d+|[-+]?\\d{19,}");
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm[:ss]");
+
+    private final String jdbcSql;
+    private final List<String> bindOrder;
+    private final List<String> parameterNames;
+
+    private NamedSql(String jdbcSql, List<String> bindOrder) {
+        this.jdbcSql = jdbcSql;
+        this.bindOrder = bindOrder;
+        this.parameterNames = Collections.unmodifiableList(new ArrayList<>(new LinkedHashSet<>(bindOrder)));
+    }
+
+    public static NamedSql parse(String sql) {
+        StringBuilder out = new StringBuilder(sql.length());
+        List<String> bindOrder = new ArrayList<>();
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            int end = i + 1;
+            if (c == '\'' || c == '"') {
+                end = skipQuoted(sql, i, c);
+            } else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+                end = sql.indexOf('\n', i);
+                end = end < 0 ? length : end;
+            } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                end = sql.indexOf("*/", i + 2);
+                end = end < 0 ? length : end + 2;
+            } else if (c == '$') {
+                end = skipDollarQuoted(sql, i);
+            } else if (c == ':' && i + 1 < length) {
+                char next = sql.charAt(i + 1);
+                if (next == ':' || next == '=') {
+                    end = i + 2;
+                } else if (Character.isLetter(next) || next == '_') {
+                    int nameEnd = i + 2;
+                    while (nameEnd < length && isNamePart(sql.charAt(nameEnd))) {
+                        nameEnd++;
+                    }
+                    String name = sql.substring(i + 1, nameEnd);
+                    boolean triggerRow = nameEnd < length && sql.charAt(nameEnd) == '.'
+                            && (name.equalsIgnoreCase("new") || name.equalsIgnoreCase("old"));
+                    if (!triggerRow) {
+                        bindOrder.add(name);
+                        out.append('?');
+                        i = nameEnd;
+                        continue;
+                    }
+                    end = nameEnd;
+                }
+            }
+            out.append(sql, i, end);
+            i = end;
+        }
+        return new NamedSql(out.toString(), bindOrder);
+    }
+
+    public String getJdbcSql() {
+        return jdbcSql;
+    }
+
+    /** Имена параметров без повторов в порядке первого появления. */
+    public List<String> getParameterNames() {
+        return parameterNames;
+    }
+
+    public boolean hasParameters() {
+        return !bindOrder.isEmpty();
+    }
+
+    /**
+     * Привязывает значения параметров. Тип определяется по тексту значения: целое, дробное,
+     * дата {@code yyyy-MM-dd}, дата и время {@code yyyy-MM-dd HH:mm[:ss]}, иначе строка;
+     * значение в одинарных кавычках всегда передаётся строкой, пустое — как NULL.
+     */
+    public void bind(PreparedStatement stmt, Map<String, String> values) throws SQLException {
+        for (int i = 0; i < bindOrder.size(); i++) {
+            bindValue(stmt, i + 1, values.get(bindOrder.get(i)));
+        }
+    }
+
+    private static void bindValue(PreparedStatement stmt, int index, String value) throws SQLException {
+        String text = value == null ? "" : value.trim();
+        if (text.isEmpty()) {
+            stmt.setNull(index, Types.VARCHAR);
+        } else if (text.length() >= 2 && text.startsWith("'") && text.endsWith("'")) {
+            stmt.setString(index, text.substring(1, text.length() - 1));
+        } else if (INTEGER.matcher(text).matches()) {
+            stmt.setLong(index, Long.parseLong(text));
+        } else if (DECIMAL.matcher(text).matches()) {
+            stmt.setBigDecimal(index, new BigDecimal(text));
+        } else {
+            try {
+                stmt.setDate(index, Date.valueOf(LocalDate.parse(text)));
+                return;
+            } catch (DateTimeParseException ignored) {
+            }
+            try {
+                stmt.setTimestamp(index, Timestamp.valueOf(LocalDateTime.parse(text, DATE_TIME)));
+                return;
+            } catch (DateTimeParseException ignored) {
+            }
+            stmt.setString(index, value);
+        }
+    }
+
+    static boolean isNamePart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    /** Литерал или идентификатор в кавычках; удвоенная кавычка внутри — экранирование. */
+    static int skipQuoted(String sql, int start, char quote) {
+        int i = start + 1;
+        while (i < sql.length()) {
+            if (sql.charAt(i) == quote) {
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == quote) {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return sql.length();
+    }
+
+    /** Строка PostgreSQL в долларовых кавычках: {@code $$...$$} или {@code $tag$...$tag$}. */
+    static int skipDollarQuoted(String sql, int start) {
+        int tagEnd = start + 1;
+        if (tagEnd < sql.length() && Character.isDigit(sql.charAt(tagEnd))) {
+            return start + 1; // $1 — позиционный параметр, не кавычка
+        }
+        while (tagEnd < sql.length() && isNamePart(sql.charAt(tagEnd))) {
+            tagEnd++;
+        }
+        if (tagEnd >= sql.length() || sql.charAt(tagEnd) != '$') {
+            return start + 1;
+        }
+        String tag = sql.substring(start, tagEnd + 1);
+        int close = sql.indexOf(tag, tagEnd + 1);
+        return close < 0 ? sql.length() : close + tag.length();
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.dbclient;
+
+import javafx.concurrent.Task;
+import javafx.concurrent.WorkerStateEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Выполнение запросов на ограниченном пуле потоков с очередью фиксированной длины.
+ * Следит за таймаутом запроса, включая выборку строк, и хранит список выполняющихся запросов.
+ * Таймаут отсчитывается с начала выполнения, а не с постановки в очередь, и не идёт, пока выборка
+ * стоит на паузе в ожидании «Загрузить ещё»: открытый результат, который пользователь читает, не прерывается.
+ */
+public class QueryExecutionService {
+    /** Как часто проверять таймаут запроса, выборка которого на паузе. */
+    private static final long PAUSED_RECHECK_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService watchdog;
+    private final List<RunningQuery> running = new CopyOnWriteArrayList<>();
+
+    public QueryExecutionService(int maxConcurrent, int maxQueued) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(maxQueued), r -> {
+            Thread thread = new Thread(r, "query-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "query-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Ставит задачу в очередь. Должен вызываться из FX-потока.
+     *
+     * @param timeoutSeconds общий лимит времени запроса; 0 — без ограничения
+     * @throws RejectedExecutionException если очередь запросов заполнена
+     */
+    public void submit(RunningQuery query, Task<?> task, int timeoutSeconds) {
+        query.bind(task);
+        task.addEventHandler(WorkerStateEvent.WORKER_STATE_SUCCEEDED, e -> finished(query));
+        task.addEventHandler(WorkerStateEvent.WORKER_STATE_FAILED, e -> finished(query));
+        task.addEventHandler(WorkerStateEvent.WORKER_STATE_CANCELLED, e -> finished(query));
+
+        executor.execute(() -> {
+            query.markStarted();
+            if (timeoutSeconds > 0) {
+                long timeoutNanos = TimeUnit.SECONDS.toNanos(timeoutSeconds);
+                scheduleTimeoutCheck(query, timeoutNanos, timeoutNanos);
+            }
+            task.run();
+        });
+        running.add(query);
+    }
+
+    public List<RunningQuery> getRunningQueries() {
+        return new ArrayList<>(running);
+    }
+
+    public void cancelAll() {
+        for (RunningQuery query : running) {
+            query.cancel();
+        }
+    }
+
+    public void shutdown() {
+        cancelAll();
+        executor.shutdownNow();
+        watchdog.shutdownNow();
+    }
+
+    private void scheduleTimeoutCheck(RunningQuery query, long timeoutNanos, long delayNanos) {
+        try {
+            query.setWatchdog(watchdog.schedule(() -> checkTimeout(query, timeoutNanos), delayNanos, TimeUnit.NANOSECONDS));
+        } catch (RejectedExecutionException ignored) {
+            // Сервис остановлен при закрытии приложения
+        }
+    }
+
+    /** Прерывает запрос, если время выполнения без пауз выборки исчерпано, иначе проверяет позже. */
+    private void checkTimeout(RunningQuery query, long timeoutNanos) {
+        if (query.isFetchPaused()) {
+            scheduleTimeoutCheck(query, timeoutNanos, PAUSED_RECHECK_NANOS);
+            return;
+        }
+        long remaining = timeoutNanos - query.getActiveNanos();
+        if (remaining <= 0) {
+            query.timeout();
+        } else {
+            scheduleTimeoutCheck(query, timeoutNanos, remaining);
+        }
+    }
+
+    private void finished(RunningQuery query) {
+        query.stopWatchdog();
+        running.remove(query);
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.dbclient;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Замеры одного выполнения запроса по фазам и объём результата.
+ * <ul>
+ *     <li>очередь — от постановки в очередь до начала выполнения в рабочем потоке;</li>
+ *     <li>соединение — получение соединения из пула;</li>
+ *     <li>выполнение — {@code execute} до готовности ResultSet;</li>
+ *     <li>первая строка — от ResultSet до первого {@code next()};</li>
+ *     <li>выборка — остальные строки, без времени на паузе по лимиту строк;</li>
+ *     <li>вывод — от конца выборки до обновления таблицы в потоке FX.</li>
+ * </ul>
+ * Фазы выборки отмечает рабочий поток запроса, вывод и итог — поток FX; не пройденная фаза не выводится.
+ */
+public class QueryMetrics {
+    public enum Outcome {
+        SUCCESS("выполнен"), CANCELLED("отменён"), TIMEOUT("таймаут"), FAILED("ошибка");
+
+        private final String title;
+
+        Outcome(String title) {
+            this.title = title;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+    }
+
+    private final String workspace;
+    private final String connection;
+    private final String sql;
+    private final LocalDateTime submittedAt = LocalDateTime.now();
+    private final long submittedNanos = System.nanoTime();
+
+    private volatile long startedNanos;
+    private volatile long acquiredNanos;
+    private volatile long executedNanos;
+    private volatile long firstRowNanos;
+    private volatile long fetchedNanos;
+    private volatile long renderedNanos;
+    private volatile long finishedNanos;
+    private volatile long pausedNanos;
+    private volatile long rows;
+    private volatile long bytes;
+    private volatile Outcome outcome;
+
+    public QueryMetrics(String workspace, String connection, String sql) {
+        this.workspace = workspace;
+        this.connection = connection;
+        this.sql = sql;
+    }
+
+    public void markStarted() {
+        startedNanos = System.nanoTime();
+    }
+
+    public void markAcquired() {
+        acquiredNanos = System.nanoTime();
+    }
+
+    public void markExecuted() {
+        executedNanos = System.nanoTime();
+    }
+
+    public void markFirstRow() {
+        firstRowNanos = System.nanoTime();
+    }
+
+    /** Время, проведённое на паузе по лимиту строк; вычитается из выборки. */
+    public void addPausedNanos(long nanos) {
+        pausedNanos += nanos; // пишет только рабочий поток запроса
+    }
+
+    /** @param rows для DML — число изменённых строк */
+    public void markFetched(long rows, long bytes) {
+        this.rows = rows;
+        this.bytes = bytes;
+        fetchedNanos = System.nanoTime();
+    }
+
+    public void markRendered() {
+        renderedNanos = System.nanoTime();
+    }
+
+    public void finish(Outcome outcome) {
+        this.outcome = outcome;
+        finishedNanos = System.nanoTime();
+    }
+
+    public String getWorkspace() { return workspace; }
+    public String getConnection() { return connection; }
+    public String getSql() { return sql; }
+    public Outcome getOutcome() { return outcome; }
+    public long getRows() { return rows; }
+    public long getBytes() { return bytes; }
+
+    public long getQueueMillis() { return between(submittedNanos, startedNanos); }
+    public long getAcquireMillis() { return between(startedNanos, acquiredNanos); }
+    public long getExecuteMillis() { return between(acquiredNanos, executedNanos); }
+    public long getFirstRowMillis() { return between(executedNanos, firstRowNanos); }
+    public long getRenderMillis() { return between(fetchedNanos, renderedNanos); }
+    public long getTotalMillis() { return between(submittedNanos, finishedNanos); }
+
+    public long getFetchMillis() {
+        if (firstRowNanos == 0 || fetchedNanos == 0) {
+            return -1;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(Math.max(0, fetchedNanos - firstRowNanos - pausedNanos));
+    }
+
+    /** Строк в секунду от готовности ResultSet до конца выборки; -1, если строк не выбиралось. */
+    public long getRowsPerSecond() {
+        if (firstRowNanos == 0 || fetchedNanos == 0) {
+            return -1;
+        }
+        long nanos = Math.max(fetchedNanos - executedNanos - pausedNanos, 1_000_000);
+        return Math.round(rows * 1_000_000_000.0 / nanos);
+    }
+
+    /** Строка состояния под таблицей результата. */
+    public String toStatusText() {
+        StringBuilder text = new StringBuilder();
+        appendPhase(text, "очередь", getQueueMillis());
+        appendPhase(text, "соединение", getAcquireMillis());
+        appendPhase(text, "выполнение", getExecuteMillis());
+        appendPhase(text, "первая строка", getFirstRowMillis());
+        appendPhase(text, "выборка", getFetchMillis());
+        appendPhase(text, "вывод", getRenderMillis());
+        if (fetchedNanos != 0) {
+            text.append(" | ").append(firstRowNanos != 0 ? "строк: " : "изменено строк: ").append(rows);
+            if (bytes > 0) {
+                text.append(String.format(", ~%.1f МБ", bytes / (1024.0 * 1024.0)));
+            }
+            long rowsPerSecond = getRowsPerSecond();
+            if (rowsPerSecond >= 0) {
+                text.append(", ").append(rowsPerSecond).append(" стр/с");
+            }
+        }
+        if (outcome != null && outcome != Outcome.SUCCESS) {
+            text.append(" | ").append(outcome.getTitle());
+        }
+        return text.toString();
+    }
+
+    /** Запись для журнала метрик: JSON в одну строку. */
+    public String toJson(ObjectMapper mapper) {
+        ObjectNode node = mapper.createObjectNode();
+        node.put("time", submittedAt.toString());
+        node.put("workspace", workspace);
+        node.put("connection", connection);
+        node.put("outcome", outcome != null ? outcome.name() : null);
+        node.put("queueMs", getQueueMillis());
+        node.put("acquireMs", getAcquireMillis());
+        node.put("executeMs", getExecuteMillis());
+        node.put("firstRowMs", getFirstRowMillis());
+        node.put("fetchMs", getFetchMillis());
+        node.put("renderMs", getRenderMillis());
+        node.put("totalMs", getTotalMillis());
+        node.put("rows", rows);
+        node.put("bytes", bytes);
+        node.put("rowsPerSecond", getRowsPerSecond());
+        node.put("sql", sql);
+        try {
+            return mapper.writeValueAsString(node);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e); // дерево из примитивов сериализуется всегда
+        }
+    }
+
+    private static void appendPhase(StringBuilder text, String name, long millis) {
+        if (millis < 0) {
+            return;
+        }
+        if (text.length() > 0) {
+            text.append(" · ");
+        }
+        text.append(name).append(' ');
+        if (millis >= 10_000) {
+            text.append(String.format("%.1f с", millis / 1000.0));
+        } else {
+            text.append(millis).append(" мс");
+        }
+    }
+
+    private static long between(long fromNanos, long toNanos) {
+        if (fromNanos == 0 || toNanos == 0) {
+            return -1;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(Math.max(0, toNanos - fromNanos));
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.dbclient;
+
+import javafx.geometry.Bounds;
+import javafx.scene.Node;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TextField;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.MouseButton;
+import javafx.stage.Popup;
+
+import java.util.List;
+
+/**
+ * Выбор сохранённого запроса с поиском по мере ввода. Вместо выпадающего списка со всеми запросами
+ * показывает первые {@value #MAX_RESULTS} результатов {@link SavedQueryIndex} в виртуализированном списке.
+ * Стрелки переходят к результатам, Enter выбирает, Esc закрывает список.
+ */
+public class QueryPicker {
+    private static final int MAX_RESULTS = 500;
+    private static final double CELL_SIZE = 24;
+    private static final int VISIBLE_ROWS = 15;
+
+    private final SavedQueryIndex index = new SavedQueryIndex();
+    private final TextField field = new TextField();
+    private final ListView<SavedQuery> resultList = new ListView<>();
+    private final Popup popup = new Popup();
+    private SavedQuery value;
+    private Runnable onSelected = () -> { };
+    private boolean updatingText;
+
+    public QueryPicker() {
+        field.setPromptText("Выберите запрос (поиск по имени и SQL)");
+        field.setPrefWidth(400);
+
+        resultList.setFixedCellSize(CELL_SIZE);
+        resultList.setCellFactory(view -> new ListCell<>() {
+            @Override
+            protected void updateItem(SavedQuery query, boolean empty) {
+                super.updateItem(query, empty);
+                setText(empty || query == null ? null : query.getName() + "  —  " + firstLine(query.getSql()));
+            }
+        });
+        resultList.setOnMouseClicked(e -> {
+            if (e.getButton() == MouseButton.PRIMARY) {
+                choose(resultList.getSelectionModel().getSelectedItem());
+            }
+        });
+        resultList.setOnKeyPressed(e -> {
+            if (e.getCode() == KeyCode.ENTER) {
+                choose(resultList.getSelectionModel().getSelectedItem());
+            } else if (e.getCode() == KeyCode.ESCAPE) {
+                popup.hide();
+                field.requestFocus();
+            }
+        });
+        popup.getContent().add(resultList);
+        popup.setAutoHide(true);
+
+        field.textProperty().addListener((obs, oldText, text) -> {
+            if (!updatingText) {
+                value = null; // пользователь ищет другой запрос
+                showResults(text);
+            }
+        });
+        field.setOnMouseClicked(e -> showResults(value != null ? "" : field.getText()));
+        field.setOnKeyPressed(e -> {
+            if (e.getCode() == KeyCode.DOWN) {
+                if (!popup.isShowing()) {
+                    showResults(value != null ? "" : field.getText());
+                }
+                resultList.requestFocus();
+                resultList.getSelectionModel().selectFirst();
+            } else if (e.getCode() == KeyCode.ENTER && popup.isShowing() && !resultList.getItems().isEmpty()) {
+                choose(resultList.getItems().get(0));
+            } else if (e.getCode() == KeyCode.ESCAPE) {
+                popup.hide();
+            }
+        });
+    }
+
+    public Node getNode() {
+        return field;
+    }
+
+    public SavedQuery getValue() {
+        return value;
+    }
+
+    /** Вызывается после выбора запроса пользователем. */
+    public void setOnSelected(Runnable onSelected) {
+        this.onSelected = onSelected;
+    }
+
+    public void setAll(List<SavedQuery> queries) {
+        index.setAll(queries);
+        if (value != null && !queries.contains(value)) {
+            setValue(null);
+        }
+    }
+
+    public void add(SavedQuery query) {
+        index.add(query);
+    }
+
+    public void remove(SavedQuery query) {
+        index.remove(query);
+        if (query == value) {
+            setValue(null);
+        }
+    }
+
+    private void setValue(SavedQuery query) {
+        value = query;
+        updatingText = true;
+        try {
+            field.setText(query != null ? query.toString() : "");
+        } finally {
+            updatingText = false;
+        }
+    }
+
+    private void choose(SavedQuery query) {
+        if (query == null) {
+            return;
+        }
+        popup.hide();
+        setValue(query);
+        field.positionCaret(field.getText().length());
+        onSelected.run();
+    }
+
+    private void showResults(String text) {
+        List<SavedQuery> results = index.search(text, MAX_RESULTS);
+        resultList.getItems().setAll(results);
+        if (results.isEmpty()) {
+            popup.hide();
+            return;
+        }
+        resultList.setPrefSize(Math.max(field.getWidth(), 600),
+                Math.min(results.size(), VISIBLE_ROWS) * CELL_SIZE + 2);
+        if (!popup.isShowing() && field.getScene() != null) {
+            Bounds bounds = field.localToScreen(field.getBoundsInLocal());
+            popup.show(field, bounds.getMinX(), bounds.getMaxY());
+        }
+    }
+
+    private static String firstLine(String sql) {
+        if (sql == null) {
+            return "";
+        }
+        String trimmed = sql.strip();
+        int end = trimmed.indexOf('\n');
+        return end >= 0 ? trimmed.substring(0, end).strip() : trimmed;
+    }
+}
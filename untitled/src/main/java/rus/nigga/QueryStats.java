@@ -0,0 +1,95 @@
+package com.example.dbclient;
+
+/**
+ * Накопительные метрики запросов приложения; публикуется в JMX как {@link QueryStatsMXBean}.
+ */
+public class QueryStats implements QueryStatsMXBean {
+    public static final String OBJECT_NAME = "com.example.dbclient:type=QueryStats";
+
+    private long queries;
+    private long failed;
+    private long cancelled;
+    private long timedOut;
+    private long rows;
+    private long bytes;
+    private final Phase acquire = new Phase();
+    private final Phase execute = new Phase();
+    private final Phase firstRow = new Phase();
+    private final Phase fetch = new Phase();
+    private final Phase render = new Phase();
+    private final Phase total = new Phase();
+    private String lastQuery = "";
+
+    public synchronized void record(QueryMetrics metrics) {
+        queries++;
+        switch (metrics.getOutcome()) {
+            case FAILED:
+                failed++;
+                break;
+            case CANCELLED:
+                cancelled++;
+                break;
+            case TIMEOUT:
+                timedOut++;
+                break;
+            default:
+                break;
+        }
+        if (metrics.getRows() > 0) {
+            rows += metrics.getRows();
+        }
+        bytes += metrics.getBytes();
+        acquire.add(metrics.getAcquireMillis());
+        execute.add(metrics.getExecuteMillis());
+        firstRow.add(metrics.getFirstRowMillis());
+        fetch.add(metrics.getFetchMillis());
+        render.add(metrics.getRenderMillis());
+        total.add(metrics.getTotalMillis());
+        lastQuery = metrics.getWorkspace() + " [" + metrics.getConnection() + "]: " + metrics.toStatusText();
+    }
+
+    @Override public synchronized long getQueryCount() { return queries; }
+    @Override public synchronized long getFailedCount() { return failed; }
+    @Override public synchronized long getCancelledCount() { return cancelled; }
+    @Override public synchronized long getTimedOutCount() { return timedOut; }
+    @Override public synchronized long getRowsFetched() { return rows; }
+    @Override public synchronized long getBytesFetched() { return bytes; }
+    @Override public synchronized double getAverageAcquireMillis() { return acquire.average(); }
+    @Override public synchronized long getMaxAcquireMillis() { return acquire.max; }
+    @Override public synchronized double getAverageExecuteMillis() { return execute.average(); }
+    @Override public synchronized long getMaxExecuteMillis() { return execute.max; }
+    @Override public synchronized double getAverageFirstRowMillis() { return firstRow.average(); }
+    @Override public synchronized double getAverageFetchMillis() { return fetch.average(); }
+    @Override public synchronized double getAverageRenderMillis() { return render.average(); }
+    @Override public synchronized double getAverageTotalMillis() { return total.average(); }
+    @Override public synchronized long getMaxTotalMillis() { return total.max; }
+    @Override public synchronized String getLastQuery() { return lastQuery; }
+
+    @Override
+    public synchronized void reset() {
+        queries = failed = cancelled = timedOut = rows = bytes = 0;
+        for (Phase phase : new Phase[]{acquire, execute, firstRow, fetch, render, total}) {
+            phase.count = phase.sum = phase.max = 0;
+        }
+        lastQuery = "";
+    }
+
+    private static final class Phase {
+        long count;
+        long sum;
+        long max;
+
+        void add(long millis) {
+            if (millis < 0) {
+                return; // фаза не пройдена
+            }
+            count++;
+            sum += millis;
+            max = Math.max(max, millis);
+        }
+
+        double average() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.dbclient;
+
+/**
+ * Сводка по выполненным запросам для консоли JMX ({@code com.example.dbclient:type=QueryStats}).
+ * Средние и максимумы считаются по запросам, прошедшим соответствующую фазу.
+ */
+public interface QueryStatsMXBean {
+    long getQueryCount();
+
+    long getFailedCount();
+
+    long getCancelledCount();
+
+    long getTimedOutCount();
+
+    long getRowsFetched();
+
+    long getBytesFetched();
+
+    double getAverageAcquireMillis();
+
+    long getMaxAcquireMillis();
+
+    double getAverageExecuteMillis();
+
+    long getMaxExecuteMillis();
+
+    double getAverageFirstRowMillis();
+
+    double getAverageFetchMillis();
+
+    double getAverageRenderMillis();
+
+    double getAverageTotalMillis();
+
+    long getMaxTotalMillis();
+
+    /** Строка состояния последнего запроса. */
+    String getLastQuery();
+
+    void reset();
+}
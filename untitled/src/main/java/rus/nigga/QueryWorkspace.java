@@ -0,0 +1,202 @@
+package com.example.dbclient;
+
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.geometry.Insets;
+import javafx.geometry.Orientation;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.control.Tab;
+import javafx.scene.control.TableView;
+import javafx.scene.control.TextArea;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.StackPane;
+import javafx.scene.layout.VBox;
+
+/**
+ * Вкладка с запросом: свой текст запроса, своя таблица результата, свой индикатор выборки и своя отмена.
+ * Запросы разных вкладок выполняются параллельно, каждый на своей сессии из пула.
+ * Все методы, кроме {@link #isCurrentFetch(FetchControl)}, вызываются из FX-потока.
+ */
+public class QueryWorkspace {
+    private final Tab tab;
+    private final TextArea queryArea = new TextArea();
+    private final ResultGrid resultGrid = new ResultGrid();
+    private final ImageView loadingGifView;
+    private final Label fetchStatusLabel = new Label();
+    private final Label metricsLabel = new Label();
+    private final Button loadMoreButton = new Button("Загрузить ещё");
+    private final ReadOnlyBooleanWrapper running = new ReadOnlyBooleanWrapper(false);
+
+    private volatile FetchControl activeFetch;
+    private RunningQuery activeQuery;
+
+    public QueryWorkspace(String title, Image loadingGif) {
+        queryArea.setPrefHeight(150);
+        queryArea.setWrapText(true);
+
+        TableView<Integer> resultTable = resultGrid.getTable();
+        resultTable.setPrefHeight(400);
+
+        loadingGifView = new ImageView(loadingGif);
+        loadingGifView.setPreserveRatio(true);
+        loadingGifView.setFitHeight(64);
+        loadingGifView.setVisible(false);
+        loadingGifView.setManaged(false);
+
+        StackPane resultStack = new StackPane(resultTable, loadingGifView);
+        StackPane.setAlignment(loadingGifView, Pos.CENTER);
+        resultStack.setPrefHeight(400);
+
+        // --- СТРОКА СОСТОЯНИЯ ВЫБОРКИ ---
+        loadMoreButton.setDisable(true);
+        loadMoreButton.setOnAction(e -> requestMoreRows());
+        HBox fetchStatusBox = new HBox(10, fetchStatusLabel, loadMoreButton, resultGrid.getColumnNavigator(),
+                resultGrid.getViewControls());
+        fetchStatusBox.setAlignment(Pos.CENTER_LEFT);
+
+        resultTable.skinProperty().addListener((obs, oldSkin, newSkin) -> attachScrollToLoadMore());
+
+        // --- ЗАМЕРЫ ПОСЛЕДНЕГО ВЫПОЛНЕНИЯ ---
+        metricsLabel.setWrapText(true);
+        metricsLabel.setOpacity(0.75);
+
+        VBox content = new VBox(10, queryArea, resultStack, fetchStatusBox, metricsLabel);
+        content.setPadding(new Insets(10, 0, 0, 0));
+        tab = new Tab(title, content);
+    }
+
+    public Tab getTab() {
+        return tab;
+    }
+
+    public String getTitle() {
+        return tab.getText();
+    }
+
+    public TextArea getQueryArea() {
+        return queryArea;
+    }
+
+    public ResultGrid getResultGrid() {
+        return resultGrid;
+    }
+
+    /** Выполняется ли во вкладке запрос — для кнопки отмены. */
+    public ReadOnlyBooleanProperty runningProperty() {
+        return running.getReadOnlyProperty();
+    }
+
+    /**
+     * Запоминает новый запрос вкладки; предыдущий (в т.ч. выборка на паузе) прерывается,
+     * так как его результат выводится в ту же таблицу.
+     */
+    public void startQuery(RunningQuery query, FetchControl control) {
+        if (activeQuery != null) {
+            activeQuery.cancel();
+        }
+        activeFetch = control;
+        activeQuery = query;
+        running.set(true);
+    }
+
+    public void queryFinished(RunningQuery query) {
+        if (activeQuery == query) {
+            activeQuery = null;
+            running.set(false);
+        }
+    }
+
+    /** Относится ли выборка к текущему запросу вкладки; устаревшие порции строк отбрасываются. */
+    public boolean isCurrentFetch(FetchControl control) {
+        return activeFetch == control;
+    }
+
+    public void cancelActiveQuery() {
+        if (activeQuery != null) {
+            activeQuery.cancel();
+        }
+    }
+
+    /** Прерывает запрос и освобождает результат (файл подкачки) при закрытии вкладки. */
+    public void dispose() {
+        cancelActiveQuery();
+        resultGrid.clear();
+    }
+
+    /**
+     * Показывает готовый результат (из кэша) вместо выполнения запроса;
+     * выполняющийся запрос вкладки прерывается, его порции строк больше не принимаются.
+     */
+    public void showCachedResult(ResultStore store, String status) {
+        cancelActiveQuery();
+        activeFetch = null;
+        activeQuery = null;
+        running.set(false);
+        showResultTable();
+        resultGrid.show(store);
+        resultGrid.publishRows(store.getRowCount());
+        setFetchStatus(status, false);
+        metricsLabel.setText("");
+    }
+
+    public void showLoading() {
+        fetchStatusLabel.setText("");
+        metricsLabel.setText("");
+        loadMoreButton.setDisable(true);
+        loadingGifView.setVisible(true);
+        loadingGifView.setManaged(true);
+        resultGrid.getTable().setVisible(false);
+        resultGrid.getTable().setManaged(false);
+    }
+
+    public void showResultTable() {
+        loadingGifView.setVisible(false);
+        loadingGifView.setManaged(false);
+        resultGrid.getTable().setVisible(true);
+        resultGrid.getTable().setManaged(true);
+    }
+
+    public void setFetchStatus(String text, boolean paused) {
+        fetchStatusLabel.setText(text);
+        loadMoreButton.setDisable(!paused);
+    }
+
+    /** Замеры фаз последнего выполнения запроса вкладки ({@link QueryMetrics#toStatusText()}). */
+    public void setMetrics(String text) {
+        metricsLabel.setText(text);
+    }
+
+    private void requestMoreRows() {
+        FetchControl control = activeFetch;
+        if (control != null && control.isPaused()) {
+            loadMoreButton.setDisable(true);
+            control.requestMore();
+        }
+    }
+
+    /**
+     * Подгрузка следующей порции строк при прокрутке таблицы до конца.
+     * Полоса прокрутки создаётся скином таблицы, поэтому ищем её после его установки.
+     */
+    private void attachScrollToLoadMore() {
+        Platform.runLater(() -> {
+            for (Node node : resultGrid.getTable().lookupAll(".scroll-bar")) {
+                if (node instanceof ScrollBar && ((ScrollBar) node).getOrientation() == Orientation.VERTICAL) {
+                    ScrollBar bar = (ScrollBar) node;
+                    bar.valueProperty().addListener((obs, oldVal, newVal) -> {
+                        if (newVal.doubleValue() >= bar.getMax()) {
+                            requestMoreRows();
+                        }
+                    });
+                }
+            }
+        });
+    }
+}
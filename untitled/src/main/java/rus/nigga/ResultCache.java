@@ -0,0 +1,198 @@
+package com.example.dbclient;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Кэш результатов сохранённых запросов в памяти клиента.
+ * <p>
+ * Ключ — подключение, нормализованный текст SQL и значения параметров. Запись живёт не дольше
+ * своего TTL (задаётся у сохранённого запроса); при превышении бюджета памяти вытесняются
+ * давно не использованные записи (LRU). Кэшируются только полностью полученные результаты,
+ * целиком лежащие в куче: они неизменяемы и могут одновременно показываться в нескольких вкладках.
+ */
+public class ResultCache {
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long maxBytes;
+    private long totalBytes;
+    private long hits;
+    private long misses;
+
+    public ResultCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        evictOverflow();
+    }
+
+    /** @return сохранённый результат или {@code null}, если его нет или TTL истёк */
+    public synchronized CachedResult get(Key key) {
+        Entry entry = entries.get(key);
+        long now = System.currentTimeMillis();
+        if (entry != null && now >= entry.expiresAt) {
+            remove(key);
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return new CachedResult(entry.store, now - entry.storedAt);
+    }
+
+    /** Запоминает результат; слишком большой для бюджета результат не кэшируется. */
+    public synchronized void put(Key key, ColumnarResultStore store, long ttlMillis) {
+        long bytes = store.estimateMemoryBytes();
+        remove(key);
+        if (ttlMillis <= 0 || bytes > maxBytes) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        entries.put(key, new Entry(store, bytes, now, now + ttlMillis));
+        totalBytes += bytes;
+        evictOverflow();
+    }
+
+    /** Сбрасывает результаты подключения, например после его удаления. */
+    public synchronized void invalidate(DbConnectionInfo connection) {
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, Entry> e = it.next();
+            if (e.getKey().connection.equals(connection)) {
+                totalBytes -= e.getValue().bytes;
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        totalBytes = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("Кэш результатов: %d шт., ~%.1f МБ; попаданий %d, промахов %d",
+                entries.size(), totalBytes / (1024.0 * 1024.0), hits, misses);
+    }
+
+    private void remove(Key key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            totalBytes -= removed.bytes;
+        }
+    }
+
+    private void evictOverflow() {
+        long now = System.currentTimeMillis();
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            // Сначала самые давно использованные; заодно выбрасываем устаревшие
+            if (totalBytes > maxBytes || now >= entry.expiresAt) {
+                totalBytes -= entry.bytes;
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Приводит SQL к виду, не зависящему от переносов строк и отступов. Строковые литералы, идентификаторы
+     * в двойных кавычках, строки в долларовых кавычках и комментарии копируются как есть; после
+     * однострочного комментария перевод строки сохраняется, иначе комментарий поглотил бы следующий код.
+     */
+    static String normalizeSql(String sql) {
+        StringBuilder out = new StringBuilder(sql.length());
+        int length = sql.length();
+        boolean pendingSpace = false;
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = out.length() > 0;
+                i++;
+                continue;
+            }
+            if (pendingSpace) {
+                out.append(' ');
+                pendingSpace = false;
+            }
+            int end = i + 1;
+            if (c == '\'' || c == '"') {
+                end = NamedSql.skipQuoted(sql, i, c);
+            } else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+                end = sql.indexOf('\n', i);
+                end = end < 0 ? length : end + 1;
+            } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                end = sql.indexOf("*/", i + 2);
+                end = end < 0 ? length : end + 2;
+            } else if (c == '$') {
+                end = NamedSql.skipDollarQuoted(sql, i);
+            }
+            out.append(sql, i, end);
+            i = end;
+        }
+        int end = out.length();
+        while (end > 0 && (out.charAt(end - 1) == ';' || out.charAt(end - 1) == ' ')) {
+            end--;
+        }
+        return out.substring(0, end);
+    }
+
+    /** Ключ кэша: подключение, нормализованный SQL и значения параметров. */
+    public static final class Key {
+        final DbConnectionInfo connection;
+        final String sql;
+        final Map<String, String> parameters;
+
+        public Key(DbConnectionInfo connection, String sql, Map<String, String> parameters) {
+            this.connection = connection;
+            this.sql = normalizeSql(sql);
+            this.parameters = new TreeMap<>(parameters);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return connection.equals(key.connection) && sql.equals(key.sql) && parameters.equals(key.parameters);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(connection, sql, parameters);
+        }
+    }
+
+    /** Результат из кэша и его возраст. */
+    public static final class CachedResult {
+        public final ColumnarResultStore store;
+        public final long ageMillis;
+
+        CachedResult(ColumnarResultStore store, long ageMillis) {
+            this.store = store;
+            this.ageMillis = ageMillis;
+        }
+    }
+
+    private static final class Entry {
+        final ColumnarResultStore store;
+        final long bytes;
+        final long storedAt;
+        final long expiresAt;
+
+        Entry(ColumnarResultStore store, long bytes, long storedAt, long expiresAt) {
+            this.store = store;
+            this.bytes = bytes;
+            this.storedAt = storedAt;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
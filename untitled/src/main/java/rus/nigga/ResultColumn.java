@@ -0,0 +1,824 @@
+package com.example.dbclient;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Колонка результата запроса с хранением значений в массиве, соответствующем типу JDBC.
+ * Значения читаются собственными методами ResultSet для типа колонки ({@code getLong}, {@code getBigDecimal},
+ * {@code getTimestamp}, {@code getBytes}…), а не {@code getString}: драйвер не форматирует в текст ячейки,
+ * которые никто не увидит. Текст для таблицы строится при отрисовке из типизированного значения
+ * ({@link #getValue}) по региональным настройкам ({@link CellFormatter}).
+ * Запись идёт из потока выборки, чтение — из FX-потока: массивы объявлены volatile,
+ * а видимость строк гарантируется volatile-счётчиком строк в {@link ColumnarResultStore}.
+ * <p>
+ * Для строк, не поместившихся в бюджет кучи, колонка умеет записать значение в файл подкачки
+ * ({@link #spill}) и прочитать его обратно ({@link #readSpilled}) в компактном двоичном виде.
+ */
+abstract class ResultColumn {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    protected final String name;
+    private volatile long[] nulls = new long[INITIAL_CAPACITY / 64];
+
+    protected ResultColumn(String name) {
+        this.name = name;
+    }
+
+    /** Подбирает представление колонки по типу из ResultSetMetaData. */
+    static ResultColumn forType(String name, int sqlType, int precision, int scale) {
+        switch (sqlType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                return new LongColumn(name, 0);
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                if (precision > 0 && precision <= 18 && scale >= 0 && scale <= precision) {
+                    return new LongColumn(name, scale);
+                }
+                // Oracle NUMBER без точности отдаёт precision 0 и scale -127, масштаб у каждого значения свой
+                return new DecimalColumn(name);
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return new DoubleColumn(name);
+            case Types.DATE:
+                return new TimestampColumn(name, Types.DATE, DateTimeFormatter.ofPattern("yyyy-MM-dd"));
+            case Types.TIME:
+                return new TimestampColumn(name, Types.TIME, DateTimeFormatter.ofPattern("HH:mm:ss"));
+            case Types.TIMESTAMP:
+            case Types.TIMESTAMP_WITH_TIMEZONE:
+                return new TimestampColumn(name, Types.TIMESTAMP, DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+                return new BytesColumn(name);
+            case Types.CHAR:
+            case Types.NCHAR:
+            case Types.VARCHAR:
+            case Types.NVARCHAR:
+            case Types.BIT:
+            case Types.BOOLEAN:
+                return new DictionaryStringColumn(name);
+            default:
+                return new StringColumn(name);
+        }
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /** Читает значение текущей строки ResultSet в позицию {@code row}. */
+    abstract void read(ResultSet rs, int index, int row) throws SQLException;
+
+    /**
+     * Типизированное значение ячейки: {@code Long}, {@code BigDecimal}, {@code Double}, {@code LocalDate},
+     * {@code LocalTime}, {@code LocalDateTime}, {@code String} или {@code byte[]}; {@code null} для NULL.
+     */
+    abstract Object getValue(int row);
+
+    /** Текстовое представление ячейки без учёта региональных настроек; форматирование выполняется только при обращении. */
+    abstract String format(int row);
+
+    /** Текст значения, возвращённого {@link #getValue} или {@link #readSpilled}, в том же виде, что и {@link #format}. */
+    abstract String text(Object value);
+
+    /** Записывает значение текущей строки ResultSet в файл подкачки. */
+    abstract void spill(ResultSet rs, int index, DataOutput out) throws SQLException, IOException;
+
+    /** Читает значение, записанное {@link #spill}, в том же виде, что возвращает {@link #getValue}. */
+    abstract Object readSpilled(ByteBuffer buffer);
+
+    /** Приблизительный объём памяти, занимаемый колонкой. */
+    abstract long estimateBytes();
+
+    boolean isNull(int row) {
+        long[] bits = nulls;
+        int word = row >>> 6;
+        return word < bits.length && (bits[word] & (1L << row)) != 0;
+    }
+
+    protected void setNull(int row) {
+        long[] bits = nulls;
+        int word = row >>> 6;
+        if (word >= bits.length) {
+            bits = Arrays.copyOf(bits, Math.max(bits.length * 2, word + 1));
+        }
+        bits[word] |= 1L << row;
+        nulls = bits;
+    }
+
+    protected long nullBitmapBytes() {
+        return 16L + nulls.length * 8L;
+    }
+
+    protected static int grow(int length, int row) {
+        return Math.max(length * 2, row + 1);
+    }
+
+    protected static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    protected static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Примерный размер строки в куче: заголовки объекта и массива плюс символы. */
+    protected static long stringBytes(String value) {
+        return value == null ? 0 : 40L + value.length();
+    }
+
+    /** Примерный размер значения, возвращённого {@link #getValue}, в куче. */
+    static long valueBytes(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof String) {
+            return stringBytes((String) value);
+        }
+        if (value instanceof byte[]) {
+            return 16L + ((byte[]) value).length;
+        }
+        return value instanceof BigDecimal || value instanceof LocalDateTime ? 48 : 24;
+    }
+
+    /** Целые и десятичные с фиксированным масштабом: немасштабированное значение в long[]. */
+    static final class LongColumn extends ResultColumn {
+        private final int scale;
+        private volatile long[] values = new long[INITIAL_CAPACITY];
+
+        LongColumn(String name, int scale) {
+            super(name);
+            this.scale = scale;
+        }
+
+        private long readValue(ResultSet rs, int index) throws SQLException {
+            if (scale == 0) {
+                return rs.getLong(index);
+            }
+            BigDecimal decimal = rs.getBigDecimal(index);
+            return decimal == null ? 0 : decimal.movePointRight(scale).longValue();
+        }
+
+        @Override
+        void read(ResultSet rs, int index, int row) throws SQLException {
+            long value = readValue(rs, index);
+            if (rs.wasNull()) {
+                setNull(row);
+            }
+            long[] array = values;
+            if (row >= array.length) {
+                array = Arrays.copyOf(array, grow(array.length, row));
+            }
+            array[row] = value;
+            values = array;
+        }
+
+        @Override
+        Object getValue(int row) {
+            return isNull(row) ? null : toValue(values[row]);
+        }
+
+        private Object toValue(long value) {
+            return scale == 0 ? (Object) value : BigDecimal.valueOf(value, scale);
+        }
+
+        /** Немасштабированное значение; для NULL — 0. */
+        long getLong(int row) {
+            return values[row];
+        }
+
+        /** Немасштабированное значение из {@link #getValue} или {@link #readSpilled}. */
+        long unscaled(Object value) {
+            return value instanceof BigDecimal ? ((BigDecimal) value).unscaledValue().longValue() : (Long) value;
+        }
+
+        @Override
+        String format(int row) {
+            if (isNull(row)) {
+                return null;
+            }
+            return formatValue(values[row]);
+        }
+
+        private String formatValue(long value) {
+            return scale == 0 ? Long.toString(value) : BigDecimal.valueOf(value, scale).toPlainString();
+        }
+
+        @Override
+        String text(Object value) {
+            if (value == null) {
+                return null;
+            }
+            return value instanceof BigDecimal ? ((BigDecimal) value).toPlainString() : value.toString();
+        }
+
+        @Override
+        void spill(ResultSet rs, int index, DataOutput out) throws SQLException, IOException {
+            long value = readValue(rs, index);
+            boolean isNull = rs.wasNull();
+            out.writeBoolean(isNull);
+            if (!isNull) {
+                out.writeLong(value);
+            }
+        }
+
+        @Override
+        Object readSpilled(ByteBuffer buffer) {
+            return buffer.get() != 0 ? null : toValue(buffer.getLong());
+        }
+
+        @Override
+        long estimateBytes() {
+            return 16L + values.length * 8L + nullBitmapBytes();
+        }
+    }
+
+    static final class DoubleColumn extends ResultColumn {
+        private volatile double[] values = new double[INITIAL_CAPACITY];
+
+        DoubleColumn(String name) {
+            super(name);
+        }
+
+        @Override
+        void read(ResultSet rs, int index, int row) throws SQLException {
+            double value = rs.getDouble(index);
+            if (rs.wasNull()) {
+                setNull(row);
+            }
+            double[] array = values;
+            if (row >= array.length) {
+                array = Arrays.copyOf(array, grow(array.length, row));
+            }
+            array[row] = value;
+            values = array;
+        }
+
+        @Override
+        Object getValue(int row) {
+            return isNull(row) ? null : values[row];
+        }
+
+        /** Значение без упаковки; для NULL — 0. */
+        double getDouble(int row) {
+            return values[row];
+        }
+
+        @Override
+        String format(int row) {
+            return isNull(row) ? null : Double.toString(values[row]);
+        }
+
+        @Override
+        String text(Object value) {
+            return value == null ? null : value.toString();
+        }
+
+        @Override
+        void spill(ResultSet rs, int index, DataOutput out) throws SQLException, IOException {
+            double value = rs.getDouble(index);
+            boolean isNull = rs.wasNull();
+            out.writeBoolean(isNull);
+            if (!isNull) {
+                out.writeDouble(value);
+            }
+        }
+
+        @Override
+        Object readSpilled(ByteBuffer buffer) {
+            return buffer.get() != 0 ? null : buffer.getDouble();
+        }
+
+        @Override
+        long estimateBytes() {
+            return 16L + values.length * 8L + nullBitmapBytes();
+        }
+    }
+
+    /**
+     * Даты и время: секунды эпохи в long[] и наносекунды в int[]. Массив наносекунд создаётся при первом
+     * значении с дробной частью секунды; дробная часть выводится, только если она не нулевая.
+     */
+    static final class TimestampColumn extends ResultColumn {
+        private final int sqlType;
+        private final DateTimeFormatter formatter;
+        private volatile long[] values = new long[INITIAL_CAPACITY];
+        private volatile int[] nanos;
+
+        /** @param sqlType {@code DATE}, {@code TIME} или {@code TIMESTAMP} — определяет тип значения ячейки */
+        TimestampColumn(String name, int sqlType, DateTimeFormatter formatter) {
+            super(name);
+            this.sqlType = sqlType;
+            this.formatter = formatter;
+        }
+
+        @Override
+        void read(ResultSet rs, int index, int row) throws SQLException {
+            Timestamp timestamp = rs.getTimestamp(index);
+            long[] array = values;
+            if (row >= array.length) {
+                array = Arrays.copyOf(array, grow(array.length, row));
+            }
+            if (timestamp == null) {
+                setNull(row);
+            } else {
+                array[row] = Math.floorDiv(timestamp.getTime(), 1000L);
+                storeNanos(row, timestamp.getNanos());
+            }
+            values = array;
+        }
+
+        private void storeNanos(int row, int value) {
+            int[] array = nanos;
+            if (array == null) {
+                if (value == 0) {
+                    return;
+                }
+                array = new int[values.length];
+            }
+            if (row >= array.length) {
+                array = Arrays.copyOf(array, grow(array.length, row));
+            }
+            array[row] = value;
+            nanos = array;
+        }
+
+        private int nanosAt(int row) {
+            int[] array = nanos;
+            return array != null && row < array.length ? array[row] : 0;
+        }
+
+        @Override
+        String format(int row) {
+            if (isNull(row)) {
+                return null;
+            }
+            return text(toValue(values[row], nanosAt(row)));
+        }
+
+        @Override
+        Object getValue(int row) {
+            return isNull(row) ? null : toValue(values[row], nanosAt(row));
+        }
+
+        private Object toValue(long epochSeconds, int nanoOfSecond) {
+            LocalDateTime dateTime = LocalDateTime.ofInstant(Instant.ofEpochSecond(epochSeconds, nanoOfSecond),
+                    ZoneId.systemDefault());
+            switch (sqlType) {
+                case Types.DATE:
+                    return dateTime.toLocalDate();
+                case Types.TIME:
+                    return dateTime.toLocalTime();
+                default:
+                    return dateTime;
+            }
+        }
+
+        @Override
+        String text(Object value) {
+            if (value == null) {
+                return null;
+            }
+            String text = formatter.format((TemporalAccessor) value);
+            int nanoOfSecond = value instanceof LocalDateTime ? ((LocalDateTime) value).getNano()
+                    : value instanceof LocalTime ? ((LocalTime) value).getNano() : 0;
+            return nanoOfSecond == 0 ? text : text + '.' + fractionDigits(nanoOfSecond);
+        }
+
+        /** Цифры дробной части секунды без завершающих нулей: 500000000 → {@code 5}, 123456000 → {@code 123456}. */
+        static String fractionDigits(int nanoOfSecond) {
+            String digits = String.format("%09d", nanoOfSecond);
+            int end = digits.length();
+            while (end > 1 && digits.charAt(end - 1) == '0') {
+                end--;
+            }
+            return digits.substring(0, end);
+        }
+
+        @Override
+        void spill(ResultSet rs, int index, DataOutput out) throws SQLException, IOException {
+            Timestamp timestamp = rs.getTimestamp(index);
+            out.writeBoolean(timestamp == null);
+            if (timestamp != null) {
+                out.writeLong(Math.floorDiv(timestamp.getTime(), 1000L));
+                out.writeInt(timestamp.getNanos());
+            }
+        }
+
+        @Override
+        Object readSpilled(ByteBuffer buffer) {
+            return buffer.get() != 0 ? null : toValue(buffer.getLong(), buffer.getInt());
+        }
+
+        @Override
+        long estimateBytes() {
+            int[] array = nanos;
+            return 16L + values.length * 8L + (array != null ? 16L + array.length * 4L : 0) + nullBitmapBytes();
+        }
+    }
+
+    /**
+     * Строки с небольшим числом различных значений хранятся как коды в словаре.
+     * При превышении размера словаря колонка переходит на обычный массив строк.
+     */
+    static final class DictionaryStringColumn extends ResultColumn {
+        private static final int MAX_DICTIONARY_SIZE = 4096;
+
+        private final Map<String, Integer> codes = new HashMap<>();
+        private volatile String[] dictionary = new String[64];
+        private volatile int[] values = new int[INITIAL_CAPACITY];
+        private volatile String[] plainValues;
+        private long textBytes;
+
+        DictionaryStringColumn(String name) {
+            super(name);
+        }
+
+        @Override
+        void read(ResultSet rs, int index, int row) throws SQLException {
+            String value = rs.getString(index);
+            if (value == null) {
+                setNull(row);
+            }
+            if (plainValues != null) {
+                storePlain(row, value);
+                return;
+            }
+            if (value == null) {
+                storeCode(row, 0);
+                return;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                if (codes.size() >= MAX_DICTIONARY_SIZE) {
+                    switchToPlain(row);
+                    storePlain(row, value);
+                    return;
+                }
+                code = codes.size();
+                String[] dict = dictionary;
+                if (code >= dict.length) {
+                    dict = Arrays.copyOf(dict, dict.length * 2);
+                }
+                dict[code] = value;
+                dictionary = dict;
+                codes.put(value, code);
+                textBytes += stringBytes(value);
+            }
+            storeCode(row, code);
+        }
+
+        private void storeCode(int row, int code) {
+            int[] array = values;
+            if (row >= array.length) {
+                array = Arrays.copyOf(array, grow(array.length, row));
+            }
+            array[row] = code;
+            values = array;
+        }
+
+        private void storePlain(int row, String value) {
+            textBytes += stringBytes(value);
+            String[] array = plainValues;
+            if (row >= array.length) {
+                array = Arrays.copyOf(array, grow(array.length, row));
+            }
+            array[row] = value;
+            plainValues = array;
+        }
+
+        private void switchToPlain(int rowCount) {
+            int[] array = values;
+            String[] dict = dictionary;
+            String[] plain = new String[Math.max(values.length, rowCount + 1)];
+            long bytes = 0;
+            for (int row = 0; row < rowCount; row++) {
+                plain[row] = isNull(row) ? null : dict[array[row]];
+                bytes += stringBytes(plain[row]);
+            }
+            codes.clear();
+            textBytes = bytes;
+            plainValues = plain;
+        }
+
+        @Override
+        Object getValue(int row) {
+            return format(row);
+        }
+
+        @Override
+        String format(int row) {
+            if (isNull(row)) {
+                return null;
+            }
+            String[] plain = plainValues;
+            return plain != null ? plain[row] : dictionary[values[row]];
+        }
+
+        @Override
+        String text(Object value) {
+            return (String) value;
+        }
+
+        @Override
+        void spill(ResultSet rs, int index, DataOutput out) throws SQLException, IOException {
+            writeString(out, rs.getString(index));
+        }
+
+        @Override
+        Object readSpilled(ByteBuffer buffer) {
+            return readString(buffer);
+        }
+
+        @Override
+        long estimateBytes() {
+            String[] plain = plainValues;
+            if (plain != null) {
+                return 16L + plain.length * 4L + textBytes + nullBitmapBytes();
+            }
+            return 16L + values.length * 4L + 16L + dictionary.length * 4L + textBytes
+                    + codes.size() * 48L + nullBitmapBytes();
+        }
+    }
+
+    /** Текст и всё, для чего нет специализированного представления. */
+    static final class StringColumn extends ResultColumn {
+        private volatile String[] values = new String[INITIAL_CAPACITY];
+        private long textBytes;
+
+        StringColumn(String name) {
+            super(name);
+        }
+
+        @Override
+        void read(ResultSet rs, int index, int row) throws SQLException {
+            String value = rs.getString(index);
+            if (value == null) {
+                setNull(row);
+            }
+            String[] array = values;
+            if (row >= array.length) {
+                array = Arrays.copyOf(array, grow(array.length, row));
+            }
+            array[row] = value;
+            values = array;
+            textBytes += stringBytes(value);
+        }
+
+        @Override
+        Object getValue(int row) {
+            return values[row];
+        }
+
+        @Override
+        String format(int row) {
+            return values[row];
+        }
+
+        @Override
+        String text(Object value) {
+            return (String) value;
+        }
+
+        @Override
+        void spill(ResultSet rs, int index, DataOutput out) throws SQLException, IOException {
+            writeString(out, rs.getString(index));
+        }
+
+        @Override
+        Object readSpilled(ByteBuffer buffer) {
+            return readString(buffer);
+        }
+
+        @Override
+        long estimateBytes() {
+            return 16L + values.length * 4L + textBytes + nullBitmapBytes();
+        }
+    }
+
+    /**
+     * Десятичные без фиксированной точности (Oracle NUMBER, NUMERIC с точностью больше 18):
+     * немасштабированное значение в long[] и масштаб каждого значения в byte[]. Значения, которые
+     * так не представить, хранятся целиком в отдельном массиве.
+     */
+    static final class DecimalColumn extends ResultColumn {
+        private static final byte BIG = Byte.MIN_VALUE; // значение в bigValues
+
+        private volatile long[] unscaled = new long[INITIAL_CAPACITY];
+        private volatile byte[] scales = new byte[INITIAL_CAPACITY];
+        private volatile BigDecimal[] bigValues;
+        private long bigBytes;
+
+        DecimalColumn(String name) {
+            super(name);
+        }
+
+        @Override
+        void read(ResultSet rs, int index, int row) throws SQLException {
+            BigDecimal value = rs.getBigDecimal(index);
+            long[] longs = unscaled;
+            byte[] rowScales = scales;
+            if (row >= longs.length) {
+                longs = Arrays.copyOf(longs, grow(longs.length, row));
+                rowScales = Arrays.copyOf(rowScales, longs.length);
+            }
+            if (value == null) {
+                setNull(row);
+            } else if (isCompact(value)) {
+                longs[row] = value.unscaledValue().longValue();
+                rowScales[row] = (byte) value.scale();
+            } else {
+                rowScales[row] = BIG;
+                storeBig(row, value);
+            }
+            unscaled = longs;
+            scales = rowScales;
+        }
+
+        private static boolean isCompact(BigDecimal value) {
+            return value.unscaledValue().bitLength() < 64 && value.scale() > BIG && value.scale() <= Byte.MAX_VALUE;
+        }
+
+        private void storeBig(int row, BigDecimal value) {
+            BigDecimal[] array = bigValues;
+            if (array == null) {
+                array = new BigDecimal[Math.max(INITIAL_CAPACITY, row + 1)];
+            } else if (row >= array.length) {
+                array = Arrays.copyOf(array, grow(array.length, row));
+            }
+            array[row] = value;
+            bigValues = array;
+            bigBytes += 48L + value.precision() / 2;
+        }
+
+        @Override
+        Object getValue(int row) {
+            if (isNull(row)) {
+                return null;
+            }
+            byte scale = scales[row];
+            return scale == BIG ? bigValues[row] : BigDecimal.valueOf(unscaled[row], scale);
+        }
+
+        @Override
+        String format(int row) {
+            return text(getValue(row));
+        }
+
+        @Override
+        String text(Object value) {
+            return value == null ? null : ((BigDecimal) value).toPlainString();
+        }
+
+        @Override
+        void spill(ResultSet rs, int index, DataOutput out) throws SQLException, IOException {
+            BigDecimal value = rs.getBigDecimal(index);
+            if (value == null) {
+                out.writeByte(0);
+            } else if (isCompact(value)) {
+                out.writeByte(1);
+                out.writeLong(value.unscaledValue().longValue());
+                out.writeByte(value.scale());
+            } else {
+                out.writeByte(2);
+                writeString(out, value.toString());
+            }
+        }
+
+        @Override
+        Object readSpilled(ByteBuffer buffer) {
+            switch (buffer.get()) {
+                case 0:
+                    return null;
+                case 1:
+                    long value = buffer.getLong();
+                    return BigDecimal.valueOf(value, buffer.get());
+                default:
+                    return new BigDecimal(readString(buffer));
+            }
+        }
+
+        @Override
+        long estimateBytes() {
+            BigDecimal[] big = bigValues;
+            return 16L + unscaled.length * 9L + (big != null ? 16L + big.length * 4L + bigBytes : 0) + nullBitmapBytes();
+        }
+    }
+
+    /** Двоичные значения (RAW, BYTEA, VARBINARY); в таблице показываются в шестнадцатеричном виде. */
+    static final class BytesColumn extends ResultColumn {
+        private static final int MAX_TEXT_BYTES = 64;
+        private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+        private volatile byte[][] values = new byte[INITIAL_CAPACITY][];
+        private long dataBytes;
+
+        BytesColumn(String name) {
+            super(name);
+        }
+
+        @Override
+        void read(ResultSet rs, int index, int row) throws SQLException {
+            byte[] value = rs.getBytes(index);
+            if (value == null) {
+                setNull(row);
+            } else {
+                dataBytes += 16L + value.length;
+            }
+            byte[][] array = values;
+            if (row >= array.length) {
+                array = Arrays.copyOf(array, grow(array.length, row));
+            }
+            array[row] = value;
+            values = array;
+        }
+
+        @Override
+        Object getValue(int row) {
+            return values[row];
+        }
+
+        @Override
+        String format(int row) {
+            return text(values[row]);
+        }
+
+        @Override
+        String text(Object value) {
+            return value == null ? null : toHex((byte[]) value);
+        }
+
+        /** Первые {@value #MAX_TEXT_BYTES} байт в шестнадцатеричном виде, дальше — только длина. */
+        static String toHex(byte[] bytes) {
+            int shown = Math.min(bytes.length, MAX_TEXT_BYTES);
+            StringBuilder text = new StringBuilder(shown * 2 + 16);
+            for (int i = 0; i < shown; i++) {
+                text.append(HEX[(bytes[i] >> 4) & 0xF]).append(HEX[bytes[i] & 0xF]);
+            }
+            if (shown < bytes.length) {
+                text.append("… (").append(bytes.length).append(" байт)");
+            }
+            return text.toString();
+        }
+
+        @Override
+        void spill(ResultSet rs, int index, DataOutput out) throws SQLException, IOException {
+            byte[] value = rs.getBytes(index);
+            if (value == null) {
+                out.writeInt(-1);
+                return;
+            }
+            out.writeInt(value.length);
+            out.write(value);
+        }
+
+        @Override
+        Object readSpilled(ByteBuffer buffer) {
+            int length = buffer.getInt();
+            if (length < 0) {
+                return null;
+            }
+            byte[] value = new byte[length];
+            buffer.get(value);
+            return value;
+        }
+
+        @Override
+        long estimateBytes() {
+            return 16L + values.length * 4L + dataBytes + nullBitmapBytes();
+        }
+    }
+}
@@ -0,0 +1,461 @@
+package com.example.dbclient;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+
+/**
+ * Сравнение результата сохранённого запроса с его предыдущим выполнением.
+ * <p>
+ * Каждая строка нового результата сводится к паре 64-битных хешей: ключа (выбранных колонок или всей строки)
+ * и всей строки. Пары копятся порциями до {@link #RUN_RECORDS}, каждая порция сортируется и пишется
+ * во временный файл; в конце порции сливаются и сопоставляются со снимком прошлого выполнения —
+ * отсортированным файлом тех же пар. Поэтому память ограничена размером порции при любом числе строк.
+ * Новый снимок заменяет прежний только после полного сравнения.
+ * <p>
+ * Строка считается добавленной, если её ключа не было, изменённой — если ключ был, а хеш строки другой.
+ * Без ключевых колонок ключ — вся строка, и изменения видны как пара «удалена + добавлена».
+ * Содержимое удалённых строк не хранится, о них известно только число.
+ */
+public class ResultDiff implements AutoCloseable {
+    private static final int MAGIC = 0x44494646; // "DIFF"
+    private static final int VERSION = 1;
+    private static final int RUN_RECORDS = 1 << 20;
+    private static final int IO_BUFFER = 1 << 16;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long NULL_MARK = 0x9e3779b97f4a7c15L;
+
+    private final Path snapshot;
+    private final Path workDir;
+    private final int columnCount;
+    private final int[] keyColumns;
+    private final String signature;
+    private final List<Path> runs = new ArrayList<>();
+
+    private long[] keyHashes = new long[1024];
+    private long[] rowHashes = new long[1024];
+    private int[] rows = new int[1024];
+    private int buffered;
+    private long totalRows;
+
+    /**
+     * @param snapshot   файл снимка этого запроса: читается как предыдущее выполнение и заменяется новым
+     * @param workDir    каталог временных файлов сортировки
+     * @param keyColumns имена ключевых колонок без учёта регистра; пустой список — ключ вся строка
+     * @throws IllegalArgumentException если ключевой колонки нет в результате
+     */
+    public ResultDiff(Path snapshot, Path workDir, ResultStore store, List<String> keyColumns) {
+        this.snapshot = snapshot;
+        this.workDir = workDir;
+        this.columnCount = store.getColumnCount();
+        this.keyColumns = new int[keyColumns.size()];
+        StringBuilder signature = new StringBuilder();
+        for (int c = 0; c < columnCount; c++) {
+            signature.append(store.getColumnName(c).toUpperCase(Locale.ROOT)).append(',');
+        }
+        signature.append("key:");
+        for (int k = 0; k < keyColumns.size(); k++) {
+            String name = keyColumns.get(k).trim();
+            int found = -1;
+            for (int c = 0; c < columnCount && found < 0; c++) {
+                if (store.getColumnName(c).equalsIgnoreCase(name)) {
+                    found = c;
+                }
+            }
+            if (found < 0) {
+                throw new IllegalArgumentException("В результате нет ключевой колонки " + name);
+            }
+            this.keyColumns[k] = found;
+            signature.append(found).append(',');
+        }
+        this.signature = signature.toString();
+    }
+
+    /** Добавляет строки {@code [from, to)} хранилища; вызывается из потока выборки по мере получения строк. */
+    public void addRows(ResultStore store, int from, int to) throws IOException {
+        for (int row = from; row < to; row++) {
+            long rowHash = FNV_OFFSET;
+            for (int c = 0; c < columnCount; c++) {
+                rowHash = hash(rowHash, store.getText(row, c));
+            }
+            long keyHash = rowHash;
+            if (keyColumns.length > 0) {
+                keyHash = FNV_OFFSET;
+                for (int c : keyColumns) {
+                    keyHash = hash(keyHash, store.getText(row, c));
+                }
+            }
+            if (buffered == keyHashes.length) {
+                if (buffered >= RUN_RECORDS) {
+                    writeRun();
+                } else {
+                    int capacity = Math.min(RUN_RECORDS, buffered * 2);
+                    keyHashes = Arrays.copyOf(keyHashes, capacity);
+                    rowHashes = Arrays.copyOf(rowHashes, capacity);
+                    rows = Arrays.copyOf(rows, capacity);
+                }
+            }
+            keyHashes[buffered] = keyHash;
+            rowHashes[buffered] = rowHash;
+            rows[buffered] = row;
+            buffered++;
+            totalRows++;
+        }
+    }
+
+    /** FNV-1a по длине и символам значения: разные разбиения строки на колонки дают разные хеши. */
+    private static long hash(long h, String value) {
+        if (value == null) {
+            return (h ^ NULL_MARK) * FNV_PRIME;
+        }
+        h = (h ^ value.length()) * FNV_PRIME;
+        for (int i = 0; i < value.length(); i++) {
+            h = (h ^ value.charAt(i)) * FNV_PRIME;
+        }
+        return h;
+    }
+
+    private void writeRun() throws IOException {
+        int[] order = new int[buffered];
+        for (int i = 0; i < buffered; i++) {
+            order[i] = i;
+        }
+        long[] keys = keyHashes;
+        long[] values = rowHashes;
+        ResultView.sort(order, (a, b) -> {
+            int c = Long.compare(keys[a], keys[b]);
+            return c != 0 ? c : Long.compare(values[a], values[b]);
+        }, () -> false);
+
+        Files.createDirectories(workDir);
+        // префикс файлов подкачки: оставшиеся после сбоя порции удалит очистка при запуске
+        Path run = Files.createTempFile(workDir, "result-diff-", ".run");
+        runs.add(run);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), IO_BUFFER))) {
+            for (int i : order) {
+                out.writeLong(keyHashes[i]);
+                out.writeLong(rowHashes[i]);
+                out.writeInt(rows[i]);
+            }
+        }
+        buffered = 0;
+    }
+
+    /**
+     * Сравнивает с предыдущим снимком и сохраняет новый. Вызывается, только если результат получен полностью.
+     */
+    public Result finish() throws IOException {
+        if (buffered > 0 || runs.isEmpty()) {
+            writeRun();
+        }
+        Files.createDirectories(snapshot.toAbsolutePath().getParent());
+        Path next = Files.createTempFile(snapshot.toAbsolutePath().getParent(), "snapshot-", ".tmp");
+        Result result = new Result();
+        try (RunMerger current = new RunMerger(runs);
+             SnapshotReader previous = SnapshotReader.open(snapshot, signature);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(next), IO_BUFFER))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(signature);
+            out.writeLong(System.currentTimeMillis());
+            out.writeLong(totalRows);
+            if (previous != null) {
+                result.hasPrevious = true;
+                result.previousRunMillis = previous.createdMillis;
+                result.previousRows = previous.rowCount;
+            } else {
+                result.incompatible = Files.exists(snapshot);
+            }
+            compare(current, previous, out, result);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(next);
+            throw e;
+        }
+        Files.move(next, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return result;
+    }
+
+    /** Слияние по ключу: внутри ключа строки с одинаковым хешем не изменились, остальные — изменены, добавлены или удалены. */
+    private static void compare(RunMerger current, SnapshotReader previous, DataOutputStream out, Result result)
+            throws IOException {
+        IntList unmatched = new IntList();
+        while (current.hasNext() || (previous != null && previous.hasNext())) {
+            long key;
+            if (!current.hasNext()) {
+                key = previous.keyHash;
+            } else if (previous == null || !previous.hasNext()) {
+                key = current.keyHash;
+            } else {
+                key = Math.min(current.keyHash, previous.keyHash);
+            }
+            unmatched.clear();
+            long unmatchedOld = 0;
+            while (true) {
+                boolean hasNew = current.hasNext() && current.keyHash == key;
+                boolean hasOld = previous != null && previous.hasNext() && previous.keyHash == key;
+                if (!hasNew && !hasOld) {
+                    break;
+                }
+                if (hasNew && hasOld && current.rowHash == previous.rowHash) {
+                    result.unchanged++;
+                    writePair(out, current);
+                    current.next();
+                    previous.next();
+                } else if (hasNew && (!hasOld || current.rowHash < previous.rowHash)) {
+                    unmatched.add(current.row);
+                    writePair(out, current);
+                    current.next();
+                } else {
+                    unmatchedOld++;
+                    previous.next();
+                }
+            }
+            int changed = (int) Math.min(unmatched.size, unmatchedOld);
+            for (int i = 0; i < unmatched.size; i++) {
+                if (i < changed) {
+                    result.changed.set(unmatched.values[i]);
+                } else {
+                    result.added.set(unmatched.values[i]);
+                }
+            }
+            result.removed += unmatchedOld - changed;
+        }
+    }
+
+    private static void writePair(DataOutputStream out, RunMerger current) throws IOException {
+        out.writeLong(current.keyHash);
+        out.writeLong(current.rowHash);
+    }
+
+    /** Удаляет временные файлы сортировки; снимок остаётся. */
+    @Override
+    public void close() {
+        for (Path run : runs) {
+            try {
+                Files.deleteIfExists(run);
+            } catch (IOException ignored) {
+                // останется во временном каталоге до очистки при запуске
+            }
+        }
+        runs.clear();
+    }
+
+    /** Итог сравнения. Номера строк — строки хранилища нового результата. */
+    public static final class Result {
+        private final BitSet added = new BitSet();
+        private final BitSet changed = new BitSet();
+        private long unchanged;
+        private long removed;
+        private boolean hasPrevious;
+        private boolean incompatible;
+        private long previousRunMillis;
+        private long previousRows;
+
+        public boolean isAdded(int row) {
+            return added.get(row);
+        }
+
+        public boolean isChanged(int row) {
+            return changed.get(row);
+        }
+
+        /** Добавленные и изменённые строки. */
+        public BitSet getDiffRows() {
+            BitSet rows = (BitSet) added.clone();
+            rows.or(changed);
+            return rows;
+        }
+
+        public long getAddedCount() {
+            return added.cardinality();
+        }
+
+        public long getChangedCount() {
+            return changed.cardinality();
+        }
+
+        public long getRemovedCount() {
+            return removed;
+        }
+
+        public long getUnchangedCount() {
+            return unchanged;
+        }
+
+        /** Был ли совместимый снимок предыдущего выполнения. */
+        public boolean hasPrevious() {
+            return hasPrevious;
+        }
+
+        @Override
+        public String toString() {
+            if (!hasPrevious) {
+                return incompatible
+                        ? "колонки или ключ изменились — сохранён новый снимок для следующего сравнения"
+                        : "первое выполнение — сохранён снимок для следующего сравнения";
+            }
+            String when = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm:ss")
+                    .format(LocalDateTime.ofInstant(Instant.ofEpochMilli(previousRunMillis), ZoneId.systemDefault()));
+            return "добавлено " + getAddedCount() + ", изменено " + getChangedCount() + ", удалено " + removed
+                    + ", без изменений " + unchanged + " (предыдущее выполнение " + when + ", строк " + previousRows + ")";
+        }
+    }
+
+    /** k-путевое слияние отсортированных порций. */
+    private static final class RunMerger implements AutoCloseable {
+        private final PriorityQueue<RunReader> queue = new PriorityQueue<>((a, b) -> {
+            int c = Long.compare(a.keyHash, b.keyHash);
+            return c != 0 ? c : Long.compare(a.rowHash, b.rowHash);
+        });
+        private final List<RunReader> readers = new ArrayList<>();
+        long keyHash;
+        long rowHash;
+        int row;
+        private boolean hasNext;
+
+        RunMerger(List<Path> runs) throws IOException {
+            for (Path run : runs) {
+                RunReader reader = new RunReader(run);
+                readers.add(reader);
+                if (reader.next()) {
+                    queue.add(reader);
+                }
+            }
+            next();
+        }
+
+        boolean hasNext() {
+            return hasNext;
+        }
+
+        void next() throws IOException {
+            RunReader top = queue.poll();
+            hasNext = top != null;
+            if (top == null) {
+                return;
+            }
+            keyHash = top.keyHash;
+            rowHash = top.rowHash;
+            row = top.row;
+            if (top.next()) {
+                queue.add(top);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (RunReader reader : readers) {
+                reader.in.close();
+            }
+        }
+    }
+
+    private static final class RunReader {
+        final DataInputStream in;
+        long keyHash;
+        long rowHash;
+        int row;
+
+        RunReader(Path run) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), IO_BUFFER));
+        }
+
+        boolean next() throws IOException {
+            try {
+                keyHash = in.readLong();
+            } catch (EOFException e) {
+                return false;
+            }
+            rowHash = in.readLong();
+            row = in.readInt();
+            return true;
+        }
+    }
+
+    /** Снимок предыдущего выполнения: заголовок и отсортированные пары хешей. */
+    private static final class SnapshotReader implements AutoCloseable {
+        private final DataInputStream in;
+        final long createdMillis;
+        final long rowCount;
+        long keyHash;
+        long rowHash;
+        private boolean hasNext;
+
+        private SnapshotReader(DataInputStream in, long createdMillis, long rowCount) throws IOException {
+            this.in = in;
+            this.createdMillis = createdMillis;
+            this.rowCount = rowCount;
+            next();
+        }
+
+        /** @return {@code null}, если снимка нет или он снят с другими колонками или ключом */
+        static SnapshotReader open(Path snapshot, String signature) throws IOException {
+            if (!Files.exists(snapshot)) {
+                return null;
+            }
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot), IO_BUFFER));
+            try {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION || !in.readUTF().equals(signature)) {
+                    in.close();
+                    return null;
+                }
+                return new SnapshotReader(in, in.readLong(), in.readLong());
+            } catch (IOException e) {
+                in.close();
+                return null; // повреждённый снимок — как первое выполнение
+            }
+        }
+
+        boolean hasNext() {
+            return hasNext;
+        }
+
+        void next() throws IOException {
+            try {
+                keyHash = in.readLong();
+                rowHash = in.readLong();
+                hasNext = true;
+            } catch (EOFException e) {
+                hasNext = false;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private static final class IntList {
+        int[] values = new int[16];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+}
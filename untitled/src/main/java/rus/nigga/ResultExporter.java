@@ -0,0 +1,411 @@
+package com.example.dbclient;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Выгрузка результата запроса в файл прямо из ResultSet, строка за строкой.
+ * <p>
+ * В памяти держится только буфер записи (для колоночного формата — одна пачка из {@link #BATCH_ROWS} строк),
+ * поэтому объём кучи не зависит от числа строк. Файл пишется во временный {@code .part}
+ * и переименовывается по завершении, так что прерванная выгрузка не оставляет неполного файла.
+ */
+public class ResultExporter {
+    static final int BATCH_ROWS = 8192;
+    private static final int BUFFER_BYTES = 1 << 16;
+    private static final long PROGRESS_INTERVAL_NANOS = 1_000_000_000L;
+    private static final byte[] COLUMNAR_MAGIC = "DBCOL1".getBytes(StandardCharsets.US_ASCII);
+    private static final byte KIND_LONG = 0;
+    private static final byte KIND_DOUBLE = 1;
+    private static final byte KIND_TIMESTAMP = 2;
+    private static final byte KIND_STRING = 3;
+
+    public enum Format {
+        CSV("CSV (разделитель ;)", "*.csv"),
+        JSON_LINES("JSON Lines", "*.jsonl"),
+        COLUMNAR("Колоночный двоичный, gzip", "*.dbcol.gz");
+
+        private final String description;
+        private final String extension;
+
+        Format(String description, String extension) {
+            this.description = description;
+            this.extension = extension;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    /** Получает ход выгрузки не чаще раза в секунду и по её завершении. */
+    public interface Progress {
+        void report(long rows, long bytes, long rowsPerSecond);
+    }
+
+    private final Format format;
+    private final Path target;
+    private final Progress progress;
+
+    private CountingOutputStream counter;
+    private long rows;
+    private long startNanos;
+    private long lastReportNanos;
+
+    public ResultExporter(Format format, Path target, Progress progress) {
+        this.format = format;
+        this.target = target;
+        this.progress = progress;
+    }
+
+    /**
+     * Выгружает все строки ResultSet.
+     *
+     * @param cancelled проверяется после каждой строки; при отмене файл не создаётся
+     * @return число выгруженных строк
+     */
+    public long export(ResultSet rs, BooleanSupplier cancelled) throws SQLException, IOException {
+        Path part = target.resolveSibling(target.getFileName() + ".part");
+        startNanos = System.nanoTime();
+        lastReportNanos = startNanos;
+        rows = 0;
+        boolean completed = false;
+        try {
+            try (OutputStream out = Files.newOutputStream(part)) {
+                counter = new CountingOutputStream(out);
+                switch (format) {
+                    case CSV:
+                        writeCsv(rs, cancelled);
+                        break;
+                    case JSON_LINES:
+                        writeJsonLines(rs, cancelled);
+                        break;
+                    default:
+                        writeColumnar(rs, cancelled);
+                }
+            }
+            if (!cancelled.getAsBoolean()) {
+                Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                completed = true;
+            }
+        } finally {
+            if (!completed) {
+                Files.deleteIfExists(part);
+            }
+        }
+        report();
+        return rows;
+    }
+
+    public long getBytesWritten() {
+        return counter != null ? counter.getCount() : 0;
+    }
+
+    private void writeCsv(ResultSet rs, BooleanSupplier cancelled) throws SQLException, IOException {
+        ResultSetMetaData meta = rs.getMetaData();
+        int columnCount = meta.getColumnCount();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(counter, StandardCharsets.UTF_8), BUFFER_BYTES);
+        // BOM — чтобы Excel открыл кириллицу в UTF-8 без мастера импорта
+        writer.write('\uFEFF');
+        for (int i = 1; i <= columnCount; i++) {
+            writeCsvValue(writer, meta.getColumnLabel(i), i);
+        }
+        writer.write("\r\n");
+        while (!cancelled.getAsBoolean() && rs.next()) {
+            for (int i = 1; i <= columnCount; i++) {
+                writeCsvValue(writer, rs.getString(i), i);
+            }
+            writer.write("\r\n");
+            rowWritten();
+        }
+        writer.flush();
+    }
+
+    private static void writeCsvValue(Writer writer, String value, int column) throws IOException {
+        if (column > 1) {
+            writer.write(';');
+        }
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ';' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private void writeJsonLines(ResultSet rs, BooleanSupplier cancelled) throws SQLException, IOException {
+        ResultSetMetaData meta = rs.getMetaData();
+        int columnCount = meta.getColumnCount();
+        String[] names = new String[columnCount];
+        int[] types = new int[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            names[i] = meta.getColumnLabel(i + 1);
+            types[i] = meta.getColumnType(i + 1);
+        }
+
+        JsonGenerator json = new JsonFactory().createGenerator(
+                new BufferedWriter(new OutputStreamWriter(counter, StandardCharsets.UTF_8), BUFFER_BYTES));
+        json.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+        while (!cancelled.getAsBoolean() && rs.next()) {
+            json.writeStartObject();
+            for (int i = 0; i < columnCount; i++) {
+                json.writeFieldName(names[i]);
+                writeJsonValue(json, rs, i + 1, types[i]);
+            }
+            json.writeEndObject();
+            rowWritten();
+        }
+        json.writeRaw('\n');
+        json.flush();
+    }
+
+    private static void writeJsonValue(JsonGenerator json, ResultSet rs, int index, int type)
+            throws SQLException, IOException {
+        switch (type) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT: {
+                long value = rs.getLong(index);
+                if (rs.wasNull()) {
+                    json.writeNull();
+                } else {
+                    json.writeNumber(value);
+                }
+                return;
+            }
+            case Types.NUMERIC:
+            case Types.DECIMAL: {
+                BigDecimal value = rs.getBigDecimal(index);
+                if (value == null) {
+                    json.writeNull();
+                } else {
+                    json.writeNumber(value);
+                }
+                return;
+            }
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE: {
+                double value = rs.getDouble(index);
+                if (rs.wasNull() || Double.isNaN(value) || Double.isInfinite(value)) {
+                    json.writeNull();
+                } else {
+                    json.writeNumber(value);
+                }
+                return;
+            }
+            case Types.BIT:
+            case Types.BOOLEAN: {
+                boolean value = rs.getBoolean(index);
+                if (rs.wasNull()) {
+                    json.writeNull();
+                } else {
+                    json.writeBoolean(value);
+                }
+                return;
+            }
+            default: {
+                String value = rs.getString(index);
+                if (value == null) {
+                    json.writeNull();
+                } else {
+                    json.writeString(value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Колоночный формат: после gzip-распаковки — заголовок
+     * ({@code DBCOL1}, число колонок, для каждой имя и код типа) и пачки строк.
+     * Пачка: число строк, затем для каждой колонки длина блока и блок —
+     * битовая карта NULL и значения, не равные NULL, подряд. Коды типов:
+     * 0 — long, 1 — double, 2 — дата/время (мс от эпохи), 3 — строка UTF-8 (длина + байты);
+     * пачка с нулём строк завершает файл.
+     */
+    private void writeColumnar(ResultSet rs, BooleanSupplier cancelled) throws SQLException, IOException {
+        ResultSetMetaData meta = rs.getMetaData();
+        int columnCount = meta.getColumnCount();
+        byte[] kinds = new byte[columnCount];
+
+        GZIPOutputStream gzip = new GZIPOutputStream(counter, BUFFER_BYTES);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(gzip, BUFFER_BYTES));
+        out.write(COLUMNAR_MAGIC);
+        out.writeInt(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            kinds[i] = columnarKind(meta.getColumnType(i + 1), meta.getPrecision(i + 1), meta.getScale(i + 1));
+            out.writeUTF(meta.getColumnLabel(i + 1));
+            out.writeByte(kinds[i]);
+        }
+
+        ColumnChunk[] chunks = new ColumnChunk[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            chunks[i] = new ColumnChunk();
+        }
+        int batchRows = 0;
+        while (!cancelled.getAsBoolean() && rs.next()) {
+            for (int i = 0; i < columnCount; i++) {
+                chunks[i].append(rs, i + 1, kinds[i], batchRows);
+            }
+            batchRows++;
+            rowWritten();
+            if (batchRows == BATCH_ROWS) {
+                writeBatch(out, chunks, batchRows);
+                batchRows = 0;
+            }
+        }
+        if (batchRows > 0) {
+            writeBatch(out, chunks, batchRows);
+        }
+        out.writeInt(0);
+        out.flush();
+        gzip.finish();
+    }
+
+    private static byte columnarKind(int sqlType, int precision, int scale) {
+        switch (sqlType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                return KIND_LONG;
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                // NUMBER с дробной частью, без точности или шире long — текстом, чтобы не потерять знаки
+                return precision > 0 && precision <= 18 && scale == 0 ? KIND_LONG : KIND_STRING;
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return KIND_DOUBLE;
+            case Types.DATE:
+            case Types.TIME:
+            case Types.TIMESTAMP:
+            case Types.TIMESTAMP_WITH_TIMEZONE:
+                return KIND_TIMESTAMP;
+            default:
+                return KIND_STRING;
+        }
+    }
+
+    private static void writeBatch(DataOutputStream out, ColumnChunk[] chunks, int batchRows) throws IOException {
+        out.writeInt(batchRows);
+        for (ColumnChunk chunk : chunks) {
+            int bitmapBytes = (batchRows + 7) / 8;
+            out.writeInt(bitmapBytes + chunk.values.size());
+            out.write(chunk.nulls, 0, bitmapBytes);
+            chunk.values.writeTo(out);
+            chunk.reset(bitmapBytes);
+        }
+    }
+
+    private void rowWritten() {
+        rows++;
+        if ((rows & 1023) == 0) {
+            long now = System.nanoTime();
+            if (now - lastReportNanos >= PROGRESS_INTERVAL_NANOS) {
+                lastReportNanos = now;
+                report();
+            }
+        }
+    }
+
+    private void report() {
+        double seconds = Math.max((System.nanoTime() - startNanos) / 1_000_000_000.0, 0.001);
+        progress.report(rows, getBytesWritten(), Math.round(rows / seconds));
+    }
+
+    /** Значения одной колонки текущей пачки. */
+    private static final class ColumnChunk {
+        final byte[] nulls = new byte[(BATCH_ROWS + 7) / 8];
+        final ByteArrayOutputStream values = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(values);
+
+        void append(ResultSet rs, int index, byte kind, int row) throws SQLException, IOException {
+            switch (kind) {
+                case KIND_LONG: {
+                    long value = rs.getLong(index);
+                    if (rs.wasNull()) {
+                        markNull(row);
+                    } else {
+                        out.writeLong(value);
+                    }
+                    return;
+                }
+                case KIND_DOUBLE: {
+                    double value = rs.getDouble(index);
+                    if (rs.wasNull()) {
+                        markNull(row);
+                    } else {
+                        out.writeDouble(value);
+                    }
+                    return;
+                }
+                case KIND_TIMESTAMP: {
+                    Timestamp value = rs.getTimestamp(index);
+                    if (value == null) {
+                        markNull(row);
+                    } else {
+                        out.writeLong(value.getTime());
+                    }
+                    return;
+                }
+                default: {
+                    String value = rs.getString(index);
+                    if (value == null) {
+                        markNull(row);
+                    } else {
+                        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                        out.writeInt(bytes.length);
+                        out.write(bytes);
+                    }
+                }
+            }
+        }
+
+        private void markNull(int row) {
+            nulls[row >>> 3] |= (byte) (1 << (row & 7));
+        }
+
+        void reset(int bitmapBytes) {
+            Arrays.fill(nulls, 0, bitmapBytes, (byte) 0);
+            values.reset();
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package com.example.dbclient;
+
+import javafx.animation.Animation;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.geometry.Pos;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableCell;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableRow;
+import javafx.scene.control.TableView;
+import javafx.scene.control.TextField;
+import javafx.scene.layout.HBox;
+import javafx.util.Duration;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Таблица результата, рассчитанная на большое число строк и колонок.
+ * <ul>
+ *     <li>элементы таблицы — виртуальный список номеров строк, без копии данных;</li>
+ *     <li>ячейки читают значение прямо из хранилища по индексу, без свойств на каждую отрисовку,
+ *     и форматируют его по региональным настройкам только для видимых строк;</li>
+ *     <li>номер строки берётся из индекса ячейки, а не поиском по списку;</li>
+ *     <li>у широких результатов колонки создаются только для текущего окна;</li>
+ *     <li>сортировка по заголовкам и отбор по тексту вычисляются в фоне ({@link ResultView})
+ *     и применяются к таблице одной заменой списка; новый щелчок по заголовку прерывает прежнее вычисление;</li>
+ *     <li>строки, добавленные и изменённые с прошлого выполнения ({@link ResultDiff}), подсвечиваются,
+ *     их можно показать отдельно.</li>
+ * </ul>
+ */
+public class ResultGrid {
+    private static final int COLUMN_WINDOW = 50;
+    private static final double COLUMN_WIDTH = 150;
+    private static final double CELL_SIZE = 30;
+    private static final Duration FILTER_DELAY = Duration.millis(300);
+    /** Наименьший промежуток между пересортировками по мере получения строк. */
+    private static final Duration MIN_RESORT_INTERVAL = Duration.seconds(1);
+    private static final String ADDED_STYLE = "-fx-background-color: rgba(76, 175, 80, 0.3);";
+    private static final String CHANGED_STYLE = "-fx-background-color: rgba(255, 193, 7, 0.35);";
+    private static final ExecutorService VIEW_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "result-view");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final TableView<Integer> table = new TableView<>();
+    private final Label columnWindowLabel = new Label();
+    private final Button previousColumnsButton = new Button("◀");
+    private final Button nextColumnsButton = new Button("▶");
+    private final HBox columnNavigator = new HBox(5, previousColumnsButton, columnWindowLabel, nextColumnsButton);
+    private final CellFormatter formatter = new CellFormatter();
+    private final TextField filterField = new TextField();
+    private final Label viewStatusLabel = new Label();
+    private final CheckBox diffOnlyBox = new CheckBox("Только изменения");
+    private final HBox viewControls = new HBox(5, filterField, diffOnlyBox, viewStatusLabel);
+
+    private ResultStore store;
+    private ResultRowList rows = new ResultRowList();
+    private int columnWindowStart;
+    private List<ResultView.SortKey> sortKeys = List.of();
+    private String filterText = "";
+    private ResultDiff.Result diff;
+    private boolean rebuildingColumns;
+    /** Номер последнего запрошенного представления; вычисления с другим номером устарели. */
+    private volatile int viewGeneration;
+    private final PauseTransition resortDelay = new PauseTransition();
+    private boolean viewRunning;
+    private long lastViewMillis;
+
+    public ResultGrid() {
+        table.setItems(rows);
+        // Фиксированная высота строк включает в TableView отрисовку только видимых по горизонтали ячеек
+        table.setFixedCellSize(CELL_SIZE);
+        table.setStyle("-fx-fixed-cell-size: " + (int) CELL_SIZE + "px;");
+
+        previousColumnsButton.setOnAction(e -> showColumnWindow(columnWindowStart - COLUMN_WINDOW));
+        nextColumnsButton.setOnAction(e -> showColumnWindow(columnWindowStart + COLUMN_WINDOW));
+        columnNavigator.setAlignment(Pos.CENTER_LEFT);
+        columnNavigator.setVisible(false);
+        columnNavigator.setManaged(false);
+
+        // TableView сортирует элементы сам на FX-потоке; вместо этого пересчитываем перестановку в фоне
+        table.setSortPolicy(t -> {
+            if (!rebuildingColumns) {
+                applySortOrder();
+            }
+            return true;
+        });
+        filterField.setPromptText("Отбор по тексту");
+        filterField.setPrefWidth(200);
+        PauseTransition filterDelay = new PauseTransition(FILTER_DELAY);
+        filterDelay.setOnFinished(e -> {
+            String text = filterField.getText().trim();
+            if (!text.equals(filterText) && store != null) {
+                filterText = text;
+                scheduleView();
+            }
+        });
+        filterField.textProperty().addListener((obs, oldText, newText) -> filterDelay.playFromStart());
+        diffOnlyBox.setVisible(false);
+        diffOnlyBox.setManaged(false);
+        diffOnlyBox.setOnAction(e -> scheduleView());
+        resortDelay.setOnFinished(e -> {
+            if (store != null && rows.isOrdered()) {
+                scheduleView();
+            }
+        });
+        table.setRowFactory(t -> new TableRow<>() {
+            @Override
+            protected void updateItem(Integer row, boolean empty) {
+                super.updateItem(row, empty);
+                ResultDiff.Result rowDiff = diff;
+                if (empty || row == null || rowDiff == null) {
+                    setStyle("");
+                } else {
+                    setStyle(rowDiff.isAdded(row) ? ADDED_STYLE : rowDiff.isChanged(row) ? CHANGED_STYLE : "");
+                }
+            }
+        });
+        viewControls.setAlignment(Pos.CENTER_LEFT);
+    }
+
+    public TableView<Integer> getTable() {
+        return table;
+    }
+
+    /** Переключатель окна колонок, виден только для широких результатов. */
+    public HBox getColumnNavigator() {
+        return columnNavigator;
+    }
+
+    /** Поле отбора строк и состояние сортировки/отбора. */
+    public HBox getViewControls() {
+        return viewControls;
+    }
+
+    public ResultStore getStore() {
+        return store;
+    }
+
+    /** Показывает новый (пока пустой) результат; строки добавляются через {@link #publishRows(int)}. */
+    public void show(ResultStore newStore) {
+        releaseStore();
+        resetView();
+        store = newStore;
+        rows = new ResultRowList();
+        table.setItems(rows);
+
+        boolean wide = newStore.getColumnCount() > COLUMN_WINDOW;
+        columnNavigator.setVisible(wide);
+        columnNavigator.setManaged(wide);
+        showColumnWindow(0);
+    }
+
+    /** Подсвечивает отличия текущего результата от прошлого выполнения. */
+    public void showDiff(ResultDiff.Result result) {
+        diff = result;
+        boolean hasDiff = result.hasPrevious();
+        diffOnlyBox.setVisible(hasDiff);
+        diffOnlyBox.setManaged(hasDiff);
+        table.refresh();
+    }
+
+    /**
+     * Делает видимыми первые {@code rowCount} строк хранилища. При сортировке новые строки сразу видны
+     * в конце таблицы, а пересортировка выполняется не чаще {@link #MIN_RESORT_INTERVAL} (и не чаще,
+     * чем раз в два своих времени выполнения), не прерывая уже идущую: иначе во время выборки
+     * каждая порция строк отменяла бы сортировку большого результата и та не завершалась бы никогда.
+     */
+    public void publishRows(int rowCount) {
+        int before = rows.getPublishedCount();
+        rows.publish(rowCount);
+        if (rows.isOrdered() && rows.getPublishedCount() > before) {
+            scheduleResort();
+        }
+    }
+
+    private void scheduleResort() {
+        if (viewRunning || resortDelay.getStatus() == Animation.Status.RUNNING) {
+            return; // новые строки подхватит следующее вычисление
+        }
+        resortDelay.setDuration(Duration.millis(Math.max(MIN_RESORT_INTERVAL.toMillis(), 2.0 * lastViewMillis)));
+        resortDelay.playFromStart();
+    }
+
+    public void clear() {
+        releaseStore();
+        resetView();
+        store = null;
+        rows = new ResultRowList();
+        table.setItems(rows);
+        table.getColumns().clear();
+        columnNavigator.setVisible(false);
+        columnNavigator.setManaged(false);
+    }
+
+    private void resetView() {
+        viewGeneration++;
+        resortDelay.stop();
+        viewRunning = false;
+        lastViewMillis = 0;
+        sortKeys = List.of();
+        filterText = "";
+        filterField.setText("");
+        viewStatusLabel.setText("");
+        diff = null;
+        diffOnlyBox.setSelected(false);
+        diffOnlyBox.setVisible(false);
+        diffOnlyBox.setManaged(false);
+    }
+
+    private void applySortOrder() {
+        List<ResultView.SortKey> keys = new ArrayList<>();
+        for (TableColumn<Integer, ?> column : table.getSortOrder()) {
+            if (column.getUserData() instanceof Integer) {
+                keys.add(new ResultView.SortKey((Integer) column.getUserData(),
+                        column.getSortType() == TableColumn.SortType.ASCENDING));
+            }
+        }
+        if (keys.equals(sortKeys) || store == null) {
+            return;
+        }
+        sortKeys = List.copyOf(keys);
+        scheduleView();
+    }
+
+    /**
+     * Пересчитывает порядок строк в фоне; предыдущее вычисление прерывается.
+     * Готовая перестановка применяется, только если за это время не запросили новую.
+     */
+    private void scheduleView() {
+        int generation = ++viewGeneration;
+        resortDelay.stop();
+        ResultRowList target = rows;
+        BitSet onlyRows = diff != null && diffOnlyBox.isSelected() ? diff.getDiffRows() : null;
+        if (sortKeys.isEmpty() && filterText.isEmpty() && onlyRows == null) {
+            viewRunning = false;
+            if (target.isOrdered()) {
+                target.clearOrder();
+            }
+            viewStatusLabel.setText("");
+            return;
+        }
+        viewRunning = true;
+        ResultStore viewStore = store;
+        int rowCount = target.getPublishedCount();
+        List<ResultView.SortKey> keys = sortKeys;
+        String filter = filterText;
+        viewStatusLabel.setText(keys.isEmpty() ? "Отбор…" : "Сортировка…");
+        VIEW_EXECUTOR.execute(() -> {
+            if (generation != viewGeneration) {
+                return;
+            }
+            long started = System.nanoTime();
+            try {
+                int[] order = ResultView.compute(viewStore, rowCount, keys, filter, onlyRows,
+                        () -> generation != viewGeneration);
+                long millis = (System.nanoTime() - started) / 1_000_000;
+                Platform.runLater(() -> {
+                    if (generation == viewGeneration && rows == target) {
+                        boolean filtered = !filter.isEmpty() || onlyRows != null;
+                        target.setOrder(order, rowCount, !filtered);
+                        viewRunning = false;
+                        lastViewMillis = millis;
+                        viewStatusLabel.setText((filtered ? "Отобрано " + order.length + " из " + rowCount + ", " : "")
+                                + millis + " мс");
+                        if (target.getPublishedCount() > rowCount) {
+                            scheduleResort();
+                        }
+                    }
+                });
+            } catch (CancellationException ignored) {
+                // запрошен другой порядок или результат заменён
+            } catch (RuntimeException e) {
+                Platform.runLater(() -> {
+                    if (generation == viewGeneration) {
+                        viewRunning = false;
+                        viewStatusLabel.setText("Ошибка сортировки: " + e.getMessage());
+                    }
+                });
+            }
+        });
+    }
+
+    private void releaseStore() {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    private void showColumnWindow(int start) {
+        int columnCount = store.getColumnCount();
+        columnWindowStart = Math.max(0, Math.min(start, Math.max(0, columnCount - 1) / COLUMN_WINDOW * COLUMN_WINDOW));
+        int end = Math.min(columnCount, columnWindowStart + COLUMN_WINDOW);
+
+        rebuildingColumns = true;
+        try {
+            table.getColumns().clear();
+            table.getColumns().add(createIndexColumn());
+            for (int i = columnWindowStart; i < end; i++) {
+                table.getColumns().add(createDataColumn(i));
+            }
+            // сортировка по колонкам вне окна сохраняется, видимые колонки показывают её значок
+            for (ResultView.SortKey key : sortKeys) {
+                for (TableColumn<Integer, ?> column : table.getColumns()) {
+                    if (Integer.valueOf(key.column).equals(column.getUserData())) {
+                        column.setSortType(key.ascending ? TableColumn.SortType.ASCENDING : TableColumn.SortType.DESCENDING);
+                        table.getSortOrder().add(column);
+                    }
+                }
+            }
+        } finally {
+            rebuildingColumns = false;
+        }
+
+        columnWindowLabel.setText("Колонки " + (columnWindowStart + 1) + "–" + end + " из " + columnCount);
+        previousColumnsButton.setDisable(columnWindowStart == 0);
+        nextColumnsButton.setDisable(end >= columnCount);
+    }
+
+    private TableColumn<Integer, String> createIndexColumn() {
+        // Колонка с номерами строк (нумерация)
+        TableColumn<Integer, String> indexColumn = new TableColumn<>("#");
+        indexColumn.setCellFactory(column -> new TableCell<>() {
+            @Override
+            protected void updateItem(String item, boolean empty) {
+                super.updateItem(item, empty);
+                setText(empty ? null : Integer.toString(getIndex() + 1));
+            }
+        });
+        indexColumn.setPrefWidth(50);
+        indexColumn.setResizable(false);
+        indexColumn.setSortable(false);
+        indexColumn.setStyle("-fx-alignment: CENTER;");
+        return indexColumn;
+    }
+
+    private TableColumn<Integer, String> createDataColumn(int colIndex) {
+        ResultStore columnStore = store;
+        ResultRowList columnRows = rows;
+        TableColumn<Integer, String> column = new TableColumn<>(columnStore.getColumnName(colIndex));
+        // Значение ячейки не проходит через cellValueFactory: ячейка сама читает значение при смене индекса
+        column.setCellFactory(c -> new TableCell<>() {
+            @Override
+            protected void updateItem(String item, boolean empty) {
+                super.updateItem(item, empty);
+                int index = getIndex();
+                if (empty || index < 0 || index >= columnRows.size()) {
+                    setText(null);
+                } else {
+                    setText(formatter.format(columnStore.getValue(columnRows.rowAt(index), colIndex)));
+                }
+            }
+        });
+        column.setPrefWidth(COLUMN_WIDTH); // фиксированная ширина колонок
+        column.setResizable(false);
+        column.setUserData(colIndex); // номер колонки хранилища для сортировки
+        column.setStyle("-fx-alignment: CENTER-LEFT;");
+        return column;
+    }
+}
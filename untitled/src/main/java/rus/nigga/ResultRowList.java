@@ -0,0 +1,116 @@
+package com.example.dbclient;
+
+import javafx.collections.ObservableListBase;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Виртуальный список строк для TableView: элемент — номер строки в хранилище результата.
+ * Без сортировки и отбора номера не хранятся, список лишь знает, сколько строк уже получено;
+ * с ними — показывает строки в порядке перестановки {@code int[]} ({@link ResultView}). Если перестановка
+ * только сортирует, строки, полученные после её вычисления, показываются в конце в порядке получения,
+ * пока не будет вычислена следующая.
+ * Изменяется только из FX-потока.
+ */
+class ResultRowList extends ObservableListBase<Integer> {
+    private int size;
+    private int[] order;
+    private int orderedRows; // строк хранилища, по которым вычислена перестановка
+    private boolean showTail;
+
+    @Override
+    public Integer get(int index) {
+        return rowAt(index);
+    }
+
+    @Override
+    public int size() {
+        if (order == null) {
+            return size;
+        }
+        return order.length + (showTail ? size - orderedRows : 0);
+    }
+
+    /** Номер строки в хранилище для позиции {@code index} в таблице. */
+    int rowAt(int index) {
+        int visible = size();
+        if (index < 0 || index >= visible) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + visible);
+        }
+        return rowAt(order, orderedRows, index);
+    }
+
+    private static int rowAt(int[] rowOrder, int rowOrderedRows, int index) {
+        if (rowOrder == null) {
+            return index;
+        }
+        return index < rowOrder.length ? rowOrder[index] : rowOrderedRows + index - rowOrder.length;
+    }
+
+    /** Число строк хранилища, полученных к этому моменту (без учёта отбора). */
+    int getPublishedCount() {
+        return size;
+    }
+
+    boolean isOrdered() {
+        return order != null;
+    }
+
+    /**
+     * Делает видимыми строки хранилища до {@code newSize} (не включая).
+     * При отборе новые строки появятся в таблице со следующей перестановкой.
+     */
+    void publish(int newSize) {
+        if (newSize <= size) {
+            return;
+        }
+        int from = size();
+        size = newSize;
+        if (order != null && !showTail) {
+            return;
+        }
+        beginChange();
+        nextAdd(from, size());
+        endChange();
+    }
+
+    /** Возвращает исходный порядок всех полученных строк одним изменением списка. */
+    void clearOrder() {
+        setOrder(null, size, false);
+    }
+
+    /**
+     * Заменяет порядок строк одним изменением списка.
+     *
+     * @param orderedRows строк хранилища, по которым вычислена перестановка
+     * @param showTail    показывать строки, полученные позже, в конце списка (перестановка без отбора)
+     */
+    void setOrder(int[] newOrder, int orderedRows, boolean showTail) {
+        List<Integer> removed = snapshot();
+        order = newOrder;
+        this.orderedRows = orderedRows;
+        this.showTail = showTail;
+        beginChange();
+        nextReplace(0, size(), removed);
+        endChange();
+    }
+
+    /** Прежнее содержимое списка для события замены, без копирования номеров. */
+    private List<Integer> snapshot() {
+        int[] oldOrder = order;
+        int oldOrderedRows = orderedRows;
+        int oldSize = size();
+        return new AbstractList<>() {
+            @Override
+            public Integer get(int index) {
+                return rowAt(oldOrder, oldOrderedRows, index);
+            }
+
+            @Override
+            public int size() {
+                return oldSize;
+            }
+        };
+    }
+}
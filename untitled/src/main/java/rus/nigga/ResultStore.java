@@ -0,0 +1,56 @@
+package com.example.dbclient;
+
+/**
+ * Результат запроса, из которого таблица читает ячейки по номеру строки.
+ * Строки добавляет поток выборки, читать можно строки до {@link #getRowCount()}.
+ */
+public interface ResultStore extends AutoCloseable {
+
+    int getRowCount();
+
+    int getColumnCount();
+
+    String getColumnName(int column);
+
+    boolean isNull(int row, int column);
+
+    /**
+     * Типизированное значение ячейки: {@code Long}, {@code BigDecimal}, {@code Double}, {@code LocalDate},
+     * {@code LocalTime}, {@code LocalDateTime}, {@code String} или {@code byte[]}; {@code null} для NULL.
+     * Таблица форматирует его при отрисовке ({@link CellFormatter}).
+     */
+    Object getValue(int row, int column);
+
+    /** Текстовое представление ячейки без учёта региональных настроек, формируется только при обращении. */
+    String getText(int row, int column);
+
+    /**
+     * Колонка хранит значения в {@code long} (целые и десятичные с фиксированным масштабом): их можно
+     * сравнивать через {@link #getLong} без упаковки в объекты.
+     */
+    default boolean isLongColumn(int column) {
+        return false;
+    }
+
+    /** Значение не-NULL ячейки колонки, для которой {@link #isLongColumn} — {@code true}; для десятичных — без масштаба. */
+    default long getLong(int row, int column) {
+        throw new UnsupportedOperationException("Колонка " + getColumnName(column) + " не хранит long");
+    }
+
+    /** Колонка хранит значения в {@code double}: их можно сравнивать через {@link #getDouble}. */
+    default boolean isDoubleColumn(int column) {
+        return false;
+    }
+
+    /** Значение не-NULL ячейки колонки, для которой {@link #isDoubleColumn} — {@code true}. */
+    default double getDouble(int row, int column) {
+        throw new UnsupportedOperationException("Колонка " + getColumnName(column) + " не хранит double");
+    }
+
+    /** Приблизительный объём кучи, занимаемый результатом. */
+    long estimateMemoryBytes();
+
+    /** Освобождает ресурсы результата (файлы подкачки и т.п.). */
+    @Override
+    void close();
+}
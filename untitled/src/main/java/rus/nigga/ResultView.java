@@ -0,0 +1,283 @@
+package com.example.dbclient;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Порядок и отбор строк результата на стороне клиента: перестановка номеров строк хранилища в {@code int[]}.
+ * <p>
+ * Вычисляется вне FX-потока: значения колонок сортировки один раз извлекаются в массивы своего типа
+ * ({@code long[]} и {@code double[]} — прямо из хранилища, без упаковки; остальное — в {@code Object[]})
+ * и только для отобранных строк, после чего перестановка сортируется
+ * устойчивой параллельной сортировкой слиянием в пуле ForkJoin. Числа и даты сравниваются как значения,
+ * а не как текст; NULL считается наибольшим (как NULLS LAST при возрастании в Oracle и PostgreSQL).
+ * Отбор — по вхождению текста без учёта регистра в любую колонку: и в текст без региональных настроек,
+ * и в текст, который показывает таблица ({@link CellFormatter}), — и, при сравнении с прошлым выполнением, по набору номеров строк ({@link ResultDiff}).
+ * Вычисление прерывается, как только {@code cancelled} вернёт {@code true}.
+ */
+final class ResultView {
+    private static final int SEQUENTIAL_SORT = 8192;
+    private static final int INSERTION_SORT = 32;
+    private static final int CANCEL_CHECK_ROWS = 4096;
+    /** CellFormatter не потокобезопасен, а отбор идёт в нескольких потоках. */
+    private static final ThreadLocal<CellFormatter> FORMATTERS = ThreadLocal.withInitial(CellFormatter::new);
+
+    /** Колонка сортировки. */
+    static final class SortKey {
+        final int column;
+        final boolean ascending;
+
+        SortKey(int column, boolean ascending) {
+            this.column = column;
+            this.ascending = ascending;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof SortKey && ((SortKey) o).column == column && ((SortKey) o).ascending == ascending;
+        }
+
+        @Override
+        public int hashCode() {
+            return column * 2 + (ascending ? 1 : 0);
+        }
+    }
+
+    @FunctionalInterface
+    interface RowComparator {
+        int compare(int a, int b);
+    }
+
+    private ResultView() {
+    }
+
+    /**
+     * @param rowCount строк хранилища, участвующих в представлении
+     * @param filter   текст отбора; пустой — без отбора
+     * @param onlyRows показывать только эти строки; {@code null} — все
+     * @return номера строк хранилища в порядке показа
+     * @throws CancellationException если вычисление прервано
+     */
+    static int[] compute(ResultStore store, int rowCount, List<SortKey> keys, String filter, BitSet onlyRows,
+                         BooleanSupplier cancelled) {
+        IntStream candidates = onlyRows != null
+                ? onlyRows.stream().takeWhile(row -> row < rowCount)
+                : IntStream.range(0, rowCount);
+        int[] order = filter.isEmpty()
+                ? candidates.toArray()
+                : filter(store, candidates, filter.toLowerCase(Locale.ROOT), cancelled);
+        if (keys.isEmpty()) {
+            return order;
+        }
+        RowComparator comparator = null;
+        for (int i = keys.size() - 1; i >= 0; i--) {
+            RowComparator key = keyComparator(store, rowCount, order, keys.get(i), cancelled);
+            RowComparator next = comparator;
+            comparator = next == null ? key : (a, b) -> {
+                int c = key.compare(a, b);
+                return c != 0 ? c : next.compare(a, b);
+            };
+        }
+        sort(order, comparator, cancelled);
+        return order;
+    }
+
+    private static int[] filter(ResultStore store, IntStream rows, String needle, BooleanSupplier cancelled) {
+        int columnCount = store.getColumnCount();
+        return rows.parallel().filter(row -> {
+            if (row % CANCEL_CHECK_ROWS == 0 && cancelled.getAsBoolean()) {
+                throw new CancellationException();
+            }
+            for (int c = 0; c < columnCount; c++) {
+                String text = store.getText(row, c);
+                if (text == null) {
+                    continue;
+                }
+                if (text.toLowerCase(Locale.ROOT).contains(needle)) {
+                    return true;
+                }
+                Object value = store.getValue(row, c);
+                // строки и целые таблица показывает как есть, остальное — по региональным настройкам
+                if (value != null && !(value instanceof String) && !(value instanceof Long)
+                        && FORMATTERS.get().format(value).toLowerCase(Locale.ROOT).contains(needle)) {
+                    return true;
+                }
+            }
+            return false;
+        }).toArray();
+    }
+
+    /**
+     * Значения колонки для строк {@code order} в массиве своего типа (индекс — номер строки хранилища)
+     * и сравнение номеров строк по ним.
+     */
+    private static RowComparator keyComparator(ResultStore store, int rowCount, int[] order, SortKey key,
+                                               BooleanSupplier cancelled) {
+        int column = key.column;
+        int sign = key.ascending ? 1 : -1;
+        boolean[] nulls = new boolean[rowCount];
+
+        if (store.isLongColumn(column)) {
+            long[] longs = new long[rowCount];
+            forEachRow(order, cancelled, row -> {
+                nulls[row] = store.isNull(row, column);
+                if (!nulls[row]) {
+                    longs[row] = store.getLong(row, column);
+                }
+            });
+            return (a, b) -> sign * (nulls[a] || nulls[b] ? compareNulls(nulls[a], nulls[b]) : Long.compare(longs[a], longs[b]));
+        }
+        if (store.isDoubleColumn(column)) {
+            double[] doubles = new double[rowCount];
+            forEachRow(order, cancelled, row -> {
+                nulls[row] = store.isNull(row, column);
+                if (!nulls[row]) {
+                    doubles[row] = store.getDouble(row, column);
+                }
+            });
+            return (a, b) -> sign * (nulls[a] || nulls[b] ? compareNulls(nulls[a], nulls[b]) : Double.compare(doubles[a], doubles[b]));
+        }
+
+        Object[] values = new Object[rowCount];
+        forEachRow(order, cancelled, row -> {
+            values[row] = store.getValue(row, column);
+            nulls[row] = values[row] == null;
+        });
+        Class<?> type = null;
+        for (int row : order) {
+            Object value = values[row];
+            if (value != null) {
+                if (type == null) {
+                    type = value.getClass();
+                } else if (type != value.getClass()) {
+                    type = Object.class;
+                    break;
+                }
+            }
+        }
+        if (type == String.class) {
+            return (a, b) -> sign * (nulls[a] || nulls[b] ? compareNulls(nulls[a], nulls[b])
+                    : compareText((String) values[a], (String) values[b]));
+        }
+        if (type == byte[].class) {
+            return (a, b) -> sign * (nulls[a] || nulls[b] ? compareNulls(nulls[a], nulls[b])
+                    : Arrays.compareUnsigned((byte[]) values[a], (byte[]) values[b]));
+        }
+        if (type != null && type != Object.class && Comparable.class.isAssignableFrom(type)) {
+            // Long и Double из хранилищ без типизированного доступа, BigDecimal, LocalDate, LocalTime, LocalDateTime
+            return (a, b) -> sign * (nulls[a] || nulls[b] ? compareNulls(nulls[a], nulls[b]) : compareComparable(values[a], values[b]));
+        }
+        // разнотипная колонка: по тексту значения
+        return (a, b) -> sign * (nulls[a] || nulls[b] ? compareNulls(nulls[a], nulls[b])
+                : compareText(String.valueOf(values[a]), String.valueOf(values[b])));
+    }
+
+    /** Вызывает {@code action} для каждой строки {@code order} параллельно, проверяя прерывание. */
+    private static void forEachRow(int[] order, BooleanSupplier cancelled, IntConsumer action) {
+        IntStream.range(0, order.length).parallel().forEach(i -> {
+            if (i % CANCEL_CHECK_ROWS == 0 && cancelled.getAsBoolean()) {
+                throw new CancellationException();
+            }
+            action.accept(order[i]);
+        });
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compareComparable(Object a, Object b) {
+        return ((Comparable) a).compareTo(b);
+    }
+
+    private static int compareText(String a, String b) {
+        int c = a.compareToIgnoreCase(b);
+        return c != 0 ? c : a.compareTo(b);
+    }
+
+    private static int compareNulls(boolean aNull, boolean bNull) {
+        return aNull == bNull ? 0 : aNull ? 1 : -1;
+    }
+
+    /** Устойчивая сортировка слиянием: половины сортируются параллельно, пока они крупнее {@link #SEQUENTIAL_SORT}. */
+    static void sort(int[] order, RowComparator comparator, BooleanSupplier cancelled) {
+        int[] buffer = new int[order.length];
+        ForkJoinPool.commonPool().invoke(new SortTask(order, buffer, 0, order.length, comparator, cancelled));
+    }
+
+    private static final class SortTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] a;
+        private final int[] buffer;
+        private final int from;
+        private final int to;
+        private final RowComparator comparator;
+        private final BooleanSupplier cancelled;
+
+        SortTask(int[] a, int[] buffer, int from, int to, RowComparator comparator, BooleanSupplier cancelled) {
+            this.a = a;
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+            this.comparator = comparator;
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        protected void compute() {
+            if (cancelled.getAsBoolean()) {
+                throw new CancellationException();
+            }
+            if (to - from <= SEQUENTIAL_SORT) {
+                mergeSort(a, buffer, from, to, comparator);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new SortTask(a, buffer, from, middle, comparator, cancelled),
+                    new SortTask(a, buffer, middle, to, comparator, cancelled));
+            merge(a, buffer, from, middle, to, comparator);
+        }
+    }
+
+    private static void mergeSort(int[] a, int[] buffer, int from, int to, RowComparator comparator) {
+        if (to - from <= INSERTION_SORT) {
+            for (int i = from + 1; i < to; i++) {
+                int value = a[i];
+                int j = i - 1;
+                while (j >= from && comparator.compare(a[j], value) > 0) {
+                    a[j + 1] = a[j];
+                    j--;
+                }
+                a[j + 1] = value;
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(a, buffer, from, middle, comparator);
+        mergeSort(a, buffer, middle, to, comparator);
+        merge(a, buffer, from, middle, to, comparator);
+    }
+
+    /** Сливает соседние упорядоченные отрезки {@code [from, middle)} и {@code [middle, to)}. */
+    private static void merge(int[] a, int[] buffer, int from, int middle, int to, RowComparator comparator) {
+        if (comparator.compare(a[middle - 1], a[middle]) <= 0) {
+            return; // уже по порядку
+        }
+        System.arraycopy(a, from, buffer, from, middle - from);
+        int i = from;
+        int j = middle;
+        int k = from;
+        while (i < middle && j < to) {
+            a[k++] = comparator.compare(a[j], buffer[i]) < 0 ? a[j++] : buffer[i++];
+        }
+        while (i < middle) {
+            a[k++] = buffer[i++];
+        }
+    }
+}
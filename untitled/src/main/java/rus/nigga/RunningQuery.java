@@ -0,0 +1,148 @@
+package com.example.dbclient;
+
+import javafx.concurrent.Task;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Запрос, переданный в {@link QueryExecutionService}: хранит выполняющийся Statement,
+ * чтобы отмена могла прервать его на стороне БД, и время выполнения для списка запросов.
+ */
+public class RunningQuery {
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private final long id = SEQUENCE.incrementAndGet();
+    private final String connectionName;
+    private final String sql;
+    private final FetchControl control;
+    private volatile Task<?> task;
+    private final long submittedNanos = System.nanoTime();
+
+    private volatile long startedNanos;
+    private volatile Statement statement;
+    private volatile boolean cancelled;
+    private volatile boolean timedOut;
+    private ScheduledFuture<?> watchdog; // под блокировкой запроса
+    private boolean finished;
+
+    public RunningQuery(String connectionName, String sql, FetchControl control) {
+        this.connectionName = connectionName;
+        this.sql = sql;
+        this.control = control;
+    }
+
+    void bind(Task<?> task) {
+        this.task = task;
+        if (cancelled) {
+            task.cancel(true);
+        }
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getConnectionName() {
+        return connectionName;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    /** Вызывается потоком выполнения перед обращением к БД. */
+    public void markStarted() {
+        startedNanos = System.nanoTime();
+    }
+
+    /**
+     * Регистрирует выполняющийся Statement. Если запрос уже отменён, Statement отменяется сразу.
+     */
+    public void attachStatement(Statement stmt) {
+        statement = stmt;
+        if (cancelled) {
+            cancelStatement(stmt);
+        }
+    }
+
+    /** Прерывает запрос: отменяет Statement в БД, останавливает выборку и поток выполнения. */
+    public void cancel() {
+        cancelled = true;
+        control.cancel();
+        Statement stmt = statement;
+        if (stmt != null) {
+            cancelStatement(stmt);
+        }
+        Task<?> t = task;
+        if (t != null) {
+            t.cancel(true);
+        }
+    }
+
+    void timeout() {
+        timedOut = true;
+        cancel();
+    }
+
+    synchronized void setWatchdog(ScheduledFuture<?> watchdog) {
+        if (finished) {
+            watchdog.cancel(false); // проверка перепланирована после завершения запроса
+            return;
+        }
+        this.watchdog = watchdog;
+    }
+
+    synchronized void stopWatchdog() {
+        finished = true;
+        if (watchdog != null) {
+            watchdog.cancel(false);
+        }
+    }
+
+    /** Время выполнения без ожидания в очереди и пауз выборки, нс; 0 — запрос ещё не начат. */
+    long getActiveNanos() {
+        long started = startedNanos;
+        return started == 0 ? 0 : System.nanoTime() - started - control.getPausedNanos();
+    }
+
+    boolean isFetchPaused() {
+        return control.isPaused();
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    public String getState() {
+        if (cancelled) {
+            return timedOut ? "прерван по таймауту" : "отменяется";
+        }
+        if (startedNanos == 0) {
+            return "в очереди";
+        }
+        if (control.isPaused()) {
+            return "пауза выборки";
+        }
+        return statement == null ? "подключение" : "выполняется";
+    }
+
+    /** Время с момента отправки в очередь, мс. */
+    public long getElapsedMillis() {
+        return (System.nanoTime() - submittedNanos) / 1_000_000;
+    }
+
+    private static void cancelStatement(Statement stmt) {
+        try {
+            stmt.cancel();
+        } catch (SQLException ignored) {
+            // Statement уже закрыт или драйвер не поддерживает отмену — остаётся прерывание потока
+        }
+    }
+}
@@ -1,12 +1,21 @@
 package com.example.dbclient;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 public class SavedQuery {
     private String name;
     private String sql;
     private LocalDateTime createdAt;
+    private Integer queryTimeoutSeconds; // null — таймаут подключения или настроек
+    private Integer resultCacheTtlSeconds; // null или 0 — результат не кэшируется
+    private Map<String, String> parameterValues = new LinkedHashMap<>(); // последние значения параметров :name
+    private boolean compareWithPrevious; // сравнивать результат с предыдущим выполнением
+    private List<String> diffKeyColumns = new ArrayList<>(); // пусто — ключ сравнения вся строка
 
     public SavedQuery() {
         this.createdAt = LocalDateTime.now(); // или оставь пустым, если prefer null
@@ -27,6 +36,25 @@ public class SavedQuery {
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
 
+    public Integer getQueryTimeoutSeconds() { return queryTimeoutSeconds; }
+    public void setQueryTimeoutSeconds(Integer queryTimeoutSeconds) { this.queryTimeoutSeconds = queryTimeoutSeconds; }
+
+    public Integer getResultCacheTtlSeconds() { return resultCacheTtlSeconds; }
+    public void setResultCacheTtlSeconds(Integer resultCacheTtlSeconds) { this.resultCacheTtlSeconds = resultCacheTtlSeconds; }
+
+    public Map<String, String> getParameterValues() { return parameterValues; }
+    public void setParameterValues(Map<String, String> parameterValues) {
+        this.parameterValues = parameterValues != null ? parameterValues : new LinkedHashMap<>();
+    }
+
+    public boolean isCompareWithPrevious() { return compareWithPrevious; }
+    public void setCompareWithPrevious(boolean compareWithPrevious) { this.compareWithPrevious = compareWithPrevious; }
+
+    public List<String> getDiffKeyColumns() { return diffKeyColumns; }
+    public void setDiffKeyColumns(List<String> diffKeyColumns) {
+        this.diffKeyColumns = diffKeyColumns != null ? diffKeyColumns : new ArrayList<>();
+    }
+
     @Override
     public String toString() {
         return name + " (" + createdAt.toLocalDate() + ")";
@@ -0,0 +1,249 @@
+package com.example.dbclient;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Поисковый индекс сохранённых запросов по имени и тексту SQL.
+ *
+ * <p>Каждое слово запроса должно встретиться в имени или SQL. Слова от трёх символов ищутся
+ * как подстроки через индекс триграмм (кандидаты — пересечение списков триграмм, затем проверка
+ * {@code contains}), более короткие — как префиксы слов через отсортированный словарь.
+ * Найденное ранжируется: совпадение с именем важнее совпадения в SQL, начало слова важнее середины.
+ *
+ * <p>Обновляется по одному запросу; удалённые запросы помечаются и вычищаются перестроением,
+ * когда их становится больше половины. Не потокобезопасен — используется из потока FX.
+ */
+public class SavedQueryIndex {
+    private static final int MIN_REBUILD_REMOVED = 64;
+    private static final int MAX_SCORE = 0x7FFFFF; // 23 бита в ключе сортировки
+
+    private final List<SavedQuery> queries = new ArrayList<>(); // по номеру документа
+    private final List<String> names = new ArrayList<>();        // в нижнем регистре
+    private final List<String> sqls = new ArrayList<>();
+    private final Map<SavedQuery, Integer> ids = new IdentityHashMap<>();
+    private final BitSet live = new BitSet();
+    private final Map<Long, Postings> trigrams = new HashMap<>();
+    private final TreeMap<String, Postings> words = new TreeMap<>();
+    private int removed;
+
+    public void setAll(List<SavedQuery> all) {
+        queries.clear();
+        names.clear();
+        sqls.clear();
+        ids.clear();
+        live.clear();
+        trigrams.clear();
+        words.clear();
+        removed = 0;
+        for (SavedQuery query : all) {
+            add(query);
+        }
+    }
+
+    public void add(SavedQuery query) {
+        if (ids.containsKey(query)) {
+            return;
+        }
+        int id = queries.size();
+        String name = lower(query.getName());
+        String sql = lower(query.getSql());
+        queries.add(query);
+        names.add(name);
+        sqls.add(sql);
+        ids.put(query, id);
+        live.set(id);
+        indexText(id, name);
+        indexText(id, sql);
+    }
+
+    public void remove(SavedQuery query) {
+        Integer id = ids.remove(query);
+        if (id == null) {
+            return;
+        }
+        live.clear(id);
+        queries.set(id, null);
+        names.set(id, null);
+        sqls.set(id, null);
+        removed++;
+        if (removed >= MIN_REBUILD_REMOVED && removed * 2 > queries.size()) {
+            List<SavedQuery> remaining = new ArrayList<>(ids.size());
+            for (SavedQuery q : queries) {
+                if (q != null) {
+                    remaining.add(q);
+                }
+            }
+            setAll(remaining);
+        }
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    /**
+     * @param text  слова через пробел; пустая строка — все запросы в порядке добавления
+     * @param limit максимальное число результатов
+     * @return запросы, отсортированные по убыванию релевантности
+     */
+    public List<SavedQuery> search(String text, int limit) {
+        String[] terms = lower(text).trim().split("\\s+");
+        if (terms.length == 1 && terms[0].isEmpty()) {
+            List<SavedQuery> result = new ArrayList<>(Math.min(limit, ids.size()));
+            for (int id = live.nextSetBit(0); id >= 0 && result.size() < limit; id = live.nextSetBit(id + 1)) {
+                result.add(queries.get(id));
+            }
+            return result;
+        }
+
+        BitSet candidates = (BitSet) live.clone();
+        for (String term : terms) {
+            candidates.and(candidatesFor(term));
+            if (candidates.isEmpty()) {
+                return new ArrayList<>();
+            }
+        }
+
+        int count = candidates.cardinality();
+        long[] ranked = new long[count]; // старшие биты — инвертированный счёт, младшие — номер документа
+        int n = 0;
+        for (int id = candidates.nextSetBit(0); id >= 0; id = candidates.nextSetBit(id + 1)) {
+            int score = score(id, terms);
+            if (score > 0) {
+                // при равном счёте выше короткие имена, затем порядок добавления
+                long key = ((long) (MAX_SCORE - Math.min(score, MAX_SCORE)) << 40)
+                        | ((long) Math.min(names.get(id).length(), 0xFFFF) << 24) | id;
+                ranked[n++] = key;
+            }
+        }
+        Arrays.sort(ranked, 0, n);
+
+        List<SavedQuery> result = new ArrayList<>(Math.min(limit, n));
+        for (int i = 0; i < n && result.size() < limit; i++) {
+            result.add(queries.get((int) (ranked[i] & 0xFFFFFF)));
+        }
+        return result;
+    }
+
+    private BitSet candidatesFor(String term) {
+        BitSet result = new BitSet();
+        if (term.length() >= 3) {
+            boolean first = true;
+            for (int i = 0; i + 3 <= term.length(); i++) {
+                Postings postings = trigrams.get(trigram(term, i));
+                if (postings == null) {
+                    return new BitSet();
+                }
+                if (first) {
+                    postings.addTo(result);
+                    first = false;
+                } else {
+                    BitSet next = new BitSet();
+                    postings.addTo(next);
+                    result.and(next);
+                }
+            }
+            return result;
+        }
+        NavigableMap<String, Postings> prefixed = words.subMap(term, true, term + Character.MAX_VALUE, false);
+        for (Postings postings : prefixed.values()) {
+            postings.addTo(result);
+        }
+        return result;
+    }
+
+    private int score(int id, String[] terms) {
+        String name = names.get(id);
+        String sql = sqls.get(id);
+        int total = 0;
+        for (String term : terms) {
+            int termScore;
+            if (name.equals(term)) {
+                termScore = 100;
+            } else if (name.startsWith(term)) {
+                termScore = 60;
+            } else if (containsWord(name, term)) {
+                termScore = 40;
+            } else if (name.contains(term)) {
+                termScore = 25;
+            } else if (containsWord(sql, term)) {
+                termScore = 8;
+            } else if (sql.contains(term)) {
+                termScore = 3;
+            } else {
+                return 0; // триграммы совпали, а подстроки нет
+            }
+            total += termScore;
+        }
+        return total;
+    }
+
+    /** Есть ли вхождение {@code term}, начинающееся с начала слова. */
+    private static boolean containsWord(String text, String term) {
+        for (int i = text.indexOf(term); i >= 0; i = text.indexOf(term, i + 1)) {
+            if (i == 0 || !isWordChar(text.charAt(i - 1))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void indexText(int id, String text) {
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            trigrams.computeIfAbsent(trigram(text, i), k -> new Postings()).add(id);
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && isWordChar(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.computeIfAbsent(text.substring(start, i), k -> new Postings()).add(id);
+                start = -1;
+            }
+        }
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    private static long trigram(String text, int offset) {
+        return ((long) text.charAt(offset) << 32) | ((long) text.charAt(offset + 1) << 16) | text.charAt(offset + 2);
+    }
+
+    private static String lower(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    /** Возрастающий список номеров документов; документы добавляются по возрастанию номера. */
+    private static final class Postings {
+        private int[] ids = new int[2];
+        private int size;
+
+        void add(int id) {
+            if (size > 0 && ids[size - 1] == id) {
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        void addTo(BitSet target) {
+            for (int i = 0; i < size; i++) {
+                target.set(ids[i]);
+            }
+        }
+    }
+}
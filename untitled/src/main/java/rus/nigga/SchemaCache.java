@@ -0,0 +1,430 @@
+package com.example.dbclient;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Кэш метаданных схемы одного подключения: таблицы и представления с колонками и их типами.
+ * <p>
+ * Снимок хранится на диске и при следующем запуске доступен сразу, ещё до обращения к БД.
+ * Обновление инкрементальное: одним запросом читается список объектов с признаком изменения
+ * (в Oracle — {@code LAST_DDL_TIME}, в PostgreSQL — {@code xmin} строк {@code pg_class} и {@code pg_attribute},
+ * которые меняются при любом DDL таблицы), колонки перечитываются только у новых и изменённых объектов —
+ * по схемам, а не через {@link DatabaseMetaData} по одной таблице. Для прочих СУБД колонки читаются
+ * через {@code DatabaseMetaData} только у новых таблиц.
+ * <p>
+ * Загружает и обновляет кэш один фоновый поток ({@link SchemaCatalog}); индекс для автодополнения
+ * ({@link SchemaIndex}) по ходу загрузки публикуется не чаще раза в секунду и читается из любого потока.
+ */
+public class SchemaCache {
+    private static final long PUBLISH_INTERVAL_NANOS = 1_000_000_000L;
+    /** Если в схеме изменилось больше таблиц, колонки всей схемы читаются одним запросом. */
+    private static final int PER_TABLE_LIMIT = 50;
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("dd.MM HH:mm");
+
+    /** Таблица или представление; после публикации в индексе не изменяется. */
+    public static final class Table {
+        private String schema;
+        private String name;
+        private String type;
+        private long version;
+        private List<Column> columns = new ArrayList<>();
+
+        public Table() {
+        }
+
+        Table(String schema, String name, String type, long version, List<Column> columns) {
+            this.schema = schema;
+            this.name = name;
+            this.type = type;
+            this.version = version;
+            this.columns = columns;
+        }
+
+        public String getSchema() { return schema; }
+        public void setSchema(String schema) { this.schema = schema; }
+
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+
+        public String getType() { return type; }
+        public void setType(String type) { this.type = type; }
+
+        /** Признак изменения объекта в БД (время DDL или xmin каталога). */
+        public long getVersion() { return version; }
+        public void setVersion(long version) { this.version = version; }
+
+        public List<Column> getColumns() { return columns; }
+        public void setColumns(List<Column> columns) { this.columns = columns != null ? columns : new ArrayList<>(); }
+    }
+
+    public static final class Column {
+        private String name;
+        private String type;
+
+        public Column() {
+        }
+
+        Column(String name, String type) {
+            this.name = name;
+            this.type = type;
+        }
+
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+
+        public String getType() { return type; }
+        public void setType(String type) { this.type = type; }
+    }
+
+    /** Содержимое файла кэша. */
+    public static final class Snapshot {
+        private LocalDateTime savedAt;
+        private List<Table> tables = new ArrayList<>();
+
+        public LocalDateTime getSavedAt() { return savedAt; }
+        public void setSavedAt(LocalDateTime savedAt) { this.savedAt = savedAt; }
+
+        public List<Table> getTables() { return tables; }
+        public void setTables(List<Table> tables) { this.tables = tables != null ? tables : new ArrayList<>(); }
+    }
+
+    private final DbConnectionInfo connection;
+    private final Path file;
+    private final ObjectMapper mapper;
+    private final Dialect dialect;
+
+    // изменяется только потоком загрузки
+    private final Map<String, Table> tables = new HashMap<>();
+    private boolean diskLoaded;
+    private long lastPublishNanos;
+
+    private volatile SchemaIndex index = SchemaIndex.EMPTY;
+    private volatile String status = "схема не загружена";
+
+    SchemaCache(DbConnectionInfo connection, Path file, ObjectMapper mapper) {
+        this.connection = connection;
+        this.file = file;
+        this.mapper = mapper;
+        if ("Oracle".equals(connection.getType())) {
+            dialect = new OracleDialect();
+        } else if ("PostgreSQL".equals(connection.getType())) {
+            dialect = new PostgresDialect();
+        } else {
+            dialect = new JdbcDialect();
+        }
+    }
+
+    /** Текущий индекс имён; пока кэш загружается — по уже загруженной части. */
+    SchemaIndex getIndex() {
+        return index;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    /** Читает снимок с диска, если он ещё не прочитан. Вызывается потоком загрузки. */
+    void loadFromDisk() throws IOException {
+        if (diskLoaded) {
+            return;
+        }
+        diskLoaded = true;
+        if (!Files.exists(file)) {
+            return;
+        }
+        Snapshot snapshot = mapper.readValue(file.toFile(), Snapshot.class);
+        for (Table table : snapshot.getTables()) {
+            tables.put(key(table.getSchema(), table.getName()), table);
+        }
+        publish();
+        status = "схема: " + tables.size() + " объектов из кэша от "
+                + (snapshot.getSavedAt() != null ? TIME_FORMAT.format(snapshot.getSavedAt()) : "?") + ", обновляется…";
+    }
+
+    /**
+     * Сверяет кэш с БД на отдельном соединении и сохраняет его на диск. Вызывается потоком загрузки.
+     *
+     * @return число перечитанных объектов
+     */
+    int refresh() throws SQLException, IOException {
+        long started = System.nanoTime();
+        int changedCount = 0;
+        if (tables.isEmpty()) {
+            status = "схема: чтение списка объектов…";
+        }
+        try (Connection conn = JdbcDrivers.connect(connection)) {
+            Map<String, Table> current = dialect.listObjects(conn);
+            boolean removed = tables.keySet().retainAll(current.keySet());
+
+            // изменённые объекты по схемам
+            Map<String, List<Table>> changed = new TreeMap<>(Comparator.nullsFirst(Comparator.naturalOrder()));
+            for (Map.Entry<String, Table> entry : current.entrySet()) {
+                Table cached = tables.get(entry.getKey());
+                Table fresh = entry.getValue();
+                if (cached == null || cached.getVersion() != fresh.getVersion() || !cached.getType().equals(fresh.getType())) {
+                    changed.computeIfAbsent(fresh.getSchema(), k -> new ArrayList<>()).add(fresh);
+                }
+            }
+            int total = changed.values().stream().mapToInt(List::size).sum();
+            for (Map.Entry<String, List<Table>> schema : changed.entrySet()) {
+                List<Table> schemaTables = schema.getValue();
+                Map<String, List<Column>> columns = dialect.loadColumns(conn, schema.getKey(),
+                        schemaTables.size() > PER_TABLE_LIMIT ? null : schemaTables);
+                for (Table table : schemaTables) {
+                    // новый объект вместо изменения прежнего: опубликованный индекс читают другие потоки
+                    tables.put(key(table.getSchema(), table.getName()), new Table(table.getSchema(), table.getName(),
+                            table.getType(), table.getVersion(), columns.getOrDefault(table.getName(), new ArrayList<>())));
+                }
+                changedCount += schemaTables.size();
+                status = "схема: загрузка " + changedCount + " из " + total + " изменённых объектов…";
+                if (System.nanoTime() - lastPublishNanos >= PUBLISH_INTERVAL_NANOS) {
+                    publish();
+                }
+            }
+            if (changedCount > 0 || removed || index == SchemaIndex.EMPTY) {
+                publish();
+                save();
+            }
+        }
+        status = "схема: " + tables.size() + " объектов, обновлена " + TIME_FORMAT.format(LocalDateTime.now())
+                + (changedCount > 0 ? " (перечитано " + changedCount + " за "
+                + (System.nanoTime() - started) / 1_000_000 + " мс)" : "");
+        return changedCount;
+    }
+
+    void markFailed(String message) {
+        status = "схема: " + index.getTableCount() + " объектов, ошибка обновления: " + message;
+    }
+
+    private void publish() {
+        index = new SchemaIndex(new ArrayList<>(tables.values()));
+        lastPublishNanos = System.nanoTime();
+    }
+
+    private void save() throws IOException {
+        Snapshot snapshot = new Snapshot();
+        snapshot.setSavedAt(LocalDateTime.now());
+        snapshot.setTables(new ArrayList<>(tables.values()));
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        mapper.writeValue(temp.toFile(), snapshot);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String key(String schema, String name) {
+        return schema + "." + name;
+    }
+
+    /** Чтение метаданных конкретной СУБД. */
+    private interface Dialect {
+        /** Все таблицы и представления с признаком изменения, без колонок; ключ — {@code схема.имя}. */
+        Map<String, Table> listObjects(Connection conn) throws SQLException;
+
+        /**
+         * @param only таблицы, колонки которых нужны; {@code null} — все таблицы схемы
+         * @return колонки по имени таблицы в порядке определения
+         */
+        Map<String, List<Column>> loadColumns(Connection conn, String schema, Collection<Table> only) throws SQLException;
+    }
+
+    private static final class OracleDialect implements Dialect {
+        private static final String SYSTEM_SCHEMAS = "'SYS', 'SYSTEM', 'XDB', 'MDSYS', 'CTXSYS', 'ORDSYS', 'ORDDATA', "
+                + "'WMSYS', 'OLAPSYS', 'OUTLN', 'DBSNMP', 'APPQOSSYS', 'LBACSYS', 'DVSYS', 'AUDSYS', 'GSMADMIN_INTERNAL', "
+                + "'OJVMSYS', 'DBSFWUSER', 'REMOTE_SCHEDULER_AGENT', 'ORDPLUGINS', 'SI_INFORMTN_SCHEMA', 'EXFSYS', 'FLOWS_FILES'";
+        private static final String COLUMNS_SQL = "SELECT table_name, column_name, data_type, data_length, data_precision, "
+                + "data_scale FROM all_tab_columns WHERE owner = ?";
+
+        @Override
+        public Map<String, Table> listObjects(Connection conn) throws SQLException {
+            Map<String, Table> result = new HashMap<>();
+            try (Statement stmt = conn.createStatement()) {
+                stmt.setFetchSize(5000);
+                try (ResultSet rs = stmt.executeQuery("SELECT owner, object_name, object_type, last_ddl_time FROM all_objects "
+                        + "WHERE object_type IN ('TABLE', 'VIEW', 'MATERIALIZED VIEW') AND object_name NOT LIKE 'BIN$%' "
+                        + "AND owner NOT IN (" + SYSTEM_SCHEMAS + ") AND owner NOT LIKE 'APEX%'")) {
+                    while (rs.next()) {
+                        Timestamp ddlTime = rs.getTimestamp(4);
+                        Table table = new Table(rs.getString(1), rs.getString(2), rs.getString(3),
+                                ddlTime != null ? ddlTime.getTime() : 0, null);
+                        // у материализованного представления есть и объект TABLE с тем же именем
+                        result.merge(key(table.getSchema(), table.getName()), table,
+                                (a, b) -> a.getType().equals("TABLE") ? b : a);
+                    }
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public Map<String, List<Column>> loadColumns(Connection conn, String schema, Collection<Table> only)
+                throws SQLException {
+            Map<String, List<Column>> result = new HashMap<>();
+            if (only == null) {
+                try (PreparedStatement stmt = conn.prepareStatement(COLUMNS_SQL + " ORDER BY table_name, column_id")) {
+                    stmt.setFetchSize(5000);
+                    stmt.setString(1, schema);
+                    readColumns(stmt, result);
+                }
+                return result;
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(COLUMNS_SQL + " AND table_name = ? ORDER BY column_id")) {
+                stmt.setFetchSize(500);
+                for (Table table : only) {
+                    stmt.setString(1, schema);
+                    stmt.setString(2, table.getName());
+                    readColumns(stmt, result);
+                }
+            }
+            return result;
+        }
+
+        private static void readColumns(PreparedStatement stmt, Map<String, List<Column>> result) throws SQLException {
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    result.computeIfAbsent(rs.getString(1), k -> new ArrayList<>())
+                            .add(new Column(rs.getString(2), oracleType(rs)));
+                }
+            }
+        }
+
+        /** Тип в виде, привычном по DDL: {@code NUMBER(10,2)}, {@code VARCHAR2(40)}. */
+        private static String oracleType(ResultSet rs) throws SQLException {
+            String type = rs.getString(3);
+            int length = rs.getInt(4);
+            int precision = rs.getInt(5);
+            boolean hasPrecision = !rs.wasNull();
+            int scale = rs.getInt(6);
+            if (type.equals("NUMBER") && hasPrecision) {
+                return scale > 0 ? "NUMBER(" + precision + "," + scale + ")" : "NUMBER(" + precision + ")";
+            }
+            if (type.endsWith("CHAR2") || type.endsWith("CHAR") || type.equals("RAW")) {
+                return type + "(" + length + ")";
+            }
+            return type;
+        }
+    }
+
+    private static final class PostgresDialect implements Dialect {
+        private static final String COLUMNS_SQL = "SELECT c.relname, a.attname, pg_catalog.format_type(a.atttypid, a.atttypmod) "
+                + "FROM pg_catalog.pg_attribute a JOIN pg_catalog.pg_class c ON c.oid = a.attrelid "
+                + "JOIN pg_catalog.pg_namespace n ON n.oid = c.relnamespace "
+                + "WHERE n.nspname = ? AND a.attnum > 0 AND NOT a.attisdropped";
+
+        @Override
+        public Map<String, Table> listObjects(Connection conn) throws SQLException {
+            Map<String, Table> result = new HashMap<>();
+            // xmin строки меняется при каждом её обновлении: у pg_class — при ALTER TABLE, у pg_attribute —
+            // при добавлении, переименовании и смене типа колонки; VACUUM и ANALYZE обновляют pg_class на месте
+            String sql = "SELECT n.nspname, c.relname, c.relkind, c.xmin::text::bigint, "
+                    + "(SELECT max(a.xmin::text::bigint) FROM pg_catalog.pg_attribute a WHERE a.attrelid = c.oid) "
+                    + "FROM pg_catalog.pg_class c JOIN pg_catalog.pg_namespace n ON n.oid = c.relnamespace "
+                    + "WHERE c.relkind IN ('r', 'p', 'v', 'm', 'f') "
+                    + "AND n.nspname NOT IN ('pg_catalog', 'information_schema') AND n.nspname NOT LIKE 'pg\\_%'";
+            boolean autoCommit = conn.getAutoCommit();
+            try (Statement stmt = conn.createStatement()) {
+                conn.setAutoCommit(false); // выборка порциями через курсор
+                stmt.setFetchSize(5000);
+                try (ResultSet rs = stmt.executeQuery(sql)) {
+                    while (rs.next()) {
+                        Table table = new Table(rs.getString(1), rs.getString(2), relationType(rs.getString(3)),
+                                rs.getLong(4) * 4_294_967_311L + rs.getLong(5), null);
+                        result.put(key(table.getSchema(), table.getName()), table);
+                    }
+                }
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+            return result;
+        }
+
+        @Override
+        public Map<String, List<Column>> loadColumns(Connection conn, String schema, Collection<Table> only)
+                throws SQLException {
+            Map<String, List<Column>> result = new HashMap<>();
+            String sql = only == null
+                    ? COLUMNS_SQL + " ORDER BY c.relname, a.attnum"
+                    : COLUMNS_SQL + " AND c.relname = ANY (?) ORDER BY c.relname, a.attnum";
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setString(1, schema);
+                if (only != null) {
+                    stmt.setArray(2, conn.createArrayOf("text", only.stream().map(Table::getName).toArray()));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        result.computeIfAbsent(rs.getString(1), k -> new ArrayList<>())
+                                .add(new Column(rs.getString(2), rs.getString(3)));
+                    }
+                }
+            }
+            return result;
+        }
+
+        private static String relationType(String relkind) {
+            switch (relkind) {
+                case "v": return "VIEW";
+                case "m": return "MATERIALIZED VIEW";
+                case "f": return "FOREIGN TABLE";
+                default: return "TABLE";
+            }
+        }
+    }
+
+    /** Прочие СУБД: признака изменения нет, поэтому колонки читаются только у новых таблиц. */
+    private static final class JdbcDialect implements Dialect {
+        @Override
+        public Map<String, Table> listObjects(Connection conn) throws SQLException {
+            Map<String, Table> result = new HashMap<>();
+            try (ResultSet rs = conn.getMetaData().getTables(null, null, "%", new String[]{"TABLE", "VIEW"})) {
+                while (rs.next()) {
+                    String schema = rs.getString("TABLE_SCHEM") != null ? rs.getString("TABLE_SCHEM") : rs.getString("TABLE_CAT");
+                    Table table = new Table(schema, rs.getString("TABLE_NAME"), rs.getString("TABLE_TYPE"), 0, null);
+                    result.put(key(table.getSchema(), table.getName()), table);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public Map<String, List<Column>> loadColumns(Connection conn, String schema, Collection<Table> only)
+                throws SQLException {
+            Map<String, List<Column>> result = new HashMap<>();
+            DatabaseMetaData meta = conn.getMetaData();
+            List<String> names = new ArrayList<>();
+            if (only == null) {
+                names.add("%");
+            } else {
+                only.forEach(table -> names.add(table.getName()));
+            }
+            for (String name : names) {
+                try (ResultSet rs = meta.getColumns(null, schema, name, "%")) {
+                    while (rs.next()) {
+                        result.computeIfAbsent(rs.getString("TABLE_NAME"), k -> new ArrayList<>())
+                                .add(new Column(rs.getString("COLUMN_NAME"), rs.getString("TYPE_NAME")));
+                    }
+                }
+            }
+            return result;
+        }
+    }
+}
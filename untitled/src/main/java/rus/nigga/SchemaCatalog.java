@@ -0,0 +1,81 @@
+package com.example.dbclient;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Кэши метаданных схемы по одному на каждый {@link DbConnectionInfo}, файлы кэшей — в {@code dir}.
+ * Все загрузки выполняет один фоновый поток, чтобы чтение словаря большой БД не занимало
+ * несколько сессий сразу; повторный запрос обновления, пока прежний в очереди, не ставится.
+ */
+public class SchemaCatalog {
+    private final Path dir;
+    private final ObjectMapper mapper;
+    private final Consumer<String> log;
+    private final Map<DbConnectionInfo, SchemaCache> caches = new ConcurrentHashMap<>();
+    private final Set<DbConnectionInfo> queued = ConcurrentHashMap.newKeySet();
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "schema-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param log сообщения о загрузке; вызывается из фонового потока
+     */
+    public SchemaCatalog(Path dir, ObjectMapper mapper, Consumer<String> log) {
+        this.dir = dir;
+        this.mapper = mapper;
+        this.log = log;
+    }
+
+    public SchemaCache get(DbConnectionInfo info) {
+        return caches.computeIfAbsent(info, key -> new SchemaCache(key, dir.resolve(fileName(key)), mapper));
+    }
+
+    /** Индекс имён подключения для автодополнения; пустой, если кэш ещё не загружен. */
+    SchemaIndex getIndex(DbConnectionInfo info) {
+        SchemaCache cache = info != null ? caches.get(info) : null;
+        return cache != null ? cache.getIndex() : SchemaIndex.EMPTY;
+    }
+
+    /** Читает кэш с диска (при первом обращении) и сверяет его с БД в фоне. */
+    public void refresh(DbConnectionInfo info) {
+        if (!queued.add(info)) {
+            return;
+        }
+        SchemaCache cache = get(info);
+        loader.execute(() -> {
+            queued.remove(info);
+            try {
+                cache.loadFromDisk();
+            } catch (Exception e) {
+                log.accept("Кэш схемы " + info.getName() + " не прочитан, будет загружен заново: " + e.getMessage());
+            }
+            try {
+                int changed = cache.refresh();
+                if (changed > 0) {
+                    log.accept(info.getName() + ": " + cache.getStatus());
+                }
+            } catch (Exception e) {
+                cache.markFailed(e.getMessage());
+                log.accept("Ошибка загрузки схемы " + info.getName() + ": " + e.getMessage());
+            }
+        });
+    }
+
+    /** Файл кэша свой для адреса и пользователя: от них зависит видимый набор объектов. */
+    private static String fileName(DbConnectionInfo info) {
+        String identity = info.getName() + '\n' + info.getUrl() + '\n' + info.getUsername();
+        return UUID.nameUUIDFromBytes(identity.getBytes(StandardCharsets.UTF_8)) + ".json";
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.dbclient;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Неизменяемый индекс имён схемы для автодополнения: отсортированные массивы ключей в верхнем регистре,
+ * поиск по префиксу — двоичным поиском начала диапазона, без перебора всех объектов.
+ * Строится в фоне при каждом обновлении кэша ({@link SchemaCache}) и подменяется целиком.
+ */
+final class SchemaIndex {
+    static final SchemaIndex EMPTY = new SchemaIndex(Collections.emptyList());
+
+    /** Вариант автодополнения: вставляемое имя и пояснение (тип колонки, схема таблицы). */
+    static final class Suggestion {
+        final String name;
+        final String detail;
+
+        Suggestion(String name, String detail) {
+            this.name = name;
+            this.detail = detail;
+        }
+    }
+
+    private final int tableCount;
+    private final String[] tableKeys;
+    private final SchemaCache.Table[] tables;
+    private final String[] columnKeys;
+    private final String[] columnNames;
+    private final String[] columnTypes;
+    private final Map<String, List<SchemaCache.Table>> tablesByName = new HashMap<>();
+    private final Map<String, List<SchemaCache.Table>> tablesBySchema = new HashMap<>();
+
+    SchemaIndex(Collection<SchemaCache.Table> source) {
+        tableCount = source.size();
+        List<SchemaCache.Table> sorted = new ArrayList<>(source);
+        sorted.sort((a, b) -> upper(a.getName()).compareTo(upper(b.getName())));
+        tables = sorted.toArray(new SchemaCache.Table[0]);
+        tableKeys = new String[tables.length];
+        // одна запись на имя колонки: тип берётся у первой встреченной таблицы
+        Map<String, SchemaCache.Column> uniqueColumns = new HashMap<>();
+        for (int i = 0; i < tables.length; i++) {
+            SchemaCache.Table table = tables[i];
+            tableKeys[i] = upper(table.getName());
+            tablesByName.computeIfAbsent(tableKeys[i], k -> new ArrayList<>()).add(table);
+            tablesBySchema.computeIfAbsent(upper(table.getSchema()), k -> new ArrayList<>()).add(table);
+            for (SchemaCache.Column column : table.getColumns()) {
+                uniqueColumns.putIfAbsent(upper(column.getName()), column);
+            }
+        }
+        columnKeys = uniqueColumns.keySet().toArray(new String[0]);
+        Arrays.sort(columnKeys);
+        columnNames = new String[columnKeys.length];
+        columnTypes = new String[columnKeys.length];
+        for (int i = 0; i < columnKeys.length; i++) {
+            SchemaCache.Column column = uniqueColumns.get(columnKeys[i]);
+            columnNames[i] = column.getName();
+            columnTypes[i] = column.getType();
+        }
+    }
+
+    int getTableCount() {
+        return tableCount;
+    }
+
+    boolean isSchema(String name) {
+        return tablesBySchema.containsKey(upper(name));
+    }
+
+    /** Таблицы с таким именем во всех схемах или таблица {@code schema.name}. */
+    List<SchemaCache.Table> findTables(String qualifiedName) {
+        int dot = qualifiedName.lastIndexOf('.');
+        List<SchemaCache.Table> byName = tablesByName.getOrDefault(upper(unquote(qualifiedName.substring(dot + 1))),
+                Collections.emptyList());
+        if (dot < 0) {
+            return byName;
+        }
+        String schema = upper(unquote(qualifiedName.substring(0, dot)));
+        List<SchemaCache.Table> result = new ArrayList<>();
+        for (SchemaCache.Table table : byName) {
+            if (upper(table.getSchema()).equals(schema)) {
+                result.add(table);
+            }
+        }
+        return result;
+    }
+
+    /** Таблицы и представления, имя которых начинается с {@code prefix}. */
+    List<Suggestion> tablesStartingWith(String prefix, int limit) {
+        List<Suggestion> result = new ArrayList<>();
+        String key = upper(prefix);
+        for (int i = lowerBound(tableKeys, key); i < tableKeys.length && result.size() < limit; i++) {
+            if (!tableKeys[i].startsWith(key)) {
+                break;
+            }
+            result.add(new Suggestion(tables[i].getName(), tables[i].getSchema() != null ? tables[i].getType() + " " + tables[i].getSchema() : tables[i].getType()));
+        }
+        return result;
+    }
+
+    /** Таблицы схемы с именем на {@code prefix}. */
+    List<Suggestion> tablesOfSchema(String schema, String prefix, int limit) {
+        String key = upper(prefix);
+        List<Suggestion> result = new ArrayList<>();
+        for (SchemaCache.Table table : tablesBySchema.getOrDefault(upper(schema), Collections.emptyList())) {
+            if (upper(table.getName()).startsWith(key)) {
+                result.add(new Suggestion(table.getName(), table.getType()));
+            }
+        }
+        result.sort((a, b) -> upper(a.name).compareTo(upper(b.name)));
+        return result.size() > limit ? result.subList(0, limit) : result;
+    }
+
+    /** Колонки таблиц с именем на {@code prefix}, в порядке колонок таблицы. */
+    List<Suggestion> columnsOf(List<SchemaCache.Table> owners, String prefix, int limit) {
+        List<Suggestion> result = new ArrayList<>();
+        Set<String> seen = new LinkedHashSet<>();
+        String key = upper(prefix);
+        for (SchemaCache.Table table : owners) {
+            for (SchemaCache.Column column : table.getColumns()) {
+                if (result.size() >= limit) {
+                    return result;
+                }
+                if (upper(column.getName()).startsWith(key) && seen.add(upper(column.getName()))) {
+                    result.add(new Suggestion(column.getName(), column.getType() + " — " + table.getName()));
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Имена колонок всех таблиц, начинающиеся с {@code prefix}. */
+    List<Suggestion> anyColumnsStartingWith(String prefix, int limit) {
+        List<Suggestion> result = new ArrayList<>();
+        String key = upper(prefix);
+        for (int i = lowerBound(columnKeys, key); i < columnKeys.length && result.size() < limit; i++) {
+            if (!columnKeys[i].startsWith(key)) {
+                break;
+            }
+            result.add(new Suggestion(columnNames[i], columnTypes[i]));
+        }
+        return result;
+    }
+
+    /** Первый индекс, ключ которого не меньше {@code key}. */
+    private static int lowerBound(String[] keys, String key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle].compareTo(key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    static String unquote(String name) {
+        return name.length() >= 2 && name.startsWith("\"") && name.endsWith("\"") ? name.substring(1, name.length() - 1) : name;
+    }
+
+    private static String upper(String name) {
+        return name == null ? "" : name.toUpperCase(Locale.ROOT);
+    }
+}
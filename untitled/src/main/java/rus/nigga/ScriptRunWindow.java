@@ -0,0 +1,203 @@
+package com.example.dbclient;
+
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.TextField;
+import javafx.scene.image.Image;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+import javafx.util.Duration;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Диалог параметров выполнения скрипта и окно отчёта по выражениям.
+ * Результаты приходят из потока выполнения через {@link #add} и переносятся в таблицу
+ * порциями несколько раз в секунду, чтобы длинный скрипт не засыпал FX-поток обновлениями.
+ */
+public class ScriptRunWindow {
+    private final Consumer<Scene> styler;
+    private final Image icon;
+    private final Queue<ScriptRunner.StatementResult> pending = new ConcurrentLinkedQueue<>();
+    private final TableView<ScriptRunner.StatementResult> table = new TableView<>();
+    private final Label summaryLabel = new Label();
+    private final Button stopButton = new Button("Остановить");
+    private Timeline refresh;
+    private int total;
+    private int failed;
+
+    public ScriptRunWindow(Consumer<Scene> styler, Image icon) {
+        this.styler = styler;
+        this.icon = icon;
+    }
+
+    /**
+     * @return параметры, выбранные пользователем, или {@code null}, если выполнение отменено
+     */
+    public ScriptRunner.Options askOptions(Window owner, List<SqlScript.ScriptStatement> statements,
+                                           ScriptRunner.Options defaults, int timeoutSeconds, int fetchSize) {
+        Stage dialog = new Stage();
+        dialog.initModality(Modality.APPLICATION_MODAL);
+        dialog.initOwner(owner);
+        dialog.setTitle("Выполнение скрипта");
+        dialog.getIcons().add(icon);
+
+        long dml = statements.stream().filter(s -> s.getKind() == SqlScript.Kind.DML).count();
+        Label info = new Label("Выражений: " + statements.size() + ", из них DML: " + dml);
+
+        TextField batchField = new TextField(String.valueOf(defaults.getBatchSize()));
+        TextField commitField = new TextField(String.valueOf(defaults.getCommitEvery()));
+        commitField.setPromptText("0 — в конце скрипта");
+        CheckBox continueBox = new CheckBox("Продолжать после ошибки");
+        continueBox.setSelected(defaults.isContinueOnError());
+
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(10);
+        grid.addRow(0, new Label("Размер пакета DML:"), batchField);
+        grid.addRow(1, new Label("Фиксировать каждые N выражений:"), commitField);
+        grid.addRow(2, continueBox);
+
+        ScriptRunner.Options[] result = {null};
+        Button okButton = new Button("Выполнить");
+        okButton.setDefaultButton(true);
+        okButton.setOnAction(e -> {
+            try {
+                result[0] = new ScriptRunner.Options(
+                        Integer.parseInt(batchField.getText().trim()),
+                        Integer.parseInt(commitField.getText().trim().isEmpty() ? "0" : commitField.getText().trim()),
+                        continueBox.isSelected(), timeoutSeconds, fetchSize);
+                dialog.close();
+            } catch (NumberFormatException ex) {
+                info.setText("Размер пакета и число выражений должны быть целыми числами");
+            }
+        });
+        Button cancelButton = new Button("Отмена");
+        cancelButton.setCancelButton(true);
+        cancelButton.setOnAction(e -> dialog.close());
+        HBox buttons = new HBox(10, okButton, cancelButton);
+        buttons.setAlignment(Pos.CENTER_RIGHT);
+
+        VBox vbox = new VBox(15, info, grid, buttons);
+        vbox.setPadding(new Insets(15));
+        Scene dialogScene = new Scene(vbox, 440, 220);
+        styler.accept(dialogScene);
+        dialog.setScene(dialogScene);
+        dialog.showAndWait();
+        return result[0];
+    }
+
+    /**
+     * @param onStop прерывает выполнение скрипта
+     */
+    public void show(Window owner, String title, int statementCount, Runnable onStop) {
+        total = statementCount;
+        Stage window = new Stage();
+        window.initOwner(owner);
+        window.setTitle(title);
+        window.getIcons().add(icon);
+
+        table.getColumns().add(column("№", 50, r -> String.valueOf(r.getStatement().getNumber())));
+        table.getColumns().add(column("Строка", 60, r -> String.valueOf(r.getStatement().getLine())));
+        table.getColumns().add(column("Выражение", 330, r -> r.getStatement().getSql().replaceAll("\\s+", " ")));
+        table.getColumns().add(column("Состояние", 95, r -> r.getStatus().getTitle()));
+        table.getColumns().add(column("Изменено", 80, r -> formatCount(r.getUpdateCount())));
+        table.getColumns().add(column("Строк", 70, r -> r.getRows() < 0 ? "" : String.valueOf(r.getRows())));
+        table.getColumns().add(column("Время, мс", 80, r -> r.getStatus() == ScriptRunner.Status.SKIPPED
+                ? "" : String.valueOf(r.getMillis())));
+        table.getColumns().add(column("Пакет", 55, r -> r.getBatchSize() > 1 ? String.valueOf(r.getBatchSize()) : ""));
+        table.getColumns().add(column("Ошибка", 400, r -> r.getError() != null ? r.getError() : ""));
+        VBox.setVgrow(table, Priority.ALWAYS);
+
+        stopButton.setOnAction(e -> {
+            stopButton.setDisable(true);
+            onStop.run();
+        });
+        HBox bottom = new HBox(10, stopButton, summaryLabel);
+        bottom.setAlignment(Pos.CENTER_LEFT);
+
+        refresh = new Timeline(new KeyFrame(Duration.millis(250), e -> drain()));
+        refresh.setCycleCount(Animation.INDEFINITE);
+        refresh.play();
+        updateProgress();
+
+        VBox vbox = new VBox(10, table, bottom);
+        vbox.setPadding(new Insets(10));
+        Scene windowScene = new Scene(vbox, 1250, 500);
+        styler.accept(windowScene);
+        window.setScene(windowScene);
+        window.show();
+    }
+
+    /** Добавляет результат выражения; можно вызывать из любого потока. */
+    public void add(ScriptRunner.StatementResult result) {
+        pending.add(result);
+    }
+
+    /** Показывает итог выполнения; вызывается из FX-потока. */
+    public void finish(String summary) {
+        if (refresh != null) {
+            refresh.stop();
+        }
+        drain();
+        stopButton.setDisable(true);
+        summaryLabel.setText(summary);
+    }
+
+    private void drain() {
+        List<ScriptRunner.StatementResult> batch = new ArrayList<>();
+        ScriptRunner.StatementResult result;
+        while ((result = pending.poll()) != null) {
+            batch.add(result);
+            if (result.getStatus() == ScriptRunner.Status.FAILED) {
+                failed++;
+            }
+        }
+        if (!batch.isEmpty()) {
+            table.getItems().addAll(batch);
+            table.scrollTo(table.getItems().size() - 1);
+            updateProgress();
+        }
+    }
+
+    private void updateProgress() {
+        summaryLabel.setText("Обработано " + table.getItems().size() + " из " + total
+                + (failed > 0 ? ", ошибок: " + failed : ""));
+    }
+
+    private static String formatCount(long count) {
+        if (count == Statement.SUCCESS_NO_INFO) {
+            return "?";
+        }
+        return count < 0 ? "" : String.valueOf(count);
+    }
+
+    private static TableColumn<ScriptRunner.StatementResult, String> column(
+            String title, double width, Function<ScriptRunner.StatementResult, String> value) {
+        TableColumn<ScriptRunner.StatementResult, String> column = new TableColumn<>(title);
+        column.setCellValueFactory(param -> new SimpleStringProperty(value.apply(param.getValue())));
+        column.setPrefWidth(width);
+        return column;
+    }
+}
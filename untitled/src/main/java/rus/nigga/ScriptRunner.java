@@ -0,0 +1,395 @@
+package com.example.dbclient;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Выполнение скрипта ({@link SqlScript}) на одном соединении.
+ * <ul>
+ *     <li>подряд идущие DML объединяются в пакет {@code addBatch}/{@code executeBatch} до {@code batchSize} выражений;</li>
+ *     <li>фиксация каждые {@code commitEvery} выражений (0 — один раз в конце скрипта);</li>
+ *     <li>при ошибке скрипт останавливается и незафиксированные изменения откатываются, либо ошибка
+ *     записывается в отчёт и выполнение продолжается. В PostgreSQL ошибка прерывает всю транзакцию,
+ *     поэтому в режиме продолжения каждое выражение или пакет выполняется после точки сохранения;
+ *     упавший пакет откатывается к ней и повторяется по одному выражению, чтобы найти ошибочное.</li>
+ *     <li>{@code COMMIT} и {@code ROLLBACK} из скрипта выполняются без точки сохранения (транзакция, а с ней
+ *     и точка, после них заканчивается) и учитываются в счётчике фиксаций и незафиксированных выражений.</li>
+ * </ul>
+ * Результат каждого выражения передаётся {@link Listener} из потока выполнения.
+ */
+public class ScriptRunner {
+    public interface Listener {
+        void statementFinished(StatementResult result);
+    }
+
+    public enum Status {
+        OK("выполнено"), FAILED("ошибка"), SKIPPED("не выполнено");
+
+        private final String title;
+
+        Status(String title) {
+            this.title = title;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+    }
+
+    /** Параметры выполнения. */
+    public static final class Options {
+        private final int batchSize;
+        private final int commitEvery;
+        private final boolean continueOnError;
+        private final int timeoutSeconds;
+        private final int fetchSize;
+
+        /**
+         * @param batchSize       наибольший размер пакета DML; 1 — без пакетов
+         * @param commitEvery     число выражений между фиксациями; 0 — фиксация в конце скрипта
+         * @param timeoutSeconds  таймаут каждого выражения; 0 — без ограничения
+         */
+        public Options(int batchSize, int commitEvery, boolean continueOnError, int timeoutSeconds, int fetchSize) {
+            this.batchSize = Math.max(1, batchSize);
+            this.commitEvery = Math.max(0, commitEvery);
+            this.continueOnError = continueOnError;
+            this.timeoutSeconds = timeoutSeconds;
+            this.fetchSize = fetchSize;
+        }
+
+        public int getBatchSize() { return batchSize; }
+        public int getCommitEvery() { return commitEvery; }
+        public boolean isContinueOnError() { return continueOnError; }
+    }
+
+    private final Connection connection;
+    private final boolean postgres;
+    private final Options options;
+    private final RunningQuery running;
+    private final Listener listener;
+
+    private int succeeded;
+    private int failed;
+    private int skipped;
+    private long updatedRows;
+    private int commits;
+    private int uncommitted;
+    private boolean rolledBack;
+
+    public ScriptRunner(Connection connection, boolean postgres, Options options, RunningQuery running,
+                        Listener listener) {
+        this.connection = connection;
+        this.postgres = postgres;
+        this.options = options;
+        this.running = running;
+        this.listener = listener;
+    }
+
+    /** Выполняет выражения по порядку; возвращает итог, в том числе после остановки по ошибке или отмене. */
+    public Summary run(List<SqlScript.ScriptStatement> statements) throws SQLException {
+        long startNanos = System.nanoTime();
+        boolean autoCommit = connection.getAutoCommit();
+        boolean completed = false;
+        int position = 0;
+        connection.setAutoCommit(false);
+        try (Statement stmt = connection.createStatement()) {
+            running.attachStatement(stmt);
+            if (options.timeoutSeconds > 0) {
+                stmt.setQueryTimeout(options.timeoutSeconds);
+            }
+            stmt.setFetchSize(options.fetchSize);
+
+            boolean ok = true;
+            while (position < statements.size() && !running.isCancelled()) {
+                int end = groupEnd(statements, position);
+                ok = end - position > 1
+                        ? runBatch(stmt, statements.subList(position, end))
+                        : runSingle(stmt, statements.get(position));
+                position = end;
+                if (!ok && !options.continueOnError) {
+                    break;
+                }
+                if (options.commitEvery > 0 && uncommitted >= options.commitEvery) {
+                    commit();
+                }
+            }
+            if (ok || options.continueOnError) {
+                if (!running.isCancelled()) {
+                    commit();
+                    completed = true;
+                }
+            }
+        } finally {
+            if (!completed) {
+                rollback();
+            }
+            for (int i = position; i < statements.size(); i++) {
+                report(statements.get(i), Status.SKIPPED, -1, -1, 0, 1, null);
+            }
+            connection.setAutoCommit(autoCommit);
+        }
+        return new Summary(succeeded, failed, skipped, updatedRows, commits, rolledBack,
+                running.isCancelled(), (System.nanoTime() - startNanos) / 1_000_000);
+    }
+
+    /** Конец группы, начинающейся с {@code start}: пакет подряд идущих DML или одно выражение. */
+    private int groupEnd(List<SqlScript.ScriptStatement> statements, int start) {
+        int limit = options.batchSize;
+        if (options.commitEvery > 0) {
+            limit = Math.min(limit, Math.max(1, options.commitEvery - uncommitted)); // пакет не пересекает фиксацию
+        }
+        int end = start + 1;
+        if (statements.get(start).getKind() == SqlScript.Kind.DML) {
+            while (end < statements.size() && end - start < limit
+                    && statements.get(end).getKind() == SqlScript.Kind.DML) {
+                end++;
+            }
+        }
+        return end;
+    }
+
+    private boolean runSingle(Statement stmt, SqlScript.ScriptStatement statement) throws SQLException {
+        SqlScript.Kind kind = statement.getKind();
+        if (kind == SqlScript.Kind.COMMIT || kind == SqlScript.Kind.ROLLBACK) {
+            return endTransaction(stmt, statement);
+        }
+        Savepoint savepoint = setSavepoint();
+        long start = System.nanoTime();
+        try {
+            long rows = -1;
+            long updateCount = -1;
+            if (stmt.execute(statement.getSql())) {
+                rows = 0;
+                try (ResultSet rs = stmt.getResultSet()) {
+                    while (rs.next() && !running.isCancelled()) {
+                        rows++;
+                    }
+                }
+            } else {
+                updateCount = stmt.getUpdateCount();
+            }
+            releaseSavepoint(savepoint);
+            report(statement, Status.OK, updateCount, rows, elapsedMillis(start), 1, null);
+            return true;
+        } catch (SQLException e) {
+            rollbackTo(savepoint);
+            report(statement, Status.FAILED, -1, -1, elapsedMillis(start), 1, message(e));
+            return false;
+        }
+    }
+
+    /** COMMIT или ROLLBACK из скрипта. */
+    private boolean endTransaction(Statement stmt, SqlScript.ScriptStatement statement) {
+        long start = System.nanoTime();
+        try {
+            stmt.execute(statement.getSql());
+        } catch (SQLException e) {
+            // неудавшаяся фиксация (например, из-за отложенного ограничения) откатывает транзакцию
+            rolledBack |= uncommitted > 0;
+            uncommitted = 0;
+            report(statement, Status.FAILED, -1, -1, elapsedMillis(start), 1, message(e));
+            return false;
+        }
+        if (statement.getKind() == SqlScript.Kind.COMMIT && uncommitted > 0) {
+            commits++;
+        }
+        report(statement, Status.OK, -1, -1, elapsedMillis(start), 1, null);
+        uncommitted = 0; // само завершение транзакции фиксировать не нужно
+        return true;
+    }
+
+    private boolean runBatch(Statement stmt, List<SqlScript.ScriptStatement> batch) throws SQLException {
+        Savepoint savepoint = setSavepoint();
+        long start = System.nanoTime();
+        try {
+            for (SqlScript.ScriptStatement statement : batch) {
+                stmt.addBatch(statement.getSql());
+            }
+            int[] counts = stmt.executeBatch();
+            releaseSavepoint(savepoint);
+            long millis = elapsedMillis(start);
+            for (int i = 0; i < batch.size(); i++) {
+                report(batch.get(i), Status.OK, i < counts.length ? counts[i] : Statement.SUCCESS_NO_INFO,
+                        -1, millis, batch.size(), null);
+            }
+            return true;
+        } catch (BatchUpdateException e) {
+            long millis = elapsedMillis(start);
+            if (savepoint != null) {
+                // транзакция PostgreSQL после ошибки не принимает команд: откат пакета и повтор по одному
+                rollbackTo(savepoint);
+                boolean ok = true;
+                for (SqlScript.ScriptStatement statement : batch) {
+                    ok &= runSingle(stmt, statement);
+                }
+                return ok;
+            }
+            return reportBatchFailure(stmt, batch, e, millis);
+        } finally {
+            stmt.clearBatch();
+        }
+    }
+
+    /**
+     * Разбирает счётчики упавшего пакета. Драйвер либо останавливается на ошибке (счётчиков меньше,
+     * чем выражений), либо выполняет всё и помечает упавшие {@code EXECUTE_FAILED}.
+     */
+    private boolean reportBatchFailure(Statement stmt, List<SqlScript.ScriptStatement> batch,
+                                       BatchUpdateException e, long millis) throws SQLException {
+        int[] counts = e.getUpdateCounts() != null ? e.getUpdateCounts() : new int[0];
+        boolean stoppedAtError = counts.length < batch.size();
+        int failedIndex = -1;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == Statement.EXECUTE_FAILED) {
+                report(batch.get(i), Status.FAILED, -1, -1, millis, batch.size(), message(e));
+                failedIndex = failedIndex < 0 ? i : failedIndex;
+            } else {
+                report(batch.get(i), Status.OK, counts[i], -1, millis, batch.size(), null);
+            }
+        }
+        if (!stoppedAtError) {
+            return false;
+        }
+        report(batch.get(counts.length), Status.FAILED, -1, -1, millis, batch.size(), message(e));
+        for (int i = counts.length + 1; i < batch.size(); i++) {
+            if (options.continueOnError && !running.isCancelled()) {
+                runSingle(stmt, batch.get(i));
+            } else {
+                report(batch.get(i), Status.SKIPPED, -1, -1, 0, batch.size(), null);
+            }
+        }
+        return false;
+    }
+
+    private void report(SqlScript.ScriptStatement statement, Status status, long updateCount, long rows,
+                        long millis, int batchSize, String error) {
+        switch (status) {
+            case OK:
+                succeeded++;
+                uncommitted++;
+                if (updateCount > 0) {
+                    updatedRows += updateCount;
+                }
+                break;
+            case FAILED:
+                failed++;
+                break;
+            default:
+                skipped++;
+        }
+        listener.statementFinished(new StatementResult(statement, status, updateCount, rows, millis, batchSize, error));
+    }
+
+    private void commit() throws SQLException {
+        if (uncommitted > 0) {
+            connection.commit();
+            commits++;
+            uncommitted = 0;
+        }
+    }
+
+    private void rollback() {
+        try {
+            connection.rollback();
+            rolledBack |= uncommitted > 0;
+            uncommitted = 0;
+        } catch (SQLException e) {
+            // соединение уже недоступно — транзакция откатится сервером
+        }
+    }
+
+    /** Точка сохранения перед выражением — только там, где без неё ошибка прервёт всю транзакцию. */
+    private Savepoint setSavepoint() throws SQLException {
+        return postgres && options.continueOnError ? connection.setSavepoint() : null;
+    }
+
+    private void releaseSavepoint(Savepoint savepoint) throws SQLException {
+        if (savepoint != null) {
+            connection.releaseSavepoint(savepoint);
+        }
+    }
+
+    private void rollbackTo(Savepoint savepoint) throws SQLException {
+        if (savepoint != null) {
+            connection.rollback(savepoint);
+        }
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    private static String message(SQLException e) {
+        return e.getMessage() != null ? e.getMessage().strip() : e.getClass().getSimpleName();
+    }
+
+    /** Результат выражения скрипта. */
+    public static final class StatementResult {
+        private final SqlScript.ScriptStatement statement;
+        private final Status status;
+        private final long updateCount;
+        private final long rows;
+        private final long millis;
+        private final int batchSize;
+        private final String error;
+
+        StatementResult(SqlScript.ScriptStatement statement, Status status, long updateCount, long rows,
+                        long millis, int batchSize, String error) {
+            this.statement = statement;
+            this.status = status;
+            this.updateCount = updateCount;
+            this.rows = rows;
+            this.millis = millis;
+            this.batchSize = batchSize;
+            this.error = error;
+        }
+
+        public SqlScript.ScriptStatement getStatement() { return statement; }
+        public Status getStatus() { return status; }
+        /** Изменено строк; -1 — не применимо, {@link Statement#SUCCESS_NO_INFO} — драйвер не сообщил. */
+        public long getUpdateCount() { return updateCount; }
+        /** Строк в результате запроса; -1 — выражение не вернуло строк. */
+        public long getRows() { return rows; }
+        /** Время выражения, для пакета — время всего пакета. */
+        public long getMillis() { return millis; }
+        public int getBatchSize() { return batchSize; }
+        public String getError() { return error; }
+    }
+
+    /** Итог выполнения скрипта. */
+    public static final class Summary {
+        public final int succeeded;
+        public final int failed;
+        public final int skipped;
+        public final long updatedRows;
+        public final int commits;
+        public final boolean rolledBack;
+        public final boolean cancelled;
+        public final long millis;
+
+        Summary(int succeeded, int failed, int skipped, long updatedRows, int commits, boolean rolledBack,
+                boolean cancelled, long millis) {
+            this.succeeded = succeeded;
+            this.failed = failed;
+            this.skipped = skipped;
+            this.updatedRows = updatedRows;
+            this.commits = commits;
+            this.rolledBack = rolledBack;
+            this.cancelled = cancelled;
+            this.millis = millis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("выполнено %d, ошибок %d, не выполнено %d; изменено строк %d; фиксаций %d%s%s за %.1f с",
+                    succeeded, failed, skipped, updatedRows, commits,
+                    rolledBack ? "; незафиксированные изменения откачены" : "",
+                    cancelled ? "; прервано" : "", millis / 1000.0);
+        }
+    }
+}
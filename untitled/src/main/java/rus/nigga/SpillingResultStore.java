@@ -0,0 +1,337 @@
+package com.example.dbclient;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Результат, который держит в куче только первые строки в пределах бюджета памяти,
+ * а остальные сбрасывает в файл подкачки и подгружает обратно через отображение файла в память.
+ * <p>
+ * Формат файла: строки подряд, значения колонок в двоичном виде ({@link ResultColumn#spill}).
+ * Для каждого блока из {@link #BLOCK_ROWS} строк запоминается смещение его начала;
+ * при чтении отображается страница из нескольких блоков, блок целиком декодируется
+ * и небольшое число декодированных блоков кэшируется.
+ */
+public class SpillingResultStore implements ResultStore {
+    private static final int BLOCK_ROWS = 256;
+    private static final int PAGE_BLOCKS = 64;
+    private static final int CACHED_PAGES = 4;
+    private static final int CACHED_BLOCKS = 32;
+    private static final int MEMORY_CHECK_INTERVAL = 1024;
+    private static final String SPILL_FILE_PREFIX = "result-";
+    private static final String SPILL_FILE_SUFFIX = ".spill";
+
+    private final ColumnarResultStore memory;
+    private final Path spillDir;
+    private final long heapBudgetBytes;
+
+    // Состояние записи — только поток выборки
+    private FileChannel channel;
+    private CountingOutputStream counter;
+    private DataOutputStream out;
+    private int writtenSpillRows;
+
+    // Видимое читателям состояние
+    private volatile Path spillFile;
+    private volatile long[] blockOffsets = new long[16];
+    private volatile int spilledRows;
+    private volatile long flushedBytes;
+    private volatile boolean closed;
+
+    // Состояние чтения — под readLock
+    private final Object readLock = new Object();
+    private final Map<Integer, MappedPage> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, MappedPage> eldest) {
+            return size() > CACHED_PAGES;
+        }
+    };
+    private final Map<Integer, Object[][]> blocks = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Object[][]> eldest) {
+            return size() > CACHED_BLOCKS;
+        }
+    };
+
+    public SpillingResultStore(ResultSetMetaData metaData, Path spillDir, long heapBudgetBytes) throws SQLException {
+        this.memory = new ColumnarResultStore(metaData);
+        this.spillDir = spillDir;
+        this.heapBudgetBytes = heapBudgetBytes;
+    }
+
+    /** Удаляет файлы подкачки, оставшиеся после аварийного завершения приложения. */
+    public static void deleteStaleSpillFiles(Path spillDir) {
+        if (!Files.isDirectory(spillDir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(spillDir)) {
+            files.filter(path -> path.getFileName().toString().startsWith(SPILL_FILE_PREFIX))
+                    .forEach(path -> {
+                        try {
+                            Files.deleteIfExists(path);
+                        } catch (IOException e) {
+                            System.err.println("Не удалось удалить файл подкачки: " + path);
+                        }
+                    });
+        } catch (IOException e) {
+            System.err.println("Не удалось просмотреть папку подкачки: " + spillDir);
+        }
+    }
+
+    /** Добавляет текущую строку ResultSet — в кучу или, после исчерпания бюджета, в файл подкачки. */
+    public void appendRow(ResultSet rs) throws SQLException, IOException {
+        if (out == null) {
+            memory.appendRow(rs);
+            int rows = memory.getRowCount();
+            if (rows % MEMORY_CHECK_INTERVAL == 0 && memory.estimateMemoryBytes() > heapBudgetBytes) {
+                openSpillFile();
+            }
+            return;
+        }
+
+        synchronized (this) {
+            if (closed) {
+                throw new IOException("Результат закрыт");
+            }
+            if (writtenSpillRows % BLOCK_ROWS == 0) {
+                startBlock(writtenSpillRows / BLOCK_ROWS, counter.getCount());
+            }
+            for (int i = 0; i < memory.getColumnCount(); i++) {
+                memory.getColumn(i).spill(rs, i + 1, out);
+            }
+            writtenSpillRows++;
+            if (writtenSpillRows % BLOCK_ROWS == 0) {
+                flush();
+            }
+        }
+    }
+
+    /** Сбрасывает буфер записи, делая все добавленные строки доступными для чтения. */
+    public synchronized void flush() throws IOException {
+        if (out == null || closed) {
+            return;
+        }
+        out.flush();
+        flushedBytes = counter.getCount();
+        spilledRows = writtenSpillRows;
+    }
+
+    /** Хранилище в куче, если результат целиком в нём поместился, иначе {@code null}. */
+    public ColumnarResultStore getMemoryStore() {
+        return spillFile == null ? memory : null;
+    }
+
+    public boolean isSpilled() {
+        return spillFile != null;
+    }
+
+    public long getSpilledBytes() {
+        return flushedBytes;
+    }
+
+    private synchronized void openSpillFile() throws IOException {
+        Files.createDirectories(spillDir);
+        Path file = spillDir.resolve(SPILL_FILE_PREFIX + UUID.randomUUID() + SPILL_FILE_SUFFIX);
+        channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+        counter = new CountingOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+        out = new DataOutputStream(counter);
+        spillFile = file;
+    }
+
+    private void startBlock(int block, long offset) {
+        long[] offsets = blockOffsets;
+        if (block >= offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        offsets[block] = offset;
+        blockOffsets = offsets;
+    }
+
+    @Override
+    public int getRowCount() {
+        return memory.getRowCount() + spilledRows;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return memory.getColumnCount();
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return memory.getColumnName(column);
+    }
+
+    @Override
+    public boolean isNull(int row, int column) {
+        if (row < memory.getRowCount() || spillFile == null) {
+            return memory.isNull(row, column);
+        }
+        return getValue(row, column) == null;
+    }
+
+    @Override
+    public Object getValue(int row, int column) {
+        int memoryRows = memory.getRowCount();
+        if (row < memoryRows || spillFile == null) {
+            return memory.getValue(row, column);
+        }
+        int spilledRow = row - memoryRows;
+        return decodeBlock(spilledRow / BLOCK_ROWS)[spilledRow % BLOCK_ROWS][column];
+    }
+
+    @Override
+    public String getText(int row, int column) {
+        int memoryRows = memory.getRowCount();
+        if (row < memoryRows || spillFile == null) {
+            return memory.getText(row, column);
+        }
+        return memory.getColumn(column).text(getValue(row, column));
+    }
+
+    @Override
+    public boolean isLongColumn(int column) {
+        return memory.isLongColumn(column);
+    }
+
+    /** Строки в памяти читаются без упаковки, выгруженные — из декодированного блока. */
+    @Override
+    public long getLong(int row, int column) {
+        if (row < memory.getRowCount() || spillFile == null) {
+            return memory.getLong(row, column);
+        }
+        return ((ResultColumn.LongColumn) memory.getColumn(column)).unscaled(getValue(row, column));
+    }
+
+    @Override
+    public boolean isDoubleColumn(int column) {
+        return memory.isDoubleColumn(column);
+    }
+
+    @Override
+    public double getDouble(int row, int column) {
+        if (row < memory.getRowCount() || spillFile == null) {
+            return memory.getDouble(row, column);
+        }
+        return (Double) getValue(row, column);
+    }
+
+    @Override
+    public long estimateMemoryBytes() {
+        long bytes = memory.estimateMemoryBytes() + blockOffsets.length * 8L;
+        synchronized (readLock) {
+            for (Object[][] block : blocks.values()) {
+                for (Object[] row : block) {
+                    for (Object value : row) {
+                        bytes += ResultColumn.valueBytes(value);
+                    }
+                }
+            }
+        }
+        return bytes;
+    }
+
+    private Object[][] decodeBlock(int block) {
+        synchronized (readLock) {
+            int rowsInBlock = Math.min(BLOCK_ROWS, spilledRows - block * BLOCK_ROWS);
+            Object[][] decoded = blocks.get(block);
+            // Недописанный блок мог быть декодирован раньше — перечитываем, если строк стало больше
+            if (decoded != null && decoded.length >= rowsInBlock) {
+                return decoded;
+            }
+
+            long start = blockOffsets[block];
+            ByteBuffer buffer = mapPage(block / PAGE_BLOCKS, start);
+            int columnCount = memory.getColumnCount();
+            decoded = new Object[rowsInBlock][columnCount];
+            for (int r = 0; r < rowsInBlock; r++) {
+                for (int c = 0; c < columnCount; c++) {
+                    decoded[r][c] = memory.getColumn(c).readSpilled(buffer);
+                }
+            }
+            blocks.put(block, decoded);
+            return decoded;
+        }
+    }
+
+    /** Отображает страницу файла и возвращает буфер, установленный на смещение {@code offset}. */
+    private ByteBuffer mapPage(int page, long offset) {
+        long[] offsets = blockOffsets;
+        int blockCount = (spilledRows + BLOCK_ROWS - 1) / BLOCK_ROWS;
+        int firstBlock = page * PAGE_BLOCKS;
+        int endBlock = firstBlock + PAGE_BLOCKS;
+        long pageStart = offsets[firstBlock];
+        long pageEnd = endBlock < blockCount ? offsets[endBlock] : flushedBytes;
+
+        MappedPage mapped = pages.get(page);
+        if (mapped == null || mapped.end < pageEnd) {
+            try {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, pageStart, pageEnd - pageStart);
+                mapped = new MappedPage(buffer, pageStart, pageEnd);
+                pages.put(page, mapped);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Ошибка чтения файла подкачки", e);
+            }
+        }
+        ByteBuffer view = mapped.buffer.duplicate();
+        view.position((int) (offset - mapped.start));
+        return view;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        synchronized (readLock) {
+            pages.clear();
+            blocks.clear();
+        }
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Не удалось закрыть файл подкачки: " + spillFile);
+        }
+        try {
+            Files.deleteIfExists(spillFile);
+        } catch (IOException e) {
+            // На Windows файл нельзя удалить, пока его страницы отображены в память;
+            // он будет удалён при следующем запуске через deleteStaleSpillFiles
+            spillFile.toFile().deleteOnExit();
+        }
+    }
+
+    private static final class MappedPage {
+        final MappedByteBuffer buffer;
+        final long start;
+        final long end;
+
+        MappedPage(MappedByteBuffer buffer, long start, long end) {
+            this.buffer = buffer;
+            this.start = start;
+            this.end = end;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.dbclient;
+
+import javafx.application.Platform;
+import javafx.geometry.Point2D;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.control.ContextMenu;
+import javafx.scene.control.MenuItem;
+import javafx.scene.control.TextArea;
+import javafx.scene.control.skin.TextAreaSkin;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Автодополнение имён таблиц и колонок в редакторе запроса по кэшу схемы ({@link SchemaIndex}), без обращения к БД.
+ * <p>
+ * Ctrl+Пробел показывает варианты для слова перед курсором: колонки таблиц из FROM/JOIN и таблицы;
+ * единственный вариант подставляется сразу. После точки варианты появляются сами: колонки таблицы
+ * или её псевдонима либо таблицы схемы.
+ */
+public class SqlAutocomplete {
+    private static final int MAX_SUGGESTIONS = 40;
+    private static final String NAME = "(?:\"[^\"]+\"|[\\w$#]+)";
+    private static final Pattern TABLE_REFERENCE = Pattern.compile(
+            "(?i)\\b(?:FROM|JOIN|UPDATE|INTO)\\s+(" + NAME + "(?:\\." + NAME + ")?)(?:\\s+(?:AS\\s+)?([\\w$#]+))?");
+    private static final Set<String> NOT_ALIASES = new HashSet<>(Arrays.asList(
+            "WHERE", "JOIN", "ON", "LEFT", "RIGHT", "INNER", "OUTER", "CROSS", "FULL", "NATURAL", "USING", "GROUP",
+            "ORDER", "HAVING", "SET", "VALUES", "UNION", "MINUS", "EXCEPT", "INTERSECT", "LIMIT", "OFFSET", "FETCH",
+            "CONNECT", "START", "FOR", "WINDOW", "RETURNING", "SELECT", "PARTITION", "SAMPLE", "LATERAL"));
+
+    private final TextArea area;
+    private final Supplier<SchemaIndex> index;
+    private final ContextMenu popup = new ContextMenu();
+
+    /**
+     * @param index индекс схемы текущего подключения; запрашивается при каждом показе вариантов
+     */
+    public SqlAutocomplete(TextArea area, Supplier<SchemaIndex> index) {
+        this.area = area;
+        this.index = index;
+        area.addEventFilter(KeyEvent.KEY_PRESSED, e -> {
+            if (e.getCode() == KeyCode.SPACE && e.isShortcutDown()) {
+                e.consume();
+                show(true);
+            }
+        });
+        area.addEventHandler(KeyEvent.KEY_TYPED, e -> {
+            if (".".equals(e.getCharacter())) {
+                // точка вставляется обработчиком поведения TextArea — варианты ищем после неё
+                Platform.runLater(() -> show(false));
+            }
+        });
+    }
+
+    private void show(boolean explicit) {
+        popup.hide();
+        String text = area.getText();
+        int caret = area.getCaretPosition();
+        if (text == null || caret > text.length()) {
+            return;
+        }
+        int start = caret;
+        while (start > 0 && isNamePart(text.charAt(start - 1))) {
+            start--;
+        }
+        String prefix = SchemaIndex.unquote(text.substring(start, caret).replace("\"", ""));
+        String qualifier = null;
+        if (start > 0 && text.charAt(start - 1) == '.') {
+            int qualifierStart = start - 1;
+            while (qualifierStart > 0 && (isNamePart(text.charAt(qualifierStart - 1)) || text.charAt(qualifierStart - 1) == '.')) {
+                qualifierStart--;
+            }
+            qualifier = text.substring(qualifierStart, start - 1);
+        }
+        if (qualifier == null && !explicit) {
+            return;
+        }
+
+        SchemaIndex schema = index.get();
+        List<SchemaIndex.Suggestion> suggestions = new ArrayList<>();
+        if (qualifier != null) {
+            List<SchemaCache.Table> owners = resolve(qualifier, text, schema);
+            if (!owners.isEmpty()) {
+                suggestions.addAll(schema.columnsOf(owners, prefix, MAX_SUGGESTIONS));
+            } else if (schema.isSchema(SchemaIndex.unquote(qualifier))) {
+                suggestions.addAll(schema.tablesOfSchema(SchemaIndex.unquote(qualifier), prefix, MAX_SUGGESTIONS));
+            }
+        } else {
+            suggestions.addAll(schema.columnsOf(referencedTables(text, schema), prefix, MAX_SUGGESTIONS / 2));
+            suggestions.addAll(schema.tablesStartingWith(prefix, MAX_SUGGESTIONS - suggestions.size()));
+            if (!prefix.isEmpty() && suggestions.size() < MAX_SUGGESTIONS) {
+                Set<String> shown = new HashSet<>();
+                suggestions.forEach(s -> shown.add(s.name.toUpperCase(Locale.ROOT)));
+                for (SchemaIndex.Suggestion column : schema.anyColumnsStartingWith(prefix, MAX_SUGGESTIONS - suggestions.size())) {
+                    if (shown.add(column.name.toUpperCase(Locale.ROOT))) {
+                        suggestions.add(column);
+                    }
+                }
+            }
+        }
+        if (suggestions.isEmpty()) {
+            return;
+        }
+
+        int replaceFrom = start;
+        if (explicit && suggestions.size() == 1) {
+            area.replaceText(replaceFrom, caret, suggestions.get(0).name);
+            return;
+        }
+        popup.getItems().clear();
+        for (SchemaIndex.Suggestion suggestion : suggestions) {
+            MenuItem item = new MenuItem(suggestion.name + (suggestion.detail != null ? "   " + suggestion.detail : ""));
+            item.setMnemonicParsing(false);
+            item.setOnAction(e -> area.replaceText(replaceFrom, area.getCaretPosition(), suggestion.name));
+            popup.getItems().add(item);
+        }
+        Point2D anchor = caretAnchor(caret);
+        popup.show(area, anchor.getX(), anchor.getY());
+    }
+
+    /** Таблицы, на которые указывает {@code qualifier}: псевдоним из FROM/JOIN, имя таблицы или {@code схема.таблица}. */
+    private static List<SchemaCache.Table> resolve(String qualifier, String text, SchemaIndex schema) {
+        String alias = qualifier.toUpperCase(Locale.ROOT);
+        Map<String, String> aliases = aliases(text);
+        String table = aliases.get(alias);
+        List<SchemaCache.Table> owners = schema.findTables(table != null ? table : qualifier);
+        return owners.isEmpty() && table != null ? schema.findTables(qualifier) : owners;
+    }
+
+    /** Псевдоним (в верхнем регистре) → имя таблицы для всех таблиц из FROM/JOIN/UPDATE/INTO в тексте. */
+    private static Map<String, String> aliases(String text) {
+        Map<String, String> result = new HashMap<>();
+        Matcher matcher = TABLE_REFERENCE.matcher(text);
+        while (matcher.find()) {
+            String alias = matcher.group(2);
+            if (alias != null && !NOT_ALIASES.contains(alias.toUpperCase(Locale.ROOT))) {
+                result.put(alias.toUpperCase(Locale.ROOT), matcher.group(1));
+            }
+        }
+        return result;
+    }
+
+    private static List<SchemaCache.Table> referencedTables(String text, SchemaIndex schema) {
+        Set<SchemaCache.Table> result = new LinkedHashSet<>();
+        Matcher matcher = TABLE_REFERENCE.matcher(text);
+        while (matcher.find()) {
+            result.addAll(schema.findTables(matcher.group(1)));
+        }
+        return new ArrayList<>(result);
+    }
+
+    /** Точка на экране под символом перед курсором; без скина TextArea — левый нижний угол поля. */
+    private Point2D caretAnchor(int caret) {
+        if (area.getSkin() instanceof TextAreaSkin) {
+            Rectangle2D bounds = ((TextAreaSkin) area.getSkin()).getCharacterBounds(Math.max(0, caret - 1));
+            if (bounds != null) {
+                Point2D point = area.localToScreen(bounds.getMaxX(), bounds.getMaxY());
+                if (point != null) {
+                    return point;
+                }
+            }
+        }
+        return area.localToScreen(0, area.getHeight());
+    }
+
+    private static boolean isNamePart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '#' || c == '"';
+    }
+}
@@ -0,0 +1,312 @@
+package com.example.dbclient;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Разбор текста скрипта на отдельные выражения.
+ * <p>
+ * Выражения разделяются {@code ;} вне строковых литералов, идентификаторов в кавычках и комментариев.
+ * Для PostgreSQL учитываются строки в долларовых кавычках ({@code $$...$$}, {@code $tag$...$tag$}),
+ * строки {@code E'...'} с обратной косой чертой и вложенные блочные комментарии.
+ * Для Oracle — q-кавычки ({@code q'[...]'}) и блоки PL/SQL ({@code DECLARE}/{@code BEGIN},
+ * {@code CREATE [OR REPLACE] PROCEDURE|FUNCTION|PACKAGE|TRIGGER|TYPE}): внутри них {@code ;} не разделяет,
+ * блок заканчивается строкой из одного {@code /}, как в SQL*Plus. Такая строка завершает и обычное выражение.
+ * <p>
+ * {@code COMMIT} и {@code ROLLBACK} (в PostgreSQL и их синонимы {@code END}, {@code ABORT}) выделяются в свои виды:
+ * они завершают транзакцию, и {@link ScriptRunner} выполняет их без точки сохранения. {@code ROLLBACK TO SAVEPOINT}
+ * и двухфазные {@code COMMIT PREPARED}, {@code ROLLBACK PREPARED}, {@code COMMIT FORCE} остаются обычными выражениями.
+ */
+public class SqlScript {
+    public enum Kind {
+        /** Возвращает строки. */
+        QUERY,
+        /** INSERT, UPDATE, DELETE, MERGE — можно объединять в пакет. */
+        DML,
+        /** Блок PL/SQL. */
+        BLOCK,
+        /** COMMIT: фиксирует транзакцию. */
+        COMMIT,
+        /** ROLLBACK: откатывает транзакцию целиком. */
+        ROLLBACK,
+        /** DDL и прочее. */
+        OTHER
+    }
+
+    private static final Set<String> QUERY_WORDS = new HashSet<>(Arrays.asList(
+            "SELECT", "WITH", "SHOW", "EXPLAIN", "VALUES", "TABLE", "DESCRIBE"));
+    private static final Set<String> DML_WORDS = new HashSet<>(Arrays.asList(
+            "INSERT", "UPDATE", "DELETE", "MERGE", "UPSERT"));
+    /** Слова после COMMIT/ROLLBACK, с которыми выражение не завершает текущую транзакцию. */
+    private static final Set<String> NOT_TRANSACTION_END = new HashSet<>(Arrays.asList(
+            "TO", "PREPARED", "FORCE"));
+    private static final Set<String> PLSQL_UNITS = new HashSet<>(Arrays.asList(
+            "PROCEDURE", "FUNCTION", "PACKAGE", "TRIGGER", "TYPE", "LIBRARY"));
+
+    private SqlScript() {
+    }
+
+    /**
+     * @param oracle разбирать по правилам Oracle (блоки PL/SQL, {@code /}), иначе — PostgreSQL
+     * @return выражения без завершающего {@code ;} (у блоков PL/SQL {@code END;} сохраняется)
+     */
+    public static List<ScriptStatement> split(String text, boolean oracle) {
+        List<ScriptStatement> result = new ArrayList<>();
+        int length = text.length();
+        int line = 1;
+        int lineCountedTo = 0;
+        int i = 0;
+        while (true) {
+            i = skipBlank(text, i, oracle);
+            if (i >= length) {
+                break;
+            }
+            int start = i;
+            boolean block = oracle && isPlSqlBlock(text, start);
+            int end = length;
+            int next = length;
+            while (i < length) {
+                char c = text.charAt(i);
+                char following = i + 1 < length ? text.charAt(i + 1) : 0;
+                boolean wordStart = i == 0 || !NamedSql.isNamePart(text.charAt(i - 1));
+                if (oracle && (c == 'q' || c == 'Q') && following == '\'' && wordStart) {
+                    i = skipQQuoted(text, i);
+                } else if (!oracle && (c == 'e' || c == 'E') && following == '\'' && wordStart) {
+                    i = skipEscaped(text, i + 1);
+                } else if (c == '\'' || c == '"') {
+                    i = NamedSql.skipQuoted(text, i, c);
+                } else if (c == '-' && following == '-') {
+                    i = lineEnd(text, i);
+                } else if (c == '/' && following == '*') {
+                    i = skipBlockComment(text, i, !oracle);
+                } else if (!oracle && c == '$' && wordStart) {
+                    i = NamedSql.skipDollarQuoted(text, i);
+                } else if (c == ';' && !block) {
+                    end = i;
+                    next = i + 1;
+                    break;
+                } else if (oracle && c == '/' && isSlashLine(text, i)) {
+                    end = i;
+                    next = Math.min(length, lineEnd(text, i) + 1);
+                    break;
+                } else {
+                    i++;
+                }
+            }
+
+            String sql = text.substring(start, end).strip();
+            if (!sql.isEmpty()) {
+                for (; lineCountedTo < start; lineCountedTo++) {
+                    if (text.charAt(lineCountedTo) == '\n') {
+                        line++;
+                    }
+                }
+                result.add(new ScriptStatement(result.size() + 1, line, sql, block ? Kind.BLOCK : kindOf(sql, oracle)));
+            }
+            i = next;
+        }
+        return result;
+    }
+
+    /** Пропускает пробелы, комментарии, пустые выражения и строки из одного {@code /} между выражениями. */
+    private static int skipBlank(String text, int i, boolean oracle) {
+        int length = text.length();
+        while (i < length) {
+            char c = text.charAt(i);
+            char following = i + 1 < length ? text.charAt(i + 1) : 0;
+            if (Character.isWhitespace(c) || c == ';') {
+                i++;
+            } else if (c == '-' && following == '-') {
+                i = lineEnd(text, i);
+            } else if (c == '/' && following == '*') {
+                i = skipBlockComment(text, i, !oracle);
+            } else if (oracle && c == '/' && isSlashLine(text, i)) {
+                i = lineEnd(text, i);
+            } else {
+                break;
+            }
+        }
+        return i;
+    }
+
+    private static boolean isPlSqlBlock(String text, int start) {
+        List<String> words = leadingWords(text, start, 5);
+        if (words.isEmpty()) {
+            return false;
+        }
+        String first = words.get(0);
+        if (first.equals("DECLARE") || first.equals("BEGIN")) {
+            return true;
+        }
+        if (!first.equals("CREATE")) {
+            return false;
+        }
+        int w = 1;
+        if (w + 1 < words.size() && words.get(w).equals("OR") && words.get(w + 1).equals("REPLACE")) {
+            w += 2;
+        }
+        if (w < words.size() && words.get(w).endsWith("EDITIONABLE")) {
+            w++;
+        }
+        return w < words.size() && PLSQL_UNITS.contains(words.get(w));
+    }
+
+    private static Kind kindOf(String sql, boolean oracle) {
+        List<String> words = leadingWords(sql, 0, 3);
+        if (words.isEmpty()) {
+            return Kind.OTHER;
+        }
+        String first = words.get(0);
+        if (QUERY_WORDS.contains(first)) {
+            return Kind.QUERY;
+        }
+        if (DML_WORDS.contains(first)) {
+            return Kind.DML;
+        }
+        boolean commit = first.equals("COMMIT") || !oracle && first.equals("END");
+        boolean rollback = first.equals("ROLLBACK") || !oracle && first.equals("ABORT");
+        if (commit || rollback) {
+            int w = 1;
+            if (w < words.size() && (words.get(w).equals("WORK") || words.get(w).equals("TRANSACTION"))) {
+                w++;
+            }
+            if (w < words.size() && NOT_TRANSACTION_END.contains(words.get(w))) {
+                return Kind.OTHER;
+            }
+            return commit ? Kind.COMMIT : Kind.ROLLBACK;
+        }
+        return Kind.OTHER;
+    }
+
+    /** Первые слова выражения в верхнем регистре, без комментариев. */
+    private static List<String> leadingWords(String text, int start, int max) {
+        List<String> words = new ArrayList<>(max);
+        int i = start;
+        int length = text.length();
+        while (i < length && words.size() < max) {
+            char c = text.charAt(i);
+            char following = i + 1 < length ? text.charAt(i + 1) : 0;
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '-' && following == '-') {
+                i = lineEnd(text, i);
+            } else if (c == '/' && following == '*') {
+                i = skipBlockComment(text, i, false);
+            } else if (Character.isLetter(c)) {
+                int wordEnd = i;
+                while (wordEnd < length && NamedSql.isNamePart(text.charAt(wordEnd))) {
+                    wordEnd++;
+                }
+                words.add(text.substring(i, wordEnd).toUpperCase(Locale.ROOT));
+                i = wordEnd;
+            } else {
+                break;
+            }
+        }
+        return words;
+    }
+
+    /** Строка, в которой кроме {@code /} в позиции {@code i} только пробелы. */
+    private static boolean isSlashLine(String text, int i) {
+        for (int p = i - 1; p >= 0 && text.charAt(p) != '\n'; p--) {
+            if (!Character.isWhitespace(text.charAt(p))) {
+                return false;
+            }
+        }
+        for (int p = i + 1; p < text.length() && text.charAt(p) != '\n'; p++) {
+            if (!Character.isWhitespace(text.charAt(p))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int lineEnd(String text, int i) {
+        int end = text.indexOf('\n', i);
+        return end < 0 ? text.length() : end;
+    }
+
+    /** Комментарий {@code /* ... *}{@code /}; в PostgreSQL такие комментарии могут быть вложенными. */
+    private static int skipBlockComment(String text, int start, boolean nested) {
+        int depth = 1;
+        int i = start + 2;
+        while (i < text.length()) {
+            if (text.startsWith("*/", i)) {
+                i += 2;
+                if (--depth == 0) {
+                    return i;
+                }
+            } else if (nested && text.startsWith("/*", i)) {
+                depth++;
+                i += 2;
+            } else {
+                i++;
+            }
+        }
+        return text.length();
+    }
+
+    /** q-кавычки Oracle: {@code q'[...]'}, {@code q'{...}'}, {@code q'!...!'} и т.п. */
+    private static int skipQQuoted(String text, int start) {
+        if (start + 2 >= text.length()) {
+            return text.length();
+        }
+        char open = text.charAt(start + 2);
+        char close;
+        switch (open) {
+            case '[': close = ']'; break;
+            case '{': close = '}'; break;
+            case '(': close = ')'; break;
+            case '<': close = '>'; break;
+            default: close = open;
+        }
+        int end = text.indexOf(close + "'", start + 3);
+        return end < 0 ? text.length() : end + 2;
+    }
+
+    /** Строка PostgreSQL {@code E'...'}: обратная косая черта экранирует следующий символ. */
+    private static int skipEscaped(String text, int quote) {
+        int i = quote + 1;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == '\'') {
+                if (i + 1 < text.length() && text.charAt(i + 1) == '\'') {
+                    i += 2;
+                } else {
+                    return i + 1;
+                }
+            } else {
+                i++;
+            }
+        }
+        return text.length();
+    }
+
+    /** Выражение скрипта. */
+    public static final class ScriptStatement {
+        private final int number;
+        private final int line;
+        private final String sql;
+        private final Kind kind;
+
+        ScriptStatement(int number, int line, String sql, Kind kind) {
+            this.number = number;
+            this.line = line;
+            this.sql = sql;
+            this.kind = kind;
+        }
+
+        /** Порядковый номер в скрипте, с 1. */
+        public int getNumber() { return number; }
+        /** Строка начала выражения в тексте скрипта, с 1. */
+        public int getLine() { return line; }
+        public String getSql() { return sql; }
+        public Kind getKind() { return kind; }
+    }
+}
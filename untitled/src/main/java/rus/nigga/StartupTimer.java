@@ -0,0 +1,60 @@
+package com.example.dbclient;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Замеры этапов запуска для отчёта в журнале. Последовательные этапы в потоке FX отмечаются
+ * {@link #mark}, фоновые задачи идут параллельно и замеряются каждая отдельно через {@link #timed}.
+ */
+public class StartupTimer {
+    private final long jvmMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+    private final long startNanos = System.nanoTime();
+    private final List<String> phases = new ArrayList<>();
+    private final List<String> backgroundTasks = new ArrayList<>();
+    private long lastMarkNanos = startNanos;
+    private long windowShownNanos;
+
+    /** Завершает очередной этап в потоке FX. */
+    public synchronized void mark(String phase) {
+        long now = System.nanoTime();
+        phases.add(phase + " " + millis(now - lastMarkNanos) + " мс");
+        lastMarkNanos = now;
+    }
+
+    /** Отмечает момент, когда окно показано пользователю. */
+    public synchronized void windowShown() {
+        mark("показ окна");
+        windowShownNanos = lastMarkNanos;
+    }
+
+    /** Оборачивает фоновую задачу замером её длительности. */
+    public Runnable timed(String task, Runnable body) {
+        return () -> {
+            long start = System.nanoTime();
+            try {
+                body.run();
+            } finally {
+                synchronized (this) {
+                    backgroundTasks.add(task + " " + millis(System.nanoTime() - start) + " мс");
+                }
+            }
+        };
+    }
+
+    /** Отчёт вида «Запуск: JVM до start() …; окно через …; полностью загружено через …». */
+    public synchronized String report() {
+        long now = System.nanoTime();
+        return "Запуск: JVM до start() " + jvmMillis + " мс; "
+                + String.join(", ", phases)
+                + "; окно показано через " + millis(windowShownNanos - startNanos) + " мс"
+                + "; фоновая загрузка (параллельно): " + String.join(", ", backgroundTasks)
+                + "; всё загружено через " + millis(now - startNanos) + " мс";
+    }
+
+    private static long millis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.dbclient;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Кэш подготовленных выражений одной физической сессии с вытеснением давно не использованных (LRU).
+ * <p>
+ * Выданное выражение — обёртка, чей {@code close()} очищает параметры, возвращает maxRows, таймаут,
+ * размер и направление выборки к значениям сразу после подготовки и возвращает выражение в кэш, поэтому
+ * настройки одного запроса не достаются следующему, а повторный запуск того же SQL не разбирается базой
+ * заново. Если выражение с тем же текстом уже занято, выдаётся обычное некэшируемое. Выражения
+ * закрываются вместе с сессией.
+ */
+class StatementCache {
+    private final Connection physical;
+    private final int capacity;
+    private final Map<String, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+
+    /** Счётчики попаданий и промахов общие для всех сессий пула. */
+    StatementCache(Connection physical, int capacity, AtomicLong hits, AtomicLong misses) {
+        this.physical = physical;
+        this.capacity = capacity;
+        this.hits = hits;
+        this.misses = misses;
+    }
+
+    synchronized PreparedStatement prepare(String sql) throws SQLException {
+        if (capacity <= 0) {
+            return physical.prepareStatement(sql);
+        }
+        CachedStatement cached = statements.get(sql);
+        if (cached != null && cached.inUse) {
+            return physical.prepareStatement(sql);
+        }
+        if (cached != null && !cached.statement.isClosed()) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            if (cached != null) {
+                statements.remove(sql);
+            }
+            cached = new CachedStatement(sql, physical.prepareStatement(sql));
+            try {
+                cached.recordDefaults();
+            } catch (SQLException e) {
+                closeQuietly(cached.statement);
+                throw e;
+            }
+            statements.put(sql, cached);
+            evictOverflow();
+        }
+        cached.inUse = true;
+        return wrap(cached);
+    }
+
+    private void evictOverflow() {
+        Iterator<CachedStatement> it = statements.values().iterator();
+        while (statements.size() > capacity && it.hasNext()) {
+            CachedStatement eldest = it.next();
+            it.remove();
+            eldest.evicted = true;
+            if (!eldest.inUse) {
+                closeQuietly(eldest.statement);
+            }
+        }
+    }
+
+    private synchronized void release(CachedStatement cached) {
+        cached.inUse = false;
+        if (cached.evicted) {
+            closeQuietly(cached.statement);
+            return;
+        }
+        try {
+            cached.statement.clearParameters();
+            cached.statement.clearWarnings();
+            cached.restoreDefaults();
+        } catch (SQLException e) {
+            statements.remove(cached.sql);
+            closeQuietly(cached.statement);
+        }
+    }
+
+    private PreparedStatement wrap(CachedStatement cached) {
+        boolean[] returned = {false};
+        return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            synchronized (returned) {
+                                if (!returned[0]) {
+                                    returned[0] = true;
+                                    release(cached);
+                                }
+                            }
+                            return null;
+                        case "isClosed":
+                            synchronized (returned) {
+                                if (returned[0]) {
+                                    return true;
+                                }
+                            }
+                            break;
+                        case "cancel":
+                            // Выражение, возвращённое в кэш, может уже выполнять чужой запрос
+                            synchronized (returned) {
+                                if (returned[0]) {
+                                    return null;
+                                }
+                            }
+                            break;
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        default:
+                            synchronized (returned) {
+                                if (returned[0]) {
+                                    throw new SQLException("Выражение уже закрыто");
+                                }
+                            }
+                    }
+                    try {
+                        return method.invoke(cached.statement, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    private static final class CachedStatement {
+        final String sql;
+        final PreparedStatement statement;
+        boolean inUse;
+        boolean evicted;
+        private int maxRows;
+        private int queryTimeout;
+        private int fetchSize;
+        private int fetchDirection;
+
+        CachedStatement(String sql, PreparedStatement statement) {
+            this.sql = sql;
+            this.statement = statement;
+        }
+
+        void recordDefaults() throws SQLException {
+            maxRows = statement.getMaxRows();
+            queryTimeout = statement.getQueryTimeout();
+            fetchSize = statement.getFetchSize();
+            fetchDirection = statement.getFetchDirection();
+        }
+
+        /** Меняет только отличающиеся настройки: обычно выражение возвращают нетронутым. */
+        void restoreDefaults() throws SQLException {
+            if (statement.getMaxRows() != maxRows) {
+                statement.setMaxRows(maxRows);
+            }
+            if (statement.getQueryTimeout() != queryTimeout) {
+                statement.setQueryTimeout(queryTimeout);
+            }
+            if (statement.getFetchSize() != fetchSize) {
+                statement.setFetchSize(fetchSize);
+            }
+            if (statement.getFetchDirection() != fetchDirection) {
+                statement.setFetchDirection(fetchDirection);
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.dbclient;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CellFormatterTest {
+    private static final LocalDateTime DATE_TIME = LocalDateTime.of(2024, 1, 2, 15, 30, 15, 500_000_000);
+
+    @Test
+    void fractionFollowsSecondsBeforeAmPm() {
+        CellFormatter formatter = new CellFormatter(Locale.US);
+
+        String time = formatter.format(DATE_TIME.toLocalTime());
+        assertTrue(time.startsWith("3:30:15.5"), time);
+        assertTrue(time.endsWith("PM"), time);
+
+        String dateTime = formatter.format(DATE_TIME);
+        assertTrue(dateTime.startsWith("1/2/24"), dateTime);
+        assertTrue(dateTime.contains("3:30:15.5"), dateTime);
+        assertTrue(dateTime.endsWith("PM"), dateTime);
+    }
+
+    @Test
+    void fractionFollowsSecondsAfterLeadingAmPm() {
+        String time = new CellFormatter(Locale.KOREA).format(DATE_TIME.toLocalTime());
+        assertTrue(time.startsWith("오후"), time);
+        assertTrue(time.endsWith("3:30:15.5"), time);
+    }
+
+    @Test
+    void fractionUsesLocalDecimalSeparator() {
+        CellFormatter formatter = new CellFormatter(Locale.forLanguageTag("ru-RU"));
+        assertEquals("15:30:15,5", formatter.format(DATE_TIME.toLocalTime()));
+        assertEquals("02.01.2024, 15:30:15,5", formatter.format(DATE_TIME));
+        assertEquals("15:30:15,123456789", formatter.format(LocalTime.of(15, 30, 15, 123_456_789)));
+    }
+
+    @Test
+    void wholeSecondsHaveNoFraction() {
+        String time = new CellFormatter(Locale.US).format(LocalTime.of(15, 30, 15));
+        assertFalse(time.contains("."), time);
+        assertTrue(time.startsWith("3:30:15"), time);
+        assertTrue(time.endsWith("PM"), time);
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.dbclient;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CsvReaderTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsOwnExport() throws Exception {
+        String[] header = {"ID", "NAME"};
+        String[][] rows = {{"1", "Иванов; \"младший\""}, {"2", null}, {"3", "две\nстроки"}};
+        Path file = dir.resolve("result.csv");
+        new ResultExporter(ResultExporter.Format.CSV, file, (count, bytes, perSecond) -> {
+        }).export(resultSet(header, rows), () -> false);
+
+        try (CsvReader reader = new CsvReader(Files.newBufferedReader(file, StandardCharsets.UTF_8), ';', true)) {
+            assertTrue(reader.next());
+            assertArrayEquals(header, reader.getFields());
+            assertEquals("ID;NAME", reader.getRaw());
+            List<String[]> read = new ArrayList<>();
+            while (reader.next()) {
+                read.add(reader.getFields());
+            }
+            assertArrayEquals(rows, read.toArray(new String[0][]));
+        }
+    }
+
+    @Test
+    void byteOrderMarkIsNotPartOfFirstValue() throws IOException {
+        try (CsvReader reader = new CsvReader(new StringReader("\uFEFF42;x\r\n"), ';', true)) {
+            assertTrue(reader.next());
+            assertArrayEquals(new String[]{"42", "x"}, reader.getFields());
+            assertEquals("42;x", reader.getRaw());
+            assertFalse(reader.next());
+        }
+    }
+
+    @Test
+    void byteOrderMarkInsideDataIsKept() throws IOException {
+        try (CsvReader reader = new CsvReader(new StringReader("a;\uFEFFb\n"), ';', false)) {
+            assertTrue(reader.next());
+            assertArrayEquals(new String[]{"a", "\uFEFFb"}, reader.getFields());
+        }
+    }
+
+    /** ResultSet из строковых значений: ровно то, что читает выгрузка в CSV. */
+    private static ResultSet resultSet(String[] header, String[][] rows) {
+        ResultSetMetaData meta = (ResultSetMetaData) Proxy.newProxyInstance(CsvReaderTest.class.getClassLoader(),
+                new Class<?>[]{ResultSetMetaData.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getColumnCount":
+                            return header.length;
+                        case "getColumnLabel":
+                            return header[(Integer) args[0] - 1];
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        int[] row = {-1};
+        return (ResultSet) Proxy.newProxyInstance(CsvReaderTest.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getMetaData":
+                            return meta;
+                        case "next":
+                            return ++row[0] < rows.length;
+                        case "getString":
+                            return rows[row[0]][(Integer) args[0] - 1];
+                        default:
+                            throw new SQLException("не поддерживается: " + method.getName());
+                    }
+                });
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.dbclient;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SqlScriptTest {
+    @Test
+    void splitsOnSemicolonsOutsideLiteralsAndComments() {
+        List<SqlScript.ScriptStatement> statements = SqlScript.split(
+                "select 'a;b', \"c;d\" from t; -- x; y\n"
+                        + "update t set v = 1 /* ; */;\n"
+                        + ";;\n"
+                        + "delete from t", false);
+        assertEquals(List.of("select 'a;b', \"c;d\" from t", "update t set v = 1 /* ; */", "delete from t"),
+                sql(statements));
+        assertEquals(List.of(SqlScript.Kind.QUERY, SqlScript.Kind.DML, SqlScript.Kind.DML), kinds(statements));
+        assertEquals(List.of(1, 2, 4), statements.stream().map(SqlScript.ScriptStatement::getLine).collect(Collectors.toList()));
+        assertEquals(List.of(1, 2, 3), statements.stream().map(SqlScript.ScriptStatement::getNumber).collect(Collectors.toList()));
+    }
+
+    @Test
+    void postgresEscapedStrings() {
+        assertEquals(List.of("select E'it\\'s; fine', e'\\\\'", "select 1"),
+                sql(SqlScript.split("select E'it\\'s; fine', e'\\\\'; select 1", false)));
+        // без префикса E обратная косая черта — обычный символ
+        assertEquals(List.of("select 'a\\'", "select 'b'"), sql(SqlScript.split("select 'a\\'; select 'b'", false)));
+    }
+
+    @Test
+    void postgresDollarQuotes() {
+        String function = "create function f() returns int as $$ begin return 1; end; $$ language plpgsql";
+        String tagged = "do $body$ begin perform '$$;'; end $body$";
+        assertEquals(List.of(function, tagged, "select $1"),
+                sql(SqlScript.split(function + ";\n" + tagged + ";\nselect $1;", false)));
+    }
+
+    @Test
+    void nestedCommentsOnlyInPostgres() {
+        String text = "/* a /* b; */ c; */ select 1; select 2";
+        assertEquals(List.of("select 1", "select 2"), sql(SqlScript.split(text, false)));
+        // в Oracle комментарий заканчивается на первом */
+        assertEquals(List.of("c", "*/ select 1", "select 2"), sql(SqlScript.split(text, true)));
+    }
+
+    @Test
+    void oracleQQuotes() {
+        assertEquals(List.of("select q'[a;']b]' from dual", "select Q'{;}' from dual", "select q'!x;!' from dual"),
+                sql(SqlScript.split("select q'[a;']b]' from dual; select Q'{;}' from dual;\nselect q'!x;!' from dual;",
+                        true)));
+        // в PostgreSQL q — обычный идентификатор, за которым строка
+        assertEquals(List.of("select q'[a;]'", "select ']'"), sql(SqlScript.split("select q'[a;]'; select ']'", false)));
+    }
+
+    @Test
+    void oraclePlSqlBlocksEndWithSlashLine() {
+        String block = "begin\n  insert into t values (1);\n  commit;\nend;";
+        String procedure = "create or replace editionable procedure p is\nbegin\n  null;\nend p;";
+        List<SqlScript.ScriptStatement> statements = SqlScript.split(
+                block + "\n/\n" + procedure + "\n  /  \nselect 1 from dual\n/\nselect 2 from dual;\n/\n", true);
+        assertEquals(List.of(block, procedure, "select 1 from dual", "select 2 from dual"), sql(statements));
+        assertEquals(List.of(SqlScript.Kind.BLOCK, SqlScript.Kind.BLOCK, SqlScript.Kind.QUERY, SqlScript.Kind.QUERY),
+                kinds(statements));
+        assertEquals(List.of(1, 6, 11, 13), statements.stream().map(SqlScript.ScriptStatement::getLine).collect(Collectors.toList()));
+    }
+
+    @Test
+    void slashInsideExpressionDoesNotSplit() {
+        assertEquals(List.of("select 4\n  / 2 from dual"), sql(SqlScript.split("select 4\n  / 2 from dual;", true)));
+        assertEquals(List.of("create table t (id int)"), sql(SqlScript.split("create table t (id int)\n/", true)));
+        // в PostgreSQL строка из / не разделяет
+        assertEquals(List.of("select 4\n/\n2"), sql(SqlScript.split("select 4\n/\n2", false)));
+    }
+
+    @Test
+    void declareAndCreateFunctionAreBlocksInOracle() {
+        assertEquals(List.of(SqlScript.Kind.BLOCK, SqlScript.Kind.BLOCK, SqlScript.Kind.OTHER), kinds(SqlScript.split(
+                "declare x int; begin x := 1; end;\n/\n"
+                        + "create function f return int is begin return 1; end;\n/\n"
+                        + "create table f (id int);", true)));
+    }
+
+    @Test
+    void transactionControlKinds() {
+        List<SqlScript.ScriptStatement> postgres = SqlScript.split(
+                "commit; COMMIT WORK; end; rollback; abort; rollback to savepoint s; rollback work to s;"
+                        + " commit prepared 'x'; begin; savepoint s", false);
+        assertEquals(List.of(SqlScript.Kind.COMMIT, SqlScript.Kind.COMMIT, SqlScript.Kind.COMMIT,
+                SqlScript.Kind.ROLLBACK, SqlScript.Kind.ROLLBACK, SqlScript.Kind.OTHER, SqlScript.Kind.OTHER,
+                SqlScript.Kind.OTHER, SqlScript.Kind.OTHER, SqlScript.Kind.OTHER), kinds(postgres));
+
+        List<SqlScript.ScriptStatement> oracle = SqlScript.split(
+                "commit;\nrollback work;\nrollback to s;\ncommit force '1.2.3';\nabort", true);
+        assertEquals(List.of(SqlScript.Kind.COMMIT, SqlScript.Kind.ROLLBACK, SqlScript.Kind.OTHER,
+                SqlScript.Kind.OTHER, SqlScript.Kind.OTHER), kinds(oracle));
+    }
+
+    private static List<String> sql(List<SqlScript.ScriptStatement> statements) {
+        return statements.stream().map(SqlScript.ScriptStatement::getSql).collect(Collectors.toList());
+    }
+
+    private static List<SqlScript.Kind> kinds(List<SqlScript.ScriptStatement> statements) {
+        return statements.stream().map(SqlScript.ScriptStatement::getKind).collect(Collectors.toList());
+    }
+}
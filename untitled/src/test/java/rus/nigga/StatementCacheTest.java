@@ -0,0 +1,101 @@
+package com.example.dbclient;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StatementCacheTest {
+    private final AtomicInteger prepared = new AtomicInteger();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final StatementCache cache = new StatementCache(fakeConnection(), 4, hits, misses);
+
+    @Test
+    void releaseRestoresStatementSettings() throws SQLException {
+        PreparedStatement first = cache.prepare("select 1");
+        first.setMaxRows(100_000);
+        first.setQueryTimeout(30);
+        first.setFetchSize(500);
+        first.setFetchDirection(ResultSet.FETCH_REVERSE);
+        first.close();
+
+        PreparedStatement second = cache.prepare("select 1");
+        assertEquals(1, prepared.get());
+        assertEquals(1, hits.get());
+        assertEquals(0, second.getMaxRows());
+        assertEquals(0, second.getQueryTimeout());
+        assertEquals(10, second.getFetchSize());
+        assertEquals(ResultSet.FETCH_FORWARD, second.getFetchDirection());
+        second.close();
+    }
+
+    @Test
+    void releasedWrapperCannotBeUsed() throws SQLException {
+        PreparedStatement statement = cache.prepare("select 1");
+        statement.close();
+        assertThrows(SQLException.class, () -> statement.setMaxRows(1));
+    }
+
+    @Test
+    void busyStatementIsNotShared() throws SQLException {
+        PreparedStatement first = cache.prepare("select 1");
+        PreparedStatement second = cache.prepare("select 1");
+        second.setMaxRows(7);
+        assertEquals(2, prepared.get());
+        assertEquals(0, first.getMaxRows());
+        first.close();
+        second.close();
+    }
+
+    private Connection fakeConnection() {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("prepareStatement")) {
+                        prepared.incrementAndGet();
+                        return fakeStatement();
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    /** Выражение, которое только хранит настройки; размер выборки по умолчанию, как у драйвера, не ноль. */
+    private static PreparedStatement fakeStatement() {
+        Map<String, Integer> settings = new HashMap<>(Map.of(
+                "MaxRows", 0, "QueryTimeout", 0, "FetchSize", 10, "FetchDirection", ResultSet.FETCH_FORWARD));
+        boolean[] closed = {false};
+        return (PreparedStatement) Proxy.newProxyInstance(StatementCacheTest.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.startsWith("get") && settings.containsKey(name.substring(3))) {
+                        return settings.get(name.substring(3));
+                    }
+                    if (name.startsWith("set") && settings.containsKey(name.substring(3))) {
+                        settings.put(name.substring(3), (Integer) args[0]);
+                        return null;
+                    }
+                    switch (name) {
+                        case "clearParameters":
+                        case "clearWarnings":
+                            return null;
+                        case "close":
+                            closed[0] = true;
+                            return null;
+                        case "isClosed":
+                            return closed[0];
+                        default:
+                            throw new UnsupportedOperationException(name);
+                    }
+                });
+    }
+}